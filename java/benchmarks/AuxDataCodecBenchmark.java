@@ -0,0 +1,186 @@
+package benchmarks;
+
+import com.grammatech.gtirb.*;
+import com.grammatech.gtirb.auxdatacodec.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Encoding and decoding AuxData with each codec.
+ *
+ * Scalar codecs are measured on a list of values. Container, tuple and
+ * composite codecs are measured through the sanctioned AuxData schemas
+ * that use them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AuxDataCodecBenchmark {
+
+    @Param({"bool", "int8", "int16", "int32", "int64", "float", "string",
+            "uuid", "offset", "functionBlocks", "functionNames", "alignment",
+            "comments", "elfSectionProperties", "elfSymbolInfo",
+            "peExportEntries", "peImportEntries"})
+    String codec;
+
+    @Param({"10000"}) int entries;
+
+    private Codec<Object> selected;
+    private Object value;
+    private byte[] encoded;
+    private Random random;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.random = new Random(42);
+        switch (this.codec) {
+        case "bool":
+            this.useList(new BoolCodec(), i -> (i & 1) == 0);
+            break;
+        case "int8":
+            this.useList(ByteCodec.INT8, i -> (byte)i);
+            break;
+        case "int16":
+            this.useList(ShortCodec.INT16, i -> (short)i);
+            break;
+        case "int32":
+            this.useList(IntegerCodec.INT32, i -> i);
+            break;
+        case "int64":
+            this.useList(LongCodec.INT64, i -> (long)i * 0x10001);
+            break;
+        case "float":
+            this.useList(new FloatCodec(), i -> i * 0.5f);
+            break;
+        case "string":
+            this.useList(new StringCodec(), i -> "string_" + i);
+            break;
+        case "uuid":
+            this.useList(new UuidCodec(), i -> this.uuid());
+            break;
+        case "offset":
+            this.useList(new OffsetCodec(), i -> new Offset(this.uuid(), i));
+            break;
+        case "functionBlocks": {
+            Map<UUID, Set<UUID>> map = new HashMap<UUID, Set<UUID>>();
+            for (int i = 0; i < this.entries / 8; i++) {
+                Set<UUID> blocks = new HashSet<UUID>();
+                for (int j = 0; j < 8; j++)
+                    blocks.add(this.uuid());
+                map.put(this.uuid(), blocks);
+            }
+            this.use(AuxDataSchemas.functionBlocks, map);
+            break;
+        }
+        case "functionNames":
+            this.use(AuxDataSchemas.functionNames,
+                     this.uuidMap(i -> this.uuid()));
+            break;
+        case "alignment":
+            this.use(AuxDataSchemas.alignment, this.uuidMap(i -> 16L));
+            break;
+        case "comments": {
+            Map<Offset, String> map = new HashMap<Offset, String>();
+            for (int i = 0; i < this.entries; i++)
+                map.put(new Offset(this.uuid(), i), "comment " + i);
+            this.use(AuxDataSchemas.comments, map);
+            break;
+        }
+        case "elfSectionProperties":
+            this.use(AuxDataSchemas.elfSectionProperties,
+                     this.uuidMap(i -> new ElfSectionPropertyTuple(1L, 6L)));
+            break;
+        case "elfSymbolInfo":
+            this.use(AuxDataSchemas.elfSymbolInfo,
+                     this.uuidMap(i
+                                  -> new ElfSymbolInfoTuple(
+                                      (long)i, "FUNC", "GLOBAL", "DEFAULT",
+                                      1L)));
+            break;
+        case "peExportEntries":
+            this.use(AuxDataSchemas.peExportEntries,
+                     this.list(i -> new PeExportEntry((long)i, (long)i,
+                                                      "export_" + i)));
+            break;
+        case "peImportEntries":
+            this.use(AuxDataSchemas.peImportEntries,
+                     this.list(i
+                               -> new PeImportEntry((long)i, (long)i,
+                                                    "import_" + i, "lib.dll")));
+            break;
+        default:
+            throw new IllegalArgumentException("unknown codec " + this.codec);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.selected.encode(out, this.value);
+        this.encoded = out.toByteArray();
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        ByteArrayOutputStream out =
+            new ByteArrayOutputStream(this.encoded.length);
+        this.selected.encode(out, this.value);
+        return out.size();
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return this.selected.decode(new ByteArrayInputStream(this.encoded));
+    }
+
+    @Benchmark
+    public Object decodeBuffer() throws Exception {
+        return this.selected.decode(
+            ByteBuffer.wrap(this.encoded).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void use(Codec<T> codec, T value) {
+        this.selected = (Codec<Object>)codec;
+        this.value = value;
+    }
+
+    private <T> void use(AuxDataSchema<T> schema, T value) {
+        this.use(schema.getCodec(), value);
+    }
+
+    private <T> void useList(Codec<T> codec, IntFunction<T> make) {
+        this.use(new ListCodec<T>(codec, ArrayList::new), this.list(make));
+    }
+
+    private <T> List<T> list(IntFunction<T> make) {
+        List<T> list = new ArrayList<T>(this.entries);
+        for (int i = 0; i < this.entries; i++)
+            list.add(make.apply(i));
+        return list;
+    }
+
+    private <T> Map<UUID, T> uuidMap(IntFunction<T> make) {
+        Map<UUID, T> map = new HashMap<UUID, T>();
+        for (int i = 0; i < this.entries; i++)
+            map.put(this.uuid(), make.apply(i));
+        return map;
+    }
+
+    private UUID uuid() {
+        return new UUID(this.random.nextLong(), this.random.nextLong());
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import com.grammatech.gtirb.*;
+import com.grammatech.gtirb.Module;
+import com.grammatech.gtirb.SymbolicExpression.AttributeFlag;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Builds synthetic IRs for the benchmarks.
+ */
+final class BenchmarkIrs {
+
+    static final long BLOCK_SIZE = 4;
+    static final long BASE_ADDRESS = 0x400000;
+
+    private BenchmarkIrs() {}
+
+    /**
+     * Build an IR with one text section per module. Each section holds one
+     * byte interval of consecutive code blocks, each with a symbol and a
+     * symbolic expression referring to that symbol.
+     */
+    static IR build(int modules, int blocksPerModule) {
+        IR ir = new IR();
+        for (int m = 0; m < modules; m++)
+            ir.addModule(buildModule("mod" + m, blocksPerModule));
+        ir.setCfg(new CFG(new ArrayList<Edge>(), new ArrayList<byte[]>()));
+        return ir;
+    }
+
+    static Module buildModule(String name, int blocks) {
+        Module module = new Module("/usr/bin/" + name, BASE_ADDRESS, 0,
+                                   Module.FileFormat.ELF, Module.ISA.X64,
+                                   name);
+        Section section =
+            new Section(".text", new HashSet<Section.SectionFlag>(),
+                        new ArrayList<ByteInterval>());
+        section.addByteInterval(buildByteInterval(blocks));
+        module.addSection(section);
+        for (ByteInterval byteInterval : section.getByteIntervals()) {
+            for (ByteBlock block : byteInterval.getBlockList()) {
+                Symbol symbol =
+                    new Symbol("sym_" + block.getOffset(), block.getUuid());
+                module.addSymbol(symbol);
+                byteInterval.insertSymbolicExpression(
+                    block.getOffset(),
+                    new SymAddrConst(0, symbol.getUuid(),
+                                     new HashSet<AttributeFlag>()));
+            }
+        }
+        return module;
+    }
+
+    static ByteInterval buildByteInterval(int blocks) {
+        byte[] contents = new byte[(int)(blocks * BLOCK_SIZE)];
+        for (int i = 0; i < contents.length; i++)
+            contents[i] = (byte)i;
+        ByteInterval byteInterval = new ByteInterval(contents, BASE_ADDRESS);
+        for (int b = 0; b < blocks; b++)
+            byteInterval.insertByteBlock(new CodeBlock(
+                BLOCK_SIZE, b * BLOCK_SIZE, CodeBlock.DecodeMode.Default));
+        return byteInterval;
+    }
+
+    /**
+     * Build a list of addresses to probe, spread over the code of a module
+     * built by {@link #buildModule}. The length is a power of two.
+     */
+    static long[] probeAddresses(int blocks, int count) {
+        Random random = new Random(42);
+        long[] addresses = new long[count];
+        for (int i = 0; i < count; i++)
+            addresses[i] = BASE_ADDRESS +
+                           (long)(random.nextDouble() * blocks * BLOCK_SIZE);
+        return addresses;
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import com.grammatech.gtirb.ByteBlock;
+import com.grammatech.gtirb.ByteInterval;
+import com.grammatech.gtirb.CodeBlock;
+import com.grammatech.gtirb.Module;
+import com.grammatech.gtirb.SymbolicExpression;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Address lookups in a byte interval, and across a module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ByteIntervalBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000", "100000"}) int blocks;
+
+    private Module module;
+    private ByteInterval byteInterval;
+    private long[] addresses;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        this.module = BenchmarkIrs.buildModule("mod", this.blocks);
+        this.byteInterval =
+            this.module.getSections().get(0).getByteIntervals().get(0);
+        this.addresses = BenchmarkIrs.probeAddresses(this.blocks, PROBES);
+    }
+
+    private long nextAddress() {
+        return this.addresses[this.next++ & (PROBES - 1)];
+    }
+
+    @Benchmark
+    public List<CodeBlock> findCodeBlocksOn() {
+        return this.byteInterval.findCodeBlocksOn(this.nextAddress());
+    }
+
+    @Benchmark
+    public List<CodeBlock> findCodeBlocksOnRange() {
+        long address = this.nextAddress();
+        return this.byteInterval.findCodeBlocksOn(address, address + 64);
+    }
+
+    @Benchmark
+    public void findSymbolicExpressionsAt(Blackhole blackhole) {
+        long address = this.nextAddress();
+        Iterator<Map.Entry<Long, SymbolicExpression>> it =
+            this.byteInterval.findSymbolicExpressionsAt(
+                address - BenchmarkIrs.BASE_ADDRESS,
+                address - BenchmarkIrs.BASE_ADDRESS + 64);
+        while (it.hasNext())
+            blackhole.consume(it.next());
+    }
+
+    @Benchmark
+    public List<ByteBlock> moduleFindBlocksOn() {
+        return this.module.findBlocksOn(this.nextAddress());
+    }
+
+    @Benchmark
+    public void moduleFindSymbolicExpressionsAt(Blackhole blackhole) {
+        long address = this.nextAddress();
+        Iterator<Map.Entry<Long, SymbolicExpression>> it =
+            this.module.findSymbolicExpressionsAt(address, address + 64);
+        while (it.hasNext())
+            blackhole.consume(it.next());
+    }
+}
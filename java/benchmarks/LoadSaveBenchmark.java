@@ -0,0 +1,82 @@
+package benchmarks;
+
+import com.grammatech.gtirb.IR;
+import com.grammatech.gtirb.LoadOptions;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Loading and saving whole IRs, generated by {@link SyntheticIrGenerator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadSaveBenchmark {
+
+    @Param({"1", "4"}) int modules;
+
+    @Param({"10000", "100000"}) int blocksPerModule;
+
+    private IR ir;
+    private byte[] serialized;
+    private File file;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticIrGenerator generator = new SyntheticIrGenerator();
+        generator.setModules(this.modules);
+        generator.setSectionsPerModule(1);
+        generator.setBlocksPerSection(this.blocksPerModule);
+        generator.setSymbolsPerModule(this.blocksPerModule);
+        generator.setSymbolicExpressionsPerSection(this.blocksPerModule);
+        generator.setEdgesPerModule(2 * this.blocksPerModule);
+        this.ir = generator.generate();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.ir.saveFile(out);
+        this.serialized = out.toByteArray();
+        this.file = File.createTempFile("benchmark", ".gtirb");
+        this.ir.saveFile(this.file.getPath());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    @Benchmark
+    public IR loadStream() throws Exception {
+        IR loaded = IR.loadFile(new ByteArrayInputStream(this.serialized));
+        loaded.close();
+        return loaded;
+    }
+
+    @Benchmark
+    public IR loadFile() throws Exception {
+        IR loaded = IR.loadFile(this.file.getPath());
+        loaded.close();
+        return loaded;
+    }
+
+    @Benchmark
+    public IR loadFileMapped() throws Exception {
+        LoadOptions options = new LoadOptions();
+        options.setMemoryMapped(true);
+        IR loaded = IR.loadFile(this.file.getPath(), options);
+        loaded.close();
+        return loaded;
+    }
+
+    @Benchmark
+    public int saveStream() throws Exception {
+        ByteArrayOutputStream out =
+            new ByteArrayOutputStream(this.serialized.length);
+        this.ir.saveFile(out);
+        return out.size();
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import com.grammatech.gtirb.IR;
+import com.grammatech.gtirb.Node;
+import com.grammatech.gtirb.Symbol;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Finding nodes by UUID.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NodeBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"100000"}) int blocks;
+
+    private IR ir;
+    private UUID[] present;
+    private UUID[] absent;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Load the IR, so that its nodes are registered with it.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BenchmarkIrs.build(1, this.blocks).saveFile(out);
+        this.ir = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+
+        List<Symbol> symbols = this.ir.getModules().get(0).getSymbols();
+        Random random = new Random(42);
+        this.present = new UUID[PROBES];
+        this.absent = new UUID[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            this.present[i] =
+                symbols.get(random.nextInt(symbols.size())).getUuid();
+            this.absent[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.ir.close();
+    }
+
+    @Benchmark
+    public Node getByUuid() {
+        return Node.getByUuid(this.present[this.next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public Node getByUuidMissing() {
+        return Node.getByUuid(this.absent[this.next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public Node findNode() {
+        return this.ir.findNode(this.present[this.next++ & (PROBES - 1)]);
+    }
+}
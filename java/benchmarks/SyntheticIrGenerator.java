@@ -0,0 +1,378 @@
+package benchmarks;
+
+import com.google.protobuf.CodedOutputStream;
+import com.grammatech.gtirb.*;
+import com.grammatech.gtirb.Edge.EdgeType;
+import com.grammatech.gtirb.Module;
+import com.grammatech.gtirb.SymbolicExpression.AttributeFlag;
+import com.grammatech.gtirb.proto.IROuterClass;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Generates synthetic IRs for benchmarks and scale tests.
+ *
+ * The IR is built with the public constructors of the API, from a seeded
+ * random number generator. The layout, sizes, contents, names and AuxData
+ * of an IR are determined by the seed and the counts. Node UUIDs are
+ * assigned by the API and differ from run to run.
+ *
+ * {@link #write(OutputStream)} streams the IR out one module at a time, so
+ * the heap only ever holds a single module. The modules and the CFG edges
+ * between their blocks are written as separate fields, which protobuf
+ * readers merge back into one IR.
+ *
+ * To generate a file from the command line:
+ *   $ gradle generateIr -PgeneratorArgs="out.gtirb modules=8 seed=1"
+ */
+public final class SyntheticIrGenerator {
+
+    private static final long BASE_ADDRESS = 0x400000;
+    private static final long SECTION_ALIGNMENT = 0x1000;
+    private static final int MAX_BLOCK_SIZE = 16;
+    private static final int BLOCKS_PER_FUNCTION = 8;
+    private static final EdgeType[] EDGE_TYPES = {
+        EdgeType.Branch, EdgeType.Call, EdgeType.Fallthrough, EdgeType.Return};
+
+    private long seed = 0;
+    private int modules = 1;
+    private int sectionsPerModule = 4;
+    private int blocksPerSection = 1000;
+    private int symbolsPerModule = 1000;
+    private int symbolicExpressionsPerSection = 500;
+    private int edgesPerModule = 2000;
+    private boolean auxData = true;
+
+    public long getSeed() { return this.seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public int getModules() { return this.modules; }
+    public void setModules(int modules) { this.modules = modules; }
+
+    public int getSectionsPerModule() { return this.sectionsPerModule; }
+    public void setSectionsPerModule(int sectionsPerModule) {
+        this.sectionsPerModule = sectionsPerModule;
+    }
+
+    public int getBlocksPerSection() { return this.blocksPerSection; }
+    public void setBlocksPerSection(int blocksPerSection) {
+        this.blocksPerSection = blocksPerSection;
+    }
+
+    public int getSymbolsPerModule() { return this.symbolsPerModule; }
+    public void setSymbolsPerModule(int symbolsPerModule) {
+        this.symbolsPerModule = symbolsPerModule;
+    }
+
+    public int getSymbolicExpressionsPerSection() {
+        return this.symbolicExpressionsPerSection;
+    }
+    public void setSymbolicExpressionsPerSection(int count) {
+        this.symbolicExpressionsPerSection = count;
+    }
+
+    public int getEdgesPerModule() { return this.edgesPerModule; }
+    public void setEdgesPerModule(int edgesPerModule) {
+        this.edgesPerModule = edgesPerModule;
+    }
+
+    public boolean getAuxData() { return this.auxData; }
+    public void setAuxData(boolean auxData) { this.auxData = auxData; }
+
+    /**
+     * Generate the whole IR in memory.
+     *
+     * @return  The generated IR.
+     */
+    public IR generate() {
+        IR ir = new IR();
+        List<Edge> edges = new ArrayList<Edge>();
+        List<byte[]> vertices = new ArrayList<byte[]>();
+        for (int m = 0; m < this.modules; m++) {
+            GeneratedModule generated = this.generateModule(m);
+            ir.addModule(generated.module);
+            edges.addAll(generated.edges);
+            vertices.addAll(generated.vertices);
+        }
+        ir.setCfg(new CFG(edges, vertices));
+        return ir;
+    }
+
+    /**
+     * Generate the IR and write it to a file.
+     *
+     * @param fileName  The name of the file to write.
+     */
+    public void write(String fileName) throws IOException {
+        try (OutputStream out =
+                 new BufferedOutputStream(new FileOutputStream(fileName))) {
+            this.write(out);
+        }
+    }
+
+    /**
+     * Generate the IR and write it to a stream, one module at a time.
+     *
+     * @param out  The stream to write to.
+     */
+    public void write(OutputStream out) throws IOException {
+        out.write("GTIRB".getBytes(Charset.forName("ASCII")));
+        out.write(0);
+        out.write(0);
+        out.write(Version.gtirbProtobufVersion);
+
+        CodedOutputStream protoOut = CodedOutputStream.newInstance(out);
+        IR ir = new IR();
+        protoOut.writeBytes(IROuterClass.IR.UUID_FIELD_NUMBER,
+                            Util.uuidToByteString(ir.getUuid()));
+        protoOut.writeUInt32(IROuterClass.IR.VERSION_FIELD_NUMBER,
+                             Version.gtirbProtobufVersion);
+        for (int m = 0; m < this.modules; m++) {
+            GeneratedModule generated = this.generateModule(m);
+            // Serialize through a single-module IR, since that is the
+            // public way to get at the protobuf of a module.
+            IR holder = new IR();
+            holder.addModule(generated.module);
+            holder.setCfg(new CFG(generated.edges, generated.vertices));
+            IROuterClass.IR protoHolder = holder.toProtobuf().build();
+            protoOut.writeMessage(IROuterClass.IR.MODULES_FIELD_NUMBER,
+                                  protoHolder.getModules(0));
+            protoOut.writeMessage(IROuterClass.IR.CFG_FIELD_NUMBER,
+                                  protoHolder.getCfg());
+        }
+        protoOut.flush();
+    }
+
+    /**
+     * A generated module, with its part of the CFG.
+     */
+    private static final class GeneratedModule {
+        final Module module;
+        final List<Edge> edges = new ArrayList<Edge>();
+        final List<byte[]> vertices = new ArrayList<byte[]>();
+
+        GeneratedModule(Module module) { this.module = module; }
+    }
+
+    private GeneratedModule generateModule(int index) {
+        // Each module has its own stream of random numbers, so that the
+        // modules do not depend on each other.
+        Random random = new Random(this.seed * 1000003 + index);
+        String name = "mod" + index;
+        Module module =
+            new Module("/usr/bin/" + name, BASE_ADDRESS, 0,
+                       Module.FileFormat.ELF, Module.ISA.X64, name);
+        module.setByteOrder(Module.ByteOrder.LittleEndian);
+        GeneratedModule generated = new GeneratedModule(module);
+
+        // Sections of consecutive code blocks.
+        List<CodeBlock> codeBlocks = new ArrayList<CodeBlock>();
+        List<ByteInterval> byteIntervals = new ArrayList<ByteInterval>();
+        long address = BASE_ADDRESS;
+        for (int s = 0; s < this.sectionsPerModule; s++) {
+            long[] sizes = new long[this.blocksPerSection];
+            long size = 0;
+            for (int b = 0; b < sizes.length; b++) {
+                sizes[b] = 1 + random.nextInt(MAX_BLOCK_SIZE);
+                size += sizes[b];
+            }
+            byte[] contents = new byte[(int)size];
+            random.nextBytes(contents);
+            ByteInterval byteInterval = new ByteInterval(contents, address);
+            long offset = 0;
+            for (int b = 0; b < sizes.length; b++) {
+                CodeBlock block = new CodeBlock(sizes[b], offset,
+                                                CodeBlock.DecodeMode.Default);
+                byteInterval.insertByteBlock(block);
+                codeBlocks.add(block);
+                offset += sizes[b];
+            }
+            Set<Section.SectionFlag> flags = new HashSet<Section.SectionFlag>();
+            flags.add(Section.SectionFlag.Readable);
+            flags.add(Section.SectionFlag.Executable);
+            flags.add(Section.SectionFlag.Loaded);
+            flags.add(Section.SectionFlag.Initialized);
+            List<ByteInterval> sectionIntervals = new ArrayList<ByteInterval>();
+            sectionIntervals.add(byteInterval);
+            module.addSection(
+                new Section(".text" + s, flags, sectionIntervals));
+            byteIntervals.add(byteInterval);
+            address += (size + SECTION_ALIGNMENT - 1) & -SECTION_ALIGNMENT;
+        }
+
+        // Symbols referring to random blocks.
+        List<Symbol> symbols = new ArrayList<Symbol>();
+        for (int i = 0; i < this.symbolsPerModule; i++) {
+            Symbol symbol;
+            if (codeBlocks.isEmpty())
+                symbol = new Symbol(name + "_sym" + i, random.nextLong());
+            else
+                symbol = new Symbol(name + "_sym" + i,
+                                    pick(random, codeBlocks).getUuid());
+            module.addSymbol(symbol);
+            symbols.add(symbol);
+        }
+
+        // Symbolic expressions, evenly spread over each byte interval.
+        if (!symbols.isEmpty()) {
+            for (ByteInterval byteInterval : byteIntervals) {
+                long size = byteInterval.getSize();
+                int count =
+                    (int)Math.min(this.symbolicExpressionsPerSection, size);
+                for (int i = 0; i < count; i++) {
+                    byteInterval.insertSymbolicExpression(
+                        i * size / count,
+                        new SymAddrConst(random.nextInt(64),
+                                         pick(random, symbols).getUuid(),
+                                         new HashSet<AttributeFlag>()));
+                }
+            }
+        }
+
+        // CFG edges between random blocks.
+        for (CodeBlock block : codeBlocks)
+            generated.vertices.add(Util.uuidToByteArray(block.getUuid()));
+        if (!codeBlocks.isEmpty()) {
+            for (int i = 0; i < this.edgesPerModule; i++) {
+                generated.edges.add(
+                    new Edge(pick(random, codeBlocks).getUuid(),
+                             pick(random, codeBlocks).getUuid(),
+                             EDGE_TYPES[random.nextInt(EDGE_TYPES.length)],
+                             random.nextBoolean(), random.nextBoolean()));
+            }
+        }
+
+        if (this.auxData)
+            this.addAuxData(random, module, codeBlocks, symbols);
+        return generated;
+    }
+
+    /**
+     * Add the sanctioned AuxData tables to a module.
+     */
+    private void addAuxData(Random random, Module module,
+                            List<CodeBlock> codeBlocks, List<Symbol> symbols) {
+        Map<UUID, Set<UUID>> functionBlocks = new HashMap<UUID, Set<UUID>>();
+        Map<UUID, Set<UUID>> functionEntries = new HashMap<UUID, Set<UUID>>();
+        Map<UUID, UUID> functionNames = new HashMap<UUID, UUID>();
+        Map<UUID, String> types = new HashMap<UUID, String>();
+        Map<UUID, Long> alignment = new HashMap<UUID, Long>();
+        Map<Offset, String> comments = new HashMap<Offset, String>();
+        Map<UUID, UUID> symbolForwarding = new HashMap<UUID, UUID>();
+        Map<Offset, Long> padding = new HashMap<Offset, Long>();
+
+        // Group consecutive blocks into functions. Function ids are derived
+        // from the seeded generator.
+        for (int b = 0; b < codeBlocks.size(); b += BLOCKS_PER_FUNCTION) {
+            UUID function = new UUID(random.nextLong(), random.nextLong());
+            Set<UUID> blocks = new HashSet<UUID>();
+            int end = Math.min(b + BLOCKS_PER_FUNCTION, codeBlocks.size());
+            for (int i = b; i < end; i++)
+                blocks.add(codeBlocks.get(i).getUuid());
+            Set<UUID> entries = new HashSet<UUID>();
+            entries.add(codeBlocks.get(b).getUuid());
+            functionBlocks.put(function, blocks);
+            functionEntries.put(function, entries);
+            if (!symbols.isEmpty())
+                functionNames.put(function, pick(random, symbols).getUuid());
+            alignment.put(codeBlocks.get(b).getUuid(), 16L);
+        }
+        for (int i = 0; i < codeBlocks.size(); i += 16) {
+            CodeBlock block = codeBlocks.get(i);
+            types.put(block.getUuid(), "int[" + block.getSize() + "]");
+            comments.put(new Offset(block.getUuid(), 0), "block " + i);
+            padding.put(new Offset(block.getUuid(), block.getSize()),
+                        (long)random.nextInt(16));
+        }
+        for (int i = 0; i + 1 < symbols.size(); i += 32)
+            symbolForwarding.put(symbols.get(i).getUuid(),
+                                 symbols.get(i + 1).getUuid());
+
+        module.putAuxData(AuxDataSchemas.functionBlocks, functionBlocks);
+        module.putAuxData(AuxDataSchemas.functionEntries, functionEntries);
+        module.putAuxData(AuxDataSchemas.functionNames, functionNames);
+        module.putAuxData(AuxDataSchemas.types, types);
+        module.putAuxData(AuxDataSchemas.alignment, alignment);
+        module.putAuxData(AuxDataSchemas.comments, comments);
+        module.putAuxData(AuxDataSchemas.symbolForwarding, symbolForwarding);
+        module.putAuxData(AuxDataSchemas.padding, padding);
+        module.putAuxData(AuxDataSchemas.elfSoname, module.getName() + ".so");
+        module.putAuxData(AuxDataSchemas.elfStackExec, false);
+        module.putAuxData(AuxDataSchemas.elfStackSize, 0x800000L);
+        if (!codeBlocks.isEmpty()) {
+            module.putAuxData(AuxDataSchemas.elfDynamicInit,
+                              codeBlocks.get(0).getUuid());
+            module.putAuxData(AuxDataSchemas.elfDynamicFini,
+                              codeBlocks.get(codeBlocks.size() - 1).getUuid());
+        }
+    }
+
+    private static <T> T pick(Random random, List<T> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    /**
+     * Write a synthetic IR to a file.
+     *
+     * The first argument is the name of the file. Further arguments set
+     * options as name=value, where name is one of seed, modules,
+     * sectionsPerModule, blocksPerSection, symbolsPerModule,
+     * symbolicExpressionsPerSection, edgesPerModule and auxData.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println(
+                "usage: SyntheticIrGenerator FILE [name=value ...]");
+            System.exit(1);
+        }
+        SyntheticIrGenerator generator = new SyntheticIrGenerator();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2)
+                throw new IllegalArgumentException("bad option " + args[i]);
+            String value = option[1];
+            switch (option[0]) {
+            case "seed":
+                generator.setSeed(Long.parseLong(value));
+                break;
+            case "modules":
+                generator.setModules(Integer.parseInt(value));
+                break;
+            case "sectionsPerModule":
+                generator.setSectionsPerModule(Integer.parseInt(value));
+                break;
+            case "blocksPerSection":
+                generator.setBlocksPerSection(Integer.parseInt(value));
+                break;
+            case "symbolsPerModule":
+                generator.setSymbolsPerModule(Integer.parseInt(value));
+                break;
+            case "symbolicExpressionsPerSection":
+                generator.setSymbolicExpressionsPerSection(
+                    Integer.parseInt(value));
+                break;
+            case "edgesPerModule":
+                generator.setEdgesPerModule(Integer.parseInt(value));
+                break;
+            case "auxData":
+                generator.setAuxData(Boolean.parseBoolean(value));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown option " +
+                                                   option[0]);
+            }
+        }
+        generator.write(args[0]);
+    }
+}
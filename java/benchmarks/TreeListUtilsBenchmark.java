@@ -0,0 +1,71 @@
+package benchmarks;
+
+import com.grammatech.gtirb.CodeBlock;
+import com.grammatech.gtirb.TreeListUtils;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The generic TreeList finders, over a tree of code blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TreeListUtilsBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000", "100000"}) int items;
+
+    private TreeMap<Long, List<CodeBlock>> tree;
+    private long[] indices;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        this.tree = new TreeMap<Long, List<CodeBlock>>();
+        for (int i = 0; i < this.items; i++)
+            TreeListUtils.insertItem(
+                new CodeBlock(BenchmarkIrs.BLOCK_SIZE,
+                              i * BenchmarkIrs.BLOCK_SIZE,
+                              CodeBlock.DecodeMode.Default),
+                this.tree);
+        this.indices = BenchmarkIrs.probeAddresses(this.items, PROBES);
+        for (int i = 0; i < PROBES; i++)
+            this.indices[i] -= BenchmarkIrs.BASE_ADDRESS;
+    }
+
+    private long nextIndex() {
+        return this.indices[this.next++ & (PROBES - 1)];
+    }
+
+    @Benchmark
+    public List<CodeBlock> getItemsIntersectingIndex() {
+        return TreeListUtils.getItemsIntersectingIndex(this.nextIndex(),
+                                                       this.tree);
+    }
+
+    @Benchmark
+    public List<CodeBlock> getItemsIntersectingIndexRange() {
+        long index = this.nextIndex();
+        return TreeListUtils.getItemsIntersectingIndexRange(index, index + 64,
+                                                            this.tree);
+    }
+
+    @Benchmark
+    public List<CodeBlock> getItemsAtStartIndex() {
+        return TreeListUtils.getItemsAtStartIndex(this.nextIndex(), this.tree);
+    }
+
+    @Benchmark
+    public List<CodeBlock> getItemsAtStartIndexRange() {
+        long index = this.nextIndex();
+        return TreeListUtils.getItemsAtStartIndexRange(index, index + 64,
+                                                       this.tree);
+    }
+}
@@ -0,0 +1,631 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Address index over all the blocks and symbolic expressions of a Module.
+ *
+ * Blocks and symbolic expressions are indexed by their absolute address,
+ * across every section and byte interval of the module, so that lookups do
+ * not have to descend through each level. Items in byte intervals without
+ * an address are not indexed.
+ *
+ * Blocks are kept in a {@link BlockTree}, a balanced search tree keyed by
+ * start address in which each node also holds the largest end address in
+ * its subtree, so that finding the blocks that intersect an address takes
+ * logarithmic time per block found, however large other blocks are.
+ *
+ * The index is built on the first query. From then on the Module keeps it
+ * up to date as blocks, symbolic expressions, byte intervals and sections
+ * are inserted, removed, moved or resized, at a cost proportional to the
+ * number of items that change address.
+ */
+final class AddressIndex {
+
+    /**
+     * A symbolic expression entry, keyed by absolute address, that remembers
+     * the byte interval holding the expression.
+     */
+    private static final class SymbolicExpressionEntry
+        implements Map.Entry<Long, SymbolicExpression> {
+        private final long address;
+        private final SymbolicExpression expression;
+        private final ByteInterval byteInterval;
+
+        SymbolicExpressionEntry(long address, SymbolicExpression expression,
+                                ByteInterval byteInterval) {
+            this.address = address;
+            this.expression = expression;
+            this.byteInterval = byteInterval;
+        }
+
+        @Override
+        public Long getKey() {
+            return this.address;
+        }
+
+        @Override
+        public SymbolicExpression getValue() {
+            return this.expression;
+        }
+
+        @Override
+        public SymbolicExpression setValue(SymbolicExpression value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>)o;
+            return this.getKey().equals(other.getKey()) &&
+                Objects.equals(this.expression, other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.address) ^
+                Objects.hashCode(this.expression);
+        }
+    }
+
+    /**
+     * A treap of blocks keyed by absolute start address, with the blocks
+     * that start at the same address in one node.
+     *
+     * Each node holds the largest end address of the blocks in its subtree,
+     * which lets intersection queries skip every subtree that ends before
+     * the address looked for. The nodes are balanced by random priorities,
+     * so updates and lookups take logarithmic time, on average.
+     */
+    private static final class BlockTree {
+
+        private static final class Node {
+            final long start;
+            final int priority;
+            final List<ByteBlock> blocks = new ArrayList<ByteBlock>(1);
+            long maxEnd;
+            Node left;
+            Node right;
+
+            Node(long start, int priority) {
+                this.start = start;
+                this.priority = priority;
+            }
+        }
+
+        private final Random random = new Random();
+        private Node root;
+
+        /**
+         * Add a block that starts at an address.
+         */
+        void add(long start, ByteBlock block) {
+            this.root = this.add(this.root, start, block);
+        }
+
+        /**
+         * Remove a block that starts at an address, if present.
+         */
+        void remove(long start, ByteBlock block) {
+            this.root = this.remove(this.root, start, block);
+        }
+
+        /**
+         * Update the end addresses after a block that starts at an address
+         * has been resized.
+         */
+        void refresh(long start) { this.refresh(this.root, start); }
+
+        /**
+         * Visit the blocks that start at an address.
+         */
+        void forEachAt(long start, Consumer<? super ByteBlock> action) {
+            Node node = this.root;
+            while (node != null && node.start != start)
+                node = start < node.start ? node.left : node.right;
+            if (node != null)
+                node.blocks.forEach(action);
+        }
+
+        /**
+         * Visit the blocks that start in a range, in address order.
+         *
+         * @param first The start of the range. (inclusive)
+         * @param last  The end of the range. (inclusive)
+         */
+        void forEachIn(long first, long last,
+                       Consumer<? super ByteBlock> action) {
+            forEachIn(this.root, first, last, action);
+        }
+
+        /**
+         * Visit the blocks that start at or below lastStart and end at or
+         * above minEnd, in address order.
+         */
+        void forEachIntersecting(long minEnd, long lastStart,
+                                 Consumer<? super ByteBlock> action) {
+            forEachIntersecting(this.root, minEnd, lastStart, action);
+        }
+
+        private Node add(Node node, long start, ByteBlock block) {
+            if (node == null) {
+                node = new Node(start, this.random.nextInt());
+                node.blocks.add(block);
+            } else if (start < node.start) {
+                node.left = this.add(node.left, start, block);
+                if (node.left.priority > node.priority)
+                    node = rotateRight(node);
+            } else if (start > node.start) {
+                node.right = this.add(node.right, start, block);
+                if (node.right.priority > node.priority)
+                    node = rotateLeft(node);
+            } else {
+                node.blocks.add(block);
+            }
+            update(node);
+            return node;
+        }
+
+        private Node remove(Node node, long start, ByteBlock block) {
+            if (node == null)
+                return null;
+            if (start < node.start) {
+                node.left = this.remove(node.left, start, block);
+            } else if (start > node.start) {
+                node.right = this.remove(node.right, start, block);
+            } else {
+                for (int i = 0; i < node.blocks.size(); i++) {
+                    if (node.blocks.get(i) == block) {
+                        node.blocks.remove(i);
+                        break;
+                    }
+                }
+                if (node.blocks.isEmpty())
+                    return merge(node.left, node.right);
+            }
+            update(node);
+            return node;
+        }
+
+        private void refresh(Node node, long start) {
+            if (node == null)
+                return;
+            if (start < node.start)
+                this.refresh(node.left, start);
+            else if (start > node.start)
+                this.refresh(node.right, start);
+            update(node);
+        }
+
+        private static void forEachIn(Node node, long first, long last,
+                                      Consumer<? super ByteBlock> action) {
+            if (node == null)
+                return;
+            if (node.start > first)
+                forEachIn(node.left, first, last, action);
+            if (node.start >= first && node.start <= last)
+                node.blocks.forEach(action);
+            if (node.start < last)
+                forEachIn(node.right, first, last, action);
+        }
+
+        private static void
+        forEachIntersecting(Node node, long minEnd, long lastStart,
+                            Consumer<? super ByteBlock> action) {
+            if (node == null || node.maxEnd < minEnd)
+                return;
+            forEachIntersecting(node.left, minEnd, lastStart, action);
+            if (node.start > lastStart)
+                return;
+            for (ByteBlock block : node.blocks)
+                if (node.start + block.getSize() >= minEnd)
+                    action.accept(block);
+            if (node.start < lastStart)
+                forEachIntersecting(node.right, minEnd, lastStart, action);
+        }
+
+        /**
+         * Join two trees, all of whose keys in the first are less than
+         * those in the second.
+         */
+        private static Node merge(Node left, Node right) {
+            if (left == null)
+                return right;
+            if (right == null)
+                return left;
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                update(left);
+                return left;
+            }
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+
+        private static Node rotateRight(Node node) {
+            Node left = node.left;
+            node.left = left.right;
+            left.right = node;
+            update(node);
+            return left;
+        }
+
+        private static Node rotateLeft(Node node) {
+            Node right = node.right;
+            node.right = right.left;
+            right.left = node;
+            update(node);
+            return right;
+        }
+
+        private static void update(Node node) {
+            long maxEnd = Long.MIN_VALUE;
+            for (ByteBlock block : node.blocks)
+                maxEnd = Math.max(maxEnd, node.start + block.getSize());
+            if (node.left != null)
+                maxEnd = Math.max(maxEnd, node.left.maxEnd);
+            if (node.right != null)
+                maxEnd = Math.max(maxEnd, node.right.maxEnd);
+            node.maxEnd = maxEnd;
+        }
+    }
+
+    private final Module module;
+    private boolean valid;
+    private BlockTree blocks;
+    private TreeMap<Long, List<SymbolicExpressionEntry>> symbolicExpressions;
+    private Map<ByteInterval, Long> indexedAddresses;
+
+    /**
+     * Create an address index for a Module.
+     *
+     * @param module    The Module to be indexed.
+     */
+    AddressIndex(Module module) {
+        this.module = module;
+        this.valid = false;
+    }
+
+    /**
+     * Drop the index, so that it is rebuilt from scratch on the next query.
+     */
+    void invalidate() {
+        this.valid = false;
+        this.blocks = null;
+        this.symbolicExpressions = null;
+        this.indexedAddresses = null;
+    }
+
+    /**
+     * Build the index now, if needed, rather than on the next query.
+     */
+    void prepare() { this.ensureValid(); }
+
+    /**
+     * Update the index for a section added to the Module.
+     */
+    void addSection(Section section) {
+        if (!this.valid)
+            return;
+        for (ByteInterval byteInterval : section.getByteIntervalView())
+            this.addByteInterval(byteInterval);
+    }
+
+    /**
+     * Update the index for a section removed from the Module.
+     */
+    void removeSection(Section section) {
+        if (!this.valid)
+            return;
+        for (ByteInterval byteInterval : section.getByteIntervalView())
+            this.removeByteInterval(byteInterval);
+    }
+
+    /**
+     * Update the index for a byte interval added to a section of the
+     * Module.
+     */
+    void addByteInterval(ByteInterval byteInterval) {
+        if (!this.valid || !byteInterval.hasAddress())
+            return;
+        long address = byteInterval.getAddress().getAsLong();
+        this.indexedAddresses.put(byteInterval, address);
+        Iterator<ByteBlock> blockIterator = byteInterval.byteBlockIterator();
+        while (blockIterator.hasNext())
+            this.insertBlock(address, blockIterator.next());
+        Iterator<Map.Entry<Long, SymbolicExpression>> it =
+            byteInterval.symbolicExpressionIterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, SymbolicExpression> entry = it.next();
+            this.insertSymbolicExpression(byteInterval,
+                                          address + entry.getKey(),
+                                          entry.getValue());
+        }
+    }
+
+    /**
+     * Update the index for a byte interval removed from a section of the
+     * Module.
+     */
+    void removeByteInterval(ByteInterval byteInterval) {
+        if (!this.valid)
+            return;
+        Long address = this.indexedAddresses.remove(byteInterval);
+        if (address == null)
+            return;
+        Iterator<ByteBlock> blockIterator = byteInterval.byteBlockIterator();
+        while (blockIterator.hasNext())
+            this.eraseBlock(address, blockIterator.next());
+        Iterator<Map.Entry<Long, SymbolicExpression>> it =
+            byteInterval.symbolicExpressionIterator();
+        while (it.hasNext())
+            this.eraseSymbolicExpression(byteInterval,
+                                         address + it.next().getKey());
+    }
+
+    /**
+     * Update the index for a byte interval of the Module whose address or
+     * size has changed.
+     */
+    void moveByteInterval(ByteInterval byteInterval) {
+        if (!this.valid)
+            return;
+        Long oldAddress = this.indexedAddresses.get(byteInterval);
+        Long newAddress = byteInterval.hasAddress()
+                              ? byteInterval.getAddress().getAsLong()
+                              : null;
+        if (oldAddress == null ? newAddress == null
+                               : oldAddress.equals(newAddress))
+            return;
+        this.removeByteInterval(byteInterval);
+        this.addByteInterval(byteInterval);
+    }
+
+    /**
+     * Update the index for a block inserted into a byte interval of the
+     * Module.
+     */
+    void addBlock(ByteInterval byteInterval, ByteBlock block) {
+        if (!this.valid)
+            return;
+        Long address = this.indexedAddresses.get(byteInterval);
+        if (address != null)
+            this.insertBlock(address, block);
+    }
+
+    /**
+     * Update the index for a block removed from a byte interval of the
+     * Module.
+     */
+    void removeBlock(ByteInterval byteInterval, ByteBlock block) {
+        if (!this.valid)
+            return;
+        Long address = this.indexedAddresses.get(byteInterval);
+        if (address != null)
+            this.eraseBlock(address, block);
+    }
+
+    /**
+     * Update the index for a block of the Module that has been resized.
+     */
+    void resizeBlock(ByteBlock block) {
+        if (!this.valid)
+            return;
+        Optional<ByteInterval> byteInterval = block.getByteInterval();
+        if (!byteInterval.isPresent())
+            return;
+        Long address = this.indexedAddresses.get(byteInterval.get());
+        if (address != null)
+            this.blocks.refresh(address + block.getOffset());
+    }
+
+    /**
+     * Update the index for a symbolic expression inserted into, removed
+     * from or replaced in a byte interval of the Module.
+     *
+     * @param byteInterval  The {@link ByteInterval} that changed.
+     * @param offset        The offset of the change within the interval.
+     * @param removed       The expression removed, or null if none.
+     * @param inserted      The expression inserted, or null if none.
+     */
+    void changeSymbolicExpression(ByteInterval byteInterval, long offset,
+                                  SymbolicExpression removed,
+                                  SymbolicExpression inserted) {
+        if (!this.valid)
+            return;
+        Long address = this.indexedAddresses.get(byteInterval);
+        if (address == null)
+            return;
+        if (removed != null)
+            this.eraseSymbolicExpression(byteInterval, address + offset);
+        if (inserted != null)
+            this.insertSymbolicExpression(byteInterval, address + offset,
+                                          inserted);
+    }
+
+    /**
+     * Retrieve the blocks that intersect with an address.
+     */
+    List<ByteBlock> findBlocksOn(long address) {
+        List<ByteBlock> resultList = new ArrayList<ByteBlock>();
+        this.forEachBlockOn(address, address, resultList::add);
+        return resultList;
+    }
+
+    /**
+     * Retrieve the blocks that intersect with an address range.
+     */
+    List<ByteBlock> findBlocksOn(long startAddress, long endAddress) {
+        List<ByteBlock> resultList = new ArrayList<ByteBlock>();
+        this.forEachBlockOn(startAddress, endAddress, resultList::add);
+        return resultList;
+    }
+
+    /**
+     * Retrieve the blocks that start at an address.
+     */
+    List<ByteBlock> findBlocksAt(long address) {
+        List<ByteBlock> resultList = new ArrayList<ByteBlock>();
+        this.forEachBlockAt(address, resultList::add);
+        return resultList;
+    }
+
+    /**
+     * Retrieve the blocks that start in an address range.
+     */
+    List<ByteBlock> findBlocksAt(long startAddress, long endAddress) {
+        List<ByteBlock> resultList = new ArrayList<ByteBlock>();
+        this.forEachBlockAt(startAddress, endAddress, resultList::add);
+        return resultList;
+    }
+
+    /**
+     * Visit the blocks that intersect with an address range, in address
+     * order.
+     *
+     * Matches the end point handling of
+     * {@link TreeListUtils#getItemsIntersectingIndexRange}: a block
+     * intersects the range if it starts at or below its end and ends at or
+     * above its start. A reversed range only matches blocks containing its
+     * end.
+     */
+    void forEachBlockOn(long startAddress, long endAddress,
+                        Consumer<? super ByteBlock> action) {
+        this.ensureValid();
+        long minEnd = startAddress > endAddress ? endAddress : startAddress;
+        this.blocks.forEachIntersecting(minEnd, endAddress, action);
+    }
+
+    /**
+     * Visit the blocks that start at an address.
+     */
+    void forEachBlockAt(long address, Consumer<? super ByteBlock> action) {
+        this.ensureValid();
+        this.blocks.forEachAt(address, action);
+    }
+
+    /**
+     * Visit the blocks that start in an address range, in address order.
+     *
+     * @param startAddress  The start of the range. (inclusive)
+     * @param endAddress    The end of the range. (exclusive)
+     */
+    void forEachBlockAt(long startAddress, long endAddress,
+                        Consumer<? super ByteBlock> action) {
+        this.ensureValid();
+        if (startAddress >= endAddress)
+            return;
+        this.blocks.forEachIn(startAddress, endAddress - 1, action);
+    }
+
+    /**
+     * Retrieve the symbolic expressions with addresses in a range.
+     *
+     * As with {@link ByteInterval#findSymbolicExpressionsAt(long, long)}, a
+     * reversed range is swapped.
+     *
+     * @param startAddress  The start of the range. (inclusive)
+     * @param endAddress    The end of the range. (exclusive)
+     * @return              An iterator over the matching symbolic
+     * expressions, as Map entries keyed by address, in address order.
+     */
+    Iterator<Map.Entry<Long, SymbolicExpression>>
+    findSymbolicExpressions(long startAddress, long endAddress) {
+        this.ensureValid();
+        long start = Math.min(startAddress, endAddress);
+        long end = Math.max(startAddress, endAddress);
+        Iterator<List<SymbolicExpressionEntry>> lists =
+            this.symbolicExpressions.subMap(start, end).values().iterator();
+        return new Iterator<Map.Entry<Long, SymbolicExpression>>() {
+            private Iterator<SymbolicExpressionEntry> entries =
+                Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!this.entries.hasNext() && lists.hasNext())
+                    this.entries = lists.next().iterator();
+                return this.entries.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Long, SymbolicExpression> next() {
+                if (!this.hasNext())
+                    throw new NoSuchElementException();
+                return this.entries.next();
+            }
+        };
+    }
+
+    private void insertBlock(long byteIntervalAddress, ByteBlock block) {
+        this.blocks.add(byteIntervalAddress + block.getOffset(), block);
+    }
+
+    private void eraseBlock(long byteIntervalAddress, ByteBlock block) {
+        this.blocks.remove(byteIntervalAddress + block.getOffset(), block);
+    }
+
+    private void insertSymbolicExpression(ByteInterval byteInterval,
+                                          long address,
+                                          SymbolicExpression expression) {
+        this.symbolicExpressions
+            .computeIfAbsent(address,
+                             k -> new ArrayList<SymbolicExpressionEntry>(1))
+            .add(new SymbolicExpressionEntry(address, expression,
+                                             byteInterval));
+    }
+
+    private void eraseSymbolicExpression(ByteInterval byteInterval,
+                                         long address) {
+        List<SymbolicExpressionEntry> entries =
+            this.symbolicExpressions.get(address);
+        if (entries == null)
+            return;
+        // A byte interval has at most one expression at each offset.
+        entries.removeIf(entry -> entry.byteInterval == byteInterval);
+        if (entries.isEmpty())
+            this.symbolicExpressions.remove(address);
+    }
+
+    /**
+     * Build the index from the contents of the Module, if not built yet.
+     */
+    private void ensureValid() {
+        if (this.valid)
+            return;
+        this.blocks = new BlockTree();
+        this.symbolicExpressions =
+            new TreeMap<Long, List<SymbolicExpressionEntry>>();
+        this.indexedAddresses = new IdentityHashMap<ByteInterval, Long>();
+        this.valid = true;
+        for (Section section : this.module.getSectionView())
+            this.addSection(section);
+    }
+}
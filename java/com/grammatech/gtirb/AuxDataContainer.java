@@ -15,15 +15,21 @@
 package com.grammatech.gtirb;
 
 import com.google.protobuf.ByteString;
+import com.grammatech.gtirb.auxdatacodec.MapCodec;
 import com.grammatech.gtirb.proto.AuxDataOuterClass;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.IllegalArgumentException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Provides functionality for associating auxiliary
@@ -33,6 +39,10 @@ public abstract class AuxDataContainer extends Node {
 
     /**
      * Inner class for managing AuxData instances
+     *
+     * Methods that decode or encode an AuxData are synchronized, so that it
+     * can be decoded on another thread, as {@link
+     * AuxDataContainer#prefetchAuxData} does.
      */
     public static class AuxData {
 
@@ -40,14 +50,30 @@ public abstract class AuxDataContainer extends Node {
         private String name;
         private String typeName;
 
-        // Only populated during serialization events.
-        // This is considered stale if the schema/decoded members are non-empty.
-        private Optional<byte[]> encoded;
+        // Populated when loaded, and during serialization events.
+        // This is considered stale if the decoded member may have changed
+        // since it was encoded, as tracked by shared and dirty.
+        // Loaded data is kept as parsed, without copying.
+        private Optional<ByteString> encoded;
 
-        // Only populated if the client adds/gets the AuxData.
+        // Only populated if the client adds/gets/inspects the AuxData.
         private Optional<AuxDataSchema> schema;
         private Optional<Object> decoded;
 
+        // Whether the client holds a modifiable reference to the decoded
+        // object, which may be changed at any time.
+        private boolean shared;
+        // Whether the client changed the decoded object through a reference
+        // obtained by inspection, since it was last encoded.
+        private boolean dirty;
+        // Whether the container is frozen, after which the decoded object
+        // is only handed out as an unmodifiable view.
+        private boolean frozen;
+
+        // Only populated if the client asks for a lazily decoded map. It
+        // reads from the encoded bytes, which are never modified.
+        private Map<?, ?> lazyDecoded;
+
         /**
          * Class constructor for AuxData from protobuf {@link AuxData}.
          * @param  protoAuxData   The {@link AuxData} as serialized into a
@@ -57,7 +83,7 @@ public abstract class AuxDataContainer extends Node {
         AuxData(String name, AuxDataOuterClass.AuxData protoAuxData) {
             this.name = name;
             this.typeName = protoAuxData.getTypeName();
-            this.encoded = Optional.of(protoAuxData.getData().toByteArray());
+            this.encoded = Optional.of(protoAuxData.getData());
             this.schema = Optional.empty();
             this.decoded = Optional.empty();
         }
@@ -73,6 +99,7 @@ public abstract class AuxDataContainer extends Node {
             this.encoded = Optional.empty();
             this.schema = Optional.of(schema);
             this.decoded = Optional.of(value);
+            this.shared = true;
         }
 
         /**
@@ -92,10 +119,67 @@ public abstract class AuxDataContainer extends Node {
         /**
          * Get the decoded form of the {@link AuxData}.
          *
+         * The returned object may be modified, so from now on the AuxData
+         * is encoded again each time it is serialized. If the container is
+         * frozen, a decoded map, set or list is returned as an unmodifiable
+         * view instead.
+         *
          * @param sch The schema used for decoding this {@link AuxData}.
          * @return The decoded data object for this {@link AuxData}.
          */
-        public <T> T getDecodedData(AuxDataSchema<T> sch) throws IOException {
+        public synchronized <T> T getDecodedData(AuxDataSchema<T> sch)
+            throws IOException {
+            T data = this.decode(sch);
+            if (this.frozen)
+                return sch.getCodec().unmodifiable(data);
+            this.shared = true;
+            return data;
+        }
+
+        /**
+         * Get the decoded form of the {@link AuxData} for reading.
+         *
+         * Unlike {@link #getDecodedData}, this does not cause the AuxData
+         * to be encoded again when it is serialized, if it was loaded and
+         * has not been changed: the loaded bytes are written as they are.
+         * A decoded map, set or list is returned as an unmodifiable view.
+         * Objects nested in it must not be changed either, unless {@link
+         * #markDirty} is called afterwards.
+         *
+         * @param sch The schema used for decoding this {@link AuxData}.
+         * @return The decoded data object for this {@link AuxData}.
+         */
+        public synchronized <T> T getInspectedData(AuxDataSchema<T> sch)
+            throws IOException {
+            T data = this.decode(sch);
+            if (this.shared && !this.frozen)
+                return data;
+            return sch.getCodec().unmodifiable(data);
+        }
+
+        /**
+         * Record that the decoded form of the {@link AuxData} was changed,
+         * so that it is encoded again the next time it is serialized.
+         *
+         * This is only needed after changing objects obtained with {@link
+         * #getInspectedData}.
+         *
+         * @throws UnsupportedOperationException if the container is frozen.
+         */
+        public synchronized void markDirty() {
+            if (this.frozen)
+                throw new UnsupportedOperationException(
+                    "Cannot modify a frozen IR");
+            this.dirty = true;
+        }
+
+        /**
+         * Record that the container of this {@link AuxData} was frozen.
+         */
+        synchronized void markFrozen() { this.frozen = true; }
+
+        private synchronized <T> T decode(AuxDataSchema<T> sch)
+            throws IOException {
             // TODO: Some better way to confirm schema equivalence here.
             // In particular, one could have the correct name and type
             // name but still have an inconsistent type for T. Specifically,
@@ -116,27 +200,83 @@ public abstract class AuxDataContainer extends Node {
             if (!this.schema.isPresent()) {
                 // If we're here because this is the initial get, and the
                 // AuxData has not been unserialized yet. Do the decoding now.
+                // The schema is only recorded once decoding succeeds, so that
+                // a failed decode leaves the AuxData as it was.
                 assert this.encoded.isPresent();
+                this.decoded =
+                    Optional.of(sch.getCodec().decode(this.encodedBuffer()));
                 this.schema = Optional.of(sch);
-                this.decoded = Optional.of(sch.getCodec().decode(
-                    new ByteArrayInputStream(this.encoded.get())));
             }
 
             return (T)this.decoded.get();
         }
 
+        /**
+         * Get a lazily decoded view of a map {@link AuxData}.
+         *
+         * If the AuxData has already been decoded, the decoded map is
+         * returned, read-only. Otherwise the view decodes each value from
+         * the serialized form when it is looked up, so that looking up a few
+         * entries of a large table does not decode all of it. The view is
+         * created once and shared by later calls.
+         *
+         * @param sch The schema used for decoding this {@link AuxData}. Its
+         *     codec must be a {@link MapCodec}.
+         * @return A read-only view of the map.
+         */
+        public synchronized <K, V> Map<K, V>
+        getLazyDecodedData(AuxDataSchema<Map<K, V>> sch)
+            throws IOException {
+            assert this.name.equals(sch.getName());
+            if (!this.typeName.equals(sch.getCodec().getTypeName())) {
+                throw new IllegalArgumentException(
+                    "Schema type names do not match! " + this.typeName +
+                    " vs. " + sch.getCodec().getTypeName());
+            }
+            if (!(sch.getCodec() instanceof MapCodec)) {
+                throw new IllegalArgumentException(
+                    "Schema " + sch.getName() + " does not use a MapCodec");
+            }
+
+            if (this.schema.isPresent())
+                return Collections.unmodifiableMap(this.decode(sch));
+            if (this.lazyDecoded == null) {
+                MapCodec<K, V> codec = (MapCodec<K, V>)sch.getCodec();
+                Map<K, V> lazyDecoded =
+                    codec.decodeLazily(this.encodedBuffer());
+                this.lazyDecoded = lazyDecoded;
+                return lazyDecoded;
+            }
+            // The cached view was made by a codec with the same type name
+            // as this schema's, which is all that decode checks either.
+            @SuppressWarnings("unchecked")
+            Map<K, V> lazyDecoded = (Map<K, V>)this.lazyDecoded;
+            return lazyDecoded;
+        }
+
+        /**
+         * Get a little-endian buffer over the encoded form, for decoding.
+         */
+        private ByteBuffer encodedBuffer() {
+            assert this.encoded.isPresent();
+            return this.encoded.get().asReadOnlyByteBuffer().order(
+                ByteOrder.LITTLE_ENDIAN);
+        }
+
         /**
          * Serialize this AuxData into a protobuf .
          *
          * @return AuxData protocol buffer.
          */
-        AuxDataOuterClass.AuxData.Builder toProtobuf() {
-            // If we have a schema and decoded object, encode first.
-            if (this.schema.isPresent()) {
+        synchronized AuxDataOuterClass.AuxData.Builder toProtobuf() {
+            // If the decoded object may have changed, encode it first.
+            // Otherwise the encoded bytes are still current.
+            if (this.schema.isPresent() &&
+                (this.shared || this.dirty || !this.encoded.isPresent())) {
                 assert this.decoded.isPresent();
-                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                ByteString.Output os = ByteString.newOutput();
 
-                // ByteArrayOutputStream shouldn't ever throw, but
+                // ByteString.Output shouldn't ever throw, but
                 // because we're passing it through the OutputStream,
                 // we have a syntactic obligation to check for throws.
                 try {
@@ -145,13 +285,14 @@ public abstract class AuxDataContainer extends Node {
                     assert false;
                 }
 
-                this.encoded = Optional.of(os.toByteArray());
+                this.encoded = Optional.of(os.toByteString());
+                this.dirty = false;
             } else {
                 assert this.encoded.isPresent();
             }
             AuxDataOuterClass.AuxData.Builder protoAuxData =
                 AuxDataOuterClass.AuxData.newBuilder();
-            protoAuxData.setData(ByteString.copyFrom(this.encoded.get()));
+            protoAuxData.setData(this.encoded.get());
             protoAuxData.setTypeName(this.typeName);
             return protoAuxData;
         }
@@ -188,6 +329,9 @@ public abstract class AuxDataContainer extends Node {
      * Retrieve an arbitrary {@link AuxData} item from this container if it
      * exists.
      *
+     * If this container is frozen, a map, set or list is returned as an
+     * unmodifiable view, and it is never encoded again.
+     *
      * @param schema The schema for the AuxData
      * @return An {@link AuxData} object, or empty() if not present.
      */
@@ -208,6 +352,128 @@ public abstract class AuxDataContainer extends Node {
         }
     }
 
+    /**
+     * Retrieve an arbitrary {@link AuxData} item from this container for
+     * reading.
+     *
+     * Unlike {@link #getAuxData(AuxDataSchema)}, reading a loaded AuxData
+     * this way does not cause it to be encoded again when the IR is saved:
+     * its loaded bytes are written unchanged. A map, set or list is returned
+     * as an unmodifiable view. If objects nested in it are changed, call
+     * {@link #markAuxDataDirty(AuxDataSchema)} so that the changes are saved.
+     *
+     * @param schema The schema for the AuxData
+     * @return An {@link AuxData} object, or empty() if not present.
+     */
+    public <T> Optional<T> inspectAuxData(AuxDataSchema<T> schema) {
+        try {
+            AuxData ad = this.auxDataMap.get(schema.getName());
+
+            if (ad == null) {
+                return Optional.empty();
+            } else {
+                return Optional.of(ad.getInspectedData(schema));
+            }
+        } catch (IOException e) {
+            // As in getAuxData, treat corrupt or incompatible AuxData as not
+            // available.
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Retrieve an arbitrary {@link AuxData} item from this container,
+     * decoding it on an executor.
+     *
+     * The result is that of {@link #getAuxData(AuxDataSchema)}, called on
+     * the executor.
+     *
+     * @param schema The schema for the AuxData
+     * @param executor The executor to decode the AuxData on.
+     * @return A future for the {@link AuxData} object, or empty() if not
+     *     present.
+     */
+    public <T> CompletableFuture<Optional<T>>
+    getAuxDataAsync(AuxDataSchema<T> schema, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> this.getAuxData(schema),
+                                             executor);
+    }
+
+    /**
+     * Decode a set of {@link AuxData} items of this container concurrently.
+     *
+     * Each AuxData present in this container is decoded in its own task on
+     * the executor, as {@link #inspectAuxData(AuxDataSchema)} decodes it.
+     * Later calls to {@link #getAuxData(AuxDataSchema)} or {@link
+     * #inspectAuxData(AuxDataSchema)} then return without decoding. As with
+     * those methods, AuxData that cannot be decoded is treated as not
+     * available. No AuxData may be added to or removed from this container
+     * until the returned future completes.
+     *
+     * @param schemas The schemas of the AuxData to decode.
+     * @param executor The executor to decode the AuxData on.
+     * @return A future that completes once all of the AuxData is decoded.
+     */
+    public CompletableFuture<Void>
+    prefetchAuxData(Collection<? extends AuxDataSchema<?>> schemas,
+                    Executor executor) {
+        List<CompletableFuture<?>> futures =
+            new ArrayList<CompletableFuture<?>>();
+        for (AuxDataSchema<?> schema : schemas) {
+            if (this.auxDataMap.containsKey(schema.getName()))
+                futures.add(CompletableFuture.runAsync(
+                    () -> this.inspectAuxData(schema), executor));
+        }
+        return CompletableFuture.allOf(
+            futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    /**
+     * Record that an {@link AuxData} item obtained with {@link
+     * #inspectAuxData(AuxDataSchema)} was changed, so that it is encoded
+     * again when the IR is saved.
+     *
+     * @param schema The schema of the {@link AuxData}.
+     * @return False if the {@link AuxData} was not present in the container.
+     *     True otherwise.
+     */
+    public boolean markAuxDataDirty(AuxDataSchema<?> schema) {
+        this.checkMutable();
+        AuxData ad = this.auxDataMap.get(schema.getName());
+        if (ad == null)
+            return false;
+        ad.markDirty();
+        return true;
+    }
+
+    /**
+     * Retrieve a map {@link AuxData} item from this container, decoding its
+     * values lazily.
+     *
+     * Unlike {@link #getAuxData(AuxDataSchema)}, the values of the map are
+     * only decoded when they are looked up. The returned map is read-only.
+     *
+     * @param schema The schema for the AuxData. Its codec must be a
+     *     {@link MapCodec}.
+     * @return A read-only view of the map, or empty() if not present.
+     */
+    public <K, V> Optional<Map<K, V>>
+    getLazyAuxData(AuxDataSchema<Map<K, V>> schema) {
+        try {
+            AuxData ad = this.auxDataMap.get(schema.getName());
+
+            if (ad == null) {
+                return Optional.empty();
+            } else {
+                return Optional.of(ad.getLazyDecodedData(schema));
+            }
+        } catch (IOException e) {
+            // As in getAuxData, treat corrupt or incompatible AuxData as not
+            // available.
+            return Optional.empty();
+        }
+    }
+
     /**
      * Adds an arbitrary {@link AuxData} item to this container. If an AuxData
      * already exists with the given schema, then it is overwritten.
@@ -216,6 +482,7 @@ public abstract class AuxDataContainer extends Node {
      * @param data The data to add
      */
     public <T> void putAuxData(AuxDataSchema<T> schema, T data) {
+        this.checkMutable();
         AuxData ad = new AuxData(schema, data);
         this.auxDataMap.put(schema.getName(), ad);
     }
@@ -242,6 +509,7 @@ public abstract class AuxDataContainer extends Node {
      *     True otherwise.
      */
     public boolean removeAuxData(String name) {
+        this.checkMutable();
         AuxData ad = this.auxDataMap.remove(name);
         return ad != null;
     }
@@ -249,7 +517,10 @@ public abstract class AuxDataContainer extends Node {
     /**
      * Remove all {@link AuxData} from this container.
      */
-    public void clearAuxData() { this.auxDataMap.clear(); }
+    public void clearAuxData() {
+        this.checkMutable();
+        this.auxDataMap.clear();
+    }
 
     /**
      * Get a view of the {@link AuxData} entries present in this container.
@@ -260,4 +531,11 @@ public abstract class AuxDataContainer extends Node {
     public Map<String, AuxData> getAuxDataMap() {
         return Collections.unmodifiableMap(this.auxDataMap);
     }
+
+    @Override
+    void markFrozen() {
+        for (AuxData ad : this.auxDataMap.values())
+            ad.markFrozen();
+        super.markFrozen();
+    }
 }
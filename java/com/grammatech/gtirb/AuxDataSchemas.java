@@ -7,6 +7,7 @@ import com.grammatech.gtirb.auxdatacodec.ListCodec;
 import com.grammatech.gtirb.auxdatacodec.LongCodec;
 import com.grammatech.gtirb.auxdatacodec.MapCodec;
 import com.grammatech.gtirb.auxdatacodec.OffsetCodec;
+import com.grammatech.gtirb.auxdatacodec.OffsetLongMapCodec;
 import com.grammatech.gtirb.auxdatacodec.SetCodec;
 import com.grammatech.gtirb.auxdatacodec.ShortCodec;
 import com.grammatech.gtirb.auxdatacodec.StringCodec;
@@ -16,6 +17,7 @@ import com.grammatech.gtirb.auxdatacodec.Tuple3Codec;
 import com.grammatech.gtirb.auxdatacodec.Tuple4Codec;
 import com.grammatech.gtirb.auxdatacodec.Tuple5Codec;
 import com.grammatech.gtirb.auxdatacodec.UuidCodec;
+import com.grammatech.gtirb.auxdatacodec.UuidLongMapCodec;
 import com.grammatech.gtirb.auxdatacodec.Variant11Codec;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -114,8 +116,7 @@ public class AuxDataSchemas {
      */
     public final static AuxDataSchema<Map<UUID, Long>> alignment =
         new AuxDataSchema<>(
-            "alignment",
-            new MapCodec<>(new UuidCodec(), LongCodec.UINT64, HashMap::new));
+            "alignment", new UuidLongMapCodec(LongCodec.UINT64));
 
     /**
      * Comment strings relevant to offsets in the GTIRB entries.
@@ -139,8 +140,7 @@ public class AuxDataSchemas {
      */
     public final static AuxDataSchema<Map<Offset, Long>> padding =
         new AuxDataSchema<>(
-            "padding",
-            new MapCodec<>(new OffsetCodec(), LongCodec.UINT64, HashMap::new));
+            "padding", new OffsetLongMapCodec(LongCodec.UINT64));
 
     /* Provisional AuxData tables. */
 
@@ -331,8 +331,7 @@ public class AuxDataSchemas {
      */
     public final static AuxDataSchema<Map<UUID, Long>> profile =
         new AuxDataSchema<>(
-            "profile",
-            new MapCodec<>(new UuidCodec(), LongCodec.UINT64, HashMap::new));
+            "profile", new UuidLongMapCodec(LongCodec.UINT64));
 
     /**
      * Map of function UUIDs to their associated typeTable entries for the
@@ -348,8 +347,7 @@ public class AuxDataSchemas {
      */
     public final static AuxDataSchema<Map<UUID, Long>> sccs =
         new AuxDataSchema<>(
-            "SCCs",
-            new MapCodec<>(new UuidCodec(), LongCodec.INT64, HashMap::new));
+            "SCCs", new UuidLongMapCodec(LongCodec.INT64));
 
     /**
      * Map from an Offset of a {@link SymbolicExpression} in a {@link
@@ -358,7 +356,7 @@ public class AuxDataSchemas {
     public final static AuxDataSchema<Map<Offset, Long>>
         symbolicExpressionSizes = new AuxDataSchema<>(
             "symbolicExpressionSizes",
-            new MapCodec<>(new OffsetCodec(), LongCodec.UINT64, HashMap::new));
+            new OffsetLongMapCodec(LongCodec.UINT64));
 
     /**
      * Structured type information about objects.
@@ -69,7 +69,10 @@ public abstract class ByteBlock extends Node implements TreeListItem {
      * @return           The new number of bytes in this ByteBlock.
      */
     public long setSize(long newSize) {
+        this.checkMutable();
         this.size = newSize;
+        if (this.byteInterval.isPresent())
+            this.byteInterval.get().blockExtentChanged(this);
         return this.size;
     }
 
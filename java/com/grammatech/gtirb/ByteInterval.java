@@ -15,11 +15,14 @@
 package com.grammatech.gtirb;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import com.grammatech.gtirb.proto.ByteIntervalOuterClass;
 import com.grammatech.gtirb.proto.SymbolicExpressionOuterClass;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -28,6 +31,9 @@ import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A ByteInterval represents a piece of runtime memory.
@@ -44,11 +50,19 @@ import java.util.TreeMap;
 public final class ByteInterval extends Node implements TreeListItem {
 
     private TreeMap<Long, List<ByteBlock>> blockTree = new TreeMap<>();
+    private IntervalIndex<ByteBlock> blockIndex =
+        new IntervalIndex<ByteBlock>(blockTree);
+    private final TreeListView<ByteBlock> blockView =
+        new TreeListView<ByteBlock>(blockTree);
     private TreeMap<Long, SymbolicExpression> symbolicExpressionTree =
         new TreeMap<>();
     private OptionalLong address;
     private long size;
     private byte[] bytes;
+    // Contents shared with the protobuf this ByteInterval was loaded from.
+    // When set, bytes is null. The contents are only copied into bytes when
+    // a caller asks for the mutable byte array.
+    private ByteString sharedBytes;
     private Optional<Section> section;
 
     /**
@@ -66,7 +80,7 @@ public final class ByteInterval extends Node implements TreeListItem {
             this.address = OptionalLong.empty();
         }
 
-        this.bytes = protoByteInterval.getContents().toByteArray();
+        this.sharedBytes = protoByteInterval.getContents();
         this.size = protoByteInterval.getSize();
         List<ByteIntervalOuterClass.Block> protoBlockList =
             protoByteInterval.getBlocksList();
@@ -134,9 +148,9 @@ public final class ByteInterval extends Node implements TreeListItem {
      */
     public ByteInterval(long size) {
         super();
-        this.setSize(size);
         this.section = Optional.empty();
         this.address = OptionalLong.empty();
+        this.setSize(size);
     }
 
     /**
@@ -161,13 +175,29 @@ public final class ByteInterval extends Node implements TreeListItem {
      * @param address    The new address to give to this ByteInterval
      */
     public void setAddress(long address) {
-        this.address = OptionalLong.of(address);
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            this.address = OptionalLong.of(address);
+            this.notifyExtentChanged();
+        } finally {
+            hold.close();
+        }
     }
 
     /**
      * Clears the address of this ByteInterval.
      */
-    public void clearAddress() { this.address = OptionalLong.empty(); }
+    public void clearAddress() {
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            this.address = OptionalLong.empty();
+            this.notifyExtentChanged();
+        } finally {
+            hold.close();
+        }
+    }
 
     /**
      * Check that this ByteInterval has an address.
@@ -180,6 +210,9 @@ public final class ByteInterval extends Node implements TreeListItem {
     /**
      * Get the blocks of this ByteInterval.
      *
+     * This copies the blocks into a new list. To read them without copying,
+     * use {@link #getBlockView()} or {@link #forEachBlock}.
+     *
      * @return  An unmodifiable {@link ByteBlock} list of all the
      * blocks in this {@link ByteInterval}.
      */
@@ -191,6 +224,59 @@ public final class ByteInterval extends Node implements TreeListItem {
         return Collections.unmodifiableList(blockList);
     }
 
+    /**
+     * Get a live view of the blocks of this ByteInterval.
+     *
+     * The view is not a copy: it reflects blocks inserted or removed later,
+     * and iterating over it while blocks are inserted or removed throws a
+     * {@link java.util.ConcurrentModificationException}.
+     *
+     * @return  An unmodifiable view of the {@link ByteBlock}s of this
+     * ByteInterval, in offset order.
+     */
+    public Collection<ByteBlock> getBlockView() { return this.blockView; }
+
+    /**
+     * Call a function on each block of this ByteInterval, in offset order.
+     *
+     * @param action  The function to call.
+     */
+    public void forEachBlock(Consumer<? super ByteBlock> action) {
+        this.blockView.forEach(action);
+    }
+
+    /**
+     * Get a stream of the blocks of this ByteInterval, in offset order.
+     *
+     * The stream is backed by the blocks themselves, and splits between
+     * them for parallel streams. The blocks must not be inserted or removed
+     * while it is in use.
+     *
+     * @return  A stream of the {@link ByteBlock}s of this ByteInterval.
+     */
+    public Stream<ByteBlock> blocks() {
+        return StreamSupport.stream(this.blockView.spliterator(), false);
+    }
+
+    /**
+     * Build the block index and freeze this ByteInterval with its blocks and
+     * symbolic expressions.
+     */
+    void freeze() {
+        this.blockIndex.ensureValid();
+        this.blockView.forEach(ByteBlock::markFrozen);
+        for (SymbolicExpression symbolicExpression :
+             this.symbolicExpressionTree.values())
+            symbolicExpression.markFrozen();
+        this.markFrozen();
+    }
+
+    /**
+     * Estimate the number of blocks of this ByteInterval without counting
+     * them.
+     */
+    long estimateBlockCount() { return this.blockView.estimateSize(); }
+
     /**
      * Get the size of this ByteBlock.
      *
@@ -207,19 +293,66 @@ public final class ByteInterval extends Node implements TreeListItem {
      * @param size  The new size to give to this ByteInterval.
      */
     public void setSize(long size) {
-        if (this.bytes != null && size < this.bytes.length) {
-            // Create truncated byte array of the given size
-            this.bytes = Arrays.copyOfRange(this.bytes, 0, (int)size);
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            if (this.sharedBytes != null && size < this.sharedBytes.size()) {
+                // Truncation of shared contents does not need a copy
+                this.sharedBytes = this.sharedBytes.substring(0, (int)size);
+            }
+            if (this.bytes != null && size < this.bytes.length) {
+                // Create truncated byte array of the given size
+                this.bytes = Arrays.copyOfRange(this.bytes, 0, (int)size);
+            }
+            this.size = size;
+            this.notifyExtentChanged();
+        } finally {
+            hold.close();
         }
-        this.size = size;
     }
 
     /**
      * Get the byte array of this ByteInterval.
      *
+     * Changes to the returned array change the contents of this ByteInterval.
+     * If the contents are still shared with the protobuf they were loaded
+     * from, they are copied into a new array first. Use {@link
+     * #getByteBuffer()} for read-only access that never copies.
+     *
+     * If this ByteInterval is frozen, the array is a copy of the contents,
+     * and this ByteInterval is left unchanged.
+     *
      * @return  The array of bytes belonging to this ByteInterval.
      */
-    public byte[] getBytes() { return this.bytes; }
+    public byte[] getBytes() {
+        if (this.isFrozen()) {
+            if (this.sharedBytes != null)
+                return this.sharedBytes.toByteArray();
+            return this.bytes == null ? null : this.bytes.clone();
+        }
+        if (this.sharedBytes != null) {
+            this.bytes = this.sharedBytes.toByteArray();
+            this.sharedBytes = null;
+        }
+        return this.bytes;
+    }
+
+    /**
+     * Get a read-only view of the contents of this ByteInterval.
+     *
+     * The contents are not copied. The view is not guaranteed to reflect
+     * later changes to the contents of this ByteInterval.
+     *
+     * @return  A read-only buffer of the bytes belonging to this
+     * ByteInterval, or null if it has none.
+     */
+    public ByteBuffer getByteBuffer() {
+        if (this.sharedBytes != null)
+            return this.sharedBytes.asReadOnlyByteBuffer();
+        if (this.bytes != null)
+            return ByteBuffer.wrap(this.bytes).asReadOnlyBuffer();
+        return null;
+    }
 
     /**
      * Set the byte array of this ByteInterval.
@@ -227,10 +360,18 @@ public final class ByteInterval extends Node implements TreeListItem {
      * @param bytes    The new byte array to give to this ByteInterval.
      */
     public void setBytes(byte[] bytes) {
-        if (bytes != null && bytes.length > this.size) {
-            this.size = bytes.length;
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            this.sharedBytes = null;
+            if (bytes != null && bytes.length > this.size) {
+                this.size = bytes.length;
+                this.notifyExtentChanged();
+            }
+            this.bytes = bytes;
+        } finally {
+            hold.close();
         }
-        this.bytes = bytes;
     }
 
     /**
@@ -239,6 +380,8 @@ public final class ByteInterval extends Node implements TreeListItem {
      * @return  The number of bytes actually stored in this ByteInterval.
      */
     public long getInitializedSize() {
+        if (this.sharedBytes != null)
+            return this.sharedBytes.size();
         if (this.bytes != null)
             return this.bytes.length;
         return 0L;
@@ -260,6 +403,50 @@ public final class ByteInterval extends Node implements TreeListItem {
      */
     void setSection(Optional<Section> section) { this.section = section; }
 
+    /**
+     * Notify the owning Section, if any, that the address or size of this
+     * ByteInterval has changed.
+     */
+    private void notifyExtentChanged() {
+        if (this.section.isPresent())
+            this.section.get().byteIntervalExtentChanged(this);
+    }
+
+    /**
+     * Notify this ByteInterval that the size of one of its blocks has
+     * changed.
+     *
+     * @param block    The block resized.
+     */
+    void blockExtentChanged(ByteBlock block) {
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            this.blockIndex.invalidate();
+            Optional<Module> module = this.section.flatMap(Section::getModule);
+            if (module.isPresent())
+                module.get().blockResized(block);
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Update the symbolic expression indices of the Module containing this
+     * ByteInterval, if any.
+     *
+     * @param offset    The offset of the change.
+     * @param removed   The expression removed, or null if none.
+     * @param inserted  The expression inserted, or null if none.
+     */
+    private void symbolicExpressionsChanged(long offset,
+                                            SymbolicExpression removed,
+                                            SymbolicExpression inserted) {
+        Optional<Module> module = this.section.flatMap(Section::getModule);
+        if (module.isPresent())
+            module.get().symbolicExpressionsChanged(this, offset, removed,
+                                                    inserted);
+    }
+
     /**
      * Get the index to manage this ByteInterval with.
      *
@@ -309,7 +496,7 @@ public final class ByteInterval extends Node implements TreeListItem {
     // TreeListUtil version Generic method for retrieving items that intersect
     // with a given address
     private <T extends TreeListItem> List<T>
-    getItemsIntersectingAddress(long address, TreeMap<Long, List<T>> tree) {
+    getItemsIntersectingAddress(long address, IntervalIndex<T> index) {
         if (!this.address.isPresent())
             return null;
         long ownAddress = this.address.getAsLong();
@@ -319,14 +506,14 @@ public final class ByteInterval extends Node implements TreeListItem {
             return null;
         long offset = address - ownAddress;
 
-        return TreeListUtils.getItemsIntersectingIndex(offset, tree);
+        return index.findIntersecting(offset);
     }
 
     // Generic method for retrieving items that intersect with a given address
     // range
     private <T extends TreeListItem> List<T>
     getItemsIntersectingAddressRange(long startAddress, long endAddress,
-                                     TreeMap<Long, List<T>> tree) {
+                                     IntervalIndex<T> index) {
         if (!this.address.isPresent())
             return null;
         long ownAddress = this.address.getAsLong();
@@ -342,8 +529,7 @@ public final class ByteInterval extends Node implements TreeListItem {
             startOffset = startAddress - ownAddress;
         }
 
-        return TreeListUtils.getItemsIntersectingIndexRange(startOffset,
-                                                            endOffset, tree);
+        return index.findIntersecting(startOffset, endOffset);
     }
 
     // Generic method for retrieving items that start at a given address
@@ -395,16 +581,26 @@ public final class ByteInterval extends Node implements TreeListItem {
      * the insert fails.
      */
     public List<ByteBlock> insertByteBlock(ByteBlock block) {
-        List<ByteBlock> blockList;
-        Long offset = block.getOffset();
-        if (this.blockTree.containsKey(offset))
-            blockList = blockTree.get(offset);
-        else
-            blockList = new ArrayList<ByteBlock>();
-        blockList.add(block);
-        this.blockTree.put(offset, blockList);
-        block.setByteInterval(Optional.of(this));
-        return blockList;
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            List<ByteBlock> blockList;
+            Long offset = block.getOffset();
+            if (this.blockTree.containsKey(offset))
+                blockList = blockTree.get(offset);
+            else
+                blockList = new ArrayList<ByteBlock>();
+            blockList.add(block);
+            this.blockTree.put(offset, blockList);
+            this.blockIndex.invalidate();
+            Optional<Module> module = this.section.flatMap(Section::getModule);
+            if (module.isPresent())
+                module.get().blockInserted(this, block);
+            block.setByteInterval(Optional.of(this));
+            return blockList;
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -415,30 +611,40 @@ public final class ByteInterval extends Node implements TreeListItem {
      * and it was removed.
      */
     public boolean removeByteBlock(ByteBlock block) {
-        if (block.getByteInterval().isEmpty() ||
-            block.getByteInterval().get() != this)
-            return false;
-        Long offset = block.getOffset();
-        List<ByteBlock> blockList = this.blockTree.get(offset);
-        if (blockList == null)
-            // no blocks at this offset
-            return false;
-        if (!blockList.remove(block))
-            // didn't remove, maybe no matching block?
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            if (block.getByteInterval().isEmpty() ||
+                block.getByteInterval().get() != this)
+                return false;
+            Long offset = block.getOffset();
+            List<ByteBlock> blockList = this.blockTree.get(offset);
+            if (blockList == null)
+                // no blocks at this offset
+                return false;
+            if (!blockList.remove(block))
+                // didn't remove, maybe no matching block?
+                return false;
+            // Did remove, update tree.
+            // If the block list is now empty, remove the node from the tree.
+            // Otherwise update the tree.
+            if (blockList.size() == 0)
+                this.blockTree.remove(offset);
+            else
+                this.blockTree.put(offset, blockList);
+            this.blockIndex.invalidate();
+            Optional<Module> module = this.section.flatMap(Section::getModule);
+            if (module.isPresent())
+                module.get().blockRemoved(this, block);
+            // List empty means did not remove
+            if (blockList != null) {
+                block.setByteInterval(Optional.empty());
+                return true;
+            }
             return false;
-        // Did remove, update tree.
-        // If the block list is now empty, remove the node from the tree.
-        // Otherwise update the tree.
-        if (blockList.size() == 0)
-            this.blockTree.remove(offset);
-        else
-            this.blockTree.put(offset, blockList);
-        // List empty means did not remove
-        if (blockList != null) {
-            block.setByteInterval(Optional.empty());
-            return true;
+        } finally {
+            hold.close();
         }
-        return false;
     }
 
     /**
@@ -459,9 +665,7 @@ public final class ByteInterval extends Node implements TreeListItem {
      * ByteInterval.
      */
     public Iterator<ByteBlock> byteBlockIterator() {
-        TreeListUtils<ByteBlock> blockTreeIterator =
-            new TreeListUtils<ByteBlock>(this.blockTree);
-        return blockTreeIterator.iterator();
+        return this.blockView.iterator();
     }
 
     /////////////////////////////////////////////////////////////
@@ -478,7 +682,7 @@ public final class ByteInterval extends Node implements TreeListItem {
      */
     public List<CodeBlock> findCodeBlocksOn(long address) {
         List<ByteBlock> foundList =
-            getItemsIntersectingAddress(address, this.blockTree);
+            getItemsIntersectingAddress(address, this.blockIndex);
         if (foundList == null)
             return null;
         List<CodeBlock> resultList = new ArrayList<CodeBlock>();
@@ -505,7 +709,7 @@ public final class ByteInterval extends Node implements TreeListItem {
     public List<CodeBlock> findCodeBlocksOn(long startAddress,
                                             long endAddress) {
         List<ByteBlock> foundList = getItemsIntersectingAddressRange(
-            startAddress, endAddress, this.blockTree);
+            startAddress, endAddress, this.blockIndex);
         if (foundList == null)
             return null;
         List<CodeBlock> resultList = new ArrayList<CodeBlock>();
@@ -581,7 +785,7 @@ public final class ByteInterval extends Node implements TreeListItem {
      */
     public List<DataBlock> findDataBlocksOn(long address) {
         List<ByteBlock> foundList =
-            getItemsIntersectingAddress(address, this.blockTree);
+            getItemsIntersectingAddress(address, this.blockIndex);
         if (foundList == null)
             return null;
         List<DataBlock> resultList = new ArrayList<DataBlock>();
@@ -608,7 +812,7 @@ public final class ByteInterval extends Node implements TreeListItem {
     public List<DataBlock> findDataBlocksOn(long startAddress,
                                             long endAddress) {
         List<ByteBlock> foundList = getItemsIntersectingAddressRange(
-            startAddress, endAddress, this.blockTree);
+            startAddress, endAddress, this.blockIndex);
         if (foundList == null)
             return null;
         List<DataBlock> resultList = new ArrayList<DataBlock>();
@@ -685,7 +889,16 @@ public final class ByteInterval extends Node implements TreeListItem {
     public void
     insertSymbolicExpression(long offset,
                              SymbolicExpression symbolicExpression) {
-        this.symbolicExpressionTree.put(offset, symbolicExpression);
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            SymbolicExpression removed =
+                this.symbolicExpressionTree.put(offset, symbolicExpression);
+            this.symbolicExpressionsChanged(offset, removed,
+                                            symbolicExpression);
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -697,7 +910,18 @@ public final class ByteInterval extends Node implements TreeListItem {
      * expression, and it was removed.
      */
     public boolean removeSymbolicExpression(long offset) {
-        return (this.symbolicExpressionTree.remove(offset) != null);
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockByteInterval(this);
+        try {
+            SymbolicExpression removed =
+                this.symbolicExpressionTree.remove(offset);
+            if (removed == null)
+                return false;
+            this.symbolicExpressionsChanged(offset, removed, null);
+            return true;
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -713,6 +937,24 @@ public final class ByteInterval extends Node implements TreeListItem {
         return this.symbolicExpressionTree.entrySet().iterator();
     }
 
+    /**
+     * Get a stream of the symbolic expressions of this ByteInterval, in
+     * offset order.
+     *
+     * The stream is backed by the symbolic expressions themselves, and
+     * splits between them for parallel streams. Symbolic expressions must
+     * not be inserted or removed while it is in use.
+     *
+     * @return  A stream of the symbolic expressions, as unmodifiable Map
+     * entries, where the key is the offset of the SymbolicExpression in the
+     * ByteInterval.
+     */
+    public Stream<Map.Entry<Long, SymbolicExpression>> symbolicExpressions() {
+        return Collections.unmodifiableMap(this.symbolicExpressionTree)
+            .entrySet()
+            .stream();
+    }
+
     /**
      * Find all the symbolic expressions that start at an address.
      *
@@ -771,9 +1013,32 @@ public final class ByteInterval extends Node implements TreeListItem {
     /**
      * Serialize this ByteInterval into a protobuf .
      *
+     * Contents loaded from a protobuf, or frozen, are shared with the
+     * protobuf. Otherwise they are copied, so that later changes leave the
+     * protobuf unchanged.
+     *
      * @return ByteInterval protocol buffer.
      */
     public ByteIntervalOuterClass.ByteInterval.Builder toProtobuf() {
+        return this.toProtobuf(this.isFrozen());
+    }
+
+    /**
+     * Serialize this ByteInterval into a protobuf that is written out right
+     * away.
+     *
+     * The contents are wrapped rather than copied, so the protobuf must be
+     * written out before this ByteInterval is modified again. This
+     * ByteInterval is left unchanged.
+     *
+     * @return ByteInterval protocol buffer.
+     */
+    ByteIntervalOuterClass.ByteInterval.Builder toProtobufForWriting() {
+        return this.toProtobuf(true);
+    }
+
+    private ByteIntervalOuterClass.ByteInterval.Builder
+    toProtobuf(boolean wrapContents) {
         ByteIntervalOuterClass.ByteInterval.Builder protoByteInterval =
             ByteIntervalOuterClass.ByteInterval.newBuilder();
         protoByteInterval.setUuid(Util.uuidToByteString(this.getUuid()));
@@ -800,8 +1065,13 @@ public final class ByteInterval extends Node implements TreeListItem {
             protoByteInterval.putSymbolicExpressions(
                 symbolicEntry.getKey(), protoSymbolicExpression.build());
         }
-        if (this.bytes == null) {
+        if (this.sharedBytes != null) {
+            protoByteInterval.setContents(this.sharedBytes);
+        } else if (this.bytes == null) {
             protoByteInterval.setContents(ByteString.EMPTY);
+        } else if (wrapContents) {
+            protoByteInterval.setContents(
+                UnsafeByteOperations.unsafeWrap(this.bytes));
         } else {
             protoByteInterval.setContents(ByteString.copyFrom(this.bytes));
         }
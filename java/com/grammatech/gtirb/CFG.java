@@ -17,8 +17,11 @@ package com.grammatech.gtirb;
 import com.google.protobuf.ByteString;
 import com.grammatech.gtirb.proto.CFGOuterClass;
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * A CFG represents the interprocedural control flow graph.
@@ -27,6 +30,7 @@ public class CFG {
 
     private List<Edge> edgeList;
     private List<byte[]> verticeList;
+    private boolean frozen;
 
     /**
      * Class constructor for a {@link CFG} from a protobuf CFG.
@@ -63,16 +67,88 @@ public class CFG {
      */
     public List<Edge> getEdgeList() { return this.edgeList; }
 
+    /**
+     * Get a stream of the edges of a {@link CFG}.
+     *
+     * @return  A stream of the edges, in the order of the edge list.
+     */
+    public Stream<Edge> edges() { return this.edgeList.stream(); }
+
+    /**
+     * Get whether this CFG belongs to an IR that has been frozen with
+     * {@link IR#freeze()}.
+     *
+     * @return  true if this CFG can no longer be modified.
+     */
+    public boolean isFrozen() { return this.frozen; }
+
+    /**
+     * An unmodifiable list of vertices that returns copies of its elements,
+     * so that the vertices of a frozen CFG cannot be changed in place.
+     */
+    private static class FrozenVertexList extends AbstractList<byte[]> {
+        private final byte[][] vertices;
+
+        FrozenVertexList(List<byte[]> vertices) {
+            this.vertices = new byte[vertices.size()][];
+            for (int i = 0; i < this.vertices.length; i++)
+                this.vertices[i] = vertices.get(i).clone();
+        }
+
+        @Override
+        public byte[] get(int index) {
+            return this.vertices[index].clone();
+        }
+
+        @Override
+        public int size() {
+            return this.vertices.length;
+        }
+    }
+
+    /**
+     * Freeze this CFG and its edges, making its lists unmodifiable.
+     *
+     * The vertices are copied, and the vertex list returns copies of them.
+     */
+    void freeze() {
+        if (this.edgeList != null) {
+            for (Edge edge : this.edgeList)
+                edge.markFrozen();
+            this.edgeList = Collections.unmodifiableList(this.edgeList);
+        }
+        if (this.verticeList != null)
+            this.verticeList = new FrozenVertexList(this.verticeList);
+        this.frozen = true;
+    }
+
+    /**
+     * Check that this CFG can be modified.
+     *
+     * @throws UnsupportedOperationException if this CFG is frozen.
+     */
+    void checkMutable() {
+        if (this.frozen)
+            throw new UnsupportedOperationException(
+                "Cannot modify a frozen IR");
+    }
+
     /**
      * Set the {@link Edge} list of a {@link CFG}.
      *
      * @param edgeList  The edge list.
      */
-    public void setEdgeList(List<Edge> edgeList) { this.edgeList = edgeList; }
+    public void setEdgeList(List<Edge> edgeList) {
+        this.checkMutable();
+        this.edgeList = edgeList;
+    }
 
     /**
      * Get the vertice list of a {@link CFG}.
      *
+     * Once the CFG is frozen, the list is unmodifiable and its elements are
+     * copies of the vertices.
+     *
      * @return  The vertice list.
      */
     public List<byte[]> getVerticeList() { return this.verticeList; }
@@ -83,6 +159,7 @@ public class CFG {
      * @param verticeList  The vertice list.
      */
     public void setVerticeList(List<byte[]> verticeList) {
+        this.checkMutable();
         this.verticeList = verticeList;
     }
 
@@ -69,6 +69,7 @@ public class CodeBlock extends ByteBlock {
      * @param decodeMode    The decode mode.
      */
     public void setDecodeMode(DecodeMode decodeMode) {
+        this.checkMutable();
         this.decodeMode = decodeMode;
     }
 
@@ -0,0 +1,646 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import com.grammatech.gtirb.Edge.EdgeType;
+import com.grammatech.gtirb.proto.CFGOuterClass;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A compact, read-only form of the interprocedural control flow graph.
+ *
+ * Each vertex UUID is mapped to a dense int id, and edges are stored in
+ * compressed sparse row form: edges are numbered in order of their source,
+ * so the out-edges of a vertex are a contiguous range of edge numbers, and
+ * a second index lists the in-edges of each vertex. Each edge takes its
+ * source and target ids, its position in the in-edge index, and one byte
+ * packing its {@link EdgeType}, conditional and direct flags.
+ *
+ * Vertex ids are assigned first to the vertices listed in the CFG, in
+ * order, and then to vertices that only appear in edges. Converting back
+ * to a protobuf reproduces the same vertices and edges. Edges with the same
+ * source keep their relative order, but edges are grouped by source.
+ *
+ * A compact CFG can be read straight from a GTIRB file with
+ * {@link #read(InputStream)}, without loading the IR or building a
+ * {@link CFG}, or built from any source of edges with a {@link Builder}.
+ */
+public final class CompactCFG {
+
+    // Label layout: the low three bits hold the EdgeType ordinal, with
+    // Unlabelled meaning the edge has no label at all.
+    private static final int TYPE_MASK = 0x07;
+    private static final int CONDITIONAL_BIT = 0x08;
+    private static final int DIRECT_BIT = 0x10;
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
+
+    // Vertex UUIDs, as pairs of (most, least) significant bits.
+    private final long[] vertexUuids;
+    private final int vertexCount;
+    private final int listedVertexCount;
+    // Open addressing table from UUID to vertex id + 1.
+    private final int[] vertexTable;
+
+    private final int[] outOffsets;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+    private final byte[] edgeLabels;
+    private final int[] inOffsets;
+    private final int[] inEdges;
+
+    private CompactCFG(Builder builder) {
+        this.vertexCount = builder.vertexCount;
+        this.vertexUuids = Arrays.copyOf(builder.uuids, 2 * this.vertexCount);
+        this.listedVertexCount = builder.listedVertexCount;
+        this.vertexTable = builder.table;
+
+        // Order the edges by source, keeping the original relative order.
+        int edgeCount = builder.edgeCount;
+        this.outOffsets = countOffsets(builder.sources, edgeCount,
+                                       this.vertexCount);
+        int[] order = sortByOffsets(builder.sources, edgeCount,
+                                    this.outOffsets);
+        this.edgeSources = new int[edgeCount];
+        this.edgeTargets = new int[edgeCount];
+        this.edgeLabels = new byte[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            this.edgeSources[e] = builder.sources[order[e]];
+            this.edgeTargets[e] = builder.targets[order[e]];
+            this.edgeLabels[e] = builder.labels[order[e]];
+        }
+
+        this.inOffsets =
+            countOffsets(this.edgeTargets, edgeCount, this.vertexCount);
+        this.inEdges =
+            sortByOffsets(this.edgeTargets, edgeCount, this.inOffsets);
+    }
+
+    /**
+     * Create a compact CFG from a protobuf CFG.
+     *
+     * @param protoCfg  The CFG as serialized into a protocol buffer.
+     * @return  The compact CFG.
+     */
+    public static CompactCFG fromProtobuf(CFGOuterClass.CFG protoCfg)
+        throws IOException {
+        Builder builder = new Builder(protoCfg.getVerticesCount(),
+                                      protoCfg.getEdgesCount());
+        for (com.google.protobuf.ByteString vertex :
+             protoCfg.getVerticesList())
+            builder.addListedVertex(Util.byteStringToUuid(vertex));
+        for (CFGOuterClass.Edge protoEdge : protoCfg.getEdgesList()) {
+            byte label;
+            if (protoEdge.hasLabel()) {
+                CFGOuterClass.EdgeLabel protoLabel = protoEdge.getLabel();
+                label = packLabel(Edge.edgeTypeOf(protoLabel.getTypeValue()),
+                                  protoLabel.getConditional(),
+                                  protoLabel.getDirect());
+            } else {
+                label = packLabel(EdgeType.Unlabelled, false, false);
+            }
+            builder.addEdge(Util.byteStringToUuid(protoEdge.getSourceUuid()),
+                            Util.byteStringToUuid(protoEdge.getTargetUuid()),
+                            label);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Read the CFG of a GTIRB file into a compact CFG.
+     *
+     * The file is read with an {@link IRReader}, and the vertices and edges
+     * are added to a {@link Builder} as they are read, so neither the IR nor
+     * a {@link CFG} is built.
+     *
+     * @param fileIn  The stream to read from.
+     * @return  The compact CFG.
+     */
+    public static CompactCFG read(InputStream fileIn) throws IOException {
+        Builder builder = new Builder();
+        IRReader.read(fileIn, new IRReader.Visitor() {
+            @Override
+            public void onCfgVertex(UUID vertex) {
+                builder.addVertex(vertex);
+            }
+
+            @Override
+            public void onEdge(IRReader.EdgeView edge) {
+                builder.addEdge(edge);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Read the CFG of a GTIRB file into a compact CFG.
+     *
+     * @param fileInName  The name of the file to read from.
+     * @return  The compact CFG.
+     */
+    public static CompactCFG read(String fileInName) throws IOException {
+        try (FileInputStream fileInputStream =
+                 new FileInputStream(new File(fileInName))) {
+            return read(fileInputStream);
+        }
+    }
+
+    /**
+     * Create a compact CFG from a {@link CFG}.
+     *
+     * @param cfg  The CFG.
+     * @return  The compact CFG.
+     */
+    public static CompactCFG fromCfg(CFG cfg) {
+        Builder builder = new Builder(cfg.getVerticeList().size(),
+                                      cfg.getEdgeList().size());
+        for (byte[] vertex : cfg.getVerticeList())
+            builder.addListedVertex(Util.byteArrayToUUID(vertex));
+        for (Edge edge : cfg.getEdgeList())
+            builder.addEdge(edge.getSourceUuid(), edge.getTargetUuid(),
+                            packLabel(edge.getEdgeType(), edge.isConditional(),
+                                      edge.isDirect()));
+        return builder.build();
+    }
+
+    /**
+     * Serialize this CFG into a protobuf.
+     *
+     * @return CFG protocol buffer.
+     */
+    public CFGOuterClass.CFG.Builder toProtobuf() {
+        CFGOuterClass.CFG.Builder protoCfg = CFGOuterClass.CFG.newBuilder();
+        for (int id = 0; id < this.listedVertexCount; id++)
+            protoCfg.addVertices(Util.uuidToByteString(this.getUuid(id)));
+        for (int e = 0; e < this.edgeTargets.length; e++)
+            protoCfg.addEdges(this.getEdge(e).toProtobuf());
+        return protoCfg;
+    }
+
+    /**
+     * Convert this CFG into a {@link CFG}.
+     *
+     * @return  A CFG with the same vertices and edges.
+     */
+    public CFG toCfg() {
+        List<Edge> edges = new ArrayList<Edge>(this.edgeTargets.length);
+        for (int e = 0; e < this.edgeTargets.length; e++)
+            edges.add(this.getEdge(e));
+        List<byte[]> vertices = new ArrayList<byte[]>(this.listedVertexCount);
+        for (int id = 0; id < this.listedVertexCount; id++)
+            vertices.add(Util.uuidToByteArray(this.getUuid(id)));
+        return new CFG(edges, vertices);
+    }
+
+    /**
+     * Get the number of vertices, including those that only appear in
+     * edges.
+     *
+     * @return  The number of vertices.
+     */
+    public int getVertexCount() { return this.vertexCount; }
+
+    /**
+     * Get the number of edges.
+     *
+     * @return  The number of edges.
+     */
+    public int getEdgeCount() { return this.edgeTargets.length; }
+
+    /**
+     * Get the id of a vertex.
+     *
+     * @param uuid  The UUID of the vertex.
+     * @return  The id of the vertex, or -1 if it is not in this CFG.
+     */
+    public int getId(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int mask = this.vertexTable.length - 1;
+        for (int slot = hash(msb, lsb) & mask;; slot = (slot + 1) & mask) {
+            int entry = this.vertexTable[slot];
+            if (entry == 0)
+                return -1;
+            int id = entry - 1;
+            if (this.vertexUuids[2 * id] == msb &&
+                this.vertexUuids[2 * id + 1] == lsb)
+                return id;
+        }
+    }
+
+    /**
+     * Get the UUID of a vertex.
+     *
+     * @param id  The id of the vertex.
+     * @return  The UUID of the vertex.
+     */
+    public UUID getUuid(int id) {
+        return new UUID(this.vertexUuids[2 * id], this.vertexUuids[2 * id + 1]);
+    }
+
+    /**
+     * Get the ids of the successors of a vertex.
+     *
+     * There is one entry per out-edge, so a successor reached by several
+     * edges is listed several times.
+     *
+     * @param id  The id of the vertex.
+     * @return  The ids of the targets of the out-edges of the vertex.
+     */
+    public int[] successors(int id) {
+        return Arrays.copyOfRange(this.edgeTargets, this.outOffsets[id],
+                                  this.outOffsets[id + 1]);
+    }
+
+    /**
+     * Get the ids of the predecessors of a vertex.
+     *
+     * There is one entry per in-edge, so a predecessor with several edges
+     * to the vertex is listed several times.
+     *
+     * @param id  The id of the vertex.
+     * @return  The ids of the sources of the in-edges of the vertex.
+     */
+    public int[] predecessors(int id) {
+        int begin = this.inOffsets[id];
+        int[] result = new int[this.inOffsets[id + 1] - begin];
+        for (int i = 0; i < result.length; i++)
+            result[i] = this.edgeSources[this.inEdges[begin + i]];
+        return result;
+    }
+
+    /**
+     * Get the successors of a vertex.
+     *
+     * @param node  The UUID of the vertex.
+     * @return  The UUIDs of the targets of the out-edges of the vertex, or
+     * an empty list if it is not in this CFG.
+     */
+    public List<UUID> successors(UUID node) {
+        int id = this.getId(node);
+        List<UUID> result = new ArrayList<UUID>();
+        if (id < 0)
+            return result;
+        for (int e = this.outOffsets[id]; e < this.outOffsets[id + 1]; e++)
+            result.add(this.getUuid(this.edgeTargets[e]));
+        return result;
+    }
+
+    /**
+     * Get the predecessors of a vertex.
+     *
+     * @param node  The UUID of the vertex.
+     * @return  The UUIDs of the sources of the in-edges of the vertex, or
+     * an empty list if it is not in this CFG.
+     */
+    public List<UUID> predecessors(UUID node) {
+        int id = this.getId(node);
+        List<UUID> result = new ArrayList<UUID>();
+        if (id < 0)
+            return result;
+        for (int i = this.inOffsets[id]; i < this.inOffsets[id + 1]; i++)
+            result.add(this.getUuid(this.edgeSources[this.inEdges[i]]));
+        return result;
+    }
+
+    /**
+     * Get the first out-edge of a vertex.
+     *
+     * The out-edges of vertex id are numbered from getOutEdgesBegin(id) up
+     * to, but not including, getOutEdgesEnd(id).
+     *
+     * @param id  The id of the vertex.
+     * @return  The number of the first out-edge.
+     */
+    public int getOutEdgesBegin(int id) { return this.outOffsets[id]; }
+
+    /**
+     * Get the end of the out-edges of a vertex.
+     *
+     * @param id  The id of the vertex.
+     * @return  One past the number of the last out-edge.
+     */
+    public int getOutEdgesEnd(int id) { return this.outOffsets[id + 1]; }
+
+    /**
+     * Get the in-edges of a vertex.
+     *
+     * @param id  The id of the vertex.
+     * @return  The numbers of the in-edges of the vertex.
+     */
+    public int[] getInEdges(int id) {
+        return Arrays.copyOfRange(this.inEdges, this.inOffsets[id],
+                                  this.inOffsets[id + 1]);
+    }
+
+    /**
+     * Get the source of an edge.
+     *
+     * @param edge  The number of the edge.
+     * @return  The id of the source vertex.
+     */
+    public int getEdgeSource(int edge) { return this.edgeSources[edge]; }
+
+    /**
+     * Get the target of an edge.
+     *
+     * @param edge  The number of the edge.
+     * @return  The id of the target vertex.
+     */
+    public int getEdgeTarget(int edge) { return this.edgeTargets[edge]; }
+
+    /**
+     * Get the {@link EdgeType} of an edge.
+     *
+     * @param edge  The number of the edge.
+     * @return  The edge type.
+     */
+    public EdgeType getEdgeType(int edge) {
+        return EDGE_TYPES[this.edgeLabels[edge] & TYPE_MASK];
+    }
+
+    /**
+     * Whether an edge is conditional.
+     *
+     * @param edge  The number of the edge.
+     * @return  True if the edge is conditional.
+     */
+    public boolean isConditional(int edge) {
+        return (this.edgeLabels[edge] & CONDITIONAL_BIT) != 0;
+    }
+
+    /**
+     * Whether an edge is direct.
+     *
+     * @param edge  The number of the edge.
+     * @return  True if the edge is direct.
+     */
+    public boolean isDirect(int edge) {
+        return (this.edgeLabels[edge] & DIRECT_BIT) != 0;
+    }
+
+    /**
+     * Get an edge as an {@link Edge}.
+     *
+     * @param edge  The number of the edge.
+     * @return  A new Edge with the same source, target and label.
+     */
+    public Edge getEdge(int edge) {
+        return new Edge(this.getUuid(this.edgeSources[edge]),
+                        this.getUuid(this.edgeTargets[edge]),
+                        this.getEdgeType(edge), this.isConditional(edge),
+                        this.isDirect(edge));
+    }
+
+    private static byte packLabel(EdgeType type, boolean conditional,
+                                  boolean direct) {
+        int label = type.ordinal();
+        if (type != EdgeType.Unlabelled) {
+            if (conditional)
+                label |= CONDITIONAL_BIT;
+            if (direct)
+                label |= DIRECT_BIT;
+        }
+        return (byte)label;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    /**
+     * Count the entries of each vertex, as offsets into a grouped array.
+     */
+    private static int[] countOffsets(int[] ids, int count, int vertexCount) {
+        int[] offsets = new int[vertexCount + 1];
+        for (int i = 0; i < count; i++)
+            offsets[ids[i] + 1]++;
+        for (int id = 0; id < vertexCount; id++)
+            offsets[id + 1] += offsets[id];
+        return offsets;
+    }
+
+    /**
+     * Stably order entry positions by vertex, given the offsets of each
+     * vertex.
+     */
+    private static int[] sortByOffsets(int[] ids, int count, int[] offsets) {
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++)
+            order[next[ids[i]]++] = i;
+        return order;
+    }
+
+    /**
+     * Accumulates vertices and edges before they are put in CSR form.
+     *
+     * Each vertex and edge is interned as it is added, so the memory used
+     * while building is close to that of the finished CFG. Listed vertices
+     * may be added before or after the edges that use them; they still get
+     * the first ids. A builder can only build one CFG.
+     */
+    public static final class Builder {
+        private long[] uuids;
+        private int vertexCount;
+        private int[] listedIds;
+        private int listedVertexCount;
+        private final BitSet listed = new BitSet();
+        private int[] table;
+        private int[] sources;
+        private int[] targets;
+        private byte[] labels;
+        private int edgeCount;
+        private boolean built;
+
+        /**
+         * Create an empty builder.
+         */
+        public Builder() { this(0, 0); }
+
+        private Builder(int vertexCapacity, int edgeCapacity) {
+            int capacity = Math.max(vertexCapacity, 8);
+            this.uuids = new long[2 * capacity];
+            this.listedIds = new int[capacity];
+            this.table = new int[tableSizeFor(capacity)];
+            edgeCapacity = Math.max(edgeCapacity, 8);
+            this.sources = new int[edgeCapacity];
+            this.targets = new int[edgeCapacity];
+            this.labels = new byte[edgeCapacity];
+        }
+
+        /**
+         * Add a vertex listed in the CFG.
+         *
+         * @param uuid  The UUID of the vertex.
+         */
+        public void addVertex(UUID uuid) { this.addListedVertex(uuid); }
+
+        /**
+         * Add an edge.
+         *
+         * @param source       The UUID of the source vertex.
+         * @param target       The UUID of the target vertex.
+         * @param type         The {@link EdgeType} of the edge.
+         * @param conditional  Whether the edge is conditional.
+         * @param direct       Whether the edge is direct.
+         */
+        public void addEdge(UUID source, UUID target, EdgeType type,
+                            boolean conditional, boolean direct) {
+            this.addEdge(source, target, packLabel(type, conditional, direct));
+        }
+
+        /**
+         * Add an edge reported by an {@link IRReader}.
+         *
+         * @param edge  The edge.
+         */
+        public void addEdge(IRReader.EdgeView edge) {
+            this.addEdge(edge.getSourceUuid(), edge.getTargetUuid(),
+                         edge.getEdgeType(), edge.isConditional(),
+                         edge.isDirect());
+        }
+
+        /**
+         * Build the compact CFG from the vertices and edges added.
+         *
+         * @return  The compact CFG.
+         */
+        public CompactCFG build() {
+            this.checkNotBuilt();
+            this.built = true;
+            this.renumber();
+            return new CompactCFG(this);
+        }
+
+        private void addListedVertex(UUID uuid) {
+            this.checkNotBuilt();
+            int id = this.getOrAddId(uuid);
+            if (this.listed.get(id))
+                return;
+            this.listed.set(id);
+            if (this.listedVertexCount == this.listedIds.length)
+                this.listedIds = Arrays.copyOf(this.listedIds,
+                                               2 * this.listedVertexCount);
+            this.listedIds[this.listedVertexCount++] = id;
+        }
+
+        /**
+         * Renumber the vertices so that the listed vertices come first, in
+         * the order they were listed, followed by the others in the order
+         * they were first seen.
+         */
+        private void renumber() {
+            boolean inOrder = true;
+            for (int i = 0; i < this.listedVertexCount && inOrder; i++)
+                inOrder = this.listedIds[i] == i;
+            if (inOrder)
+                return;
+
+            int[] newIds = new int[this.vertexCount];
+            Arrays.fill(newIds, -1);
+            for (int i = 0; i < this.listedVertexCount; i++)
+                newIds[this.listedIds[i]] = i;
+            int next = this.listedVertexCount;
+            for (int id = 0; id < this.vertexCount; id++)
+                if (newIds[id] < 0)
+                    newIds[id] = next++;
+
+            long[] uuids = new long[this.uuids.length];
+            for (int id = 0; id < this.vertexCount; id++) {
+                uuids[2 * newIds[id]] = this.uuids[2 * id];
+                uuids[2 * newIds[id] + 1] = this.uuids[2 * id + 1];
+            }
+            this.uuids = uuids;
+            for (int e = 0; e < this.edgeCount; e++) {
+                this.sources[e] = newIds[this.sources[e]];
+                this.targets[e] = newIds[this.targets[e]];
+            }
+            this.rehash(this.table.length);
+        }
+
+        private void addEdge(UUID source, UUID target, byte label) {
+            this.checkNotBuilt();
+            if (this.edgeCount == this.sources.length) {
+                int capacity = 2 * this.edgeCount;
+                this.sources = Arrays.copyOf(this.sources, capacity);
+                this.targets = Arrays.copyOf(this.targets, capacity);
+                this.labels = Arrays.copyOf(this.labels, capacity);
+            }
+            this.sources[this.edgeCount] = this.getOrAddId(source);
+            this.targets[this.edgeCount] = this.getOrAddId(target);
+            this.labels[this.edgeCount] = label;
+            this.edgeCount++;
+        }
+
+        private void checkNotBuilt() {
+            if (this.built)
+                throw new IllegalStateException(
+                    "The CFG has already been built");
+        }
+
+        private int getOrAddId(UUID uuid) {
+            long msb = uuid.getMostSignificantBits();
+            long lsb = uuid.getLeastSignificantBits();
+            int mask = this.table.length - 1;
+            int slot = hash(msb, lsb) & mask;
+            for (;; slot = (slot + 1) & mask) {
+                int entry = this.table[slot];
+                if (entry == 0)
+                    break;
+                int id = entry - 1;
+                if (this.uuids[2 * id] == msb && this.uuids[2 * id + 1] == lsb)
+                    return id;
+            }
+
+            int id = this.vertexCount++;
+            if (2 * this.vertexCount > this.uuids.length)
+                this.uuids = Arrays.copyOf(this.uuids, 2 * this.uuids.length);
+            this.uuids[2 * id] = msb;
+            this.uuids[2 * id + 1] = lsb;
+            this.table[slot] = id + 1;
+            if (2 * this.vertexCount > this.table.length)
+                this.rehash(2 * this.table.length);
+            return id;
+        }
+
+        private void rehash(int tableSize) {
+            this.table = new int[tableSize];
+            int mask = this.table.length - 1;
+            for (int id = 0; id < this.vertexCount; id++) {
+                int slot = hash(this.uuids[2 * id], this.uuids[2 * id + 1]);
+                for (slot &= mask; this.table[slot] != 0;
+                     slot = (slot + 1) & mask)
+                    ;
+                this.table[slot] = id + 1;
+            }
+        }
+
+        private static int tableSizeFor(int capacity) {
+            int size = 16;
+            while (size < 2 * capacity)
+                size <<= 1;
+            return size;
+        }
+    }
+}
@@ -42,6 +42,7 @@ public class Edge {
     private EdgeType edgeType;
     private boolean edgeLabelConditional;
     private boolean edgeLabelDirect;
+    private boolean frozen;
 
     /**
      * Class constructor for an Edge from a protobuf edge.
@@ -52,7 +53,7 @@ public class Edge {
         this.setTargetUuid(Util.byteStringToUuid(protoEdge.getTargetUuid()));
         if (protoEdge.hasLabel()) {
             CFGOuterClass.EdgeLabel protoEdgeLabel = protoEdge.getLabel();
-            this.edgeType = EdgeType.values()[protoEdgeLabel.getTypeValue()];
+            this.edgeType = edgeTypeOf(protoEdgeLabel.getTypeValue());
             this.setEdgeLabelConditional(protoEdgeLabel.getConditional());
             this.setEdgeLabelDirect(protoEdgeLabel.getDirect());
         } else {
@@ -60,6 +61,21 @@ public class Edge {
         }
     }
 
+    /**
+     * Get the {@link EdgeType} of a serialized edge label type.
+     *
+     * {@link EdgeType#Unlabelled} is not a serialized type, so it is rejected
+     * along with any type this version does not know.
+     *
+     * @param typeValue  The type value of the protobuf edge label.
+     * @return  The edge type.
+     */
+    static EdgeType edgeTypeOf(int typeValue) throws IOException {
+        if (typeValue < 0 || typeValue >= EdgeType.Unlabelled.ordinal())
+            throw new IOException("Unknown CFG edge type " + typeValue);
+        return EdgeType.values()[typeValue];
+    }
+
     /**
      * Class constructor for an Edge.
      * @param  sourceUuid  UUID of the source node.
@@ -89,7 +105,10 @@ public class Edge {
      *
      * @param sourceUuid  The edge source node (UUID).
      */
-    public void setSourceUuid(UUID sourceUuid) { this.sourceUuid = sourceUuid; }
+    public void setSourceUuid(UUID sourceUuid) {
+        this.checkMutable();
+        this.sourceUuid = sourceUuid;
+    }
 
     /**
      * Get the target node of an {@link Edge}.
@@ -103,7 +122,10 @@ public class Edge {
      *
      * @param targetUuid  The edge target node (UUID).
      */
-    public void setTargetUuid(UUID targetUuid) { this.targetUuid = targetUuid; }
+    public void setTargetUuid(UUID targetUuid) {
+        this.checkMutable();
+        this.targetUuid = targetUuid;
+    }
 
     /**
      * Get the {@link EdgeType} of an {@link Edge}.
@@ -117,7 +139,10 @@ public class Edge {
      *
      * @param edgeType  The edge type.
      */
-    public void setEdgeType(EdgeType edgeType) { this.edgeType = edgeType; }
+    public void setEdgeType(EdgeType edgeType) {
+        this.checkMutable();
+        this.edgeType = edgeType;
+    }
 
     /**
      * Whether an {@link Edge}.
@@ -132,6 +157,7 @@ public class Edge {
      * @param conditional  True if the edge is conditional.
      */
     public void setEdgeLabelConditional(boolean conditional) {
+        this.checkMutable();
         this.edgeLabelConditional = conditional;
     }
 
@@ -148,9 +174,34 @@ public class Edge {
      * @param direct  True if the edge is direct.
      */
     public void setEdgeLabelDirect(boolean direct) {
+        this.checkMutable();
         this.edgeLabelDirect = direct;
     }
 
+    /**
+     * Get whether this edge belongs to an IR that has been frozen with
+     * {@link IR#freeze()}.
+     *
+     * @return  true if this edge can no longer be modified.
+     */
+    public boolean isFrozen() { return this.frozen; }
+
+    /**
+     * Mark this edge as frozen.
+     */
+    void markFrozen() { this.frozen = true; }
+
+    /**
+     * Check that this edge can be modified.
+     *
+     * @throws UnsupportedOperationException if this edge is frozen.
+     */
+    void checkMutable() {
+        if (this.frozen)
+            throw new UnsupportedOperationException(
+                "Cannot modify a frozen IR");
+    }
+
     /**
      * De-serialize a {@link Edge} from a protobuf .
      *
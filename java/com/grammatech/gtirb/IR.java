@@ -14,36 +14,69 @@
 
 package com.grammatech.gtirb;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
 import com.grammatech.gtirb.Module;
 import com.grammatech.gtirb.proto.IROuterClass;
 import com.grammatech.gtirb.proto.ModuleOuterClass;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * A complete internal representation. IR describes the internal representation
  * of a software artifact.
  */
-public class IR extends AuxDataContainer {
+public class IR extends AuxDataContainer implements AutoCloseable {
 
+    private final NodeRegistry registry = NodeRegistry.open();
     private List<Module> modules;
+    // Serialized modules that have not been loaded yet. This is null unless
+    // the IR was loaded with lazy modules. Otherwise it runs parallel to
+    // modules, and an entry is non-null exactly when the module at the same
+    // position has not been loaded.
+    private List<ByteString> encodedModules;
+    // Removes the parts of encoded modules that the load options skip, or
+    // null if nothing is skipped.
+    private LoadFilter loadFilter;
+    // Whether loaded modules keep referring to the bytes of their encoded
+    // form, which is true when those bytes are a mapping of the file.
+    private boolean aliasModules;
     private CFG cfg;
     private int version; // This is the protobuf version from the protoIr
 
     static final private byte[] GTIRB_MAGIC_CHARS =
         "GTIRB".getBytes(Charset.forName("ASCII"));
     static final private int GTIRB_MAGIC_LENGTH = 5;
+    static final private int GTIRB_HEADER_LENGTH = 8;
+    // A tag and a length are varints of at most five and ten bytes.
+    static final private int MAX_FIELD_PREFIX_LENGTH = 15;
 
     /**
      * Default class constructor for IR.
@@ -75,8 +108,10 @@ public class IR extends AuxDataContainer {
         // Import the modules
         ir.modules = new ArrayList<Module>();
         for (ModuleOuterClass.Module protoModule : protoIr.getModulesList()) {
-            Module module = Module.fromProtobuf(protoModule);
+            Module module =
+                ir.registry.loadWith(() -> Module.fromProtobuf(protoModule));
             ir.modules.add(module);
+            module.setIr(Optional.of(ir));
         }
         // Import the CFG
         ir.cfg = new CFG(protoIr.getCfg());
@@ -84,42 +119,356 @@ public class IR extends AuxDataContainer {
     }
 
     /**
-     * Load IR from a protobuf file stream.
+     * Load IR from the parts of a protobuf stream, deferring the loading of
+     * modules.
      *
-     * @return  IR if load is successful, null otherwise.
+     * Each module is kept as its serialized bytes. Everything else in the IR
+     * is loaded as usual. Skipped modules, AuxData and CFG are passed over.
+     *
+     * @param protoIns    The parts of the stream, which each hold whole
+     * fields of the IR message, in order.
+     * @param loadFilter  The filter for the skipped parts, or null.
+     * @return  The {@link IR} loaded from the stream.
      */
-    public static IR loadFile(InputStream fileIn) {
-        byte[] magic = new byte[GTIRB_MAGIC_LENGTH];
-        try {
-            // Magic signature
-            // Bytes 0-4 contain the ASCII characters: GTIRB.
-            // Bytes 5-6 are considered reserved for future use and should be 0.
-            // Byte 7 contains the GTIRB protobuf spec version in use.
-            int bytes_read = fileIn.read(magic);
-            if (bytes_read != GTIRB_MAGIC_LENGTH ||
-                !Arrays.equals(magic, GTIRB_MAGIC_CHARS)) {
-                return null;
+    private static IR loadProtobufLazily(List<CodedInputStream> protoIns,
+                                         LoadFilter loadFilter)
+        throws IOException {
+        // Split off the modules, and copy all other fields of the IR message
+        // so that they can be parsed normally.
+        List<ByteString> encodedModules = new ArrayList<ByteString>();
+        ByteString.Output otherFields = ByteString.newOutput();
+        CodedOutputStream otherFieldsOut =
+            CodedOutputStream.newInstance(otherFields);
+        for (CodedInputStream protoIn : protoIns)
+            splitFields(protoIn, loadFilter, encodedModules, otherFieldsOut);
+        otherFieldsOut.flush();
+
+        IROuterClass.IR protoIr =
+            IROuterClass.IR.parseFrom(otherFields.toByteString());
+        IR ir = IR.loadProtobuf(protoIr);
+        ir.encodedModules = encodedModules;
+        ir.loadFilter = loadFilter;
+        for (int i = 0; i < encodedModules.size(); i++)
+            ir.modules.add(null);
+        return ir;
+    }
+
+    /**
+     * Split the modules off the fields of an IR message.
+     *
+     * Modules are added to encodedModules, and all other fields that are
+     * not skipped are copied to otherFieldsOut.
+     */
+    private static void splitFields(CodedInputStream protoIn,
+                                    LoadFilter loadFilter,
+                                    List<ByteString> encodedModules,
+                                    CodedOutputStream otherFieldsOut)
+        throws IOException {
+        while (true) {
+            int tag = protoIn.readTag();
+            if (tag == 0)
+                break;
+            int fieldNumber = WireFormat.getTagFieldNumber(tag);
+            boolean isMessage = WireFormat.getTagWireType(tag) ==
+                                WireFormat.WIRETYPE_LENGTH_DELIMITED;
+            if (fieldNumber == IROuterClass.IR.MODULES_FIELD_NUMBER &&
+                isMessage) {
+                ByteString encodedModule = protoIn.readBytes();
+                if (loadFilter == null ||
+                    !loadFilter.skipsModule(encodedModule))
+                    encodedModules.add(encodedModule);
+            } else if (loadFilter != null &&
+                       fieldNumber == IROuterClass.IR.AUX_DATA_FIELD_NUMBER &&
+                       isMessage) {
+                ByteString encodedEntry = protoIn.readBytes();
+                if (!loadFilter.skipsAuxData(encodedEntry))
+                    otherFieldsOut.writeBytes(fieldNumber, encodedEntry);
+            } else if (loadFilter != null && loadFilter.skipsCfg() &&
+                       fieldNumber == IROuterClass.IR.CFG_FIELD_NUMBER) {
+                if (!protoIn.skipField(tag))
+                    break;
+            } else if (!copyField(protoIn, tag, otherFieldsOut)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Copy a field from a protobuf stream to another, as the deprecated
+     * {@code CodedInputStream.skipField(int, CodedOutputStream)} does.
+     *
+     * Length-delimited fields are read with {@code readBytes}, so with
+     * aliasing enabled they are not copied on the way.
+     *
+     * @param tag  The tag of the field, just read from protoIn.
+     * @return  false if the tag ends a group, true otherwise.
+     */
+    static boolean copyField(CodedInputStream protoIn, int tag,
+                             CodedOutputStream protoOut) throws IOException {
+        switch (WireFormat.getTagWireType(tag)) {
+        case WireFormat.WIRETYPE_VARINT:
+            protoOut.writeUInt32NoTag(tag);
+            protoOut.writeUInt64NoTag(protoIn.readRawVarint64());
+            return true;
+        case WireFormat.WIRETYPE_FIXED64:
+            protoOut.writeUInt32NoTag(tag);
+            protoOut.writeFixed64NoTag(protoIn.readRawLittleEndian64());
+            return true;
+        case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+            protoOut.writeUInt32NoTag(tag);
+            protoOut.writeBytesNoTag(protoIn.readBytes());
+            return true;
+        case WireFormat.WIRETYPE_START_GROUP:
+            protoOut.writeUInt32NoTag(tag);
+            while (true) {
+                int groupTag = protoIn.readTag();
+                if (groupTag == 0)
+                    break;
+                if (!copyField(protoIn, groupTag, protoOut)) {
+                    protoOut.writeUInt32NoTag(groupTag);
+                    break;
+                }
             }
-            fileIn.skip(2);
-            int ver = fileIn.read();
-            if (ver != Version.gtirbProtobufVersion) {
+            // The end tag has the field number of the start tag.
+            protoIn.checkLastTagWas((tag & ~0x7) |
+                                    WireFormat.WIRETYPE_END_GROUP);
+            return true;
+        case WireFormat.WIRETYPE_END_GROUP:
+            return false;
+        case WireFormat.WIRETYPE_FIXED32:
+            protoOut.writeUInt32NoTag(tag);
+            protoOut.writeFixed32NoTag(protoIn.readRawLittleEndian32());
+            return true;
+        default:
+            throw new InvalidProtocolBufferException(
+                "Protocol message tag had invalid wire type.");
+        }
+    }
+
+    /**
+     * Check the GTIRB file header.
+     *
+     * On return, the position of the buffer is just past the header.
+     *
+     * @return  true if the header is valid and has the expected version.
+     */
+    private static boolean checkHeader(ByteBuffer header) {
+        // Magic signature
+        // Bytes 0-4 contain the ASCII characters: GTIRB.
+        // Bytes 5-6 are considered reserved for future use and should be 0.
+        // Byte 7 contains the GTIRB protobuf spec version in use.
+        if (header.remaining() < GTIRB_HEADER_LENGTH)
+            return false;
+        byte[] magic = new byte[GTIRB_MAGIC_LENGTH];
+        header.get(magic);
+        if (!Arrays.equals(magic, GTIRB_MAGIC_CHARS))
+            return false;
+        header.position(header.position() + 2);
+        int ver = header.get() & 0xFF;
+        return ver == Version.gtirbProtobufVersion;
+    }
+
+    /**
+     * Read and check the GTIRB file header.
+     *
+     * @return  true if the header is valid and has the expected version.
+     */
+    static boolean readHeader(InputStream fileIn) throws IOException {
+        byte[] header = new byte[GTIRB_HEADER_LENGTH];
+        int bytes_read = 0;
+        while (bytes_read < GTIRB_HEADER_LENGTH) {
+            int count = fileIn.read(header, bytes_read,
+                                    GTIRB_HEADER_LENGTH - bytes_read);
+            if (count < 0)
+                return false;
+            bytes_read += count;
+        }
+        return checkHeader(ByteBuffer.wrap(header));
+    }
+
+    /**
+     * Load IR from a protobuf stream positioned just past the header.
+     *
+     * @return  The {@link IR} loaded from the stream.
+     */
+    private static IR loadProtobuf(CodedInputStream protoIn,
+                                   LoadOptions options) throws IOException {
+        protoIn.setSizeLimit(Integer.MAX_VALUE);
+        if (options.isLazyModules() || options.getExecutor() != null ||
+            LoadFilter.of(options) != null)
+            return IR.loadProtobufInParts(Collections.singletonList(protoIn),
+                                          options, false);
+        return IR.loadProtobuf(IROuterClass.IR.parseFrom(protoIn));
+    }
+
+    /**
+     * Load IR from the parts of a protobuf stream by splitting off the
+     * modules, which are then loaded as the options ask.
+     *
+     * @param protoIns      The parts of the stream, which each hold whole
+     * fields of the IR message, in order.
+     * @param aliasModules  Whether the modules can refer to the bytes of the
+     * stream once loaded.
+     * @return  The {@link IR} loaded from the stream.
+     */
+    private static IR loadProtobufInParts(List<CodedInputStream> protoIns,
+                                          LoadOptions options,
+                                          boolean aliasModules)
+        throws IOException {
+        IR ir = IR.loadProtobufLazily(protoIns, LoadFilter.of(options));
+        ir.aliasModules = aliasModules;
+        if (options.getExecutor() != null && !options.isLazyModules()) {
+            // Parse and build the modules concurrently.
+            ir.loadModules(options.getExecutor());
+        } else if (!options.isLazyModules()) {
+            // Filter, parse and build the modules in turn.
+            ir.loadModules(Runnable::run);
+        }
+        return ir;
+    }
+
+    /**
+     * Load IR from a memory-mapped protobuf file.
+     *
+     * A single mapping cannot exceed 2 GiB, but neither can a single field
+     * of the IR message, so the file is mapped in parts that each hold whole
+     * fields: each module on its own, and the other fields in runs of up to
+     * 2 GiB. The parts are parsed with aliasing enabled, so large byte
+     * fields such as ByteInterval contents refer to the mapping instead of
+     * being copied to the heap. The file must not be modified while the IR
+     * is in use.
+     *
+     * @return  IR if load is successful, null otherwise.
+     */
+    private static IR loadMappedFile(String fileInName, LoadOptions options)
+        throws IOException {
+        List<CodedInputStream> protoIns = new ArrayList<CodedInputStream>();
+        try (FileChannel channel = FileChannel.open(
+                 Paths.get(fileInName), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(GTIRB_HEADER_LENGTH);
+            readFully(channel, header, 0);
+            header.flip();
+            if (!checkHeader(header))
                 return null;
+            // The mappings remain valid after the channel is closed.
+            long size = channel.size();
+            long partStart = GTIRB_HEADER_LENGTH;
+            long position = partStart;
+            ByteBuffer prefix = ByteBuffer.allocate(MAX_FIELD_PREFIX_LENGTH);
+            while (position < size) {
+                prefix.clear();
+                readFully(channel, prefix, position);
+                prefix.flip();
+                CodedInputStream prefixIn =
+                    CodedInputStream.newInstance(prefix);
+                int tag = prefixIn.readTag();
+                long fieldSize = fieldSize(prefixIn, tag);
+                if (fieldSize > size - position)
+                    throw new InvalidProtocolBufferException(
+                        "Truncated field at offset " + position);
+                boolean isModule = WireFormat.getTagFieldNumber(tag) ==
+                                   IROuterClass.IR.MODULES_FIELD_NUMBER;
+                if (position > partStart &&
+                    (isModule ||
+                     position + fieldSize - partStart > Integer.MAX_VALUE)) {
+                    protoIns.add(mapPart(channel, partStart, position));
+                    partStart = position;
+                }
+                position += fieldSize;
+                if (isModule) {
+                    protoIns.add(mapPart(channel, partStart, position));
+                    partStart = position;
+                }
             }
-        } catch (IOException ie) {
-            return null;
+            if (position > partStart)
+                protoIns.add(mapPart(channel, partStart, position));
         }
+        return IR.loadProtobufInParts(protoIns, options, true);
+    }
 
-        IROuterClass.IR protoIr;
-        try {
-            protoIr = IROuterClass.IR.parseFrom(fileIn);
-        } catch (FileNotFoundException fe) {
-            return null;
-        } catch (IOException ie) {
-            return null;
+    /**
+     * Read from a channel at a position until a buffer is full or the
+     * channel ends.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer,
+                                  long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0)
+                break;
+        }
+    }
+
+    /**
+     * Get the size of a field, including its tag, from the start of its
+     * serialized form.
+     *
+     * @param prefixIn  A stream over the start of the field.
+     * @param tag       The tag of the field, just read from prefixIn.
+     * @return  The size of the field in bytes.
+     */
+    private static long fieldSize(CodedInputStream prefixIn, int tag)
+        throws IOException {
+        switch (WireFormat.getTagWireType(tag)) {
+        case WireFormat.WIRETYPE_VARINT:
+            prefixIn.readRawVarint64();
+            return prefixIn.getTotalBytesRead();
+        case WireFormat.WIRETYPE_FIXED64:
+            return prefixIn.getTotalBytesRead() + 8L;
+        case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+            int length = prefixIn.readRawVarint32();
+            if (length < 0)
+                throw new InvalidProtocolBufferException(
+                    "Field has a negative size.");
+            return prefixIn.getTotalBytesRead() + (long)length;
+        case WireFormat.WIRETYPE_FIXED32:
+            return prefixIn.getTotalBytesRead() + 4L;
+        default:
+            throw new InvalidProtocolBufferException(
+                "Protocol message tag had invalid wire type.");
         }
+    }
+
+    /**
+     * Map part of a file as a protobuf stream that aliases the mapping.
+     */
+    private static CodedInputStream mapPart(FileChannel channel, long start,
+                                            long end) throws IOException {
+        MappedByteBuffer buffer =
+            channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        // Streams over a wrapped buffer treat it as immutable, which they
+        // must for aliasing to take effect.
+        CodedInputStream protoIn =
+            UnsafeByteOperations.unsafeWrap(buffer).newCodedInput();
+        protoIn.enableAliasing(true);
+        protoIn.setSizeLimit(Integer.MAX_VALUE);
+        return protoIn;
+    }
+
+    /**
+     * Load IR from a protobuf file stream.
+     *
+     * @return  IR if load is successful, null otherwise.
+     */
+    public static IR loadFile(InputStream fileIn) {
+        return loadFile(fileIn, new LoadOptions());
+    }
+
+    /**
+     * Load IR from a protobuf file stream.
+     *
+     * The memory mapping option is ignored, since there is no file to map.
+     *
+     * @param fileIn   The stream to load from.
+     * @param options  The {@link LoadOptions} to load with.
+     * @return  IR if load is successful, null otherwise.
+     */
+    public static IR loadFile(InputStream fileIn, LoadOptions options) {
         try {
-            IR ir = IR.loadProtobuf(protoIr);
-            return ir;
+            if (!readHeader(fileIn))
+                return null;
+            return IR.loadProtobuf(CodedInputStream.newInstance(fileIn),
+                                   options);
         } catch (IOException ie) {
             return null;
         }
@@ -131,37 +480,304 @@ public class IR extends AuxDataContainer {
      * @return  IR if load is successful, null otherwise.
      */
     public static IR loadFile(String fileInName) {
+        return loadFile(fileInName, new LoadOptions());
+    }
+
+    /**
+     * Load IR from a protobuf file.
+     *
+     * @param fileInName  The name of the file to load from.
+     * @param options     The {@link LoadOptions} to load with.
+     * @return  IR if load is successful, null otherwise.
+     */
+    public static IR loadFile(String fileInName, LoadOptions options) {
         try {
-            File fileIn = new File(fileInName);
-            FileInputStream fileInputStream = new FileInputStream(fileIn);
-            return loadFile(fileInputStream);
+            if (options.isMemoryMapped())
+                return loadMappedFile(fileInName, options);
+            try (FileInputStream fileInputStream =
+                     new FileInputStream(new File(fileInName))) {
+                return loadFile(fileInputStream, options);
+            }
         } catch (Exception e) {
             return null;
         }
     }
 
+    /**
+     * Get the module at a position, loading it first if necessary.
+     *
+     * @param index  The position of the module in this IR.
+     * @return  The loaded {@link Module}.
+     */
+    private Module getModule(int index) {
+        Module module = this.modules.get(index);
+        if (module != null)
+            return module;
+        module = decodeModule(this.encodedModules.get(index));
+        this.setLoadedModule(index, module);
+        return module;
+    }
+
+    /**
+     * Build a module from its serialized form, leaving out skipped parts.
+     */
+    private Module decodeModule(ByteString encodedModule) {
+        try {
+            if (this.loadFilter != null)
+                encodedModule = this.loadFilter.filterModule(encodedModule);
+            CodedInputStream protoIn = encodedModule.newCodedInput();
+            protoIn.enableAliasing(this.aliasModules);
+            protoIn.setSizeLimit(Integer.MAX_VALUE);
+            ModuleOuterClass.Module protoModule =
+                ModuleOuterClass.Module.parseFrom(protoIn);
+            return this.registry.loadWith(
+                () -> Module.fromProtobuf(protoModule));
+        } catch (IOException ie) {
+            throw new UncheckedIOException(ie);
+        }
+    }
+
+    /**
+     * Replace a module that has not been loaded with its loaded form.
+     */
+    private void setLoadedModule(int index, Module module) {
+        module.setIr(Optional.of(this));
+        this.modules.set(index, module);
+        this.encodedModules.set(index, null);
+    }
+
+    /**
+     * Load all modules that have not been loaded yet, concurrently.
+     *
+     * The modules are built on the executor and put in place in their
+     * original order.
+     */
+    private void loadModules(Executor executor) throws IOException {
+        this.finishLoadingModules(this.startLoadingModules(executor));
+    }
+
+    /**
+     * Start building the modules that have not been loaded yet on an
+     * executor.
+     *
+     * @return  A future for each module, in order, which is null for
+     * modules that are already loaded.
+     */
+    private List<CompletableFuture<Module>>
+    startLoadingModules(Executor executor) {
+        List<CompletableFuture<Module>> futures =
+            new ArrayList<CompletableFuture<Module>>();
+        for (ByteString encodedModule : this.encodedModules) {
+            if (encodedModule == null)
+                futures.add(null);
+            else
+                futures.add(CompletableFuture.supplyAsync(
+                    () -> this.decodeModule(encodedModule), executor));
+        }
+        return futures;
+    }
+
+    /**
+     * Wait for the modules started by {@link #startLoadingModules} and put
+     * them in place in their original order.
+     */
+    private void finishLoadingModules(List<CompletableFuture<Module>> futures)
+        throws IOException {
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i) != null)
+                this.setLoadedModule(i, join(futures.get(i)));
+        }
+        this.encodedModules = null;
+    }
+
+    /**
+     * Wait for a future, rethrowing a failure as the exception that caused
+     * it.
+     */
+    private static <T> T join(CompletableFuture<T> future)
+        throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof UncheckedIOException) {
+                UncheckedIOException uioe = (UncheckedIOException)cause;
+                throw uioe.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                RuntimeException re = (RuntimeException)cause;
+                throw re;
+            }
+            throw ce;
+        }
+    }
+
+    /**
+     * Get the name of a module that has not been loaded yet.
+     *
+     * Only the top-level fields of the module message are scanned; the
+     * sections, symbols, and AuxData are skipped over.
+     */
+    private static String peekModuleName(ByteString encodedModule) {
+        try {
+            CodedInputStream protoIn = encodedModule.newCodedInput();
+            while (true) {
+                int tag = protoIn.readTag();
+                if (tag == 0)
+                    break;
+                if (WireFormat.getTagFieldNumber(tag) ==
+                    ModuleOuterClass.Module.NAME_FIELD_NUMBER)
+                    return protoIn.readStringRequireUtf8();
+                if (!protoIn.skipField(tag))
+                    break;
+            }
+        } catch (IOException ie) {
+            throw new UncheckedIOException(ie);
+        }
+        return "";
+    }
+
     /**
      * Get the list of modules belonging to this {@link IR}.
      *
+     * If this IR was loaded with lazy modules, each module is loaded the
+     * first time it is retrieved from the returned list.
+     *
      * @return  An unmodifiable {@link Module} list of all the
      * modules in this {@link IR}. Any attempt to remove an element of
      * this list will throw an UnsupportedOperationException.
      */
     public List<Module> getModules() {
-        return Collections.unmodifiableList(this.modules);
+        if (this.encodedModules == null)
+            return Collections.unmodifiableList(this.modules);
+        return new AbstractList<Module>() {
+            @Override
+            public Module get(int index) {
+                return IR.this.getModule(index);
+            }
+
+            @Override
+            public int size() {
+                return IR.this.modules.size();
+            }
+        };
+    }
+
+    /**
+     * Get a stream of the modules of this IR.
+     *
+     * If this IR was loaded with lazy modules, they are all loaded first, so
+     * that a parallel stream does not load them concurrently.
+     *
+     * @return  A sized stream of the {@link Module}s of this IR.
+     */
+    public Stream<Module> modules() {
+        this.loadAllModules();
+        return Collections.unmodifiableList(this.modules).stream();
+    }
+
+    private void loadAllModules() {
+        if (this.encodedModules != null) {
+            for (int i = 0; i < this.modules.size(); i++)
+                this.getModule(i);
+        }
+    }
+
+    /**
+     * Make this IR immutable, so that it can be read from many threads
+     * without locks.
+     *
+     * Any lazy modules are loaded, and every index of every module is built,
+     * so that queries no longer change any state. From then on, any attempt
+     * to modify the IR, its CFG or any node, symbolic expression or edge in
+     * it throws an UnsupportedOperationException, and {@link
+     * Node#isFrozen()} returns true. AuxData is still decoded on first use,
+     * which is thread-safe, and is returned as an unmodifiable view by
+     * {@link AuxDataContainer#getAuxData}. {@link ByteInterval#getBytes()}
+     * returns a copy of the contents.
+     *
+     * Other threads must obtain the frozen IR through a happens-before
+     * edge, such as by submitting tasks to an executor or reading it from a
+     * volatile field or concurrent collection, after this method returns.
+     * Freezing an IR that is already frozen has no effect. An IR cannot be
+     * unfrozen, but a mutable copy can be loaded from its saved form.
+     */
+    public void freeze() {
+        if (this.isFrozen())
+            return;
+        this.loadAllModules();
+        for (Module module : this.modules)
+            module.freeze();
+        if (this.cfg != null)
+            this.cfg.freeze();
+        this.markFrozen();
+    }
+
+    /**
+     * Decode a set of {@link AuxData} items of this IR and all of its modules
+     * concurrently.
+     *
+     * Each AuxData is decoded in its own task on the executor, as {@link
+     * AuxDataContainer#prefetchAuxData} does. If this IR was loaded with
+     * lazy modules, they are loaded concurrently on the executor, and the
+     * AuxData of each module is decoded as soon as that module is built.
+     * This method returns once every module is loaded. Modules must not be
+     * added or removed until the returned future completes.
+     *
+     * @param schemas   The schemas of the AuxData to decode.
+     * @param executor  The executor to decode the AuxData on.
+     * @return  A future that completes once all of the AuxData is decoded.
+     */
+    public CompletableFuture<Void>
+    prefetchAuxData(Collection<? extends AuxDataSchema<?>> schemas,
+                    Executor executor) {
+        List<CompletableFuture<Void>> futures =
+            new ArrayList<CompletableFuture<Void>>();
+        futures.add(super.prefetchAuxData(schemas, executor));
+        List<CompletableFuture<Module>> loading = null;
+        if (this.encodedModules != null)
+            loading = this.startLoadingModules(executor);
+        for (int i = 0; i < this.modules.size(); i++) {
+            CompletableFuture<Module> loaded =
+                loading == null ? null : loading.get(i);
+            if (loaded == null)
+                futures.add(
+                    this.modules.get(i).prefetchAuxData(schemas, executor));
+            else
+                futures.add(loaded.thenCompose(
+                    module -> module.prefetchAuxData(schemas, executor)));
+        }
+        if (loading != null) {
+            try {
+                this.finishLoadingModules(loading);
+            } catch (IOException ie) {
+                throw new UncheckedIOException(ie);
+            }
+        }
+        return CompletableFuture.allOf(
+            futures.toArray(new CompletableFuture<?>[futures.size()]));
     }
 
     /**
      * Find modules by name.
      *
+     * If this IR was loaded with lazy modules, only the matching modules are
+     * loaded.
+     *
      * @return A list of all {@link Module} in this {@link IR} that have a
      * matching name.
      */
     public List<Module> findModules(String name) {
         List<Module> modulesNamed = new ArrayList<Module>();
-        for (Module module : this.modules) {
-            if (name.equals(module.getName())) {
-                modulesNamed.add(module);
+        for (int i = 0; i < this.modules.size(); i++) {
+            Module module = this.modules.get(i);
+            String moduleName;
+            if (module != null)
+                moduleName = module.getName();
+            else
+                moduleName = peekModuleName(this.encodedModules.get(i));
+            if (name.equals(moduleName)) {
+                modulesNamed.add(this.getModule(i));
             }
         }
         return modulesNamed;
@@ -173,7 +789,10 @@ public class IR extends AuxDataContainer {
      * @param module  {@link Module} to add.
      */
     public void addModule(Module module) {
+        this.checkMutable();
         this.modules.add(module);
+        if (this.encodedModules != null)
+            this.encodedModules.add(null);
         module.setIr(Optional.of(this));
     }
 
@@ -183,6 +802,7 @@ public class IR extends AuxDataContainer {
      * @param modules  Modules to add.
      */
     public void addModules(List<Module> modules) {
+        this.checkMutable();
         for (Module module : modules) {
             this.addModule(module);
         }
@@ -195,12 +815,17 @@ public class IR extends AuxDataContainer {
      * @return boolean true if the IR contained the module and it was removed.
      */
     public boolean removeModule(Module module) {
-        if (module.getIr().isPresent() && module.getIr().get() == this &&
-            this.modules.remove(module)) {
-            module.setIr(Optional.empty());
-            return true;
-        }
-        return false;
+        this.checkMutable();
+        if (!module.getIr().isPresent() || module.getIr().get() != this)
+            return false;
+        int index = this.modules.indexOf(module);
+        if (index < 0)
+            return false;
+        this.modules.remove(index);
+        if (this.encodedModules != null)
+            this.encodedModules.remove(index);
+        module.setIr(Optional.empty());
+        return true;
     }
 
     /**
@@ -215,7 +840,88 @@ public class IR extends AuxDataContainer {
      *
      * @param cfg  A {@link CFG}.
      */
-    public void setCfg(CFG cfg) { this.cfg = cfg; }
+    public void setCfg(CFG cfg) {
+        this.checkMutable();
+        this.cfg = cfg;
+    }
+
+    /**
+     * Find a node of this IR by UUID.
+     *
+     * Nodes that were created outside of any IR load are also found if they
+     * have been added to this IR, or do not belong to any IR. Nodes of other
+     * IRs are never found, even if they have the same UUID.
+     *
+     * @param uuid  The UUID of the node.
+     * @return  The node with the given UUID, or null if not found.
+     */
+    public Node findNode(UUID uuid) {
+        Node node = this.registry.get(uuid);
+        if (node != null)
+            return node;
+        node = NodeRegistry.findCreated(uuid);
+        if (node == null)
+            return null;
+        Optional<IR> ir = getIrOf(node);
+        return !ir.isPresent() || ir.get() == this ? node : null;
+    }
+
+    /**
+     * Get the IR a node belongs to, by following its parents.
+     *
+     * @return  An Optional that contains the IR, or empty if the node does
+     * not belong to an IR.
+     */
+    private static Optional<IR> getIrOf(Node node) {
+        if (node instanceof IR)
+            return Optional.of((IR)node);
+        Optional<Module> module = Optional.empty();
+        if (node instanceof Module)
+            module = Optional.of((Module)node);
+        else if (node instanceof Section)
+            module = ((Section)node).getModule();
+        else if (node instanceof ByteInterval)
+            module = ((ByteInterval)node).getSection().flatMap(
+                Section::getModule);
+        else if (node instanceof ByteBlock)
+            module = ((ByteBlock)node)
+                         .getByteInterval()
+                         .flatMap(ByteInterval::getSection)
+                         .flatMap(Section::getModule);
+        else if (node instanceof Symbol)
+            module = ((Symbol)node).getModule();
+        else if (node instanceof ProxyBlock)
+            module = ((ProxyBlock)node).getModule();
+        return module.flatMap(Module::getIr);
+    }
+
+    /**
+     * Find a node of this IR of the given type by UUID.
+     *
+     * @param uuid  The UUID of the node.
+     * @param type  The class of the node.
+     * @return  The node with the given UUID, or null if not found or not of
+     * the given type.
+     */
+    public <T extends Node> T findNode(UUID uuid, Class<T> type) {
+        Node node = this.findNode(uuid);
+        if (type.isInstance(node)) {
+            return type.cast(node);
+        }
+        return null;
+    }
+
+    /**
+     * Release the UUID registry of this IR.
+     *
+     * Afterwards, nodes loaded as part of this IR can no longer be found by
+     * UUID, with {@link #findNode(UUID)} or
+     * {@link Node#getByUuid(UUID)}. The IR itself remains usable otherwise.
+     */
+    @Override
+    public void close() {
+        this.registry.close();
+    }
 
     /**
      * Get the protobuf version of this {@link IR}.
@@ -229,7 +935,10 @@ public class IR extends AuxDataContainer {
      *
      * @param version Protobuf version.
      */
-    public void setVersion(int version) { this.version = version; }
+    public void setVersion(int version) {
+        this.checkMutable();
+        this.version = version;
+    }
 
     /**
      * Serialize this IR into a protobuf.
@@ -237,14 +946,34 @@ public class IR extends AuxDataContainer {
      * @return IR protocol buffer.
      */
     public IROuterClass.IR.Builder toProtobuf() {
+        IROuterClass.IR.Builder protoIr = this.toProtobufWithoutModules();
+        // Add modules. Modules that were never loaded are passed through
+        // without building their Java objects.
+        for (int i = 0; i < this.modules.size(); i++) {
+            Module module = this.modules.get(i);
+            if (module != null) {
+                protoIr.addModules(module.toProtobuf());
+            } else {
+                try {
+                    protoIr.addModules(ModuleOuterClass.Module.parseFrom(
+                        this.encodedModules.get(i)));
+                } catch (IOException ie) {
+                    throw new UncheckedIOException(ie);
+                }
+            }
+        }
+        return protoIr;
+    }
+
+    /**
+     * Serialize everything in this IR except its modules into a protobuf.
+     *
+     * @return IR protocol buffer with no modules.
+     */
+    private IROuterClass.IR.Builder toProtobufWithoutModules() {
         IROuterClass.IR.Builder protoIr = IROuterClass.IR.newBuilder();
         protoIr.setUuid(Util.uuidToByteString(this.getUuid()));
         protoIr.setVersion(Version.gtirbProtobufVersion);
-        // Add modules
-        for (Module module : this.modules) {
-            ModuleOuterClass.Module.Builder protoModule = module.toProtobuf();
-            protoIr.addModules(protoModule);
-        }
         // Add CFG
         if (this.cfg != null) {
             protoIr.setCfg(this.cfg.toProtobuf());
@@ -253,24 +982,104 @@ public class IR extends AuxDataContainer {
     }
 
     /**
-     * Save IR to a protobuf file stream.
+     * Serialize a module of this IR into its protobuf wire format.
      */
-    public void saveFile(OutputStream fileOut) throws IOException {
+    private ByteString encodeModule(int index) {
+        Module module = this.modules.get(index);
+        if (module == null)
+            return this.encodedModules.get(index);
+        try {
+            return StreamingWriter.encodeModule(module);
+        } catch (IOException ie) {
+            throw new UncheckedIOException(ie);
+        }
+    }
+
+    /**
+     * Write the GTIRB file header.
+     */
+    private static void writeHeader(OutputStream fileOut) throws IOException {
         fileOut.write(GTIRB_MAGIC_CHARS);
         fileOut.write(0);
         fileOut.write(0);
         fileOut.write(Version.gtirbProtobufVersion);
+    }
 
-        IROuterClass.IR protoIr = this.toProtobuf().build();
-        protoIr.writeTo(fileOut);
+    /**
+     * Save IR to a protobuf file stream.
+     *
+     * The IR is streamed out one byte interval at a time, so no protobuf
+     * message for the whole IR, or for a whole module or section, is built.
+     */
+    public void saveFile(OutputStream fileOut) throws IOException {
+        writeHeader(fileOut);
+        CodedOutputStream protoOut = CodedOutputStream.newInstance(fileOut);
+        StreamingWriter writer = new StreamingWriter(protoOut);
+        this.toProtobufWithoutModules().build().writeTo(protoOut);
+        for (int i = 0; i < this.modules.size(); i++) {
+            Module module = this.modules.get(i);
+            if (module != null)
+                writer.writeModule(IROuterClass.IR.MODULES_FIELD_NUMBER,
+                                   module);
+            else
+                writer.writeModule(IROuterClass.IR.MODULES_FIELD_NUMBER,
+                                   this.encodedModules.get(i));
+        }
+        protoOut.flush();
+    }
+
+    /**
+     * Save IR to a protobuf file stream, serializing modules concurrently.
+     *
+     * Each module is serialized on the executor. The serialized modules are
+     * then written in their original order. Modules must not be modified
+     * while the save is in progress.
+     *
+     * @param fileOut   The stream to save to.
+     * @param executor  The executor to serialize modules on.
+     */
+    public void saveFile(OutputStream fileOut, Executor executor)
+        throws IOException {
+        List<CompletableFuture<ByteString>> futures =
+            new ArrayList<CompletableFuture<ByteString>>();
+        for (int i = 0; i < this.modules.size(); i++) {
+            final int index = i;
+            futures.add(CompletableFuture.supplyAsync(
+                () -> this.encodeModule(index), executor));
+        }
+
+        writeHeader(fileOut);
+        CodedOutputStream protoOut = CodedOutputStream.newInstance(fileOut);
+        // Fields may appear in any order in the wire format, and repeated
+        // fields are concatenated, so the modules can follow the other fields.
+        this.toProtobufWithoutModules().build().writeTo(protoOut);
+        for (CompletableFuture<ByteString> future : futures)
+            protoOut.writeBytes(IROuterClass.IR.MODULES_FIELD_NUMBER,
+                                join(future));
+        protoOut.flush();
     }
 
     /**
      * Save IR to a protobuf file.
      */
     public void saveFile(String fileOutName) throws IOException {
-        File fileOut = new File(fileOutName);
-        FileOutputStream fileOutputStream = new FileOutputStream(fileOut);
-        this.saveFile(fileOutputStream);
+        try (FileOutputStream fileOutputStream =
+                 new FileOutputStream(new File(fileOutName))) {
+            this.saveFile(fileOutputStream);
+        }
+    }
+
+    /**
+     * Save IR to a protobuf file, serializing modules concurrently.
+     *
+     * @param fileOutName  The name of the file to save to.
+     * @param executor     The executor to serialize modules on.
+     */
+    public void saveFile(String fileOutName, Executor executor)
+        throws IOException {
+        try (FileOutputStream fileOutputStream =
+                 new FileOutputStream(new File(fileOutName))) {
+            this.saveFile(fileOutputStream, executor);
+        }
     }
 }
@@ -0,0 +1,1330 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import com.grammatech.gtirb.CodeBlock.DecodeMode;
+import com.grammatech.gtirb.Edge.EdgeType;
+import com.grammatech.gtirb.Module.ByteOrder;
+import com.grammatech.gtirb.Module.FileFormat;
+import com.grammatech.gtirb.Module.ISA;
+import com.grammatech.gtirb.Section.SectionFlag;
+import com.grammatech.gtirb.SymbolicExpression.AttributeFlag;
+import com.grammatech.gtirb.proto.AuxDataOuterClass;
+import com.grammatech.gtirb.proto.ByteIntervalOuterClass;
+import com.grammatech.gtirb.proto.CFGOuterClass;
+import com.grammatech.gtirb.proto.CodeBlockOuterClass;
+import com.grammatech.gtirb.proto.IROuterClass;
+import com.grammatech.gtirb.proto.ModuleOuterClass;
+import com.grammatech.gtirb.proto.SectionOuterClass;
+import com.grammatech.gtirb.proto.SymbolOuterClass;
+import com.grammatech.gtirb.proto.SymbolicExpressionOuterClass;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reads a GTIRB file in a single pass, without building the IR.
+ *
+ * The file is decoded field by field, and each element is reported to a
+ * {@link Visitor} as soon as it is complete. Elements are reported through
+ * views that are reused for every element of the same kind, so a view and
+ * anything obtained from it must not be kept once the callback returns,
+ * except for the returned UUIDs, strings and byte strings. Memory use does
+ * not depend on the size of the IR.
+ *
+ * Since the fields of a message may appear in any order, an element is only
+ * reported once all of its fields have been read, that is after all of the
+ * elements it contains. For example, the blocks, symbolic expressions and
+ * then the byte interval itself are reported for each byte interval of a
+ * section, followed by the section. The contents of a module or section are
+ * therefore the elements reported since the previous module or section.
+ */
+public final class IRReader {
+
+    /**
+     * Receives the elements of an IR as they are read.
+     *
+     * All methods do nothing by default.
+     */
+    public interface Visitor {
+
+        /**
+         * Called for each module, after all of its contents.
+         */
+        default void onModule(ModuleView module) {}
+
+        /**
+         * Called for each section, after all of its byte intervals.
+         */
+        default void onSection(SectionView section) {}
+
+        /**
+         * Called for each byte interval, after all of its blocks and symbolic
+         * expressions.
+         */
+        default void onByteInterval(ByteIntervalView byteInterval) {}
+
+        /**
+         * Called for each code or data block.
+         */
+        default void onBlock(BlockView block) {}
+
+        /**
+         * Called for each symbol.
+         */
+        default void onSymbol(SymbolView symbol) {}
+
+        /**
+         * Called for each symbolic expression.
+         */
+        default void onSymbolicExpression(
+            SymbolicExpressionView symbolicExpression) {}
+
+        /**
+         * Called for each vertex listed in the CFG.
+         *
+         * Vertices are reported in order. They are serialized after the
+         * edges, so they are normally reported after all of them.
+         */
+        default void onCfgVertex(UUID vertex) {}
+
+        /**
+         * Called for each edge of the CFG.
+         */
+        default void onEdge(EdgeView edge) {}
+
+        /**
+         * Called for each AuxData table of the IR or of a module.
+         */
+        default void onAuxData(AuxDataView auxData) {}
+
+        /**
+         * Get whether byte interval contents are read.
+         *
+         * When false, which is the default, contents are skipped and
+         * {@link ByteIntervalView#getContents()} returns an empty byte
+         * string. When true, the contents of one byte interval at a time are
+         * held in memory.
+         *
+         * @return  true to read byte interval contents.
+         */
+        default boolean needsContents() { return false; }
+    }
+
+    /**
+     * A UUID as it is read, kept as two longs until it is asked for.
+     */
+    private static final class UuidField {
+        private long high;
+        private long low;
+
+        void clear() {
+            this.high = 0;
+            this.low = 0;
+        }
+
+        UUID get() { return new UUID(this.high, this.low); }
+    }
+
+    /**
+     * The fields of a module, apart from its contents.
+     */
+    public static final class ModuleView {
+        private final UuidField uuid = new UuidField();
+        private final UuidField entryPoint = new UuidField();
+        private String name;
+        private String binaryPath;
+        private long preferredAddr;
+        private long rebaseDelta;
+        private FileFormat fileFormat;
+        private ISA isa;
+        private ByteOrder byteOrder;
+
+        private ModuleView() {}
+
+        void clear() {
+            this.uuid.clear();
+            this.entryPoint.clear();
+            this.name = "";
+            this.binaryPath = "";
+            this.preferredAddr = 0;
+            this.rebaseDelta = 0;
+            this.fileFormat = FileFormat.Format_Undefined;
+            this.isa = ISA.ISA_Undefined;
+            this.byteOrder = ByteOrder.ByteOrder_Undefined;
+        }
+
+        /**
+         * Get the UUID of the module.
+         */
+        public UUID getUuid() { return this.uuid.get(); }
+
+        /**
+         * Get the name of the module.
+         */
+        public String getName() { return this.name; }
+
+        /**
+         * Get the binary path of the module.
+         */
+        public String getBinaryPath() { return this.binaryPath; }
+
+        /**
+         * Get the preferred address of the module.
+         */
+        public long getPreferredAddr() { return this.preferredAddr; }
+
+        /**
+         * Get the rebase delta of the module.
+         */
+        public long getRebaseDelta() { return this.rebaseDelta; }
+
+        /**
+         * Get the file format of the module.
+         */
+        public FileFormat getFileFormat() { return this.fileFormat; }
+
+        /**
+         * Get the ISA of the module.
+         */
+        public ISA getIsa() { return this.isa; }
+
+        /**
+         * Get the byte order of the module.
+         */
+        public ByteOrder getByteOrder() { return this.byteOrder; }
+
+        /**
+         * Get the UUID of the entry point of the module, or the nil UUID if
+         * it has none.
+         */
+        public UUID getEntryPointUuid() { return this.entryPoint.get(); }
+    }
+
+    /**
+     * The fields of a section, apart from its byte intervals.
+     */
+    public static final class SectionView {
+        private final UuidField uuid = new UuidField();
+        private final EnumSet<SectionFlag> flags =
+            EnumSet.noneOf(SectionFlag.class);
+        private final Set<SectionFlag> unmodifiableFlags =
+            Collections.unmodifiableSet(this.flags);
+        private String name;
+
+        private SectionView() {}
+
+        void clear() {
+            this.uuid.clear();
+            this.flags.clear();
+            this.name = "";
+        }
+
+        /**
+         * Get the UUID of the section.
+         */
+        public UUID getUuid() { return this.uuid.get(); }
+
+        /**
+         * Get the name of the section.
+         */
+        public String getName() { return this.name; }
+
+        /**
+         * Get the flags of the section.
+         */
+        public Set<SectionFlag> getSectionFlags() {
+            return this.unmodifiableFlags;
+        }
+    }
+
+    /**
+     * The fields of a byte interval, apart from its blocks and symbolic
+     * expressions.
+     */
+    public static final class ByteIntervalView {
+        private final UuidField uuid = new UuidField();
+        private boolean hasAddress;
+        private long address;
+        private long size;
+        private ByteString contents;
+
+        private ByteIntervalView() {}
+
+        void clear() {
+            this.uuid.clear();
+            this.hasAddress = false;
+            this.address = 0;
+            this.size = 0;
+            this.contents = ByteString.EMPTY;
+        }
+
+        /**
+         * Get the UUID of the byte interval.
+         */
+        public UUID getUuid() { return this.uuid.get(); }
+
+        /**
+         * Get whether the byte interval has an address.
+         */
+        public boolean hasAddress() { return this.hasAddress; }
+
+        /**
+         * Get the address of the byte interval, if it has one.
+         */
+        public long getAddress() { return this.address; }
+
+        /**
+         * Get the size of the byte interval.
+         */
+        public long getSize() { return this.size; }
+
+        /**
+         * Get the initialized contents of the byte interval.
+         *
+         * These are only read if {@link Visitor#needsContents()} is true.
+         */
+        public ByteString getContents() { return this.contents; }
+    }
+
+    /**
+     * A code or data block.
+     */
+    public static final class BlockView {
+        private final UuidField uuid = new UuidField();
+        private long offset;
+        private long size;
+        private boolean isCode;
+        private DecodeMode decodeMode;
+
+        private BlockView() {}
+
+        void clear() {
+            this.uuid.clear();
+            this.offset = 0;
+            this.size = 0;
+            this.isCode = false;
+            this.decodeMode = DecodeMode.Default;
+        }
+
+        /**
+         * Get the UUID of the block.
+         */
+        public UUID getUuid() { return this.uuid.get(); }
+
+        /**
+         * Get the offset of the block in its byte interval.
+         */
+        public long getOffset() { return this.offset; }
+
+        /**
+         * Get the size of the block.
+         */
+        public long getSize() { return this.size; }
+
+        /**
+         * Get whether the block is a code block rather than a data block.
+         */
+        public boolean isCode() { return this.isCode; }
+
+        /**
+         * Get the decode mode of a code block.
+         */
+        public DecodeMode getDecodeMode() { return this.decodeMode; }
+    }
+
+    /**
+     * A symbol.
+     */
+    public static final class SymbolView {
+        private final UuidField uuid = new UuidField();
+        private final UuidField referent = new UuidField();
+        private String name;
+        private boolean hasValue;
+        private boolean hasReferent;
+        private long value;
+        private boolean atEnd;
+
+        private SymbolView() {}
+
+        void clear() {
+            this.uuid.clear();
+            this.referent.clear();
+            this.name = "";
+            this.hasValue = false;
+            this.hasReferent = false;
+            this.value = 0;
+            this.atEnd = false;
+        }
+
+        /**
+         * Get the UUID of the symbol.
+         */
+        public UUID getUuid() { return this.uuid.get(); }
+
+        /**
+         * Get the name of the symbol.
+         */
+        public String getName() { return this.name; }
+
+        /**
+         * Get whether the symbol has a value.
+         */
+        public boolean hasValue() { return this.hasValue; }
+
+        /**
+         * Get the value of the symbol, if it has one.
+         */
+        public long getValue() { return this.value; }
+
+        /**
+         * Get whether the symbol has a referent.
+         */
+        public boolean hasReferent() { return this.hasReferent; }
+
+        /**
+         * Get the UUID of the referent of the symbol, if it has one.
+         */
+        public UUID getReferentUuid() { return this.referent.get(); }
+
+        /**
+         * Get whether the symbol refers to the end of its referent.
+         */
+        public boolean isAtEnd() { return this.atEnd; }
+    }
+
+    /**
+     * A symbolic expression, either a SymAddrConst or a SymAddrAddr.
+     */
+    public static final class SymbolicExpressionView {
+        private final UuidField symbol1 = new UuidField();
+        private final UuidField symbol2 = new UuidField();
+        private final EnumSet<AttributeFlag> flags =
+            EnumSet.noneOf(AttributeFlag.class);
+        private final Set<AttributeFlag> unmodifiableFlags =
+            Collections.unmodifiableSet(this.flags);
+        private long intervalOffset;
+        private boolean isAddrAddr;
+        private long offset;
+        private long scale;
+
+        private SymbolicExpressionView() {}
+
+        void clear() {
+            this.symbol1.clear();
+            this.symbol2.clear();
+            this.flags.clear();
+            this.intervalOffset = 0;
+            this.isAddrAddr = false;
+            this.offset = 0;
+            this.scale = 0;
+        }
+
+        /**
+         * Get the offset of the symbolic expression in its byte interval.
+         */
+        public long getIntervalOffset() { return this.intervalOffset; }
+
+        /**
+         * Get whether this is a SymAddrAddr rather than a SymAddrConst.
+         */
+        public boolean isAddrAddr() { return this.isAddrAddr; }
+
+        /**
+         * Get the constant offset of the expression.
+         */
+        public long getOffset() { return this.offset; }
+
+        /**
+         * Get the scale of a SymAddrAddr.
+         */
+        public long getScale() { return this.scale; }
+
+        /**
+         * Get the UUID of the symbol of a SymAddrConst, or of the first
+         * symbol of a SymAddrAddr.
+         */
+        public UUID getSymbol1Uuid() { return this.symbol1.get(); }
+
+        /**
+         * Get the UUID of the second symbol of a SymAddrAddr.
+         */
+        public UUID getSymbol2Uuid() { return this.symbol2.get(); }
+
+        /**
+         * Get the known attribute flags of the expression.
+         */
+        public Set<AttributeFlag> getAttributeFlags() {
+            return this.unmodifiableFlags;
+        }
+    }
+
+    /**
+     * An edge of the CFG.
+     */
+    public static final class EdgeView {
+        private final UuidField source = new UuidField();
+        private final UuidField target = new UuidField();
+        private EdgeType type;
+        private boolean conditional;
+        private boolean direct;
+
+        private EdgeView() {}
+
+        void clear() {
+            this.source.clear();
+            this.target.clear();
+            this.type = EdgeType.Unlabelled;
+            this.conditional = false;
+            this.direct = false;
+        }
+
+        /**
+         * Get the UUID of the source of the edge.
+         */
+        public UUID getSourceUuid() { return this.source.get(); }
+
+        /**
+         * Get the UUID of the target of the edge.
+         */
+        public UUID getTargetUuid() { return this.target.get(); }
+
+        /**
+         * Get the type of the edge.
+         */
+        public EdgeType getEdgeType() { return this.type; }
+
+        /**
+         * Get whether the edge is conditional.
+         */
+        public boolean isConditional() { return this.conditional; }
+
+        /**
+         * Get whether the edge is direct.
+         */
+        public boolean isDirect() { return this.direct; }
+    }
+
+    /**
+     * An AuxData table, in its serialized form.
+     */
+    public static final class AuxDataView {
+        private String name;
+        private String typeName;
+        private ByteString data;
+        private boolean moduleAuxData;
+
+        private AuxDataView() {}
+
+        void clear() {
+            this.name = "";
+            this.typeName = "";
+            this.data = ByteString.EMPTY;
+        }
+
+        /**
+         * Get the name of the table.
+         */
+        public String getName() { return this.name; }
+
+        /**
+         * Get the type name of the table.
+         */
+        public String getTypeName() { return this.typeName; }
+
+        /**
+         * Get the serialized data of the table.
+         */
+        public ByteString getData() { return this.data; }
+
+        /**
+         * Get whether the table belongs to a module rather than the IR.
+         */
+        public boolean isModuleAuxData() { return this.moduleAuxData; }
+
+        /**
+         * Decode the table.
+         *
+         * @param schema  The {@link AuxDataSchema} of the table.
+         * @return  The decoded table.
+         */
+        public <T> T decode(AuxDataSchema<T> schema) throws IOException {
+            if (!this.typeName.equals(schema.getCodec().getTypeName())) {
+                throw new IllegalArgumentException(
+                    "Schema type names do not match! " + this.typeName +
+                    " vs. " + schema.getCodec().getTypeName());
+            }
+            // Module.ByteOrder is imported, so java.nio's is qualified.
+            return schema.getCodec().decode(
+                this.data.asReadOnlyByteBuffer().order(
+                    java.nio.ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    private static final int VARINT = WireFormat.WIRETYPE_VARINT;
+    private static final int DELIMITED = WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int TAG_TYPE_BITS = 3;
+
+    // Tags of the fields that are read, by message.
+    private static final int IR_MODULES =
+        IROuterClass.IR.MODULES_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int IR_AUX_DATA =
+        IROuterClass.IR.AUX_DATA_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int IR_CFG =
+        IROuterClass.IR.CFG_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+
+    private static final int MODULE_UUID =
+        ModuleOuterClass.Module.UUID_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int MODULE_BINARY_PATH =
+        ModuleOuterClass.Module.BINARY_PATH_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int MODULE_PREFERRED_ADDR =
+        ModuleOuterClass.Module.PREFERRED_ADDR_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int MODULE_REBASE_DELTA =
+        ModuleOuterClass.Module.REBASE_DELTA_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int MODULE_FILE_FORMAT =
+        ModuleOuterClass.Module.FILE_FORMAT_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int MODULE_ISA =
+        ModuleOuterClass.Module.ISA_FIELD_NUMBER << TAG_TYPE_BITS | VARINT;
+    private static final int MODULE_NAME =
+        ModuleOuterClass.Module.NAME_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int MODULE_SYMBOLS =
+        ModuleOuterClass.Module.SYMBOLS_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int MODULE_SECTIONS =
+        ModuleOuterClass.Module.SECTIONS_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int MODULE_AUX_DATA =
+        ModuleOuterClass.Module.AUX_DATA_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int MODULE_ENTRY_POINT =
+        ModuleOuterClass.Module.ENTRY_POINT_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int MODULE_BYTE_ORDER =
+        ModuleOuterClass.Module.BYTE_ORDER_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+
+    private static final int SECTION_UUID =
+        SectionOuterClass.Section.UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int SECTION_NAME =
+        SectionOuterClass.Section.NAME_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int SECTION_BYTE_INTERVALS =
+        SectionOuterClass.Section.BYTE_INTERVALS_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int SECTION_FLAGS =
+        SectionOuterClass.Section.SECTION_FLAGS_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int SECTION_FLAGS_PACKED =
+        SectionOuterClass.Section.SECTION_FLAGS_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+
+    private static final int BYTE_INTERVAL_UUID =
+        ByteIntervalOuterClass.ByteInterval.UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int BYTE_INTERVAL_BLOCKS =
+        ByteIntervalOuterClass.ByteInterval.BLOCKS_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int BYTE_INTERVAL_SYMBOLIC_EXPRESSIONS =
+        ByteIntervalOuterClass.ByteInterval.SYMBOLIC_EXPRESSIONS_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int BYTE_INTERVAL_HAS_ADDRESS =
+        ByteIntervalOuterClass.ByteInterval.HAS_ADDRESS_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int BYTE_INTERVAL_ADDRESS =
+        ByteIntervalOuterClass.ByteInterval.ADDRESS_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int BYTE_INTERVAL_SIZE =
+        ByteIntervalOuterClass.ByteInterval.SIZE_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int BYTE_INTERVAL_CONTENTS =
+        ByteIntervalOuterClass.ByteInterval.CONTENTS_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+
+    private static final int BLOCK_OFFSET =
+        ByteIntervalOuterClass.Block.OFFSET_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int BLOCK_CODE =
+        ByteIntervalOuterClass.Block.CODE_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int BLOCK_DATA =
+        ByteIntervalOuterClass.Block.DATA_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    // DataBlock fields have the same numbers as these.
+    private static final int CODE_BLOCK_UUID =
+        CodeBlockOuterClass.CodeBlock.UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int CODE_BLOCK_SIZE =
+        CodeBlockOuterClass.CodeBlock.SIZE_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int CODE_BLOCK_DECODE_MODE =
+        CodeBlockOuterClass.CodeBlock.DECODE_MODE_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+
+    private static final int SYMBOL_UUID =
+        SymbolOuterClass.Symbol.UUID_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int SYMBOL_VALUE =
+        SymbolOuterClass.Symbol.VALUE_FIELD_NUMBER << TAG_TYPE_BITS | VARINT;
+    private static final int SYMBOL_NAME =
+        SymbolOuterClass.Symbol.NAME_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int SYMBOL_REFERENT_UUID =
+        SymbolOuterClass.Symbol.REFERENT_UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int SYMBOL_AT_END =
+        SymbolOuterClass.Symbol.AT_END_FIELD_NUMBER << TAG_TYPE_BITS | VARINT;
+
+    private static final int EXPRESSION_ADDR_CONST =
+        SymbolicExpressionOuterClass.SymbolicExpression.ADDR_CONST_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int EXPRESSION_ADDR_ADDR =
+        SymbolicExpressionOuterClass.SymbolicExpression.ADDR_ADDR_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int EXPRESSION_FLAGS =
+        SymbolicExpressionOuterClass.SymbolicExpression
+                .ATTRIBUTE_FLAGS_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int EXPRESSION_FLAGS_PACKED =
+        SymbolicExpressionOuterClass.SymbolicExpression
+                .ATTRIBUTE_FLAGS_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int ADDR_CONST_OFFSET =
+        SymbolicExpressionOuterClass.SymAddrConst.OFFSET_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int ADDR_CONST_SYMBOL =
+        SymbolicExpressionOuterClass.SymAddrConst.SYMBOL_UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int ADDR_ADDR_SCALE =
+        SymbolicExpressionOuterClass.SymAddrAddr.SCALE_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int ADDR_ADDR_OFFSET =
+        SymbolicExpressionOuterClass.SymAddrAddr.OFFSET_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int ADDR_ADDR_SYMBOL1 =
+        SymbolicExpressionOuterClass.SymAddrAddr.SYMBOL1_UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int ADDR_ADDR_SYMBOL2 =
+        SymbolicExpressionOuterClass.SymAddrAddr.SYMBOL2_UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+
+    private static final int CFG_VERTICES =
+        CFGOuterClass.CFG.VERTICES_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int CFG_EDGES =
+        CFGOuterClass.CFG.EDGES_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int EDGE_SOURCE =
+        CFGOuterClass.Edge.SOURCE_UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int EDGE_TARGET =
+        CFGOuterClass.Edge.TARGET_UUID_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int EDGE_LABEL =
+        CFGOuterClass.Edge.LABEL_FIELD_NUMBER << TAG_TYPE_BITS | DELIMITED;
+    private static final int LABEL_CONDITIONAL =
+        CFGOuterClass.EdgeLabel.CONDITIONAL_FIELD_NUMBER
+            << TAG_TYPE_BITS | VARINT;
+    private static final int LABEL_DIRECT =
+        CFGOuterClass.EdgeLabel.DIRECT_FIELD_NUMBER << TAG_TYPE_BITS | VARINT;
+    private static final int LABEL_TYPE =
+        CFGOuterClass.EdgeLabel.TYPE_FIELD_NUMBER << TAG_TYPE_BITS | VARINT;
+
+    private static final int AUX_DATA_TYPE_NAME =
+        AuxDataOuterClass.AuxData.TYPE_NAME_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+    private static final int AUX_DATA_DATA =
+        AuxDataOuterClass.AuxData.DATA_FIELD_NUMBER
+            << TAG_TYPE_BITS | DELIMITED;
+
+    // Maps are encoded as repeated entries with a key and a value field,
+    // which have no generated field number constants.
+    private static final int MAP_UINT64_KEY = 1 << TAG_TYPE_BITS | VARINT;
+    private static final int MAP_STRING_KEY = 1 << TAG_TYPE_BITS | DELIMITED;
+    private static final int MAP_VALUE = 2 << TAG_TYPE_BITS | DELIMITED;
+
+    private final CodedInputStream protoIn;
+    private final Visitor visitor;
+    private final boolean needsContents;
+    private final ModuleView module = new ModuleView();
+    private final SectionView section = new SectionView();
+    private final ByteIntervalView byteInterval = new ByteIntervalView();
+    private final BlockView block = new BlockView();
+    private final SymbolView symbol = new SymbolView();
+    private final SymbolicExpressionView symbolicExpression =
+        new SymbolicExpressionView();
+    private final UuidField vertex = new UuidField();
+    private final EdgeView edge = new EdgeView();
+    private final AuxDataView auxData = new AuxDataView();
+
+    private IRReader(CodedInputStream protoIn, Visitor visitor) {
+        this.protoIn = protoIn;
+        this.visitor = visitor;
+        this.needsContents = visitor.needsContents();
+    }
+
+    /**
+     * Read an IR from a protobuf file stream.
+     *
+     * @param fileIn   The stream to read from.
+     * @param visitor  The {@link Visitor} to report the elements of the IR
+     * to.
+     */
+    public static void read(InputStream fileIn, Visitor visitor)
+        throws IOException {
+        if (!IR.readHeader(fileIn))
+            throw new IOException("Not a GTIRB file of a supported version");
+        CodedInputStream protoIn = CodedInputStream.newInstance(fileIn);
+        protoIn.setSizeLimit(Integer.MAX_VALUE);
+        new IRReader(protoIn, visitor).readIr();
+    }
+
+    /**
+     * Read an IR from a protobuf file.
+     *
+     * @param fileInName  The name of the file to read from.
+     * @param visitor     The {@link Visitor} to report the elements of the IR
+     * to.
+     */
+    public static void read(String fileInName, Visitor visitor)
+        throws IOException {
+        try (FileInputStream fileInputStream =
+                 new FileInputStream(new File(fileInName))) {
+            read(fileInputStream, visitor);
+        }
+    }
+
+    private void readIr() throws IOException {
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case IR_MODULES:
+                this.readModule();
+                break;
+            case IR_AUX_DATA:
+                this.readAuxData(false);
+                break;
+            case IR_CFG:
+                this.readCfg();
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+    }
+
+    private void readModule() throws IOException {
+        int oldLimit = this.pushMessage();
+        // The view is reported only after the contents, which reuse the
+        // other views, so the module view itself is filled in as it goes.
+        ModuleView module = this.module;
+        module.clear();
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case MODULE_UUID:
+                this.readUuid(module.uuid);
+                break;
+            case MODULE_BINARY_PATH:
+                module.binaryPath = this.protoIn.readStringRequireUtf8();
+                break;
+            case MODULE_PREFERRED_ADDR:
+                module.preferredAddr = this.protoIn.readUInt64();
+                break;
+            case MODULE_REBASE_DELTA:
+                module.rebaseDelta = this.protoIn.readInt64();
+                break;
+            case MODULE_FILE_FORMAT:
+                module.fileFormat =
+                    FileFormat.values()[this.protoIn.readEnum()];
+                break;
+            case MODULE_ISA:
+                module.isa = ISA.values()[this.protoIn.readEnum()];
+                break;
+            case MODULE_NAME:
+                module.name = this.protoIn.readStringRequireUtf8();
+                break;
+            case MODULE_SYMBOLS:
+                this.readSymbol();
+                break;
+            case MODULE_SECTIONS:
+                this.readSection();
+                break;
+            case MODULE_AUX_DATA:
+                this.readAuxData(true);
+                break;
+            case MODULE_ENTRY_POINT:
+                this.readUuid(module.entryPoint);
+                break;
+            case MODULE_BYTE_ORDER:
+                module.byteOrder = ByteOrder.values()[this.protoIn.readEnum()];
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+        this.visitor.onModule(module);
+    }
+
+    private void readSection() throws IOException {
+        int oldLimit = this.pushMessage();
+        SectionView section = this.section;
+        section.clear();
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case SECTION_UUID:
+                this.readUuid(section.uuid);
+                break;
+            case SECTION_NAME:
+                section.name = this.protoIn.readStringRequireUtf8();
+                break;
+            case SECTION_BYTE_INTERVALS:
+                this.readByteInterval();
+                break;
+            case SECTION_FLAGS:
+                section.flags.add(
+                    SectionFlag.values()[this.protoIn.readEnum()]);
+                break;
+            case SECTION_FLAGS_PACKED: {
+                int packedLimit = this.pushMessage();
+                while (this.protoIn.getBytesUntilLimit() > 0)
+                    section.flags.add(
+                        SectionFlag.values()[this.protoIn.readEnum()]);
+                this.popMessage(packedLimit);
+                break;
+            }
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+        this.visitor.onSection(section);
+    }
+
+    private void readByteInterval() throws IOException {
+        int oldLimit = this.pushMessage();
+        ByteIntervalView byteInterval = this.byteInterval;
+        byteInterval.clear();
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case BYTE_INTERVAL_UUID:
+                this.readUuid(byteInterval.uuid);
+                break;
+            case BYTE_INTERVAL_BLOCKS:
+                this.readBlock();
+                break;
+            case BYTE_INTERVAL_SYMBOLIC_EXPRESSIONS:
+                this.readSymbolicExpression();
+                break;
+            case BYTE_INTERVAL_HAS_ADDRESS:
+                byteInterval.hasAddress = this.protoIn.readBool();
+                break;
+            case BYTE_INTERVAL_ADDRESS:
+                byteInterval.address = this.protoIn.readUInt64();
+                break;
+            case BYTE_INTERVAL_SIZE:
+                byteInterval.size = this.protoIn.readUInt64();
+                break;
+            case BYTE_INTERVAL_CONTENTS:
+                if (this.needsContents)
+                    byteInterval.contents = this.protoIn.readBytes();
+                else
+                    this.protoIn.skipField(tag);
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+        this.visitor.onByteInterval(byteInterval);
+    }
+
+    private void readBlock() throws IOException {
+        int oldLimit = this.pushMessage();
+        BlockView block = this.block;
+        block.clear();
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case BLOCK_OFFSET:
+                block.offset = this.protoIn.readUInt64();
+                break;
+            case BLOCK_CODE:
+                block.isCode = true;
+                this.readBlockValue();
+                break;
+            case BLOCK_DATA:
+                block.isCode = false;
+                this.readBlockValue();
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+        this.visitor.onBlock(block);
+    }
+
+    /**
+     * Read a CodeBlock or DataBlock message, whose fields share numbers.
+     */
+    private void readBlockValue() throws IOException {
+        int oldLimit = this.pushMessage();
+        BlockView block = this.block;
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case CODE_BLOCK_UUID:
+                this.readUuid(block.uuid);
+                break;
+            case CODE_BLOCK_SIZE:
+                block.size = this.protoIn.readUInt64();
+                break;
+            case CODE_BLOCK_DECODE_MODE:
+                block.decodeMode = DecodeMode.values()[this.protoIn.readEnum()];
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+    }
+
+    private void readSymbol() throws IOException {
+        int oldLimit = this.pushMessage();
+        SymbolView symbol = this.symbol;
+        symbol.clear();
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case SYMBOL_UUID:
+                this.readUuid(symbol.uuid);
+                break;
+            case SYMBOL_VALUE:
+                symbol.value = this.protoIn.readUInt64();
+                symbol.hasValue = true;
+                symbol.hasReferent = false;
+                break;
+            case SYMBOL_NAME:
+                symbol.name = this.protoIn.readStringRequireUtf8();
+                break;
+            case SYMBOL_REFERENT_UUID:
+                this.readUuid(symbol.referent);
+                symbol.hasReferent = true;
+                symbol.hasValue = false;
+                break;
+            case SYMBOL_AT_END:
+                symbol.atEnd = this.protoIn.readBool();
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+        this.visitor.onSymbol(symbol);
+    }
+
+    /**
+     * Read an entry of the symbolic expression map of a byte interval.
+     */
+    private void readSymbolicExpression() throws IOException {
+        int oldLimit = this.pushMessage();
+        SymbolicExpressionView expression = this.symbolicExpression;
+        expression.clear();
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case MAP_UINT64_KEY:
+                expression.intervalOffset = this.protoIn.readUInt64();
+                break;
+            case MAP_VALUE:
+                this.readSymbolicExpressionValue();
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+        this.visitor.onSymbolicExpression(expression);
+    }
+
+    private void readSymbolicExpressionValue() throws IOException {
+        int oldLimit = this.pushMessage();
+        SymbolicExpressionView expression = this.symbolicExpression;
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case EXPRESSION_ADDR_CONST:
+                expression.isAddrAddr = false;
+                this.readAddrConst();
+                break;
+            case EXPRESSION_ADDR_ADDR:
+                expression.isAddrAddr = true;
+                this.readAddrAddr();
+                break;
+            case EXPRESSION_FLAGS:
+                this.addAttributeFlag(this.protoIn.readEnum());
+                break;
+            case EXPRESSION_FLAGS_PACKED: {
+                int packedLimit = this.pushMessage();
+                while (this.protoIn.getBytesUntilLimit() > 0)
+                    this.addAttributeFlag(this.protoIn.readEnum());
+                this.popMessage(packedLimit);
+                break;
+            }
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+    }
+
+    private void addAttributeFlag(int value) {
+        AttributeFlag flag = AttributeFlag.fromInteger(value);
+        if (flag != null)
+            this.symbolicExpression.flags.add(flag);
+    }
+
+    private void readAddrConst() throws IOException {
+        int oldLimit = this.pushMessage();
+        SymbolicExpressionView expression = this.symbolicExpression;
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case ADDR_CONST_OFFSET:
+                expression.offset = this.protoIn.readInt64();
+                break;
+            case ADDR_CONST_SYMBOL:
+                this.readUuid(expression.symbol1);
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+    }
+
+    private void readAddrAddr() throws IOException {
+        int oldLimit = this.pushMessage();
+        SymbolicExpressionView expression = this.symbolicExpression;
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case ADDR_ADDR_SCALE:
+                expression.scale = this.protoIn.readInt64();
+                break;
+            case ADDR_ADDR_OFFSET:
+                expression.offset = this.protoIn.readInt64();
+                break;
+            case ADDR_ADDR_SYMBOL1:
+                this.readUuid(expression.symbol1);
+                break;
+            case ADDR_ADDR_SYMBOL2:
+                this.readUuid(expression.symbol2);
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+    }
+
+    private void readCfg() throws IOException {
+        int oldLimit = this.pushMessage();
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case CFG_VERTICES:
+                this.readUuid(this.vertex);
+                this.visitor.onCfgVertex(this.vertex.get());
+                break;
+            case CFG_EDGES:
+                this.readEdge();
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+    }
+
+    private void readEdge() throws IOException {
+        int oldLimit = this.pushMessage();
+        EdgeView edge = this.edge;
+        edge.clear();
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case EDGE_SOURCE:
+                this.readUuid(edge.source);
+                break;
+            case EDGE_TARGET:
+                this.readUuid(edge.target);
+                break;
+            case EDGE_LABEL:
+                // A labelled edge defaults to the first edge type.
+                edge.type = EdgeType.Branch;
+                this.readEdgeLabel();
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+        this.visitor.onEdge(edge);
+    }
+
+    private void readEdgeLabel() throws IOException {
+        int oldLimit = this.pushMessage();
+        EdgeView edge = this.edge;
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case LABEL_CONDITIONAL:
+                edge.conditional = this.protoIn.readBool();
+                break;
+            case LABEL_DIRECT:
+                edge.direct = this.protoIn.readBool();
+                break;
+            case LABEL_TYPE:
+                edge.type = Edge.edgeTypeOf(this.protoIn.readEnum());
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+    }
+
+    /**
+     * Read an entry of the AuxData map of the IR or of a module.
+     */
+    private void readAuxData(boolean moduleAuxData) throws IOException {
+        int oldLimit = this.pushMessage();
+        AuxDataView auxData = this.auxData;
+        auxData.clear();
+        auxData.moduleAuxData = moduleAuxData;
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case MAP_STRING_KEY:
+                auxData.name = this.protoIn.readStringRequireUtf8();
+                break;
+            case MAP_VALUE:
+                this.readAuxDataValue();
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+        this.visitor.onAuxData(auxData);
+    }
+
+    private void readAuxDataValue() throws IOException {
+        int oldLimit = this.pushMessage();
+        AuxDataView auxData = this.auxData;
+        while (true) {
+            int tag = this.protoIn.readTag();
+            if (tag == 0)
+                break;
+            switch (tag) {
+            case AUX_DATA_TYPE_NAME:
+                auxData.typeName = this.protoIn.readStringRequireUtf8();
+                break;
+            case AUX_DATA_DATA:
+                auxData.data = this.protoIn.readBytes();
+                break;
+            default:
+                this.protoIn.skipField(tag);
+            }
+        }
+        this.popMessage(oldLimit);
+    }
+
+    /**
+     * Read a UUID field without allocating it.
+     */
+    private void readUuid(UuidField uuid) throws IOException {
+        int length = this.protoIn.readRawVarint32();
+        if (length == 0) {
+            uuid.clear();
+        } else if (length == 16) {
+            // UUIDs are stored as two little-endian longs, as in
+            // Util.byteArrayToUUID.
+            uuid.high = this.protoIn.readRawLittleEndian64();
+            uuid.low = this.protoIn.readRawLittleEndian64();
+        } else {
+            throw new IOException(
+                "Protobuf ByteString has insufficient length for a UUID!");
+        }
+    }
+
+    /**
+     * Start reading a length-delimited field.
+     *
+     * @return  The limit to restore with {@link #popMessage(int)}.
+     */
+    private int pushMessage() throws IOException {
+        int length = this.protoIn.readRawVarint32();
+        return this.protoIn.pushLimit(length);
+    }
+
+    /**
+     * Finish reading a length-delimited field.
+     */
+    private void popMessage(int oldLimit) { this.protoIn.popLimit(oldLimit); }
+}
@@ -0,0 +1,240 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Overlap index over the items of a TreeList.
+ *
+ * The index is a sorted array of item start indices, paired with an implicit
+ * binary tree holding the maximum end index of every subtree. This lets
+ * overlap queries run in O(log n + k) instead of walking every item that
+ * starts below the query index.
+ *
+ * The index is built lazily from its items on the first query after it has
+ * been invalidated. Owners must call {@link #invalidate()} whenever an item
+ * is inserted or removed, or when the start or size of an item already
+ * indexed changes.
+ */
+final class IntervalIndex<T extends TreeListItem> {
+
+    private final Supplier<List<T>> source;
+    private final ToLongFunction<T> startOf;
+    private boolean valid;
+    private List<T> items;
+    private long[] starts;
+    private long[] maxEnds;
+    private int leafCount;
+
+    /**
+     * Create an index over the items of a TreeList.
+     *
+     * @param tree    The tree to be indexed.
+     */
+    IntervalIndex(TreeMap<Long, List<T>> tree) {
+        this(() -> {
+            List<T> itemList = new ArrayList<T>();
+            for (List<T> entry : tree.values())
+                itemList.addAll(entry);
+            return itemList;
+        }, TreeListItem::getIndex);
+    }
+
+    /**
+     * Create an index over an arbitrary set of items.
+     *
+     * @param source   Supplies a fresh list of the items to be indexed. The
+     * index takes ownership of the list.
+     * @param startOf  Gives the start of an item. Items end at their start
+     * plus their size.
+     */
+    IntervalIndex(Supplier<List<T>> source, ToLongFunction<T> startOf) {
+        this.source = source;
+        this.startOf = startOf;
+        this.valid = false;
+    }
+
+    /**
+     * Mark the index as stale, so that it is rebuilt on the next query.
+     */
+    void invalidate() { this.valid = false; }
+
+    /**
+     * Retrieve items that intersect with a given index.
+     *
+     * An item intersects the index if it starts at or below the index and
+     * ends at or above it.
+     *
+     * @param index    The address/offset to be matched.
+     * @return         A list of matching items, in index order.
+     */
+    List<T> findIntersecting(long index) {
+        return this.collect(index, index);
+    }
+
+    /**
+     * Retrieve items that intersect with a given index range.
+     *
+     * Matches the end point handling of
+     * {@link TreeListUtils#getItemsIntersectingIndexRange}.
+     *
+     * @param startIndex  The start of the range to be matched.
+     * @param endIndex    The end of the range to be matched.
+     * @return            A list of matching items, in index order.
+     */
+    List<T> findIntersecting(long startIndex, long endIndex) {
+        // A reversed range only ever matched items containing its end.
+        if (startIndex > endIndex)
+            return this.collect(endIndex, endIndex);
+        return this.collect(startIndex, endIndex);
+    }
+
+    /**
+     * Retrieve items that start at a given index.
+     *
+     * @param index    The address/offset to be matched.
+     * @return         A list of matching items.
+     */
+    List<T> findStartingAt(long index) {
+        this.ensureValid();
+        int first = lowerBound(this.starts, index);
+        int last = upperBound(this.starts, index);
+        return new ArrayList<T>(this.items.subList(first, last));
+    }
+
+    /**
+     * Retrieve items that start in a given index range.
+     *
+     * @param startIndex  The start of the range to be matched. (inclusive)
+     * @param endIndex    The end of the range to be matched. (exclusive)
+     * @return            A list of matching items, in index order.
+     */
+    List<T> findStartingIn(long startIndex, long endIndex) {
+        this.ensureValid();
+        if (startIndex >= endIndex)
+            return new ArrayList<T>();
+        int first = lowerBound(this.starts, startIndex);
+        int last = lowerBound(this.starts, endIndex);
+        return new ArrayList<T>(this.items.subList(first, last));
+    }
+
+    /**
+     * Collect every item that starts at or below lastStart and ends at or
+     * above minEnd.
+     */
+    private List<T> collect(long minEnd, long lastStart) {
+        this.ensureValid();
+        List<T> resultList = new ArrayList<T>();
+        int last = upperBound(this.starts, lastStart) - 1;
+        if (last >= 0)
+            this.collect(1, 0, this.leafCount, last, minEnd, resultList);
+        return resultList;
+    }
+
+    private void collect(int node, int lo, int hi, int last, long minEnd,
+                         List<T> resultList) {
+        if (lo > last || this.maxEnds[node] < minEnd)
+            return;
+        if (hi - lo == 1) {
+            resultList.add(this.items.get(lo));
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        this.collect(2 * node, lo, mid, last, minEnd, resultList);
+        this.collect(2 * node + 1, mid, hi, last, minEnd, resultList);
+    }
+
+    /**
+     * Rebuild the sorted arrays and the max-end tree, if stale.
+     */
+    void ensureValid() {
+        if (this.valid)
+            return;
+
+        List<T> itemList = this.source.get();
+
+        // Items from a tree keyed by index are normally in order already. An
+        // item whose index changed after insertion can break that, in which
+        // case a (stable) sort restores the order.
+        int n = itemList.size();
+        long[] starts = new long[n];
+        boolean sorted = true;
+        for (int i = 0; i < n; i++) {
+            starts[i] = this.startOf.applyAsLong(itemList.get(i));
+            if (i > 0 && starts[i] < starts[i - 1])
+                sorted = false;
+        }
+        if (!sorted) {
+            itemList.sort(Comparator.comparingLong(this.startOf));
+            for (int i = 0; i < n; i++)
+                starts[i] = this.startOf.applyAsLong(itemList.get(i));
+        }
+
+        int leafCount = 1;
+        while (leafCount < n)
+            leafCount <<= 1;
+        long[] maxEnds = new long[2 * leafCount];
+        Arrays.fill(maxEnds, Long.MIN_VALUE);
+        for (int i = 0; i < n; i++)
+            maxEnds[leafCount + i] = starts[i] + itemList.get(i).getSize();
+        for (int node = leafCount - 1; node >= 1; node--)
+            maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+
+        this.items = itemList;
+        this.starts = starts;
+        this.maxEnds = maxEnds;
+        this.leafCount = leafCount;
+        this.valid = true;
+    }
+
+    /**
+     * Find the position of the first element not less than a key.
+     */
+    private static int lowerBound(long[] array, long key) {
+        int lo = 0;
+        int hi = array.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Find the position of the first element greater than a key.
+     */
+    private static int upperBound(long[] array, long key) {
+        int lo = 0;
+        int hi = array.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] <= key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
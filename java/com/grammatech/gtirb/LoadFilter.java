@@ -0,0 +1,276 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.grammatech.gtirb.Section.SectionFlag;
+import com.grammatech.gtirb.proto.ByteIntervalOuterClass;
+import com.grammatech.gtirb.proto.ModuleOuterClass;
+import com.grammatech.gtirb.proto.SectionOuterClass;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Removes the parts of an IR that {@link LoadOptions} skip, working on the
+ * protobuf wire format.
+ *
+ * Skipped fields are passed over without being parsed, and the remaining
+ * fields are copied unchanged, so the result parses like the original with
+ * the skipped parts missing. Length-delimited fields are read with aliasing,
+ * so that deciding whether to skip a section does not copy it.
+ */
+final class LoadFilter {
+
+    private static final SectionFlag[] SECTION_FLAGS = SectionFlag.values();
+
+    private final Set<String> skippedModules;
+    private final Set<String> skippedSections;
+    private final Set<SectionFlag> skippedSectionFlags;
+    private final boolean skipContents;
+    private final boolean skipSymbolicExpressions;
+    private final boolean skipCfg;
+    private final Set<String> skippedAuxData;
+
+    private LoadFilter(LoadOptions options) {
+        this.skippedModules = options.getSkippedModules();
+        this.skippedSections = options.getSkippedSections();
+        this.skippedSectionFlags = options.getSkippedSectionFlags();
+        this.skipContents = options.isSkipContents();
+        this.skipSymbolicExpressions = options.isSkipSymbolicExpressions();
+        this.skipCfg = options.isSkipCfg();
+        this.skippedAuxData = options.getSkippedAuxData();
+    }
+
+    /**
+     * Create a filter for a set of load options.
+     *
+     * @param options  The {@link LoadOptions} to filter for.
+     * @return  The filter, or null if the options do not skip anything.
+     */
+    static LoadFilter of(LoadOptions options) {
+        if (options.getSkippedModules().isEmpty() &&
+            options.getSkippedSections().isEmpty() &&
+            options.getSkippedSectionFlags().isEmpty() &&
+            !options.isSkipContents() && !options.isSkipSymbolicExpressions() &&
+            !options.isSkipCfg() && options.getSkippedAuxData().isEmpty())
+            return null;
+        return new LoadFilter(options);
+    }
+
+    /**
+     * Get whether the CFG is skipped.
+     */
+    boolean skipsCfg() { return this.skipCfg; }
+
+    /**
+     * Get whether a serialized module is skipped.
+     */
+    boolean skipsModule(ByteString encodedModule) throws IOException {
+        return !this.skippedModules.isEmpty() &&
+            this.skippedModules.contains(readString(
+                encodedModule, ModuleOuterClass.Module.NAME_FIELD_NUMBER));
+    }
+
+    /**
+     * Get whether a serialized entry of an AuxData map is skipped.
+     */
+    boolean skipsAuxData(ByteString encodedEntry) throws IOException {
+        // Map entries have the key as field 1 and the value as field 2.
+        return !this.skippedAuxData.isEmpty() &&
+            this.skippedAuxData.contains(readString(encodedEntry, 1));
+    }
+
+    /**
+     * Remove the skipped parts of a serialized module.
+     *
+     * @return  The serialized module without its skipped parts.
+     */
+    ByteString filterModule(ByteString encodedModule) throws IOException {
+        if (this.skippedSections.isEmpty() &&
+            this.skippedSectionFlags.isEmpty() && !this.skipContents &&
+            !this.skipSymbolicExpressions && this.skippedAuxData.isEmpty())
+            return encodedModule;
+        CodedInputStream protoIn = newInput(encodedModule);
+        ByteString.Output filtered = ByteString.newOutput();
+        CodedOutputStream protoOut = CodedOutputStream.newInstance(filtered);
+        while (true) {
+            int tag = protoIn.readTag();
+            if (tag == 0)
+                break;
+            int fieldNumber = WireFormat.getTagFieldNumber(tag);
+            if (isMessage(tag) &&
+                fieldNumber == ModuleOuterClass.Module.SECTIONS_FIELD_NUMBER) {
+                ByteString encodedSection = protoIn.readBytes();
+                if (!this.skipsSection(encodedSection))
+                    protoOut.writeBytes(fieldNumber,
+                                        this.filterSection(encodedSection));
+            } else if (isMessage(tag) &&
+                       fieldNumber ==
+                           ModuleOuterClass.Module.AUX_DATA_FIELD_NUMBER) {
+                ByteString encodedEntry = protoIn.readBytes();
+                if (!this.skipsAuxData(encodedEntry))
+                    protoOut.writeBytes(fieldNumber, encodedEntry);
+            } else if (!IR.copyField(protoIn, tag, protoOut)) {
+                break;
+            }
+        }
+        protoOut.flush();
+        return filtered.toByteString();
+    }
+
+    /**
+     * Get whether a serialized section is skipped, by its name or flags.
+     */
+    private boolean skipsSection(ByteString encodedSection)
+        throws IOException {
+        if (this.skippedSections.isEmpty() &&
+            this.skippedSectionFlags.isEmpty())
+            return false;
+        CodedInputStream protoIn = newInput(encodedSection);
+        while (true) {
+            int tag = protoIn.readTag();
+            if (tag == 0)
+                break;
+            int fieldNumber = WireFormat.getTagFieldNumber(tag);
+            if (fieldNumber == SectionOuterClass.Section.NAME_FIELD_NUMBER) {
+                if (this.skippedSections.contains(
+                        protoIn.readStringRequireUtf8()))
+                    return true;
+            } else if (fieldNumber == SectionOuterClass.Section
+                                          .SECTION_FLAGS_FIELD_NUMBER) {
+                // Repeated enums are usually packed, but either form is
+                // valid.
+                if (isMessage(tag)) {
+                    int oldLimit = protoIn.pushLimit(protoIn.readRawVarint32());
+                    while (protoIn.getBytesUntilLimit() > 0) {
+                        if (this.skipsSectionFlag(protoIn.readEnum()))
+                            return true;
+                    }
+                    protoIn.popLimit(oldLimit);
+                } else if (this.skipsSectionFlag(protoIn.readEnum())) {
+                    return true;
+                }
+            } else if (!protoIn.skipField(tag)) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get whether sections with a flag are skipped. Flags that this version
+     * does not know are never skipped.
+     */
+    private boolean skipsSectionFlag(int value) {
+        return value >= 0 && value < SECTION_FLAGS.length &&
+            this.skippedSectionFlags.contains(SECTION_FLAGS[value]);
+    }
+
+    /**
+     * Remove the skipped parts of the byte intervals of a serialized section.
+     */
+    private ByteString filterSection(ByteString encodedSection)
+        throws IOException {
+        if (!this.skipContents && !this.skipSymbolicExpressions)
+            return encodedSection;
+        CodedInputStream protoIn = newInput(encodedSection);
+        ByteString.Output filtered = ByteString.newOutput();
+        CodedOutputStream protoOut = CodedOutputStream.newInstance(filtered);
+        while (true) {
+            int tag = protoIn.readTag();
+            if (tag == 0)
+                break;
+            int fieldNumber = WireFormat.getTagFieldNumber(tag);
+            if (isMessage(tag) &&
+                fieldNumber ==
+                    SectionOuterClass.Section.BYTE_INTERVALS_FIELD_NUMBER) {
+                protoOut.writeBytes(
+                    fieldNumber, this.filterByteInterval(protoIn.readBytes()));
+            } else if (!IR.copyField(protoIn, tag, protoOut)) {
+                break;
+            }
+        }
+        protoOut.flush();
+        return filtered.toByteString();
+    }
+
+    /**
+     * Remove the contents or symbolic expressions of a serialized byte
+     * interval.
+     */
+    private ByteString filterByteInterval(ByteString encodedByteInterval)
+        throws IOException {
+        CodedInputStream protoIn = newInput(encodedByteInterval);
+        ByteString.Output filtered = ByteString.newOutput();
+        CodedOutputStream protoOut = CodedOutputStream.newInstance(filtered);
+        while (true) {
+            int tag = protoIn.readTag();
+            if (tag == 0)
+                break;
+            int fieldNumber = WireFormat.getTagFieldNumber(tag);
+            if ((this.skipContents &&
+                 fieldNumber == ByteIntervalOuterClass.ByteInterval
+                                    .CONTENTS_FIELD_NUMBER) ||
+                (this.skipSymbolicExpressions &&
+                 fieldNumber == ByteIntervalOuterClass.ByteInterval
+                                    .SYMBOLIC_EXPRESSIONS_FIELD_NUMBER)) {
+                if (!protoIn.skipField(tag))
+                    break;
+            } else if (!IR.copyField(protoIn, tag, protoOut)) {
+                break;
+            }
+        }
+        protoOut.flush();
+        return filtered.toByteString();
+    }
+
+    /**
+     * Read the first string field with the given number from a serialized
+     * message, skipping over all other fields.
+     *
+     * @return  The string, or an empty string if the field is not present.
+     */
+    private static String readString(ByteString encodedMessage,
+                                     int fieldNumber) throws IOException {
+        CodedInputStream protoIn = newInput(encodedMessage);
+        while (true) {
+            int tag = protoIn.readTag();
+            if (tag == 0)
+                break;
+            if (WireFormat.getTagFieldNumber(tag) == fieldNumber)
+                return protoIn.readStringRequireUtf8();
+            if (!protoIn.skipField(tag))
+                break;
+        }
+        return "";
+    }
+
+    /**
+     * Get whether a tag starts a length-delimited field.
+     */
+    private static boolean isMessage(int tag) {
+        return WireFormat.getTagWireType(tag) ==
+            WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    }
+
+    private static CodedInputStream newInput(ByteString encodedMessage) {
+        CodedInputStream protoIn = encodedMessage.newCodedInput();
+        protoIn.enableAliasing(true);
+        return protoIn;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import com.grammatech.gtirb.Section.SectionFlag;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Options controlling how {@link IR#loadFile} loads an IR.
+ *
+ * The default options load the whole IR eagerly, exactly as
+ * {@link IR#loadFile(String)} does.
+ *
+ * Parts of the IR can be skipped. Skipped parts are passed over in the
+ * serialized form without being parsed, and are missing from the loaded IR,
+ * so also from any file it is saved to. Modules that are never loaded
+ * because modules are loaded on demand are saved in full.
+ */
+public class LoadOptions {
+
+    private boolean lazyModules;
+    private boolean memoryMapped;
+    private Executor executor;
+    private Set<String> skippedModules;
+    private Set<String> skippedSections;
+    private Set<SectionFlag> skippedSectionFlags;
+    private boolean skipContents;
+    private boolean skipSymbolicExpressions;
+    private boolean skipCfg;
+    private Set<String> skippedAuxData;
+
+    /**
+     * Create a set of load options with default values.
+     */
+    public LoadOptions() {
+        this.lazyModules = false;
+        this.memoryMapped = false;
+        this.executor = null;
+        this.skippedModules = Collections.emptySet();
+        this.skippedSections = Collections.emptySet();
+        this.skippedSectionFlags = Collections.emptySet();
+        this.skipContents = false;
+        this.skipSymbolicExpressions = false;
+        this.skipCfg = false;
+        this.skippedAuxData = Collections.emptySet();
+    }
+
+    /**
+     * Get whether modules are loaded on demand.
+     *
+     * @return  true if modules are loaded on demand.
+     */
+    public boolean isLazyModules() { return this.lazyModules; }
+
+    /**
+     * Set whether modules are loaded on demand.
+     *
+     * When enabled, each module is kept in its serialized form until it is
+     * first accessed through {@link IR#getModules()} or
+     * {@link IR#findModules(String)}. Until then, none of the nodes it
+     * contains can be found with {@link IR#findNode(java.util.UUID)}.
+     *
+     * @param lazyModules  true to load modules on demand.
+     */
+    public void setLazyModules(boolean lazyModules) {
+        this.lazyModules = lazyModules;
+    }
+
+    /**
+     * Get whether files are memory-mapped for loading.
+     *
+     * @return  true if files are memory-mapped.
+     */
+    public boolean isMemoryMapped() { return this.memoryMapped; }
+
+    /**
+     * Set whether files are memory-mapped for loading.
+     *
+     * When enabled, {@link IR#loadFile(String, LoadOptions)} maps the file
+     * into memory and parses it in place. Large byte fields, such as
+     * ByteInterval contents, then refer to the mapping instead of being
+     * copied to the heap. Files over 2 GiB are mapped in parts. The file
+     * must not be modified or truncated while the loaded IR is in use. This
+     * option has no effect when loading from a stream.
+     *
+     * @param memoryMapped  true to memory-map files.
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Get the executor modules are loaded on.
+     *
+     * @return  The executor, or null if modules are loaded sequentially.
+     */
+    public Executor getExecutor() { return this.executor; }
+
+    /**
+     * Set the executor modules are loaded on.
+     *
+     * When set, the modules of the IR are parsed and built concurrently on
+     * the executor, and then assembled in their original order. This option
+     * has no effect if modules are loaded on demand.
+     *
+     * @param executor  The executor, or null to load modules sequentially.
+     */
+    public void setExecutor(Executor executor) { this.executor = executor; }
+
+    /**
+     * Get the names of the modules that are skipped.
+     *
+     * @return  An unmodifiable set of module names.
+     */
+    public Set<String> getSkippedModules() {
+        return Collections.unmodifiableSet(this.skippedModules);
+    }
+
+    /**
+     * Set the names of the modules that are skipped.
+     *
+     * Skipped modules are left out of the loaded IR entirely.
+     *
+     * @param names  The names of the modules to skip.
+     */
+    public void setSkippedModules(Set<String> names) {
+        this.skippedModules = new HashSet<String>(names);
+    }
+
+    /**
+     * Get the names of the sections that are skipped.
+     *
+     * @return  An unmodifiable set of section names.
+     */
+    public Set<String> getSkippedSections() {
+        return Collections.unmodifiableSet(this.skippedSections);
+    }
+
+    /**
+     * Set the names of the sections that are skipped.
+     *
+     * Skipped sections are left out of their modules, along with their byte
+     * intervals and blocks. Symbols, CFG edges and AuxData that refer to
+     * those blocks are still loaded, but their referents are not found.
+     *
+     * @param names  The names of the sections to skip, in any module.
+     */
+    public void setSkippedSections(Set<String> names) {
+        this.skippedSections = new HashSet<String>(names);
+    }
+
+    /**
+     * Get the section flags that cause a section to be skipped.
+     *
+     * @return  An unmodifiable set of section flags.
+     */
+    public Set<SectionFlag> getSkippedSectionFlags() {
+        return Collections.unmodifiableSet(this.skippedSectionFlags);
+    }
+
+    /**
+     * Set the section flags that cause a section to be skipped.
+     *
+     * A section that has any of these flags is skipped, as with
+     * {@link #setSkippedSections(Set)}.
+     *
+     * @param flags  The section flags.
+     */
+    public void setSkippedSectionFlags(Set<SectionFlag> flags) {
+        this.skippedSectionFlags = flags.isEmpty()
+                                       ? EnumSet.noneOf(SectionFlag.class)
+                                       : EnumSet.copyOf(flags);
+    }
+
+    /**
+     * Get whether byte interval contents are skipped.
+     *
+     * @return  true if byte interval contents are skipped.
+     */
+    public boolean isSkipContents() { return this.skipContents; }
+
+    /**
+     * Set whether byte interval contents are skipped.
+     *
+     * Byte intervals keep their size, but have no initialized contents.
+     *
+     * @param skipContents  true to skip byte interval contents.
+     */
+    public void setSkipContents(boolean skipContents) {
+        this.skipContents = skipContents;
+    }
+
+    /**
+     * Get whether symbolic expressions are skipped.
+     *
+     * @return  true if symbolic expressions are skipped.
+     */
+    public boolean isSkipSymbolicExpressions() {
+        return this.skipSymbolicExpressions;
+    }
+
+    /**
+     * Set whether symbolic expressions are skipped.
+     *
+     * @param skipSymbolicExpressions  true to skip symbolic expressions.
+     */
+    public void setSkipSymbolicExpressions(boolean skipSymbolicExpressions) {
+        this.skipSymbolicExpressions = skipSymbolicExpressions;
+    }
+
+    /**
+     * Get whether the CFG is skipped.
+     *
+     * @return  true if the CFG is skipped.
+     */
+    public boolean isSkipCfg() { return this.skipCfg; }
+
+    /**
+     * Set whether the CFG is skipped.
+     *
+     * The loaded IR then has an empty CFG.
+     *
+     * @param skipCfg  true to skip the CFG.
+     */
+    public void setSkipCfg(boolean skipCfg) { this.skipCfg = skipCfg; }
+
+    /**
+     * Get the names of the AuxData tables that are skipped.
+     *
+     * @return  An unmodifiable set of AuxData names.
+     */
+    public Set<String> getSkippedAuxData() {
+        return Collections.unmodifiableSet(this.skippedAuxData);
+    }
+
+    /**
+     * Set the names of the AuxData tables that are skipped.
+     *
+     * @param names  The names of the AuxData tables to skip, in the IR and
+     * in any module.
+     */
+    public void setSkippedAuxData(Set<String> names) {
+        this.skippedAuxData = new HashSet<String>(names);
+    }
+}
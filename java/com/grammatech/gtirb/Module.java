@@ -20,6 +20,7 @@ import com.grammatech.gtirb.proto.SectionOuterClass;
 import com.grammatech.gtirb.proto.SymbolOuterClass;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -27,7 +28,11 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.Spliterator;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Represents a single binary (library or executable),
@@ -78,10 +83,16 @@ public class Module extends AuxDataContainer {
     private ISA isa;
     private String name;
     private TreeMap<Long, List<Section>> sectionTree;
+    private IntervalIndex<Section> sectionIndex;
+    private TreeListView<Section> sectionView;
+    private final AddressIndex addressIndex = new AddressIndex(this);
+    private final SymbolIndex symbolIndex = new SymbolIndex(this);
+    private final XrefIndex xrefIndex = new XrefIndex(this);
     private List<Symbol> symbolList;
     private List<ProxyBlock> proxyBlockList;
     private CodeBlock entryPoint;
     private ByteOrder byteOrder;
+    private volatile ModuleLocks locks;
 
     /**
      * Class constructor for a Module from a protobuf module.
@@ -102,9 +113,10 @@ public class Module extends AuxDataContainer {
         initializeSymbolList(protoModule.getSymbolsList());
         initializeProxyBlockList(protoModule.getProxiesList());
 
-        // Sections must be initialized before looking up the entry point
+        // Sections must be initialized before looking up the entry point,
+        // which is one of the nodes just loaded.
         UUID entryUUID = Util.byteStringToUuid(protoModule.getEntryPoint());
-        Node entryNode = Node.getByUuid(entryUUID);
+        Node entryNode = NodeRegistry.forNewNodes().get(entryUUID);
         if (entryNode instanceof CodeBlock)
             this.entryPoint = (CodeBlock)entryNode;
     }
@@ -162,6 +174,8 @@ public class Module extends AuxDataContainer {
         this.name = name;
         this.symbolList = new ArrayList<Symbol>();
         this.sectionTree = new TreeMap<Long, List<Section>>();
+        this.sectionIndex = new IntervalIndex<Section>(this.sectionTree);
+        this.sectionView = new TreeListView<Section>(this.sectionTree);
         this.proxyBlockList = new ArrayList<ProxyBlock>();
         this.entryPoint = null;
     }
@@ -182,6 +196,47 @@ public class Module extends AuxDataContainer {
      */
     void setIr(Optional<IR> ir) { this.ir = ir; }
 
+    /**
+     * Get whether this Module allows concurrent mutation.
+     *
+     * @return  true if its sections and symbols can be changed from many
+     * threads at once.
+     */
+    public boolean isConcurrent() { return this.locks != null; }
+
+    /**
+     * Set whether this Module allows concurrent mutation.
+     *
+     * Concurrent mutation is off by default. When it is on, the sections,
+     * byte intervals, blocks, symbolic expressions, symbols and proxy blocks
+     * of this Module can be added and removed from many threads at once,
+     * and the indexes and parent links of this Module stay consistent.
+     * Changes within different sections run in parallel: each takes a
+     * striped lock for its section, with the shared side of a read/write
+     * lock for this Module. Adding or removing a section takes the exclusive
+     * side, and waits for the changes in progress to finish.
+     *
+     * Only additions, removals and the extents of byte intervals are
+     * locked. Lookups, views, streams and iteration are not, so run them
+     * after the threads changing this Module have finished. Turn this on or
+     * off only while no other thread is using this Module.
+     *
+     * @param concurrent  Whether to allow concurrent mutation.
+     */
+    public void setConcurrent(boolean concurrent) {
+        this.checkMutable();
+        if (concurrent && this.locks == null)
+            this.locks = new ModuleLocks();
+        else if (!concurrent)
+            this.locks = null;
+    }
+
+    /**
+     * Get the locks of this Module, or null if it does not allow
+     * concurrent mutation.
+     */
+    ModuleLocks getLocks() { return this.locks; }
+
     /**
      * Get the location of the corresponding binary on disk.
      *
@@ -199,6 +254,7 @@ public class Module extends AuxDataContainer {
      * @param binaryPath    The path name to use.
      */
     public void setBinaryPath(String binaryPath) {
+        this.checkMutable();
         this.binaryPath = binaryPath;
     }
 
@@ -215,6 +271,7 @@ public class Module extends AuxDataContainer {
      * @param preferredAddr  The module preferred address.
      */
     public void setPreferredAddr(long preferredAddr) {
+        this.checkMutable();
         this.preferredAddr = preferredAddr;
     }
 
@@ -233,6 +290,7 @@ public class Module extends AuxDataContainer {
      * @param rebaseDelta    The module rebase delta.
      */
     public void setRebaseDelta(long rebaseDelta) {
+        this.checkMutable();
         this.rebaseDelta = rebaseDelta;
     }
 
@@ -250,6 +308,7 @@ public class Module extends AuxDataContainer {
      * @param fileFormat    The module file format.
      */
     public void setFileFormat(FileFormat fileFormat) {
+        this.checkMutable();
         this.fileFormat = fileFormat;
     }
 
@@ -265,7 +324,10 @@ public class Module extends AuxDataContainer {
      *
      * @param isa    The module {@link ISA}.
      */
-    public void setIsa(ISA isa) { this.isa = isa; }
+    public void setIsa(ISA isa) {
+        this.checkMutable();
+        this.isa = isa;
+    }
 
     /**
      * Get the name of this Module.
@@ -279,11 +341,17 @@ public class Module extends AuxDataContainer {
      *
      * @param name    The module name.
      */
-    public void setName(String name) { this.name = name; }
+    public void setName(String name) {
+        this.checkMutable();
+        this.name = name;
+    }
 
     /**
      * Get the sections of this Module.
      *
+     * This copies the sections into a new list. To read them without
+     * copying, use {@link #getSectionView()} or {@link #forEachSection}.
+     *
      * @return  An unmodifiable {@link Section} list of all the
      * sections in this {@link Module}.
      */
@@ -295,6 +363,141 @@ public class Module extends AuxDataContainer {
         return Collections.unmodifiableList(sectionList);
     }
 
+    /**
+     * Get a live view of the sections of this Module.
+     *
+     * The view is not a copy: it reflects sections added or removed later,
+     * and iterating over it while sections are added or removed throws a
+     * {@link java.util.ConcurrentModificationException}.
+     *
+     * @return  An unmodifiable view of the {@link Section}s of this Module,
+     * in address order.
+     */
+    public Collection<Section> getSectionView() { return this.sectionView; }
+
+    /**
+     * Call a function on each section of this Module, in address order.
+     *
+     * @param action  The function to call.
+     */
+    public void forEachSection(Consumer<? super Section> action) {
+        this.sectionView.forEach(action);
+    }
+
+    /**
+     * Call a function on each byte interval in any section of this Module.
+     *
+     * @param action  The function to call.
+     */
+    public void forEachByteInterval(Consumer<? super ByteInterval> action) {
+        this.sectionView.forEach(
+            section -> section.forEachByteInterval(action));
+    }
+
+    /**
+     * Call a function on each block in any section of this Module.
+     *
+     * @param action  The function to call.
+     */
+    public void forEachBlock(Consumer<? super ByteBlock> action) {
+        this.sectionView.forEach(section -> section.forEachBlock(action));
+    }
+
+    /**
+     * Get a stream of the sections of this Module, in address order.
+     *
+     * The streams of a Module are backed by its sections, byte intervals,
+     * blocks and symbols themselves. For parallel streams they split between
+     * the sections, then the byte intervals of the last section, and then
+     * the blocks of the last byte interval, so the work is divided even when
+     * one byte interval holds most of the blocks. The parts of the Module
+     * being streamed must not be added or removed while a stream is in use.
+     *
+     * @return  A stream of the {@link Section}s of this Module.
+     */
+    public Stream<Section> sections() {
+        return StreamSupport.stream(this.sectionView.spliterator(), false);
+    }
+
+    /**
+     * Get a stream of the byte intervals in any section of this Module.
+     *
+     * @return  A stream of the {@link ByteInterval}s of this Module, in
+     * address order of the sections and then of the byte intervals.
+     */
+    public Stream<ByteInterval> byteIntervals() {
+        return StreamSupport.stream(this.byteIntervalSpliterator(), false);
+    }
+
+    /**
+     * Get a stream of the blocks in any section of this Module.
+     *
+     * @return  A stream of the {@link ByteBlock}s of this Module, ordered by
+     * section, byte interval and offset.
+     */
+    public Stream<ByteBlock> blocks() {
+        long estimate = 0;
+        for (Section section : this.sectionView) {
+            for (ByteInterval byteInterval : section.getByteIntervalView())
+                estimate += byteInterval.estimateBlockCount();
+        }
+        return StreamSupport.stream(
+            new NestedSpliterator<ByteInterval, ByteBlock>(
+                this.byteIntervalSpliterator(),
+                byteInterval -> byteInterval.getBlockView().spliterator(),
+                estimate),
+            false);
+    }
+
+    /**
+     * Get a stream of the code blocks in any section of this Module.
+     *
+     * @return  A stream of the {@link CodeBlock}s of this Module, ordered as
+     * by {@link #blocks()}.
+     */
+    public Stream<CodeBlock> codeBlocks() {
+        return this.blocks()
+            .filter(block -> block instanceof CodeBlock)
+            .map(block -> (CodeBlock)block);
+    }
+
+    /**
+     * Get a stream of the data blocks in any section of this Module.
+     *
+     * @return  A stream of the {@link DataBlock}s of this Module, ordered as
+     * by {@link #blocks()}.
+     */
+    public Stream<DataBlock> dataBlocks() {
+        return this.blocks()
+            .filter(block -> block instanceof DataBlock)
+            .map(block -> (DataBlock)block);
+    }
+
+    /**
+     * Build every index of this Module and freeze it with its contents.
+     */
+    void freeze() {
+        this.sectionIndex.ensureValid();
+        this.addressIndex.prepare();
+        this.symbolIndex.prepare();
+        this.xrefIndex.prepare();
+        this.sectionView.forEach(Section::freeze);
+        for (Symbol symbol : this.symbolList)
+            symbol.markFrozen();
+        for (ProxyBlock proxyBlock : this.proxyBlockList)
+            proxyBlock.markFrozen();
+        this.markFrozen();
+    }
+
+    private Spliterator<ByteInterval> byteIntervalSpliterator() {
+        long estimate = 0;
+        for (Section section : this.sectionView)
+            estimate += section.estimateByteIntervalCount();
+        return new NestedSpliterator<Section, ByteInterval>(
+            this.sectionView.spliterator(), Section::byteIntervalSpliterator,
+            estimate);
+    }
+
     /**
      * Set the section list of this Module.
      *
@@ -303,23 +506,158 @@ public class Module extends AuxDataContainer {
     private void setSections(List<Section> sectionList) {
         if (sectionTree == null) {
             sectionTree = new TreeMap<Long, List<Section>>();
+            sectionIndex = new IntervalIndex<Section>(sectionTree);
+            sectionView = new TreeListView<Section>(sectionTree);
         } else {
             sectionTree.clear();
+            sectionIndex.invalidate();
         }
+        this.addressIndex.invalidate();
         for (Section section : sectionList) {
             TreeListUtils.insertItem(section, sectionTree);
             section.setModule(Optional.of(this));
         }
     }
 
+    /**
+     * Notify this Module that the address or size of a byte interval in one
+     * of its sections has changed, and so the extent of that section.
+     *
+     * @param byteInterval  The {@link ByteInterval} that changed.
+     */
+    void byteIntervalExtentChanged(ByteInterval byteInterval) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.sectionIndex.invalidate();
+            this.addressIndex.moveByteInterval(byteInterval);
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Module that a block has been inserted into one of its byte
+     * intervals.
+     *
+     * @param byteInterval  The {@link ByteInterval} that changed.
+     * @param block         The block inserted.
+     */
+    void blockInserted(ByteInterval byteInterval, ByteBlock block) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.addressIndex.addBlock(byteInterval, block);
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Module that a block has been removed from one of its byte
+     * intervals.
+     *
+     * @param byteInterval  The {@link ByteInterval} that changed.
+     * @param block         The block removed.
+     */
+    void blockRemoved(ByteInterval byteInterval, ByteBlock block) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.addressIndex.removeBlock(byteInterval, block);
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Module that a block in one of its byte intervals has been
+     * resized.
+     *
+     * @param block         The block resized.
+     */
+    void blockResized(ByteBlock block) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.addressIndex.resizeBlock(block);
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Module that a symbolic expression in one of its byte
+     * intervals has been inserted, removed or replaced.
+     *
+     * @param byteInterval  The {@link ByteInterval} that changed.
+     * @param offset        The offset of the change within the interval.
+     * @param removed       The expression removed, or null if none.
+     * @param inserted      The expression inserted, or null if none.
+     */
+    void symbolicExpressionsChanged(ByteInterval byteInterval, long offset,
+                                    SymbolicExpression removed,
+                                    SymbolicExpression inserted) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.addressIndex.changeSymbolicExpression(byteInterval, offset,
+                                                       removed, inserted);
+            if (removed != null)
+                this.xrefIndex.remove(byteInterval, offset);
+            if (inserted != null)
+                this.xrefIndex.add(byteInterval, offset, inserted);
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Module that a byte interval has been added to one of its
+     * sections.
+     *
+     * @param byteInterval  The {@link ByteInterval} added.
+     */
+    void byteIntervalAdded(ByteInterval byteInterval) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.sectionIndex.invalidate();
+            this.addressIndex.addByteInterval(byteInterval);
+            this.xrefIndex.invalidate();
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Module that a byte interval has been removed from one of
+     * its sections.
+     *
+     * @param byteInterval  The {@link ByteInterval} removed.
+     */
+    void byteIntervalRemoved(ByteInterval byteInterval) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.sectionIndex.invalidate();
+            this.addressIndex.removeByteInterval(byteInterval);
+            this.xrefIndex.invalidate();
+        } finally {
+            hold.close();
+        }
+    }
+
     /**
      * Add a section to this Module.
      *
      * @param section  The {@link Section} to add.
      */
     public void addSection(Section section) {
-        TreeListUtils.insertItem(section, this.sectionTree);
-        section.setModule(Optional.of(this));
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockModule(this);
+        try {
+            TreeListUtils.insertItem(section, this.sectionTree);
+            this.sectionIndex.invalidate();
+            this.addressIndex.addSection(section);
+            this.xrefIndex.invalidate();
+            section.setModule(Optional.of(this));
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -330,13 +668,22 @@ public class Module extends AuxDataContainer {
      * removed.
      */
     public boolean removeSection(Section section) {
-        if (section.getModule().isPresent() &&
-            section.getModule().get() == this) {
-            TreeListUtils.removeItem(section, this.sectionTree);
-            section.setModule(Optional.empty());
-            return true;
-        } else
-            return false;
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockModule(this);
+        try {
+            if (section.getModule().isPresent() &&
+                section.getModule().get() == this) {
+                TreeListUtils.removeItem(section, this.sectionTree);
+                this.sectionIndex.invalidate();
+                this.addressIndex.removeSection(section);
+                this.xrefIndex.invalidate();
+                section.setModule(Optional.empty());
+                return true;
+            } else
+                return false;
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -349,14 +696,30 @@ public class Module extends AuxDataContainer {
         return Collections.unmodifiableList(this.symbolList);
     }
 
+    /**
+     * Get a stream of the symbols of this Module, in the order they were
+     * added.
+     *
+     * @return  A sized stream of the {@link Symbol}s of this Module.
+     */
+    public Stream<Symbol> symbols() { return this.getSymbols().stream(); }
+
     /**
      * Add a symbol to this Module.
      *
      * @param symbol  The {@link Symbol} to add to this {@link Module}.
      */
     public void addSymbol(Symbol symbol) {
-        this.symbolList.add(symbol);
-        symbol.setModule(Optional.of(this));
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.symbolList.add(symbol);
+            symbol.setModule(Optional.of(this));
+            this.symbolIndex.addName(symbol);
+            this.symbolIndex.addReferent(symbol);
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -367,13 +730,126 @@ public class Module extends AuxDataContainer {
      * removed.
      */
     public boolean removeSymbol(Symbol symbol) {
-        if (symbol.getModule().isPresent() &&
-            symbol.getModule().get() == this &&
-            this.symbolList.remove(symbol)) {
-            symbol.setModule(Optional.empty());
-            return true;
-        } else
-            return false;
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            if (symbol.getModule().isPresent() &&
+                symbol.getModule().get() == this &&
+                this.symbolList.remove(symbol)) {
+                symbol.setModule(Optional.empty());
+                this.symbolIndex.removeName(symbol, symbol.getName());
+                this.symbolIndex.removeReferent(symbol,
+                                                symbol.getReferentUuid());
+                return true;
+            } else
+                return false;
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Module that one of its symbols has been renamed.
+     *
+     * @param symbol   The symbol, with its new name.
+     * @param oldName  The name the symbol had before.
+     */
+    void symbolNameChanged(Symbol symbol, String oldName) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.symbolIndex.removeName(symbol, oldName);
+            this.symbolIndex.addName(symbol);
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Module that one of its symbols has changed its referent.
+     *
+     * @param symbol             The symbol, with its new payload.
+     * @param oldReferentUuid    The referent the symbol had before, if any.
+     */
+    void symbolReferentChanged(Symbol symbol, Optional<UUID> oldReferentUuid) {
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.symbolIndex.removeReferent(symbol, oldReferentUuid);
+            this.symbolIndex.addReferent(symbol);
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Find the symbols that refer to a node.
+     *
+     * @param referent  The node to look for, such as a {@link CodeBlock},
+     * {@link DataBlock} or {@link ProxyBlock}.
+     * @return  An unmodifiable list of the symbols whose referent is the
+     * node, in the order they were added or got the node as their referent.
+     */
+    public List<Symbol> findSymbols(Node referent) {
+        return this.findSymbolsByReferent(referent.getUuid());
+    }
+
+    /**
+     * Find the symbols that refer to a node by its UUID.
+     *
+     * The node does not have to exist.
+     *
+     * @param referentUuid  The UUID of the node to look for.
+     * @return  An unmodifiable list of the symbols whose referent is the
+     * node, in the order they were added or got the node as their referent.
+     */
+    public List<Symbol> findSymbolsByReferent(UUID referentUuid) {
+        return this.symbolIndex.findByReferent(referentUuid);
+    }
+
+    /**
+     * Find the symbols with a name.
+     *
+     * @param name  The name to look for.
+     * @return  An unmodifiable list of the symbols with the name, in the
+     * order they were added.
+     */
+    public List<Symbol> findSymbols(String name) {
+        return this.symbolIndex.findByName(name);
+    }
+
+    /**
+     * Find the symbols with each of a collection of names.
+     *
+     * This is faster than looking each name up separately.
+     *
+     * @param names  The names to look for.
+     * @return  A map from each name that was found to an unmodifiable list
+     * of its symbols. Names without symbols are not in the map.
+     */
+    public Map<String, List<Symbol>> findSymbols(Collection<String> names) {
+        return this.symbolIndex.findByNames(names);
+    }
+
+    /**
+     * Find the symbols whose names start with a prefix.
+     *
+     * @param prefix  The prefix to look for, such as "__imp_".
+     * @return  An unmodifiable list of the matching symbols, in name order.
+     */
+    public List<Symbol> findSymbolsByPrefix(String prefix) {
+        return this.symbolIndex.findByPrefix(prefix);
+    }
+
+    /**
+     * Find the symbols with names in a range.
+     *
+     * Names are ordered as by {@link String#compareTo}.
+     *
+     * @param first  The start of the range. (inclusive)
+     * @param last   The end of the range. (exclusive)
+     * @return  An unmodifiable list of the matching symbols, in name order.
+     */
+    public List<Symbol> findSymbolsInRange(String first, String last) {
+        return this.symbolIndex.findInRange(first, last);
     }
 
     /**
@@ -399,6 +875,16 @@ public class Module extends AuxDataContainer {
         return Collections.unmodifiableList(this.proxyBlockList);
     }
 
+    /**
+     * Get a stream of the proxy blocks of this Module, in the order they
+     * were added.
+     *
+     * @return  A sized stream of the {@link ProxyBlock}s of this Module.
+     */
+    public Stream<ProxyBlock> proxyBlocks() {
+        return this.getProxyBlocks().stream();
+    }
+
     /**
      * Add a proxy block to this Module.
      *
@@ -406,8 +892,14 @@ public class Module extends AuxDataContainer {
      * Module}.
      */
     public void addProxyBlock(ProxyBlock proxyBlock) {
-        this.proxyBlockList.add(proxyBlock);
-        proxyBlock.setModule(Optional.of(this));
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            this.proxyBlockList.add(proxyBlock);
+            proxyBlock.setModule(Optional.of(this));
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -419,13 +911,19 @@ public class Module extends AuxDataContainer {
      * removed.
      */
     public boolean removeProxyBlock(ProxyBlock proxyBlock) {
-        if (proxyBlock.getModule().isPresent() &&
-            proxyBlock.getModule().get() == this &&
-            this.proxyBlockList.remove(proxyBlock)) {
-            proxyBlock.setModule(Optional.empty());
-            return true;
-        } else
-            return false;
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockIndexes(this);
+        try {
+            if (proxyBlock.getModule().isPresent() &&
+                proxyBlock.getModule().get() == this &&
+                this.proxyBlockList.remove(proxyBlock)) {
+                proxyBlock.setModule(Optional.empty());
+                return true;
+            } else
+                return false;
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -455,6 +953,7 @@ public class Module extends AuxDataContainer {
      * @param entryCodeBlock    The module entry point (a {@link CodeBlock}).
      */
     public void setEntryPoint(CodeBlock entryCodeBlock) {
+        this.checkMutable();
         this.entryPoint = entryCodeBlock;
     }
 
@@ -471,6 +970,7 @@ public class Module extends AuxDataContainer {
      * @param  byteOrder    The module byte order (endianness).
      */
     public void setByteOrder(ByteOrder byteOrder) {
+        this.checkMutable();
         this.byteOrder = byteOrder;
     }
 
@@ -486,6 +986,8 @@ public class Module extends AuxDataContainer {
     initializeSectionList(List<SectionOuterClass.Section> protoSectionList)
         throws IOException {
         this.sectionTree = new TreeMap<>();
+        this.sectionIndex = new IntervalIndex<Section>(this.sectionTree);
+        this.sectionView = new TreeListView<Section>(this.sectionTree);
         // For each section, add to sectionList in this class
         for (SectionOuterClass.Section protoSection : protoSectionList) {
             Section newSection = Section.fromProtobuf(protoSection);
@@ -542,8 +1044,7 @@ public class Module extends AuxDataContainer {
      * address, or empty list if none.
      */
     public List<Section> findSectionsOn(long address) {
-        return TreeListUtils.getItemsIntersectingIndex(address,
-                                                       this.sectionTree);
+        return this.sectionIndex.findIntersecting(address);
     }
 
     /**
@@ -558,8 +1059,7 @@ public class Module extends AuxDataContainer {
      * this address range, or empty list if none.
      */
     public List<Section> findSectionsOn(long startAddress, long endAddress) {
-        return TreeListUtils.getItemsIntersectingIndexRange(
-            startAddress, endAddress, this.sectionTree);
+        return this.sectionIndex.findIntersecting(startAddress, endAddress);
     }
 
     /**
@@ -588,6 +1088,183 @@ public class Module extends AuxDataContainer {
                                                        this.sectionTree);
     }
 
+    /**
+     * Find all the blocks, in any section of this Module, that have bytes
+     * that intersect with the address specified.
+     *
+     * Blocks are found through a module-wide address index, without looking
+     * up the sections and byte intervals that contain them.
+     *
+     * @param address      The address to look for.
+     * @return             A list of {@link ByteBlock} objects that intersect
+     * this address, in address order, or empty list if none.
+     */
+    public List<ByteBlock> findBlocksOn(long address) {
+        return this.addressIndex.findBlocksOn(address);
+    }
+
+    /**
+     * Find all the blocks, in any section of this Module, that have bytes
+     * that intersect with the address range specified.
+     *
+     * @param startAddress      The beginning of the address range to look for.
+     * (inclusive)
+     * @param endAddress        The last address of the address range to look
+     * for. (exclusive)
+     * @return                  A list of {@link ByteBlock} objects that
+     * intersect this address range, in address order, or empty list if none.
+     */
+    public List<ByteBlock> findBlocksOn(long startAddress, long endAddress) {
+        return this.addressIndex.findBlocksOn(startAddress, endAddress);
+    }
+
+    /**
+     * Find all the blocks, in any section of this Module, that start at an
+     * address.
+     *
+     * @param address      The address to look for.
+     * @return             A list of {@link ByteBlock} objects that start at
+     * the address, or empty list if none.
+     */
+    public List<ByteBlock> findBlocksAt(long address) {
+        return this.addressIndex.findBlocksAt(address);
+    }
+
+    /**
+     * Find all the blocks, in any section of this Module, that start between
+     * a range of addresses.
+     *
+     * @param startAddress      The beginning of the address range to look for.
+     * (inclusive)
+     * @param endAddress        The last address in the address to look for.
+     * (exclusive)
+     * @return                  A list of {@link ByteBlock} objects that start
+     * in this address range, in address order, or empty list if none.
+     */
+    public List<ByteBlock> findBlocksAt(long startAddress, long endAddress) {
+        return this.addressIndex.findBlocksAt(startAddress, endAddress);
+    }
+
+    /**
+     * Visit all the blocks, in any section of this Module, that have bytes
+     * that intersect with the address specified.
+     *
+     * Unlike {@link #findBlocksOn(long)}, no list of the blocks is built.
+     * The action must not modify this Module.
+     *
+     * @param address      The address to look for.
+     * @param action       The action to perform on each block, in address
+     * order.
+     */
+    public void forEachBlockOn(long address,
+                               Consumer<? super ByteBlock> action) {
+        this.addressIndex.forEachBlockOn(address, address, action);
+    }
+
+    /**
+     * Visit all the blocks, in any section of this Module, that have bytes
+     * that intersect with the address range specified.
+     *
+     * Unlike {@link #findBlocksOn(long, long)}, no list of the blocks is
+     * built. The action must not modify this Module.
+     *
+     * @param startAddress      The beginning of the address range to look for.
+     * (inclusive)
+     * @param endAddress        The last address of the address range to look
+     * for. (exclusive)
+     * @param action            The action to perform on each block, in
+     * address order.
+     */
+    public void forEachBlockOn(long startAddress, long endAddress,
+                               Consumer<? super ByteBlock> action) {
+        this.addressIndex.forEachBlockOn(startAddress, endAddress, action);
+    }
+
+    /**
+     * Visit all the blocks, in any section of this Module, that start at an
+     * address.
+     *
+     * Unlike {@link #findBlocksAt(long)}, no list of the blocks is built.
+     * The action must not modify this Module.
+     *
+     * @param address      The address to look for.
+     * @param action       The action to perform on each block.
+     */
+    public void forEachBlockAt(long address,
+                               Consumer<? super ByteBlock> action) {
+        this.addressIndex.forEachBlockAt(address, action);
+    }
+
+    /**
+     * Visit all the blocks, in any section of this Module, that start
+     * between a range of addresses.
+     *
+     * Unlike {@link #findBlocksAt(long, long)}, no list of the blocks is
+     * built. The action must not modify this Module.
+     *
+     * @param startAddress      The beginning of the address range to look for.
+     * (inclusive)
+     * @param endAddress        The last address in the address to look for.
+     * (exclusive)
+     * @param action            The action to perform on each block, in
+     * address order.
+     */
+    public void forEachBlockAt(long startAddress, long endAddress,
+                               Consumer<? super ByteBlock> action) {
+        this.addressIndex.forEachBlockAt(startAddress, endAddress, action);
+    }
+
+    /**
+     * Find all the symbolic expressions, in any section of this Module, that
+     * start between a range of addresses.
+     *
+     * @param startAddress      The beginning of the address range to look for.
+     * (inclusive)
+     * @param endAddress        The last address in the address to look for.
+     * (exclusive)
+     * @return                  An iterator of the SymbolicExpressions found,
+     * if any, in address order, as Map entries, where the key is the address
+     * of the SymbolicExpression.
+     */
+    public Iterator<Map.Entry<Long, SymbolicExpression>>
+    findSymbolicExpressionsAt(long startAddress, long endAddress) {
+        return this.addressIndex.findSymbolicExpressions(startAddress,
+                                                         endAddress);
+    }
+
+    /**
+     * Find the symbolic expressions, in any section of this Module, that
+     * refer to a symbol.
+     *
+     * Both {@link SymAddrConst} and {@link SymAddrAddr} expressions are
+     * found. Changing the symbol of an expression after inserting it into a
+     * byte interval is not tracked; insert it again at the same offset to
+     * update the index.
+     *
+     * @param symbol  The {@link Symbol} to look for.
+     * @return  An unmodifiable snapshot of the locations of the expressions,
+     * in no particular order. It does not change when expressions are
+     * inserted or removed later, even while iterating over it.
+     */
+    public List<Xref> findXrefs(Symbol symbol) {
+        return this.findXrefsBySymbol(symbol.getUuid());
+    }
+
+    /**
+     * Find the symbolic expressions, in any section of this Module, that
+     * refer to a symbol by its UUID.
+     *
+     * The symbol does not have to exist.
+     *
+     * @param symbolUuid  The UUID of the symbol to look for.
+     * @return  An unmodifiable snapshot of the locations of the expressions,
+     * in no particular order. It does not change when expressions are
+     * inserted or removed later, even while iterating over it.
+     */
+    public List<Xref> findXrefsBySymbol(UUID symbolUuid) {
+        return this.xrefIndex.find(symbolUuid);
+    }
+
     /**
      * De-serialize this Module from a protobuf .
      *
@@ -605,6 +1282,23 @@ public class Module extends AuxDataContainer {
      * @return Module protocol buffer.
      */
     ModuleOuterClass.Module.Builder toProtobuf() {
+        ModuleOuterClass.Module.Builder protoModule =
+            this.toProtobufWithoutSections();
+        Iterator<Section> sectionIterator = this.sectionView.iterator();
+        while (sectionIterator.hasNext()) {
+            Section section = sectionIterator.next();
+            protoModule.addSections(section.toProtobuf());
+        }
+        return protoModule;
+    }
+
+    /**
+     * Serialize everything in this Module except its sections into a
+     * protobuf.
+     *
+     * @return Module protocol buffer with no sections.
+     */
+    ModuleOuterClass.Module.Builder toProtobufWithoutSections() {
         ModuleOuterClass.Module.Builder protoModule =
             ModuleOuterClass.Module.newBuilder();
         protoModule.setUuid(Util.uuidToByteString(this.getUuid()));
@@ -628,12 +1322,6 @@ public class Module extends AuxDataContainer {
             protoModule.addSymbols(symbol.toProtobuf());
         for (ProxyBlock proxyBlock : this.proxyBlockList)
             protoModule.addProxies(proxyBlock.toProtobuf());
-        Iterator<Section> sectionIterator =
-            new TreeListUtils<Section>(this.sectionTree).iterator();
-        while (sectionIterator.hasNext()) {
-            Section section = sectionIterator.next();
-            protoModule.addSections(section.toProtobuf());
-        }
         // Add auxData by calling toProtobuf on each type
         // TODO: Can this be done by AuxDataContainer, itself?
         // Doing it here, we have to access the protected member AuxDataMap
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+
+package com.grammatech.gtirb;
+
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The locks of a Module that allows concurrent mutation.
+ *
+ * Changes within a section take the shared side of the module lock and
+ * one of a fixed set of striped section locks, so that changes to
+ * different sections can run in parallel. Changes to the module itself,
+ * such as adding a section, take the exclusive side of the module lock.
+ * The module's indexes and symbols are guarded by a separate index lock,
+ * which is taken last and only held while they are updated.
+ */
+final class ModuleLocks {
+
+    /**
+     * A held lock, released by closing it in a finally block.
+     */
+    interface Hold extends AutoCloseable {
+        @Override void close();
+    }
+
+    private static final Hold NONE = () -> {};
+    private static final int STRIPES = 64;
+
+    private final ReentrantReadWriteLock moduleLock =
+        new ReentrantReadWriteLock();
+    private final Hold exclusiveHold = this.moduleLock.writeLock()::unlock;
+    private final ReentrantLock indexLock = new ReentrantLock();
+    private final Hold indexHold = this.indexLock::unlock;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Hold[] stripeHolds = new Hold[STRIPES];
+
+    ModuleLocks() {
+        Lock shared = this.moduleLock.readLock();
+        for (int i = 0; i < STRIPES; i++) {
+            ReentrantLock stripe = new ReentrantLock();
+            this.stripes[i] = stripe;
+            this.stripeHolds[i] = () -> {
+                stripe.unlock();
+                shared.unlock();
+            };
+        }
+    }
+
+    /**
+     * Lock a Module for a change to the module itself.
+     *
+     * @return  The held lock, which does nothing if the module does not
+     * allow concurrent mutation.
+     */
+    static Hold lockModule(Module module) {
+        ModuleLocks locks = module.getLocks();
+        if (locks == null)
+            return NONE;
+        locks.moduleLock.writeLock().lock();
+        return locks.exclusiveHold;
+    }
+
+    /**
+     * Lock the indexes and symbols of a Module for an update.
+     *
+     * @return  The held lock, which does nothing if the module does not
+     * allow concurrent mutation.
+     */
+    static Hold lockIndexes(Module module) {
+        ModuleLocks locks = module.getLocks();
+        if (locks == null)
+            return NONE;
+        locks.indexLock.lock();
+        return locks.indexHold;
+    }
+
+    /**
+     * Lock a Section, and the Module it belongs to, for a change to the
+     * section or its contents.
+     *
+     * @return  The held lock, which does nothing if the section does not
+     * belong to a module that allows concurrent mutation.
+     */
+    static Hold lockSection(Section section) {
+        while (true) {
+            Optional<Module> module = section.getModule();
+            if (module.isEmpty())
+                return NONE;
+            ModuleLocks locks = module.get().getLocks();
+            if (locks == null)
+                return NONE;
+            locks.moduleLock.readLock().lock();
+            // Sections only move between modules under the exclusive lock,
+            // so once the shared lock is held the module is settled.
+            if (section.getModule().equals(module)) {
+                int stripe = locks.stripeOf(section);
+                locks.stripes[stripe].lock();
+                return locks.stripeHolds[stripe];
+            }
+            locks.moduleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lock the Section and Module a ByteInterval belongs to, for a change to
+     * the byte interval.
+     *
+     * @return  The held lock, which does nothing if the byte interval does
+     * not belong to a module that allows concurrent mutation.
+     */
+    static Hold lockByteInterval(ByteInterval byteInterval) {
+        while (true) {
+            Optional<Section> section = byteInterval.getSection();
+            if (section.isEmpty())
+                return NONE;
+            Hold hold = lockSection(section.get());
+            // Byte intervals only move between sections under the lock of
+            // the section they leave.
+            if (byteInterval.getSection().equals(section))
+                return hold;
+            hold.close();
+        }
+    }
+
+    private int stripeOf(Section section) {
+        int hash = section.getUuid().hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+
+package com.grammatech.gtirb;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A spliterator over the children of a sequence of parents, such as the
+ * blocks of the byte intervals of a module.
+ *
+ * Splitting divides the parents while there is more than one left, and then
+ * divides the children of the last one, so that a parallel stream keeps
+ * splitting even when most of the children belong to a single parent. Each
+ * split keeps the encounter order.
+ *
+ * The size is an estimate, given for the whole sequence and divided between
+ * the halves on each split by the share of the parents each takes. The
+ * children must not be null.
+ */
+final class NestedSpliterator<P, T> implements Spliterator<T> {
+
+    private final Spliterator<? extends P> parents;
+    private final Function<? super P, ? extends Spliterator<T>> children;
+    // The spliterator over the children of the parent being traversed.
+    private Spliterator<T> current;
+    private long estimate;
+
+    /**
+     * Create a spliterator over the children of a sequence of parents.
+     *
+     * @param parents   The parents.
+     * @param children  Gets a spliterator over the children of a parent.
+     * @param estimate  The estimated number of children of all the parents.
+     */
+    NestedSpliterator(Spliterator<? extends P> parents,
+                      Function<? super P, ? extends Spliterator<T>> children,
+                      long estimate) {
+        this.parents = parents;
+        this.children = children;
+        this.estimate = estimate;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (this.current == null || !this.current.tryAdvance(action)) {
+            if (!this.parents.tryAdvance(this::descend))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        if (this.current != null)
+            this.current.forEachRemaining(action);
+        this.parents.forEachRemaining(
+            parent -> this.children.apply(parent).forEachRemaining(action));
+        this.current = null;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // A split has to be a prefix, so the parents can only be divided
+        // before any of their children are taken.
+        if (this.current == null ||
+            this.current.estimateSize() == 0) {
+            long parentsBefore = this.parents.estimateSize();
+            Spliterator<? extends P> prefix = this.parents.trySplit();
+            if (prefix != null) {
+                long share =
+                    parentsBefore == 0
+                        ? this.estimate / 2
+                        : (long)((double)this.estimate *
+                                 prefix.estimateSize() / parentsBefore);
+                this.estimate -= share;
+                return new NestedSpliterator<P, T>(prefix, this.children,
+                                                   share);
+            }
+            // Only one parent is left; split its children instead.
+            if (!this.parents.tryAdvance(this::descend))
+                return null;
+        }
+        Spliterator<T> prefix = this.current.trySplit();
+        if (prefix != null)
+            this.estimate = Math.max(0, this.estimate - prefix.estimateSize());
+        return prefix;
+    }
+
+    private void descend(P parent) {
+        this.current = this.children.apply(parent);
+    }
+
+    @Override
+    public long estimateSize() {
+        if (this.current != null && this.parents.estimateSize() == 0)
+            return this.current.estimateSize();
+        return this.estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+}
@@ -14,17 +14,19 @@
 
 package com.grammatech.gtirb;
 
-import java.lang.ref.WeakReference;
-import java.util.HashMap;
 import java.util.UUID;
 
 /**
  * Node is the root class for many GTIRB components.
+ *
+ * Every node is registered by UUID. Nodes loaded as part of an IR are
+ * registered with that IR, and can also be found with
+ * {@link IR#findNode(UUID)}. Other nodes are registered in a shared default
+ * registry.
  */
 public class Node {
     private final UUID uuid;
-    private static HashMap<UUID, WeakReference<Node>> uuid_cache =
-        new HashMap<UUID, WeakReference<Node>>();
+    private boolean frozen;
 
     /**
      * Create a Node with a randomly generated UUID.
@@ -36,19 +38,22 @@ public class Node {
      */
     public Node(UUID uuid) {
         this.uuid = uuid;
-        uuid_cache.put(uuid, new WeakReference<>(this));
+        NodeRegistry.forNewNodes().register(this);
     }
 
     /**
      * Find a node using its UUID.
      *
+     * Searches every IR that has not been closed, in constant time. If
+     * several IRs have a node with the UUID, as when the same file is loaded
+     * twice, only the node of the IR loaded last is found, and none once
+     * that IR is closed. When the IR is known, use {@link
+     * IR#findNode(UUID)}, which only finds nodes of that IR.
+     *
      * @return  The node with the given UUID.
      */
     public static Node getByUuid(UUID uuid) {
-        WeakReference<Node> noderef = uuid_cache.get(uuid);
-        if (noderef != null)
-            return noderef.get();
-        return null;
+        return NodeRegistry.find(uuid);
     }
 
     /**
@@ -57,12 +62,9 @@ public class Node {
      * @return  The node with the given UUID.
      */
     public static <T extends Node> T getByUuid(UUID uuid, Class<T> type) {
-        WeakReference<Node> noderef = uuid_cache.get(uuid);
-        if (noderef != null) {
-            Node node = noderef.get();
-            if (type.isInstance(node)) {
-                return type.cast(node);
-            }
+        Node node = NodeRegistry.find(uuid);
+        if (type.isInstance(node)) {
+            return type.cast(node);
         }
         return null;
     }
@@ -73,4 +75,28 @@ public class Node {
      * @return  The UUID.
      */
     public UUID getUuid() { return uuid; }
+
+    /**
+     * Get whether this node belongs to an IR that has been frozen with
+     * {@link IR#freeze()}.
+     *
+     * @return  true if this node can no longer be modified.
+     */
+    public boolean isFrozen() { return this.frozen; }
+
+    /**
+     * Mark this node as frozen.
+     */
+    void markFrozen() { this.frozen = true; }
+
+    /**
+     * Check that this node can be modified.
+     *
+     * @throws UnsupportedOperationException if this node is frozen.
+     */
+    void checkMutable() {
+        if (this.frozen)
+            throw new UnsupportedOperationException(
+                "Cannot modify a frozen IR");
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps UUIDs to the nodes that carry them, like the Context of the C++ API.
+ *
+ * Each IR has its own registry, which holds the nodes loaded into it. Nodes
+ * that are created outside of any IR load go to a shared default registry.
+ * Nodes are held weakly, and entries for nodes that have been collected are
+ * purged as new nodes are registered.
+ *
+ * A shared index maps the UUID of each node in an IR registry to that
+ * registry, so that {@link #find(UUID)} takes constant time however many
+ * IRs are loaded. The index holds the registries weakly, so an IR that is
+ * never closed can still be collected.
+ */
+final class NodeRegistry {
+
+    /**
+     * A weak reference to a node that remembers the node's UUID, so that
+     * its entry can be found once the node has been collected.
+     */
+    private static final class NodeReference extends WeakReference<Node> {
+        private final UUID uuid;
+
+        NodeReference(Node node, ReferenceQueue<Node> queue) {
+            super(node, queue);
+            this.uuid = node.getUuid();
+        }
+    }
+
+    /**
+     * A computation that may fail with an IOException.
+     */
+    interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    // Registry that new nodes on the current thread are added to.
+    private static final ThreadLocal<NodeRegistry> current =
+        new ThreadLocal<NodeRegistry>();
+    private static final NodeRegistry defaultRegistry =
+        new NodeRegistry(false);
+    // The IR registry that last registered a node with each UUID, until it
+    // is closed or the node is collected.
+    private static final ConcurrentHashMap<UUID, WeakReference<NodeRegistry>>
+        index = new ConcurrentHashMap<UUID, WeakReference<NodeRegistry>>();
+
+    private final ConcurrentHashMap<UUID, NodeReference> nodes;
+    private final ReferenceQueue<Node> queue;
+    // The value of this registry's entries in the index, or null if its
+    // nodes are not indexed.
+    private final WeakReference<NodeRegistry> self;
+
+    private NodeRegistry(boolean indexed) {
+        this.nodes = new ConcurrentHashMap<UUID, NodeReference>();
+        this.queue = new ReferenceQueue<Node>();
+        this.self = indexed ? new WeakReference<NodeRegistry>(this) : null;
+    }
+
+    /**
+     * Create a registry for an IR.
+     *
+     * The nodes it holds can be found with {@link #find(UUID)} until it is
+     * closed.
+     */
+    static NodeRegistry open() { return new NodeRegistry(true); }
+
+    /**
+     * Get the registry new nodes on this thread are added to.
+     */
+    static NodeRegistry forNewNodes() {
+        NodeRegistry registry = current.get();
+        return registry != null ? registry : defaultRegistry;
+    }
+
+    /**
+     * Find a node by UUID in any registry that has not been closed.
+     *
+     * The registry of the current thread and the default registry are
+     * searched first, then the IR registry that last registered a node with
+     * the UUID. If several IRs hold a node with the UUID, as when the same
+     * file is loaded twice, only the node of the IR loaded last is found,
+     * and none once that IR is closed. Lookups on behalf of a node in an IR
+     * go through {@link IR#findNode(UUID)} instead.
+     *
+     * @return  The node with the given UUID, or null if not found.
+     */
+    static Node find(UUID uuid) {
+        NodeRegistry registry = current.get();
+        if (registry != null) {
+            Node node = registry.get(uuid);
+            if (node != null)
+                return node;
+        }
+        Node node = defaultRegistry.get(uuid);
+        if (node != null)
+            return node;
+        WeakReference<NodeRegistry> owner = index.get(uuid);
+        if (owner == null)
+            return null;
+        registry = owner.get();
+        if (registry == null) {
+            // The registry was collected along with its IR.
+            index.remove(uuid, owner);
+            return null;
+        }
+        return registry.get(uuid);
+    }
+
+    /**
+     * Find a node by UUID among the nodes created outside of any IR load.
+     *
+     * @return  The node with the given UUID, or null if not found.
+     */
+    static Node findCreated(UUID uuid) { return defaultRegistry.get(uuid); }
+
+    /**
+     * Run a computation with this registry receiving the nodes it creates
+     * on the current thread.
+     *
+     * @return  The result of the computation.
+     */
+    <T> T loadWith(Loader<T> loader) throws IOException {
+        NodeRegistry previous = current.get();
+        current.set(this);
+        try {
+            return loader.load();
+        } finally {
+            if (previous == null)
+                current.remove();
+            else
+                current.set(previous);
+        }
+    }
+
+    /**
+     * Add a node, replacing any node with the same UUID.
+     */
+    void register(Node node) {
+        this.purge();
+        this.nodes.put(node.getUuid(), new NodeReference(node, this.queue));
+        if (this.self != null)
+            index.put(node.getUuid(), this.self);
+    }
+
+    /**
+     * Get the node with a given UUID.
+     *
+     * @return  The node, or null if it is not in this registry.
+     */
+    Node get(UUID uuid) {
+        NodeReference reference = this.nodes.get(uuid);
+        return reference != null ? reference.get() : null;
+    }
+
+    /**
+     * Drop all nodes, and stop this registry from being searched by
+     * {@link #find(UUID)}.
+     */
+    void close() {
+        if (this.self != null) {
+            for (UUID uuid : this.nodes.keySet())
+                index.remove(uuid, this.self);
+        }
+        this.nodes.clear();
+        this.purge();
+    }
+
+    /**
+     * Remove the entries of nodes that have been collected.
+     */
+    private void purge() {
+        NodeReference reference;
+        while ((reference = (NodeReference)this.queue.poll()) != null) {
+            // The entry may already have been replaced by a live node.
+            if (this.nodes.remove(reference.uuid, reference) &&
+                this.self != null)
+                index.remove(reference.uuid, this.self);
+        }
+    }
+}
@@ -65,4 +65,10 @@ public class Offset {
         return this.elementId.equals(off.elementId) &&
             this.displacement == off.displacement;
     }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.elementId.hashCode() +
+            Long.hashCode(this.displacement);
+    }
 }
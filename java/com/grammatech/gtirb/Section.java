@@ -18,6 +18,7 @@ import com.grammatech.gtirb.proto.ByteIntervalOuterClass;
 import com.grammatech.gtirb.proto.SectionOuterClass;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -26,7 +27,11 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The Section class represents a named section or segment of a program file,
@@ -51,6 +56,8 @@ public class Section extends Node implements TreeListItem {
     private Optional<Module> module;
     private String name;
     private final TreeMap<Long, List<ByteInterval>> byteIntervalTree;
+    private final IntervalIndex<ByteInterval> byteIntervalIndex;
+    private final TreeListView<ByteInterval> byteIntervalView;
     private Set<SectionFlag> sectionFlags;
 
     /**
@@ -64,6 +71,8 @@ public class Section extends Node implements TreeListItem {
         this.module = Optional.empty();
 
         byteIntervalTree = new TreeMap<Long, List<ByteInterval>>();
+        byteIntervalIndex = new IntervalIndex<ByteInterval>(byteIntervalTree);
+        byteIntervalView = new TreeListView<ByteInterval>(byteIntervalTree);
         List<ByteIntervalOuterClass.ByteInterval> protoByteIntervalList =
             protoSection.getByteIntervalsList();
         for (ByteIntervalOuterClass.ByteInterval protoByteInterval :
@@ -98,6 +107,10 @@ public class Section extends Node implements TreeListItem {
             this.addSectionFlag(flag);
 
         this.byteIntervalTree = new TreeMap<Long, List<ByteInterval>>();
+        this.byteIntervalIndex =
+            new IntervalIndex<ByteInterval>(this.byteIntervalTree);
+        this.byteIntervalView =
+            new TreeListView<ByteInterval>(this.byteIntervalTree);
         for (ByteInterval byteInterval : byteIntervals)
             this.addByteInterval(byteInterval);
     }
@@ -130,7 +143,10 @@ public class Section extends Node implements TreeListItem {
      *
      * @param name    The section name.
      */
-    public void setName(String name) { this.name = name; }
+    public void setName(String name) {
+        this.checkMutable();
+        this.name = name;
+    }
 
     /**
      * Get a ByteInterval iterator.
@@ -139,14 +155,16 @@ public class Section extends Node implements TreeListItem {
      * Section.
      */
     private Iterator<ByteInterval> getByteIntervalIterator() {
-        TreeListUtils<ByteInterval> byteIntervalTreeIterator =
-            new TreeListUtils<ByteInterval>(this.byteIntervalTree);
-        return byteIntervalTreeIterator.iterator();
+        return this.byteIntervalView.iterator();
     }
 
     /**
      * Get the ByteIntervals belonging to this Section.
      *
+     * This copies the byte intervals into a new list. To read them without
+     * copying, use {@link #getByteIntervalView()} or {@link
+     * #forEachByteInterval}.
+     *
      * @return  An unmodifiable {@link ByteInterval} list of all the
      * byte intervals in this {@link Section}.
      */
@@ -158,14 +176,97 @@ public class Section extends Node implements TreeListItem {
         return Collections.unmodifiableList(resultList);
     }
 
+    /**
+     * Get a live view of the ByteIntervals belonging to this Section.
+     *
+     * The view is not a copy: it reflects byte intervals added or removed
+     * later, and iterating over it while byte intervals are added or removed
+     * throws a {@link java.util.ConcurrentModificationException}.
+     *
+     * @return  An unmodifiable view of the {@link ByteInterval}s of this
+     * Section, in address order.
+     */
+    public Collection<ByteInterval> getByteIntervalView() {
+        return this.byteIntervalView;
+    }
+
+    /**
+     * Call a function on each ByteInterval of this Section, in address
+     * order.
+     *
+     * @param action  The function to call.
+     */
+    public void forEachByteInterval(Consumer<? super ByteInterval> action) {
+        this.byteIntervalView.forEach(action);
+    }
+
+    /**
+     * Call a function on each block of this Section, in address order of
+     * the byte intervals and offset order within each.
+     *
+     * @param action  The function to call.
+     */
+    public void forEachBlock(Consumer<? super ByteBlock> action) {
+        this.byteIntervalView.forEach(
+            byteInterval -> byteInterval.forEachBlock(action));
+    }
+
+    /**
+     * Get a stream of the ByteIntervals of this Section, in address order.
+     *
+     * The stream is backed by the byte intervals themselves, and splits
+     * between them for parallel streams. Byte intervals must not be added
+     * or removed while it is in use.
+     *
+     * @return  A stream of the {@link ByteInterval}s of this Section.
+     */
+    public Stream<ByteInterval> byteIntervals() {
+        return StreamSupport.stream(this.byteIntervalView.spliterator(),
+                                    false);
+    }
+
+    /**
+     * Get a spliterator over the ByteIntervals of this Section.
+     */
+    Spliterator<ByteInterval> byteIntervalSpliterator() {
+        return this.byteIntervalView.spliterator();
+    }
+
+    /**
+     * Build the byte interval index and freeze this Section with its byte
+     * intervals.
+     */
+    void freeze() {
+        this.byteIntervalIndex.ensureValid();
+        this.byteIntervalView.forEach(ByteInterval::freeze);
+        this.markFrozen();
+    }
+
+    /**
+     * Estimate the number of byte intervals of this Section without
+     * counting them.
+     */
+    long estimateByteIntervalCount() {
+        return this.byteIntervalView.estimateSize();
+    }
+
     /**
      * Add a ByteInterval.
      *
      * @param byteInterval A {@link ByteInterval} to add to this Section.
      */
     public void addByteInterval(ByteInterval byteInterval) {
-        TreeListUtils.insertItem(byteInterval, byteIntervalTree);
-        byteInterval.setSection(Optional.of(this));
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockSection(this);
+        try {
+            TreeListUtils.insertItem(byteInterval, byteIntervalTree);
+            byteInterval.setSection(Optional.of(this));
+            this.byteIntervalIndex.invalidate();
+            if (this.module.isPresent())
+                this.module.get().byteIntervalAdded(byteInterval);
+        } finally {
+            hold.close();
+        }
     }
 
     /**
@@ -176,13 +277,37 @@ public class Section extends Node implements TreeListItem {
      * was removed.
      */
     public boolean removeByteInterval(ByteInterval byteInterval) {
-        if (byteInterval.getSection().isPresent() &&
-            byteInterval.getSection().get() == this) {
-            TreeListUtils.removeItem(byteInterval, byteIntervalTree);
-            byteInterval.setSection(Optional.empty());
-            return true;
-        } else
-            return false;
+        this.checkMutable();
+        ModuleLocks.Hold hold = ModuleLocks.lockSection(this);
+        try {
+            if (byteInterval.getSection().isPresent() &&
+                byteInterval.getSection().get() == this) {
+                TreeListUtils.removeItem(byteInterval, byteIntervalTree);
+                byteInterval.setSection(Optional.empty());
+                this.byteIntervalIndex.invalidate();
+                if (this.module.isPresent())
+                    this.module.get().byteIntervalRemoved(byteInterval);
+                return true;
+            } else
+                return false;
+        } finally {
+            hold.close();
+        }
+    }
+
+    /**
+     * Notify this Section that the address or size of one of its byte
+     * intervals has changed.
+     *
+     * This also changes the extent of the Section itself, so the Module
+     * containing it is notified in turn.
+     *
+     * @param byteInterval  The {@link ByteInterval} that changed.
+     */
+    void byteIntervalExtentChanged(ByteInterval byteInterval) {
+        this.byteIntervalIndex.invalidate();
+        if (this.module.isPresent())
+            this.module.get().byteIntervalExtentChanged(byteInterval);
     }
 
     /**
@@ -202,6 +327,7 @@ public class Section extends Node implements TreeListItem {
      * Section.
      */
     public void addSectionFlag(SectionFlag sectionFlag) {
+        this.checkMutable();
         this.sectionFlags.add(sectionFlag);
     }
 
@@ -214,6 +340,7 @@ public class Section extends Node implements TreeListItem {
      * was removed.
      */
     public boolean removeSectionFlag(SectionFlag sectionFlag) {
+        this.checkMutable();
         return (this.sectionFlags.remove(sectionFlag));
     }
 
@@ -318,8 +445,7 @@ public class Section extends Node implements TreeListItem {
      * or empty list if none.
      */
     public List<ByteInterval> findByteIntervalsOn(long address) {
-        return TreeListUtils.getItemsIntersectingIndex(address,
-                                                       this.byteIntervalTree);
+        return this.byteIntervalIndex.findIntersecting(address);
     }
 
     /**
@@ -334,8 +460,8 @@ public class Section extends Node implements TreeListItem {
      */
     public List<ByteInterval> findByteIntervalsOn(long startAddress,
                                                   long endAddress) {
-        return TreeListUtils.getItemsIntersectingIndexRange(
-            startAddress, endAddress, this.byteIntervalTree);
+        return this.byteIntervalIndex.findIntersecting(startAddress,
+                                                       endAddress);
     }
 
     /**
@@ -383,9 +509,7 @@ public class Section extends Node implements TreeListItem {
      */
     SectionOuterClass.Section.Builder toProtobuf() {
         SectionOuterClass.Section.Builder protoSection =
-            SectionOuterClass.Section.newBuilder();
-        protoSection.setUuid(Util.uuidToByteString(this.getUuid()));
-        protoSection.setName(this.getName());
+            this.toProtobufWithoutByteIntervals();
 
         // Add byte intervals
         Iterator<ByteInterval> byteIntervals = this.getByteIntervalIterator();
@@ -395,7 +519,20 @@ public class Section extends Node implements TreeListItem {
                 byteInterval.toProtobuf();
             protoSection.addByteIntervals(protoByteInterval);
         }
+        return protoSection;
+    }
 
+    /**
+     * Serialize everything in this Section except its byte intervals into a
+     * protobuf.
+     *
+     * @return Section protocol buffer with no byte intervals.
+     */
+    SectionOuterClass.Section.Builder toProtobufWithoutByteIntervals() {
+        SectionOuterClass.Section.Builder protoSection =
+            SectionOuterClass.Section.newBuilder();
+        protoSection.setUuid(Util.uuidToByteString(this.getUuid()));
+        protoSection.setName(this.getName());
         for (SectionFlag sectionFlag : this.sectionFlags)
             protoSection.addSectionFlagsValue(sectionFlag.ordinal());
         return protoSection;
@@ -0,0 +1,179 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.grammatech.gtirb.proto.ByteIntervalOuterClass;
+import com.grammatech.gtirb.proto.ModuleOuterClass;
+import com.grammatech.gtirb.proto.SectionOuterClass;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes modules to a protobuf stream without building their complete
+ * protobuf messages.
+ *
+ * A module is written as its top-level fields, followed by each of its
+ * sections, and a section as its top-level fields, followed by each of its
+ * byte intervals. Only one byte interval message exists at a time. Since a
+ * length-delimited field is preceded by its length, each byte interval is
+ * built twice: once to size its section and module, and once to write it.
+ * The contents of byte intervals are written without copying them first.
+ *
+ * Fields are not written in field number order, which protobuf parsers
+ * accept.
+ */
+final class StreamingWriter {
+
+    private final CodedOutputStream protoOut;
+
+    /**
+     * Create a writer on a protobuf stream.
+     *
+     * @param protoOut  The stream to write to.
+     */
+    StreamingWriter(CodedOutputStream protoOut) { this.protoOut = protoOut; }
+
+    /**
+     * Write a module as a length-delimited field.
+     *
+     * @param fieldNumber  The field number of the module in its parent.
+     * @param module       The {@link Module} to write.
+     */
+    void writeModule(int fieldNumber, Module module) throws IOException {
+        ModuleOuterClass.Module protoModule =
+            module.toProtobufWithoutSections().build();
+        List<Section> sections = module.getSections();
+        int[] sectionSizes = new int[sections.size()];
+        long size = protoModule.getSerializedSize();
+        for (int i = 0; i < sectionSizes.length; i++) {
+            sectionSizes[i] = sizeOfSection(sections.get(i));
+            size += sizeOfField(
+                ModuleOuterClass.Module.SECTIONS_FIELD_NUMBER, sectionSizes[i]);
+        }
+
+        this.writeLengthDelimitedTag(fieldNumber, checkSize(size));
+        this.writeModuleFields(protoModule, sections, sectionSizes);
+    }
+
+    /**
+     * Serialize a module into its wire format, without a tag or length.
+     *
+     * @param module  The {@link Module} to serialize.
+     * @return The serialized module.
+     */
+    static ByteString encodeModule(Module module) throws IOException {
+        ModuleOuterClass.Module protoModule =
+            module.toProtobufWithoutSections().build();
+        List<Section> sections = module.getSections();
+        int[] sectionSizes = new int[sections.size()];
+        for (int i = 0; i < sectionSizes.length; i++)
+            sectionSizes[i] = sizeOfSection(sections.get(i));
+
+        ByteString.Output out = ByteString.newOutput();
+        CodedOutputStream protoOut = CodedOutputStream.newInstance(out);
+        new StreamingWriter(protoOut).writeModuleFields(protoModule, sections,
+                                                        sectionSizes);
+        protoOut.flush();
+        return out.toByteString();
+    }
+
+    /**
+     * Write the fields of a module, given the serialized sizes of its
+     * sections.
+     */
+    private void writeModuleFields(ModuleOuterClass.Module protoModule,
+                                   List<Section> sections, int[] sectionSizes)
+        throws IOException {
+        protoModule.writeTo(this.protoOut);
+        for (int i = 0; i < sectionSizes.length; i++) {
+            this.writeSection(sections.get(i), sectionSizes[i]);
+        }
+    }
+
+    /**
+     * Write a module that is already serialized as a length-delimited field.
+     *
+     * @param fieldNumber    The field number of the module in its parent.
+     * @param encodedModule  The serialized module.
+     */
+    void writeModule(int fieldNumber, ByteString encodedModule)
+        throws IOException {
+        this.protoOut.writeBytes(fieldNumber, encodedModule);
+    }
+
+    /**
+     * Write a section of a module, given its serialized size.
+     */
+    private void writeSection(Section section, int size) throws IOException {
+        this.writeLengthDelimitedTag(
+            ModuleOuterClass.Module.SECTIONS_FIELD_NUMBER, size);
+        section.toProtobufWithoutByteIntervals().build().writeTo(
+            this.protoOut);
+        for (ByteInterval byteInterval : section.getByteIntervalView()) {
+            this.protoOut.writeMessage(
+                SectionOuterClass.Section.BYTE_INTERVALS_FIELD_NUMBER,
+                byteInterval.toProtobufForWriting().build());
+        }
+    }
+
+    /**
+     * Get the serialized size of a section, without its tag and length.
+     */
+    private static int sizeOfSection(Section section) throws IOException {
+        SectionOuterClass.Section protoSection =
+            section.toProtobufWithoutByteIntervals().build();
+        long size = protoSection.getSerializedSize();
+        for (ByteInterval byteInterval : section.getByteIntervalView()) {
+            ByteIntervalOuterClass.ByteInterval protoByteInterval =
+                byteInterval.toProtobufForWriting().build();
+            size += sizeOfField(
+                SectionOuterClass.Section.BYTE_INTERVALS_FIELD_NUMBER,
+                protoByteInterval.getSerializedSize());
+        }
+        return checkSize(size);
+    }
+
+    /**
+     * Get the serialized size of a length-delimited field, including its tag
+     * and length.
+     */
+    private static long sizeOfField(int fieldNumber, int size) {
+        return CodedOutputStream.computeTagSize(fieldNumber) +
+            CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    /**
+     * Check that a message is within the protobuf size limit.
+     */
+    private static int checkSize(long size) throws IOException {
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Message of " + size +
+                                  " bytes exceeds the protobuf size limit");
+        return (int)size;
+    }
+
+    /**
+     * Write the tag and length that start a length-delimited field.
+     */
+    private void writeLengthDelimitedTag(int fieldNumber, int size)
+        throws IOException {
+        this.protoOut.writeTag(fieldNumber,
+                               WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        this.protoOut.writeUInt32NoTag(size);
+    }
+}
@@ -83,6 +83,7 @@ public class SymAddrAddr extends SymbolicExpression {
      * operand of the expression.
      */
     public void setSymbol1Uuid(UUID symbol_uuid) {
+        this.checkMutable();
         this.symbol1_uuid = symbol_uuid;
     }
 
@@ -100,6 +101,7 @@ public class SymAddrAddr extends SymbolicExpression {
      * operand of the expression.
      */
     public void setSymbol2Uuid(UUID symbol_uuid) {
+        this.checkMutable();
         this.symbol2_uuid = symbol_uuid;
     }
 
@@ -115,7 +117,10 @@ public class SymAddrAddr extends SymbolicExpression {
      *
      * @param scale    The new scale to set the SymAddrAddr scale to
      */
-    public void setScale(long scale) { this.scale = scale; }
+    public void setScale(long scale) {
+        this.checkMutable();
+        this.scale = scale;
+    }
 
     /**
      * Gets the constant offset of this SymAddrAddr
@@ -127,7 +132,10 @@ public class SymAddrAddr extends SymbolicExpression {
      * Sets the constant offset of this SymAddrAddr.
      * @param offset New value for the constant offset.
      */
-    public void setOffset(long offset) { this.offset = offset; }
+    public void setOffset(long offset) {
+        this.checkMutable();
+        this.offset = offset;
+    }
 
     /**
      * De-serialize a {@link SymAddrAddr} from a protobuf .
@@ -71,6 +71,7 @@ public class SymAddrConst extends SymbolicExpression {
      * the expression.
      */
     public void setSymbolUuid(UUID symbol_uuid) {
+        this.checkMutable();
         this.symbol_uuid = symbol_uuid;
     }
 
@@ -84,7 +85,10 @@ public class SymAddrConst extends SymbolicExpression {
      * Sets the symbol-relative constant offset of this SymAddrConst.
      * @param offset New value for the constant offset.
      */
-    public void setOffset(long offset) { this.offset = offset; }
+    public void setOffset(long offset) {
+        this.checkMutable();
+        this.offset = offset;
+    }
 
     /**
      * De-serialize a {@link SymAddrConst} from a protobuf.
@@ -140,17 +140,30 @@ public class Symbol extends Node {
      *
      * @param name    The symbol name.
      */
-    public void setName(String name) { this.name = name; }
+    public void setName(String name) {
+        this.checkMutable();
+        String oldName = this.name;
+        this.name = name;
+        if (this.module.isPresent())
+            this.module.get().symbolNameChanged(this, oldName);
+    }
 
     /**
      * Get the referent of this Symbol.
      *
+     * If this Symbol belongs to an IR, the referent is looked up in that IR
+     * with {@link IR#findNode(UUID)}, so that symbols never refer to nodes
+     * of another IR loaded from the same file.
+     *
      * @return  The symbol's referent, or null if there is no referent.
      */
     public Node getReferent() {
-        if (this.payloadType == PayloadType.REFERENT)
-            return Node.getByUuid(this.referentUuid);
-        return null;
+        if (this.payloadType != PayloadType.REFERENT)
+            return null;
+        Optional<IR> ir = this.module.flatMap(Module::getIr);
+        if (ir.isPresent())
+            return ir.get().findNode(this.referentUuid);
+        return Node.getByUuid(this.referentUuid);
     }
 
     /**
@@ -173,8 +186,12 @@ public class Symbol extends Node {
      * @param uuid  The UUID of this symbol's referent..
      */
     public void setReferentUuid(UUID uuid) {
+        this.checkMutable();
+        Optional<UUID> oldReferentUuid = this.getReferentUuid();
         this.referentUuid = uuid;
         this.payloadType = PayloadType.REFERENT;
+        if (this.module.isPresent())
+            this.module.get().symbolReferentChanged(this, oldReferentUuid);
     }
 
     /**
@@ -194,8 +211,12 @@ public class Symbol extends Node {
      * @param value   The symbol value.
      */
     public void setValue(long value) {
+        this.checkMutable();
+        Optional<UUID> oldReferentUuid = this.getReferentUuid();
         this.value = value;
         this.payloadType = PayloadType.VALUE;
+        if (this.module.isPresent() && oldReferentUuid.isPresent())
+            this.module.get().symbolReferentChanged(this, oldReferentUuid);
     }
 
     /**
@@ -217,7 +238,10 @@ public class Symbol extends Node {
 
      * @param atEnd The at end value to set
      */
-    public void setAtEnd(boolean atEnd) { this.atEnd = atEnd; }
+    public void setAtEnd(boolean atEnd) {
+        this.checkMutable();
+        this.atEnd = atEnd;
+    }
 
     /**
      * De-serialize a {@link Symbol} from a protobuf .
@@ -0,0 +1,313 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Name and referent index over the symbols of a Module.
+ *
+ * The symbols are kept in an array sorted by name, with a parallel array of
+ * the names they are indexed under, so that a symbol being renamed can still
+ * be found. The names are the strings of the symbols themselves, not copies.
+ * Lookups by exact name, prefix or range are binary searches over the
+ * arrays. Symbols with the same name stay in the order they were added in.
+ * Names are ordered as by {@link String#compareTo}.
+ *
+ * The name part is built on the first query. From then on, symbols that are
+ * added, removed or renamed are inserted into or removed from the sorted
+ * array in place, which only shifts the symbols after them.
+ *
+ * The referent part maps the UUID of each referent to the symbols that
+ * refer to it. It is built on the first query, and from then on updated in
+ * place as symbols are added, removed or change their referents, since a
+ * single change does not justify rebuilding it.
+ */
+final class SymbolIndex {
+
+    private final Module module;
+    // Null until the first name query. Only the first symbolCount entries
+    // are in use.
+    private Symbol[] symbols;
+    private String[] names;
+    private int symbolCount;
+    // Null until the first referent query.
+    private Map<UUID, List<Symbol>> referents;
+
+    /**
+     * Create a symbol index for a Module.
+     *
+     * @param module    The Module to be indexed.
+     */
+    SymbolIndex(Module module) { this.module = module; }
+
+    /**
+     * Record that a symbol was added.
+     */
+    void addName(Symbol symbol) {
+        if (this.symbols == null)
+            return;
+        String name = symbol.getName();
+        int index = this.upperBound(name, this.lowerBound(name, 0));
+        if (this.symbolCount == this.symbols.length) {
+            int capacity = Math.max(8, 2 * this.symbolCount);
+            this.symbols = Arrays.copyOf(this.symbols, capacity);
+            this.names = Arrays.copyOf(this.names, capacity);
+        }
+        int moved = this.symbolCount - index;
+        System.arraycopy(this.symbols, index, this.symbols, index + 1, moved);
+        System.arraycopy(this.names, index, this.names, index + 1, moved);
+        this.symbols[index] = symbol;
+        this.names[index] = name;
+        this.symbolCount++;
+    }
+
+    /**
+     * Record that a symbol was removed, or has been renamed.
+     *
+     * @param symbol  The symbol.
+     * @param name    The name the symbol was indexed under.
+     */
+    void removeName(Symbol symbol, String name) {
+        if (this.symbols == null)
+            return;
+        int first = this.lowerBound(name, 0);
+        int last = this.upperBound(name, first);
+        for (int i = first; i < last; i++) {
+            if (this.symbols[i] == symbol) {
+                int moved = this.symbolCount - i - 1;
+                System.arraycopy(this.symbols, i + 1, this.symbols, i, moved);
+                System.arraycopy(this.names, i + 1, this.names, i, moved);
+                this.symbolCount--;
+                this.symbols[this.symbolCount] = null;
+                this.names[this.symbolCount] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record that a symbol was added, or now has a referent.
+     */
+    void addReferent(Symbol symbol) {
+        if (this.referents == null)
+            return;
+        Optional<UUID> referentUuid = symbol.getReferentUuid();
+        if (!referentUuid.isPresent())
+            return;
+        List<Symbol> symbols = this.referents.get(referentUuid.get());
+        if (symbols == null) {
+            // Most referents have a single symbol.
+            this.referents.put(referentUuid.get(),
+                               Collections.singletonList(symbol));
+        } else {
+            if (symbols.size() == 1)
+                symbols = new ArrayList<Symbol>(symbols);
+            symbols.add(symbol);
+            this.referents.put(referentUuid.get(), symbols);
+        }
+    }
+
+    /**
+     * Record that a symbol was removed, or no longer has a referent.
+     *
+     * @param symbol        The symbol.
+     * @param referentUuid  The referent the symbol had, if any.
+     */
+    void removeReferent(Symbol symbol, Optional<UUID> referentUuid) {
+        if (this.referents == null || !referentUuid.isPresent())
+            return;
+        List<Symbol> symbols = this.referents.get(referentUuid.get());
+        if (symbols == null)
+            return;
+        if (symbols.size() == 1) {
+            if (symbols.get(0) == symbol)
+                this.referents.remove(referentUuid.get());
+            return;
+        }
+        for (int i = 0; i < symbols.size(); i++) {
+            if (symbols.get(i) == symbol) {
+                symbols.remove(i);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Retrieve the symbols that refer to a node.
+     */
+    List<Symbol> findByReferent(UUID referentUuid) {
+        this.ensureReferentsValid();
+        List<Symbol> symbols = this.referents.get(referentUuid);
+        if (symbols == null)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(symbols);
+    }
+
+    /**
+     * Build both parts of the index now, if needed, rather than on the next
+     * query.
+     */
+    void prepare() {
+        this.ensureNamesValid();
+        this.ensureReferentsValid();
+    }
+
+    private void ensureReferentsValid() {
+        if (this.referents != null)
+            return;
+        this.referents = new HashMap<UUID, List<Symbol>>();
+        for (Symbol symbol : this.module.getSymbols())
+            this.addReferent(symbol);
+    }
+
+    /**
+     * Retrieve the symbols with a name.
+     */
+    List<Symbol> findByName(String name) {
+        this.ensureNamesValid();
+        int first = this.lowerBound(name, 0);
+        return this.slice(first, this.upperBound(name, first));
+    }
+
+    /**
+     * Retrieve the symbols whose names start with a prefix, in name order.
+     */
+    List<Symbol> findByPrefix(String prefix) {
+        this.ensureNamesValid();
+        int first = this.lowerBound(prefix, 0);
+        return this.slice(first, this.prefixEnd(prefix, first));
+    }
+
+    /**
+     * Retrieve the symbols with names in a range, in name order.
+     *
+     * @param first The start of the range. (inclusive)
+     * @param last  The end of the range. (exclusive)
+     */
+    List<Symbol> findInRange(String first, String last) {
+        this.ensureNamesValid();
+        int start = this.lowerBound(first, 0);
+        int end = this.lowerBound(last, start);
+        return this.slice(start, Math.max(start, end));
+    }
+
+    /**
+     * Retrieve the symbols with each of a collection of names.
+     *
+     * The names are looked up in sorted order, each search starting where
+     * the previous one ended.
+     *
+     * @return A map from each name that was found to its symbols.
+     */
+    Map<String, List<Symbol>> findByNames(Collection<String> names) {
+        this.ensureNamesValid();
+        String[] sorted = names.toArray(new String[names.size()]);
+        Arrays.sort(sorted);
+        Map<String, List<Symbol>> found = new HashMap<String, List<Symbol>>();
+        int from = 0;
+        for (String name : sorted) {
+            int first = this.lowerBound(name, from);
+            from = this.upperBound(name, first);
+            if (from > first)
+                found.put(name, this.slice(first, from));
+        }
+        return found;
+    }
+
+    private List<Symbol> slice(int first, int last) {
+        // The array is modified in place, so the symbols are copied out.
+        return Collections.unmodifiableList(new ArrayList<Symbol>(
+            Arrays.asList(this.symbols).subList(first, last)));
+    }
+
+    /**
+     * Build the name part of the index, if not built yet.
+     */
+    private void ensureNamesValid() {
+        if (this.symbols != null)
+            return;
+        Symbol[] sorted = this.module.getSymbols().toArray(new Symbol[0]);
+        // Sorting objects is stable, which keeps equal names in order.
+        Arrays.sort(sorted, Comparator.comparing(Symbol::getName));
+        String[] names = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++)
+            names[i] = sorted[i].getName();
+        this.symbols = sorted;
+        this.names = names;
+        this.symbolCount = sorted.length;
+    }
+
+    /**
+     * Find the first sorted symbol at or after a position whose name is not
+     * less than a key.
+     */
+    private int lowerBound(String key, int from) {
+        int lo = from;
+        int hi = this.symbolCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.names[mid].compareTo(key) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Find the first sorted symbol at or after a position whose name is
+     * greater than a key.
+     */
+    private int upperBound(String key, int from) {
+        int lo = from;
+        int hi = this.symbolCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.names[mid].compareTo(key) <= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Find the first sorted symbol at or after a position whose name does
+     * not start with a prefix. Every name from the position on must be not
+     * less than the prefix.
+     */
+    private int prefixEnd(String prefix, int from) {
+        int lo = from;
+        int hi = this.symbolCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.names[mid].startsWith(prefix))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
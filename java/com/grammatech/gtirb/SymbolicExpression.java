@@ -123,6 +123,7 @@ public class SymbolicExpression {
 
     private Set<AttributeFlag> attributeFlags;
     private Set<Integer> unknownAttributeFlags;
+    private boolean frozen;
 
     /**
      * Class constructor for a SymbolicExpression from a protobuf symbolic
@@ -169,6 +170,31 @@ public class SymbolicExpression {
         return Collections.unmodifiableSet(this.attributeFlags);
     }
 
+    /**
+     * Get whether this symbolic expression belongs to an IR that has been
+     * frozen with {@link IR#freeze()}.
+     *
+     * @return  true if this symbolic expression can no longer be modified.
+     */
+    public boolean isFrozen() { return this.frozen; }
+
+    /**
+     * Mark this symbolic expression as frozen.
+     */
+    void markFrozen() { this.frozen = true; }
+
+    /**
+     * Check that this symbolic expression can be modified.
+     *
+     * @throws UnsupportedOperationException if this symbolic expression is
+     * frozen.
+     */
+    void checkMutable() {
+        if (this.frozen)
+            throw new UnsupportedOperationException(
+                "Cannot modify a frozen IR");
+    }
+
     /**
      * Add an attribute flags to this SymbolicExpression.
      *
@@ -176,6 +202,7 @@ public class SymbolicExpression {
      * to this symbolic expression.
      */
     public void addAttributeFlag(AttributeFlag attributeFlag) {
+        this.checkMutable();
         this.attributeFlags.add(attributeFlag);
     }
 
@@ -188,6 +215,7 @@ public class SymbolicExpression {
      * flag, and it was removed.
      */
     public boolean removeAttributeFlag(AttributeFlag attributeFlag) {
+        this.checkMutable();
         return (this.attributeFlags.remove(attributeFlag));
     }
 
@@ -208,6 +236,7 @@ public class SymbolicExpression {
      * to this symbolic expression and stored as an integer.
      */
     public void addUnknownFlag(Integer unknownFlag) {
+        this.checkMutable();
         this.unknownAttributeFlags.add(unknownFlag);
     }
 
@@ -220,6 +249,7 @@ public class SymbolicExpression {
      * flag, and it was removed.
      */
     public boolean removeUnknownFlag(Integer unknownFlag) {
+        this.checkMutable();
         return (this.unknownAttributeFlags.remove(unknownFlag));
     }
 
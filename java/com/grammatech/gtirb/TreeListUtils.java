@@ -15,10 +15,8 @@
 package com.grammatech.gtirb;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -88,6 +86,9 @@ public class TreeListUtils<Type> implements Iterable<Type> {
     /**
      * Generic method for retrieving items that intersect with a given address
      *
+     * This walks every item that starts below the index. Owners that query
+     * the same tree repeatedly should use an {@link IntervalIndex} instead.
+     *
      * @param index    The address/offset to be matched.
      * @param tree     The tree to be matched in.
      * @return         A list of matching items.
@@ -118,6 +119,10 @@ public class TreeListUtils<Type> implements Iterable<Type> {
      * Generic method for retrieving items that intersect with a given address
      * range
      *
+     * This walks every item that starts below the end of the range. Owners
+     * that query the same tree repeatedly should use an {@link IntervalIndex}
+     * instead.
+     *
      * @param startIndex  The start of the address range to be matched.
      * @param endIndex    The end of the address range.
      * @param tree        The tree to be matched in.
@@ -204,65 +209,12 @@ public class TreeListUtils<Type> implements Iterable<Type> {
     /**
      * Generic method for iterating through all items.
      *
+     * The iterator walks the tree directly, without copying it.
+     *
      * @return An iterator for the tree.
      */
     @Override
     public Iterator<Type> iterator() {
-        Iterator<Type> it = new Iterator<Type>() {
-            private int treeSize = treeMap.size();
-            private int currentTreeIndex = 0;
-            private int currentListIndex = 0;
-            // Get the (current set of keys for the whole tree, as an array of
-            // Longs, so that it can be incremented through
-            private Set<Long> keySet = treeMap.keySet();
-            private Long keyArray[] = keySet.toArray(new Long[0]);
-
-            // We need a currentList variable in this scope, but it the tree may
-            // be empty, so we can't initialize it here. So set it to emptyList,
-            // which will report a size of 0.
-            private List<Type> currentList = Collections.emptyList();
-
-            private boolean listHasNext() {
-                if (currentList.size() > 0 &&
-                    currentListIndex < currentList.size())
-                    return true;
-                return false;
-            }
-
-            private boolean treeHasNext() {
-                if (keySet.size() > 0 && currentTreeIndex < keySet.size())
-                    return true;
-                return false;
-            }
-
-            @Override
-            public boolean hasNext() {
-                if (treeSize == 0)
-                    return false;
-                if (listHasNext() || treeHasNext())
-                    return true;
-                return false;
-            }
-
-            @Override
-            public Type next() {
-                if (treeSize == 0)
-                    return null;
-                if (listHasNext())
-                    return currentList.get(currentListIndex++);
-                else if (treeHasNext()) {
-                    currentList = treeMap.get(keyArray[currentTreeIndex++]);
-                    currentListIndex = 0;
-                    return currentList.get(currentListIndex++);
-                }
-                return null;
-            }
-
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
-        };
-        return it;
+        return new TreeListView<Type>(this.treeMap).iterator();
     }
 }
@@ -0,0 +1,112 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+
+package com.grammatech.gtirb;
+
+import java.util.AbstractCollection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * A live, read-only view of the items in a TreeList.
+ *
+ * The view walks the lists in the tree in index order without copying
+ * them, so it reflects every later change to the tree. The tree must not be
+ * changed while iterating over the view. Adding an item at a new index or
+ * removing the last item at an index changes the tree itself, and the next
+ * step of the iteration throws a {@link
+ * java.util.ConcurrentModificationException}. Adding or removing an item at
+ * an index that keeps other items only changes the list at that index,
+ * which is not detected, and may make the iteration skip or repeat items.
+ * The size is counted on each call, in time linear in the number of
+ * distinct indexes, and lookups with {@link #contains} are linear scans.
+ */
+final class TreeListView<T> extends AbstractCollection<T> {
+
+    private final TreeMap<Long, List<T>> tree;
+
+    TreeListView(TreeMap<Long, List<T>> tree) { this.tree = tree; }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Iterator<List<T>> lists =
+                TreeListView.this.tree.values().iterator();
+            private List<T> list = Collections.emptyList();
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (this.next >= this.list.size()) {
+                    if (!this.lists.hasNext())
+                        return false;
+                    this.list = this.lists.next();
+                    this.next = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!this.hasNext())
+                    throw new NoSuchElementException();
+                return this.list.get(this.next++);
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (List<T> list : this.tree.values()) {
+            for (int i = 0; i < list.size(); i++)
+                action.accept(list.get(i));
+        }
+    }
+
+    /**
+     * Get a spliterator over the items, which splits the tree between the
+     * lists and then the list that is left.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new NestedSpliterator<List<T>, T>(
+            this.tree.values().spliterator(), List::spliterator,
+            this.estimateSize());
+    }
+
+    /**
+     * Estimate the number of items without counting them, as the number of
+     * indexes in use.
+     */
+    long estimateSize() { return this.tree.size(); }
+
+    @Override
+    public int size() {
+        long size = 0;
+        for (List<T> list : this.tree.values())
+            size += list.size();
+        return (int)Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.tree.isEmpty();
+    }
+}
@@ -55,17 +55,23 @@ public class Util {
      * @return The UUID read.
      */
     public static UUID readUUID(InputStream in) throws IOException {
-        byte[] b = new byte[16];
-        if (in.read(b, 0, 16) != 16) {
-            throw new EOFException("Insufficient bytes to read a UUID from.");
-        }
-        try {
-            return byteArrayToUUID(b);
-        } catch (IllegalArgumentException e) {
-            // Should never happen.
-            throw new RuntimeException(
-                "byteArrayToUUID() and readUUID using inconsistent buffer sizes!");
+        long mostSigBits = readLittleEndianLong(in);
+        long leastSigBits = readLittleEndianLong(in);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    private static long readLittleEndianLong(InputStream in)
+        throws IOException {
+        long val = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException(
+                    "Insufficient bytes to read a UUID from.");
+            }
+            val |= (long)b << (8 * i);
         }
+        return val;
     }
 
     /**
@@ -112,8 +118,14 @@ public class Util {
      */
     public static void writeUUID(OutputStream out, UUID uuid)
         throws IOException {
-        byte[] b = uuidToByteArray(uuid);
-        out.write(b, 0, 16);
+        writeLittleEndianLong(out, uuid.getMostSignificantBits());
+        writeLittleEndianLong(out, uuid.getLeastSignificantBits());
+    }
+
+    private static void writeLittleEndianLong(OutputStream out, long val)
+        throws IOException {
+        for (int i = 0; i < 8; i++)
+            out.write((int)(val >>> (8 * i)));
     }
 
     /**
@@ -0,0 +1,84 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+
+package com.grammatech.gtirb;
+
+/**
+ * A cross-reference: the location of a symbolic expression that refers to
+ * a symbol.
+ *
+ * An Xref names the {@link ByteInterval} holding the expression and its
+ * offset within that interval. Xrefs are equal if they name the same byte
+ * interval and offset.
+ */
+public final class Xref {
+
+    private final ByteInterval byteInterval;
+    private final long offset;
+
+    /**
+     * Class constructor for an Xref.
+     *
+     * @param byteInterval  The {@link ByteInterval} holding the symbolic
+     * expression.
+     * @param offset        The offset of the symbolic expression within the
+     * byte interval.
+     */
+    public Xref(ByteInterval byteInterval, long offset) {
+        this.byteInterval = byteInterval;
+        this.offset = offset;
+    }
+
+    /**
+     * Get the byte interval holding the symbolic expression.
+     *
+     * @return  The {@link ByteInterval}.
+     */
+    public ByteInterval getByteInterval() { return this.byteInterval; }
+
+    /**
+     * Get the offset of the symbolic expression within its byte interval.
+     *
+     * @return  The offset.
+     */
+    public long getOffset() { return this.offset; }
+
+    /**
+     * Get the symbolic expression at this location.
+     *
+     * @return  The {@link SymbolicExpression}, or null if the byte interval
+     * no longer has one at this offset.
+     */
+    public SymbolicExpression getSymbolicExpression() {
+        return this.byteInterval.findSymbolicExpressionAt(this.offset);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof Xref))
+            return false;
+        Xref other = (Xref)o;
+        return this.byteInterval == other.byteInterval &&
+            this.offset == other.offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(this.byteInterval) +
+            Long.hashCode(this.offset);
+    }
+}
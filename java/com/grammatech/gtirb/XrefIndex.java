@@ -0,0 +1,232 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+
+package com.grammatech.gtirb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cross-reference index from symbols to the symbolic expressions of a
+ * Module that refer to them.
+ *
+ * The index maps the UUID of each symbol referred to by a {@link
+ * SymAddrConst} or {@link SymAddrAddr} to the {@link Xref}s of those
+ * expressions. A SymAddrAddr that refers to two different symbols is listed
+ * under both.
+ *
+ * The index is built on the first query after it has been invalidated, in
+ * one pass over the byte intervals of the Module that is split across the
+ * common fork-join pool. From then on, symbolic expressions inserted into or
+ * removed from a byte interval of the Module update it in place. The Module
+ * invalidates it when sections or byte intervals are added or removed.
+ *
+ * The symbols each location was indexed under are recorded as well, so that
+ * an entry is removed from the right lists even if the symbols of its
+ * expression were changed after it was inserted.
+ */
+final class XrefIndex {
+
+    private final Module module;
+    // Null while invalid.
+    private Map<UUID, List<Xref>> xrefs;
+    // The symbols each location in xrefs is listed under. Null while
+    // invalid.
+    private Map<Xref, UUID[]> indexed;
+
+    /**
+     * Create a cross-reference index for a Module.
+     *
+     * @param module    The Module to be indexed.
+     */
+    XrefIndex(Module module) { this.module = module; }
+
+    /**
+     * Mark the index as stale.
+     */
+    void invalidate() {
+        this.xrefs = null;
+        this.indexed = null;
+    }
+
+    /**
+     * Record that a symbolic expression was inserted into a byte interval.
+     */
+    void add(ByteInterval byteInterval, long offset,
+             SymbolicExpression symbolicExpression) {
+        if (this.xrefs == null)
+            return;
+        UUID[] symbolUuids =
+            add(this.xrefs, byteInterval, offset, symbolicExpression);
+        if (symbolUuids != null)
+            this.indexed.put(new Xref(byteInterval, offset), symbolUuids);
+    }
+
+    /**
+     * Record that the symbolic expression at an offset of a byte interval
+     * was removed.
+     *
+     * The expression is not looked at, since its symbols may have changed
+     * since it was inserted.
+     */
+    void remove(ByteInterval byteInterval, long offset) {
+        if (this.xrefs == null)
+            return;
+        Xref xref = new Xref(byteInterval, offset);
+        UUID[] symbolUuids = this.indexed.remove(xref);
+        if (symbolUuids == null)
+            return;
+        for (UUID symbolUuid : symbolUuids)
+            this.remove(symbolUuid, xref);
+    }
+
+    private void remove(UUID symbolUuid, Xref xref) {
+        List<Xref> symbolXrefs = this.xrefs.get(symbolUuid);
+        if (symbolXrefs == null)
+            return;
+        symbolXrefs.remove(xref);
+        if (symbolXrefs.isEmpty())
+            this.xrefs.remove(symbolUuid);
+    }
+
+    /**
+     * Build the index now, if stale, rather than on the next query.
+     */
+    void prepare() {
+        if (this.xrefs != null)
+            return;
+        Map<UUID, List<Xref>> xrefs = this.build();
+        Map<Xref, UUID[]> indexed = new HashMap<Xref, UUID[]>();
+        for (Map.Entry<UUID, List<Xref>> entry : xrefs.entrySet()) {
+            UUID symbolUuid = entry.getKey();
+            for (Xref xref : entry.getValue()) {
+                UUID[] previous = indexed.get(xref);
+                if (previous == null)
+                    indexed.put(xref, new UUID[] {symbolUuid});
+                else
+                    indexed.put(xref, new UUID[] {previous[0], symbolUuid});
+            }
+        }
+        this.xrefs = xrefs;
+        this.indexed = indexed;
+    }
+
+    /**
+     * Retrieve the cross-references to a symbol.
+     *
+     * The list is a copy, so that callers can change the symbolic
+     * expressions it lists while iterating over it.
+     */
+    List<Xref> find(UUID symbolUuid) {
+        this.prepare();
+        List<Xref> symbolXrefs = this.xrefs.get(symbolUuid);
+        if (symbolXrefs == null)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(
+            new ArrayList<Xref>(symbolXrefs));
+    }
+
+    /**
+     * Collect the cross-references of every byte interval in the Module.
+     *
+     * Each worker indexes a run of byte intervals into its own map, and the
+     * maps are merged in order, so the lists come out in the order of the
+     * sections, byte intervals and offsets.
+     */
+    private Map<UUID, List<Xref>> build() {
+        List<ByteInterval> byteIntervals = new ArrayList<ByteInterval>();
+        this.module.forEachByteInterval(byteIntervals::add);
+        return byteIntervals.parallelStream().collect(
+            HashMap::new, XrefIndex::addAll, XrefIndex::merge);
+    }
+
+    private static void addAll(Map<UUID, List<Xref>> xrefs,
+                               ByteInterval byteInterval) {
+        Iterator<Map.Entry<Long, SymbolicExpression>> it =
+            byteInterval.symbolicExpressionIterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, SymbolicExpression> entry = it.next();
+            add(xrefs, byteInterval, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void merge(Map<UUID, List<Xref>> left,
+                              Map<UUID, List<Xref>> right) {
+        for (Map.Entry<UUID, List<Xref>> entry : right.entrySet()) {
+            List<Xref> symbolXrefs = left.get(entry.getKey());
+            if (symbolXrefs == null)
+                left.put(entry.getKey(), entry.getValue());
+            else
+                symbolXrefs.addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Add the location of a symbolic expression to the lists of the symbols
+     * it refers to.
+     *
+     * @return The UUIDs of those symbols, or null if it refers to none.
+     */
+    private static UUID[] add(Map<UUID, List<Xref>> xrefs,
+                              ByteInterval byteInterval, long offset,
+                              SymbolicExpression symbolicExpression) {
+        UUID first = firstSymbolUuid(symbolicExpression);
+        UUID second = secondSymbolUuid(symbolicExpression);
+        if (first == null && second == null)
+            return null;
+        Xref xref = new Xref(byteInterval, offset);
+        if (first != null)
+            xrefs.computeIfAbsent(first, k -> new ArrayList<Xref>()).add(xref);
+        if (second != null)
+            xrefs.computeIfAbsent(second, k -> new ArrayList<Xref>())
+                .add(xref);
+        if (first == null)
+            return new UUID[] {second};
+        if (second == null)
+            return new UUID[] {first};
+        return new UUID[] {first, second};
+    }
+
+    /**
+     * Get the symbol a symbolic expression refers to, or the first of two.
+     */
+    private static UUID firstSymbolUuid(SymbolicExpression symbolicExpression) {
+        if (symbolicExpression instanceof SymAddrConst)
+            return ((SymAddrConst)symbolicExpression).getSymbolUuid();
+        if (symbolicExpression instanceof SymAddrAddr)
+            return ((SymAddrAddr)symbolicExpression).getSymbol1Uuid();
+        return null;
+    }
+
+    /**
+     * Get the second symbol a symbolic expression refers to, if it is
+     * different from the first.
+     */
+    private static UUID
+    secondSymbolUuid(SymbolicExpression symbolicExpression) {
+        if (!(symbolicExpression instanceof SymAddrAddr))
+            return null;
+        SymAddrAddr symAddrAddr = (SymAddrAddr)symbolicExpression;
+        UUID second = symAddrAddr.getSymbol2Uuid();
+        if (second == null || second.equals(symAddrAddr.getSymbol1Uuid()))
+            return null;
+        return second;
+    }
+}
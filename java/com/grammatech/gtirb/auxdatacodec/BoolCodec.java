@@ -18,6 +18,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A Codec for bool.
@@ -35,7 +36,32 @@ public class BoolCodec implements Codec<Boolean> {
         return Boolean.valueOf(b[0] != 0);
     }
 
+    public Boolean decode(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 1) {
+            throw new EOFException(
+                "Insufficient bytes to read a Boolean from.");
+        }
+        return Boolean.valueOf(buf.get() != 0);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        if (in.skip(1) != 1) {
+            throw new EOFException("Insufficient bytes to skip a Boolean.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 1) {
+            throw new EOFException("Insufficient bytes to skip a Boolean.");
+        }
+        buf.position(buf.position() + 1);
+    }
+
     public void encode(OutputStream out, Boolean val) throws IOException {
         out.write((byte)(val ? 1 : 0));
     }
+
+    public void encode(ByteBuffer buf, Boolean val) throws IOException {
+        buf.put((byte)(val ? 1 : 0));
+    }
 }
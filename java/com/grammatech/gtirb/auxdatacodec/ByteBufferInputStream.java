@@ -0,0 +1,55 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb.auxdatacodec;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream that reads from a buffer, advancing its position.
+ */
+final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buf;
+
+    ByteBufferInputStream(ByteBuffer buf) { this.buf = buf; }
+
+    @Override
+    public int read() {
+        return this.buf.hasRemaining() ? this.buf.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0)
+            return 0;
+        if (!this.buf.hasRemaining())
+            return -1;
+        len = Math.min(len, this.buf.remaining());
+        this.buf.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int)Math.max(0, Math.min(n, this.buf.remaining()));
+        this.buf.position(this.buf.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return this.buf.remaining();
+    }
+}
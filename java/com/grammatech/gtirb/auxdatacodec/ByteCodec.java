@@ -4,6 +4,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class ByteCodec implements Codec<Byte> {
 
@@ -21,12 +22,37 @@ public class ByteCodec implements Codec<Byte> {
         return b[0];
     }
 
+    public Byte decode(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 1) {
+            throw new EOFException(
+                "Insufficient bytes to read a Byte from.");
+        }
+        return buf.get();
+    }
+
+    public void skip(InputStream in) throws IOException {
+        if (in.skip(1) != 1) {
+            throw new EOFException("Insufficient bytes to skip a Byte.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 1) {
+            throw new EOFException("Insufficient bytes to skip a Byte.");
+        }
+        buf.position(buf.position() + 1);
+    }
+
     public void encode(OutputStream out, Byte val) throws IOException {
         byte[] b = new byte[1];
         b[0] = val;
         out.write(b, 0, 1);
     }
 
+    public void encode(ByteBuffer buf, Byte val) throws IOException {
+        buf.put(val);
+    }
+
     public final static ByteCodec INT8 = new ByteCodec("int8_t");
     public final static ByteCodec UINT8 = new ByteCodec("uint8_t");
 }
@@ -14,12 +14,20 @@
 
 package com.grammatech.gtirb.auxdatacodec;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A codec is an object that knows how to encode and decode AuxData objects.
+ *
+ * Objects can be decoded from and encoded to streams or buffers. Buffers
+ * are read and written from their position, which is advanced past the
+ * object, and must be in little-endian byte order. The built-in codecs
+ * work on buffers directly, without allocating anything but the decoded
+ * objects; other codecs only need to implement the stream methods.
  */
 public interface Codec<T> {
 
@@ -38,6 +46,41 @@ public interface Codec<T> {
      */
     public T decode(InputStream in) throws IOException;
 
+    /**
+     * Decode a serialized instance from a buffer.
+     *
+     * By default, the buffer is read through {@link #decode(InputStream)}.
+     *
+     * @param buf The little-endian buffer the object is to be decoded from.
+     * @return The decoded object.
+     */
+    public default T decode(ByteBuffer buf) throws IOException {
+        return this.decode(new ByteBufferInputStream(buf));
+    }
+
+    /**
+     * Skip over a serialized instance without keeping it.
+     *
+     * By default, the instance is decoded and discarded. Codecs override
+     * this when they can skip without decoding.
+     *
+     * @param in The input stream the object is to be skipped in.
+     */
+    public default void skip(InputStream in) throws IOException {
+        this.decode(in);
+    }
+
+    /**
+     * Skip over a serialized instance in a buffer without keeping it.
+     *
+     * By default, the instance is decoded and discarded.
+     *
+     * @param buf The little-endian buffer the object is to be skipped in.
+     */
+    public default void skip(ByteBuffer buf) throws IOException {
+        this.decode(buf);
+    }
+
     /**
      * Encode an in-memory object into serialized form.
      *
@@ -45,4 +88,32 @@ public interface Codec<T> {
      * @param val The in-memory object to be serialized.
      */
     public void encode(OutputStream out, T val) throws IOException;
+
+    /**
+     * Get a view of a decoded object that cannot be modified.
+     *
+     * By default, the object itself is returned. Codecs of collections
+     * return an unmodifiable view of the collection.
+     *
+     * @param val The decoded object.
+     * @return An unmodifiable view of the object, or the object itself.
+     */
+    public default T unmodifiable(T val) { return val; }
+
+    /**
+     * Encode an in-memory object into a buffer.
+     *
+     * By default, the object is encoded with {@link #encode(OutputStream,
+     * Object)} and then copied into the buffer.
+     *
+     * @param buf The little-endian buffer to write the serialized object to.
+     * @param val The in-memory object to be serialized.
+     * @throws java.nio.BufferOverflowException If the buffer does not have
+     *     room for the serialized object.
+     */
+    public default void encode(ByteBuffer buf, T val) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.encode(out, val);
+        buf.put(out.toByteArray());
+    }
 }
@@ -35,6 +35,27 @@ public class FloatCodec implements Codec<Float> {
         return bb.getFloat();
     }
 
+    public Float decode(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 4) {
+            throw new EOFException(
+                "Insufficient bytes to read a Float from.");
+        }
+        return buf.getFloat();
+    }
+
+    public void skip(InputStream in) throws IOException {
+        if (in.skip(4) != 4) {
+            throw new EOFException("Insufficient bytes to skip a Float.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 4) {
+            throw new EOFException("Insufficient bytes to skip a Float.");
+        }
+        buf.position(buf.position() + 4);
+    }
+
     public void encode(OutputStream out, Float val) throws IOException {
         byte[] b = new byte[4];
         ByteBuffer bb = ByteBuffer.wrap(b);
@@ -42,4 +63,8 @@ public class FloatCodec implements Codec<Float> {
         bb.putFloat(val);
         out.write(b, 0, 4);
     }
+
+    public void encode(ByteBuffer buf, Float val) throws IOException {
+        buf.putFloat(val);
+    }
 }
@@ -40,6 +40,27 @@ public class IntegerCodec implements Codec<Integer> {
         return bb.getInt();
     }
 
+    public Integer decode(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 4) {
+            throw new EOFException(
+                "Insufficient bytes to read an Integer from.");
+        }
+        return buf.getInt();
+    }
+
+    public void skip(InputStream in) throws IOException {
+        if (in.skip(4) != 4) {
+            throw new EOFException("Insufficient bytes to skip an Integer.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 4) {
+            throw new EOFException("Insufficient bytes to skip an Integer.");
+        }
+        buf.position(buf.position() + 4);
+    }
+
     public void encode(OutputStream out, Integer val) throws IOException {
         byte[] b = new byte[4];
         ByteBuffer bb = ByteBuffer.wrap(b);
@@ -48,6 +69,10 @@ public class IntegerCodec implements Codec<Integer> {
         out.write(b, 0, 4);
     }
 
+    public void encode(ByteBuffer buf, Integer val) throws IOException {
+        buf.putInt(val);
+    }
+
     public final static IntegerCodec INT32 = new IntegerCodec("int32_t");
     public final static IntegerCodec UINT32 = new IntegerCodec("uint32_t");
 }
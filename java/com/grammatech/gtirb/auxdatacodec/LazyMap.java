@@ -0,0 +1,196 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb.auxdatacodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A read-only map that decodes its values from the serialized map on demand.
+ *
+ * Construction makes one pass over the serialized entries, decoding each key
+ * only to hash it and skipping each value. The index keeps the offset and
+ * key hash of every entry in int arrays, with an open-addressing table from
+ * hashes to entries. A lookup decodes the keys of the entries with a
+ * matching hash, and then the value of the matching entry.
+ *
+ * Serialized maps have unique keys. If a key appears more than once, the
+ * last entry wins, as when the map is decoded eagerly, but it is counted in
+ * {@link #size()} and iterated over each time.
+ */
+final class LazyMap<K, V> extends AbstractMap<K, V> {
+
+    private final Codec<K> kCodec;
+    private final Codec<V> vCodec;
+    private final ByteBuffer bytes;
+    // Offset of the key of each entry in bytes, and the hash of that key.
+    private final int[] offsets;
+    private final int[] hashes;
+    // Open-addressing table of entry indexes plus one. Zero marks a free
+    // slot.
+    private final int[] table;
+    private Set<Map.Entry<K, V>> entrySet;
+
+    LazyMap(Codec<K> kCodec, Codec<V> vCodec, ByteBuffer bytes)
+        throws IOException {
+        this.kCodec = kCodec;
+        this.vCodec = vCodec;
+        this.bytes = bytes.slice();
+
+        ByteBuffer in = this.entryBuffer(0);
+        long len = LongCodec.decodeStatic(in);
+        // Every entry takes at least one byte.
+        if (len < 0 || len > in.remaining())
+            throw new IOException("Invalid map size: " + len);
+        int size = (int)len;
+        this.offsets = new int[size];
+        this.hashes = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.offsets[i] = in.position();
+            this.hashes[i] = Objects.hashCode(this.kCodec.decode(in));
+            this.vCodec.skip(in);
+        }
+
+        // Keep the table at most half full.
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) * 2;
+        this.table = new int[capacity];
+        // Insert the last entries first, so that a lookup finds the last of
+        // any duplicated keys.
+        for (int i = size - 1; i >= 0; i--) {
+            int slot = this.firstSlot(this.hashes[i]);
+            while (this.table[slot] != 0)
+                slot = this.nextSlot(slot);
+            this.table[slot] = i + 1;
+        }
+    }
+
+    private int firstSlot(int hash) {
+        // Spread the high bits, which the mask would drop.
+        return (hash ^ (hash >>> 16)) & (this.table.length - 1);
+    }
+
+    private int nextSlot(int slot) {
+        return (slot + 1) & (this.table.length - 1);
+    }
+
+    /**
+     * Find the entry with a key, decoding candidate keys as needed.
+     *
+     * @return A buffer positioned at the value of the entry, or null if
+     * there is no such entry.
+     */
+    private ByteBuffer find(Object key) {
+        int hash = Objects.hashCode(key);
+        for (int slot = this.firstSlot(hash); this.table[slot] != 0;
+             slot = this.nextSlot(slot)) {
+            int entry = this.table[slot] - 1;
+            if (this.hashes[entry] != hash)
+                continue;
+            ByteBuffer in = this.entryBuffer(this.offsets[entry]);
+            try {
+                if (Objects.equals(this.kCodec.decode(in), key))
+                    return in;
+            } catch (IOException ie) {
+                throw new UncheckedIOException(ie);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get a little-endian buffer over the bytes, positioned at an offset.
+     */
+    private ByteBuffer entryBuffer(int offset) {
+        ByteBuffer in = this.bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        in.position(offset);
+        return in;
+    }
+
+    @Override
+    public int size() {
+        return this.offsets.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.find(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        ByteBuffer in = this.find(key);
+        if (in == null)
+            return null;
+        try {
+            return this.vCodec.decode(in);
+        } catch (IOException ie) {
+            throw new UncheckedIOException(ie);
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public int size() {
+                    return LazyMap.this.offsets.length;
+                }
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+        return this.entrySet;
+    }
+
+    /**
+     * Decodes the entries in their serialized order.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+            return this.next < LazyMap.this.offsets.length;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!this.hasNext())
+                throw new NoSuchElementException();
+            ByteBuffer in =
+                LazyMap.this.entryBuffer(LazyMap.this.offsets[this.next++]);
+            try {
+                K key = LazyMap.this.kCodec.decode(in);
+                V value = LazyMap.this.vCodec.decode(in);
+                return new AbstractMap.SimpleImmutableEntry<K, V>(key, value);
+            } catch (IOException ie) {
+                throw new UncheckedIOException(ie);
+            }
+        }
+    }
+}
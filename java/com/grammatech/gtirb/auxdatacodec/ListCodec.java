@@ -17,6 +17,8 @@ package com.grammatech.gtirb.auxdatacodec;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -42,10 +44,43 @@ public class ListCodec<T> implements Codec<List<T>> {
         return al;
     }
 
+    public List<T> decode(ByteBuffer buf) throws IOException {
+        List<T> al = this.sup.get();
+        long len = LongCodec.decodeStatic(buf);
+
+        for (int i = 0; i < len; i++)
+            al.add(this.tCodec.decode(buf));
+        return al;
+    }
+
+    public void skip(InputStream in) throws IOException {
+        long len = LongCodec.decodeStatic(in);
+        for (int i = 0; i < len; i++)
+            this.tCodec.skip(in);
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        long len = LongCodec.decodeStatic(buf);
+        for (int i = 0; i < len; i++)
+            this.tCodec.skip(buf);
+    }
+
     public void encode(OutputStream out, List<T> al) throws IOException {
         LongCodec.encodeStatic(out, (long)al.size());
         for (T item : al) {
             this.tCodec.encode(out, item);
         }
     }
+
+    public void encode(ByteBuffer buf, List<T> al) throws IOException {
+        LongCodec.encodeStatic(buf, (long)al.size());
+        for (T item : al) {
+            this.tCodec.encode(buf, item);
+        }
+    }
+
+    @Override
+    public List<T> unmodifiable(List<T> val) {
+        return Collections.unmodifiableList(val);
+    }
 }
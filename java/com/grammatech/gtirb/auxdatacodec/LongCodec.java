@@ -19,7 +19,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 public class LongCodec implements Codec<Long> {
 
@@ -30,32 +29,61 @@ public class LongCodec implements Codec<Long> {
     public String getTypeName() { return this.typeName; }
 
     public static long decodeStatic(InputStream in) throws IOException {
-        byte[] b = new byte[8];
-        if (in.read(b, 0, 8) != 8) {
+        long val = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException(
+                    "Insufficient bytes to read a Long from.");
+            }
+            val |= (long)b << (8 * i);
+        }
+        return val;
+    }
+
+    public static long decodeStatic(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 8) {
             throw new EOFException("Insufficient bytes to read a Long from.");
         }
-        ByteBuffer bb = ByteBuffer.wrap(b);
-        bb.order(ByteOrder.LITTLE_ENDIAN);
-        return bb.getLong();
+        return buf.getLong();
     }
 
     public Long decode(InputStream in) throws IOException {
-        return new Long(decodeStatic(in));
+        return Long.valueOf(decodeStatic(in));
+    }
+
+    public Long decode(ByteBuffer buf) throws IOException {
+        return Long.valueOf(decodeStatic(buf));
+    }
+
+    public void skip(InputStream in) throws IOException {
+        if (in.skip(8) != 8) {
+            throw new EOFException("Insufficient bytes to skip a Long.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        decodeStatic(buf);
     }
 
     public static void encodeStatic(OutputStream out, long val)
         throws IOException {
-        byte[] b = new byte[8];
-        ByteBuffer bb = ByteBuffer.wrap(b);
-        bb.order(ByteOrder.LITTLE_ENDIAN);
-        bb.putLong(val);
-        out.write(b, 0, 8);
+        for (int i = 0; i < 8; i++)
+            out.write((int)(val >>> (8 * i)));
+    }
+
+    public static void encodeStatic(ByteBuffer buf, long val) {
+        buf.putLong(val);
     }
 
     public void encode(OutputStream out, Long val) throws IOException {
         encodeStatic(out, val);
     }
 
+    public void encode(ByteBuffer buf, Long val) throws IOException {
+        encodeStatic(buf, val);
+    }
+
     public final static LongCodec INT64 = new LongCodec("int64_t");
     public final static LongCodec UINT64 = new LongCodec("uint64_t");
 }
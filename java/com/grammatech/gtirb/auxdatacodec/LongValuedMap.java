@@ -0,0 +1,349 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb.auxdatacodec;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A hash map with long values and keys made of up to three longs.
+ *
+ * Keys and values are kept unboxed in arrays, with linear probing over an
+ * open-addressing table, so an entry costs a few longs instead of a map
+ * node, a boxed value and a key object. Key objects are only created when
+ * the map is iterated over. Subclasses convert keys to and from their
+ * longs.
+ *
+ * Null keys and values are not permitted.
+ */
+abstract class LongValuedMap<K> extends AbstractMap<K, Long> {
+
+    private static final byte FREE = 0;
+    private static final byte FULL = 1;
+    private static final byte REMOVED = 2;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int width;
+    // The key of the entry in slot s is in keys[s * width] onwards.
+    private long[] keys;
+    private long[] values;
+    private byte[] states;
+    private int size;
+    // Slots that are full or removed. At least one slot is always free, so
+    // that probing ends.
+    private int used;
+    private int modCount;
+    private Set<Map.Entry<K, Long>> entrySet;
+
+    LongValuedMap(int width, int expectedSize) {
+        this.width = width;
+        this.allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Find the slot of a key object, as {@link #find} does.
+     *
+     * @return The slot, or -1 if the key is not in the map or is not of the
+     * key type.
+     */
+    abstract int findKey(Object key);
+
+    /**
+     * Find or add the slot of a key, as {@link #insert} does.
+     */
+    abstract int insertKey(K key);
+
+    /**
+     * Create the key of a full slot.
+     */
+    abstract K readKey(int slot);
+
+    /**
+     * Get the smallest table capacity that holds a number of entries.
+     */
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // Keep the table at most two thirds full.
+        while (capacity < (1 << 30) && capacity * 2L < expectedSize * 3L)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity * this.width];
+        this.values = new long[capacity];
+        this.states = new byte[capacity];
+        this.used = 0;
+    }
+
+    private static int hash(long w0, long w1, long w2) {
+        long h = w0 * 0x9E3779B97F4A7C15L;
+        h = (h ^ w1) * 0x9E3779B97F4A7C15L;
+        h = (h ^ w2) * 0x9E3779B97F4A7C15L;
+        return (int)(h >>> 32);
+    }
+
+    private boolean matches(int slot, long w0, long w1, long w2) {
+        int i = slot * this.width;
+        return this.keys[i] == w0 &&
+            (this.width < 2 || this.keys[i + 1] == w1) &&
+            (this.width < 3 || this.keys[i + 2] == w2);
+    }
+
+    /**
+     * Find the slot of a key. Unused trailing words must be zero.
+     *
+     * @return The slot, or -1 if the key is not in the map.
+     */
+    final int find(long w0, long w1, long w2) {
+        int mask = this.states.length - 1;
+        for (int slot = hash(w0, w1, w2) & mask;; slot = (slot + 1) & mask) {
+            byte state = this.states[slot];
+            if (state == FREE)
+                return -1;
+            if (state == FULL && this.matches(slot, w0, w1, w2))
+                return slot;
+        }
+    }
+
+    /**
+     * Find the slot of a key, adding the key if it is not in the map.
+     *
+     * @return The slot if the key was in the map, or -(slot + 1) if it was
+     * added, in which case its value is zero.
+     */
+    final int insert(long w0, long w1, long w2) {
+        int slot = this.find(w0, w1, w2);
+        if (slot >= 0)
+            return slot;
+        if ((this.used + 1) * 3L > this.states.length * 2L) {
+            // Grow, or just drop removed slots if there are enough of them.
+            this.rehash(Math.max(capacityFor(this.size + 1),
+                                 capacityFor(this.size * 2)));
+        }
+        int mask = this.states.length - 1;
+        slot = hash(w0, w1, w2) & mask;
+        while (this.states[slot] == FULL)
+            slot = (slot + 1) & mask;
+        if (this.states[slot] == FREE)
+            this.used++;
+        this.states[slot] = FULL;
+        int i = slot * this.width;
+        this.keys[i] = w0;
+        if (this.width > 1)
+            this.keys[i + 1] = w1;
+        if (this.width > 2)
+            this.keys[i + 2] = w2;
+        this.values[slot] = 0;
+        this.size++;
+        this.modCount++;
+        return -(slot + 1);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        long[] oldValues = this.values;
+        byte[] oldStates = this.states;
+        this.allocate(capacity);
+        int mask = capacity - 1;
+        for (int old = 0; old < oldStates.length; old++) {
+            if (oldStates[old] != FULL)
+                continue;
+            int o = old * this.width;
+            long w0 = oldKeys[o];
+            long w1 = this.width > 1 ? oldKeys[o + 1] : 0;
+            long w2 = this.width > 2 ? oldKeys[o + 2] : 0;
+            int slot = hash(w0, w1, w2) & mask;
+            while (this.states[slot] != FREE)
+                slot = (slot + 1) & mask;
+            this.states[slot] = FULL;
+            System.arraycopy(oldKeys, o, this.keys, slot * this.width,
+                             this.width);
+            this.values[slot] = oldValues[old];
+            this.used++;
+        }
+    }
+
+    private void removeSlot(int slot) {
+        this.states[slot] = REMOVED;
+        this.size--;
+        this.modCount++;
+    }
+
+    /**
+     * Get the number of slots in the table.
+     */
+    final int capacity() { return this.states.length; }
+
+    /**
+     * Get whether a slot holds an entry.
+     */
+    final boolean isFull(int slot) { return this.states[slot] == FULL; }
+
+    /**
+     * Get a long of the key in a slot.
+     */
+    final long keyWord(int slot, int word) {
+        return this.keys[slot * this.width + word];
+    }
+
+    /**
+     * Get the value in a slot.
+     */
+    final long valueAt(int slot) { return this.values[slot]; }
+
+    /**
+     * Set the value in a slot.
+     */
+    final void setValueAt(int slot, long value) { this.values[slot] = value; }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.findKey(key) >= 0;
+    }
+
+    @Override
+    public Long get(Object key) {
+        int slot = this.findKey(key);
+        return slot < 0 ? null : Long.valueOf(this.values[slot]);
+    }
+
+    @Override
+    public Long put(K key, Long value) {
+        Objects.requireNonNull(value);
+        int slot = this.insertKey(key);
+        if (slot < 0) {
+            this.values[-(slot + 1)] = value;
+            return null;
+        }
+        Long old = this.values[slot];
+        this.values[slot] = value;
+        return old;
+    }
+
+    @Override
+    public Long remove(Object key) {
+        int slot = this.findKey(key);
+        if (slot < 0)
+            return null;
+        Long old = this.values[slot];
+        this.removeSlot(slot);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.states, FREE);
+        this.size = 0;
+        this.used = 0;
+        this.modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<K, Long>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new AbstractSet<Map.Entry<K, Long>>() {
+                @Override
+                public int size() {
+                    return LongValuedMap.this.size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry))
+                        return false;
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>)o;
+                    int slot = LongValuedMap.this.findKey(entry.getKey());
+                    return slot >= 0 &&
+                        Long.valueOf(LongValuedMap.this.values[slot])
+                            .equals(entry.getValue());
+                }
+
+                @Override
+                public void clear() {
+                    LongValuedMap.this.clear();
+                }
+
+                @Override
+                public Iterator<Map.Entry<K, Long>> iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+        return this.entrySet;
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<K, Long>> {
+        private int next = this.advance(0);
+        private int last = -1;
+        private int expectedModCount = LongValuedMap.this.modCount;
+
+        private int advance(int slot) {
+            while (slot < LongValuedMap.this.states.length &&
+                   LongValuedMap.this.states[slot] != FULL)
+                slot++;
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next < LongValuedMap.this.states.length;
+        }
+
+        @Override
+        public Map.Entry<K, Long> next() {
+            if (LongValuedMap.this.modCount != this.expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!this.hasNext())
+                throw new NoSuchElementException();
+            int slot = this.next;
+            this.last = slot;
+            this.next = this.advance(slot + 1);
+            return new AbstractMap.SimpleEntry<K, Long>(
+                LongValuedMap.this.readKey(slot),
+                LongValuedMap.this.values[slot]) {
+                @Override
+                public Long setValue(Long value) {
+                    LongValuedMap.this.values[slot] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (this.last < 0)
+                throw new IllegalStateException();
+            if (LongValuedMap.this.modCount != this.expectedModCount)
+                throw new ConcurrentModificationException();
+            // Removed slots stay in place, so no entry moves.
+            LongValuedMap.this.removeSlot(this.last);
+            this.last = -1;
+            this.expectedModCount = LongValuedMap.this.modCount;
+        }
+    }
+}
@@ -17,6 +17,8 @@ package com.grammatech.gtirb.auxdatacodec;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -51,6 +53,53 @@ public class MapCodec<K, V> implements Codec<Map<K, V>> {
         return map;
     }
 
+    public Map<K, V> decode(ByteBuffer buf) throws IOException {
+        Map<K, V> map = this.sup.get();
+
+        // Size of the map.
+        long len = LongCodec.decodeStatic(buf);
+
+        // All the entries.
+        for (int i = 0; i < len; i++) {
+            K key = this.kCodec.decode(buf);
+            V val = this.vCodec.decode(buf);
+            map.put(key, val);
+        }
+        return map;
+    }
+
+    /**
+     * Decode a serialized map lazily.
+     *
+     * The returned map is a read-only view of the serialized bytes. Only
+     * the keys are decoded up front, to index the entries, and each value
+     * is decoded when it is looked up. The bytes must not be modified while
+     * the view is in use.
+     *
+     * @param bytes The serialized map, from the buffer's position to its
+     *     limit. The buffer's position is not changed.
+     * @return A read-only view of the map.
+     */
+    public Map<K, V> decodeLazily(ByteBuffer bytes) throws IOException {
+        return new LazyMap<K, V>(this.kCodec, this.vCodec, bytes);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        long len = LongCodec.decodeStatic(in);
+        for (int i = 0; i < len; i++) {
+            this.kCodec.skip(in);
+            this.vCodec.skip(in);
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        long len = LongCodec.decodeStatic(buf);
+        for (int i = 0; i < len; i++) {
+            this.kCodec.skip(buf);
+            this.vCodec.skip(buf);
+        }
+    }
+
     public void encode(OutputStream out, Map<K, V> map) throws IOException {
         // Size of the map.
         LongCodec.encodeStatic(out, (long)map.size());
@@ -61,4 +110,20 @@ public class MapCodec<K, V> implements Codec<Map<K, V>> {
             this.vCodec.encode(out, entry.getValue());
         }
     }
+
+    public void encode(ByteBuffer buf, Map<K, V> map) throws IOException {
+        // Size of the map.
+        LongCodec.encodeStatic(buf, (long)map.size());
+
+        // All the entries.
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            this.kCodec.encode(buf, entry.getKey());
+            this.vCodec.encode(buf, entry.getValue());
+        }
+    }
+
+    @Override
+    public Map<K, V> unmodifiable(Map<K, V> val) {
+        return Collections.unmodifiableMap(val);
+    }
 }
@@ -15,9 +15,11 @@
 package com.grammatech.gtirb.auxdatacodec;
 
 import com.grammatech.gtirb.Offset;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 
 public class OffsetCodec implements Codec<Offset> {
@@ -30,8 +32,32 @@ public class OffsetCodec implements Codec<Offset> {
         return new Offset(uuid, disp);
     }
 
+    public Offset decode(ByteBuffer buf) throws IOException {
+        UUID uuid = UuidCodec.decodeStatic(buf);
+        long disp = LongCodec.decodeStatic(buf);
+        return new Offset(uuid, disp);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        if (in.skip(24) != 24) {
+            throw new EOFException("Insufficient bytes to skip an Offset.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 24) {
+            throw new EOFException("Insufficient bytes to skip an Offset.");
+        }
+        buf.position(buf.position() + 24);
+    }
+
     public void encode(OutputStream out, Offset val) throws IOException {
         UuidCodec.encodeStatic(out, val.getElementId());
         LongCodec.encodeStatic(out, val.getDisplacement());
     }
+
+    public void encode(ByteBuffer buf, Offset val) throws IOException {
+        UuidCodec.encodeStatic(buf, val.getElementId());
+        LongCodec.encodeStatic(buf, val.getDisplacement());
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb.auxdatacodec;
+
+import com.grammatech.gtirb.Offset;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A map from Offsets to longs that keeps its keys and values unboxed.
+ *
+ * Each {@link Offset} is kept as the two longs of its element UUID and its
+ * displacement, so a large table, such as the padding or the symbolic
+ * expression sizes of a binary, takes a fraction of the memory of a
+ * HashMap. The primitive methods look entries up without creating Offset,
+ * UUID or Long objects. Null keys and values are not permitted.
+ */
+public final class OffsetLongMap extends LongValuedMap<Offset> {
+
+    /**
+     * Create an empty map.
+     */
+    public OffsetLongMap() { this(0); }
+
+    /**
+     * Create an empty map with room for a number of entries.
+     *
+     * @param expectedSize The number of entries to make room for.
+     */
+    public OffsetLongMap(int expectedSize) { super(3, expectedSize); }
+
+    /**
+     * Create a map with the entries of another map.
+     *
+     * @param map The map to copy.
+     */
+    public OffsetLongMap(Map<Offset, Long> map) {
+        this(map.size());
+        this.putAll(map);
+    }
+
+    @Override
+    int findKey(Object key) {
+        if (!(key instanceof Offset))
+            return -1;
+        Offset offset = (Offset)key;
+        UUID elementId = offset.getElementId();
+        return this.find(elementId.getMostSignificantBits(),
+                         elementId.getLeastSignificantBits(),
+                         offset.getDisplacement());
+    }
+
+    @Override
+    int insertKey(Offset key) {
+        UUID elementId = key.getElementId();
+        return this.insert(elementId.getMostSignificantBits(),
+                           elementId.getLeastSignificantBits(),
+                           key.getDisplacement());
+    }
+
+    @Override
+    Offset readKey(int slot) {
+        return new Offset(
+            new UUID(this.keyWord(slot, 0), this.keyWord(slot, 1)),
+            this.keyWord(slot, 2));
+    }
+
+    /**
+     * Get whether the map contains an offset, without creating it.
+     *
+     * @param elementId    The UUID of the block of the offset.
+     * @param displacement The displacement of the offset.
+     * @return Whether the offset is in the map.
+     */
+    public boolean containsKey(UUID elementId, long displacement) {
+        return this.find(elementId.getMostSignificantBits(),
+                         elementId.getLeastSignificantBits(),
+                         displacement) >= 0;
+    }
+
+    /**
+     * Get the value of an offset without boxing it.
+     *
+     * @param key          The offset.
+     * @param defaultValue The value to return if the offset is not in the
+     *     map.
+     * @return The value of the offset, or the default value.
+     */
+    public long getLong(Offset key, long defaultValue) {
+        return this.getLong(key.getElementId(), key.getDisplacement(),
+                            defaultValue);
+    }
+
+    /**
+     * Get the value of an offset without creating it or boxing the value.
+     *
+     * @param elementId    The UUID of the block of the offset.
+     * @param displacement The displacement of the offset.
+     * @param defaultValue The value to return if the offset is not in the
+     *     map.
+     * @return The value of the offset, or the default value.
+     */
+    public long getLong(UUID elementId, long displacement, long defaultValue) {
+        int slot = this.find(elementId.getMostSignificantBits(),
+                             elementId.getLeastSignificantBits(), displacement);
+        return slot < 0 ? defaultValue : this.valueAt(slot);
+    }
+
+    /**
+     * Set the value of an offset without boxing it.
+     *
+     * @param key   The offset.
+     * @param value The value.
+     */
+    public void putLong(Offset key, long value) {
+        this.putLong(key.getElementId(), key.getDisplacement(), value);
+    }
+
+    /**
+     * Set the value of an offset without creating it or boxing the value.
+     *
+     * @param elementId    The UUID of the block of the offset.
+     * @param displacement The displacement of the offset.
+     * @param value        The value.
+     */
+    public void putLong(UUID elementId, long displacement, long value) {
+        this.putRaw(elementId.getMostSignificantBits(),
+                    elementId.getLeastSignificantBits(), displacement, value);
+    }
+
+    /**
+     * Set the value of an offset given as its three longs.
+     */
+    void putRaw(long mostSigBits, long leastSigBits, long displacement,
+                long value) {
+        int slot = this.insert(mostSigBits, leastSigBits, displacement);
+        this.setValueAt(slot < 0 ? -(slot + 1) : slot, value);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb.auxdatacodec;
+
+import com.grammatech.gtirb.Offset;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * A Codec for maps from Offsets to longs that decodes into an {@link
+ * OffsetLongMap}.
+ *
+ * The serialized form is that of a {@link MapCodec} with the same key and
+ * value codecs. Entries are decoded and encoded without creating Offset,
+ * UUID or Long objects.
+ */
+public class OffsetLongMapCodec extends MapCodec<Offset, Long> {
+
+    // An Offset and a long.
+    private static final int ENTRY_SIZE = 32;
+
+    /**
+     * Create a codec.
+     *
+     * @param vc The codec for the values, which gives their type name.
+     */
+    public OffsetLongMapCodec(LongCodec vc) {
+        super(new OffsetCodec(), vc, OffsetLongMap::new);
+    }
+
+    public OffsetLongMap decode(InputStream in) throws IOException {
+        long len = LongCodec.decodeStatic(in);
+        OffsetLongMap map = new OffsetLongMap(
+            (int)Math.min(len, in.available() / ENTRY_SIZE));
+        for (long i = 0; i < len; i++) {
+            long mostSigBits = LongCodec.decodeStatic(in);
+            long leastSigBits = LongCodec.decodeStatic(in);
+            long displacement = LongCodec.decodeStatic(in);
+            map.putRaw(mostSigBits, leastSigBits, displacement,
+                       LongCodec.decodeStatic(in));
+        }
+        return map;
+    }
+
+    public OffsetLongMap decode(ByteBuffer buf) throws IOException {
+        long len = LongCodec.decodeStatic(buf);
+        OffsetLongMap map = new OffsetLongMap(
+            (int)Math.min(len, buf.remaining() / ENTRY_SIZE));
+        for (long i = 0; i < len; i++) {
+            long mostSigBits = LongCodec.decodeStatic(buf);
+            long leastSigBits = LongCodec.decodeStatic(buf);
+            long displacement = LongCodec.decodeStatic(buf);
+            map.putRaw(mostSigBits, leastSigBits, displacement,
+                       LongCodec.decodeStatic(buf));
+        }
+        return map;
+    }
+
+    public void encode(OutputStream out, Map<Offset, Long> map)
+        throws IOException {
+        if (!(map instanceof OffsetLongMap)) {
+            super.encode(out, map);
+            return;
+        }
+        OffsetLongMap offsetMap = (OffsetLongMap)map;
+        LongCodec.encodeStatic(out, (long)offsetMap.size());
+        for (int slot = 0; slot < offsetMap.capacity(); slot++) {
+            if (!offsetMap.isFull(slot))
+                continue;
+            LongCodec.encodeStatic(out, offsetMap.keyWord(slot, 0));
+            LongCodec.encodeStatic(out, offsetMap.keyWord(slot, 1));
+            LongCodec.encodeStatic(out, offsetMap.keyWord(slot, 2));
+            LongCodec.encodeStatic(out, offsetMap.valueAt(slot));
+        }
+    }
+
+    public void encode(ByteBuffer buf, Map<Offset, Long> map)
+        throws IOException {
+        if (!(map instanceof OffsetLongMap)) {
+            super.encode(buf, map);
+            return;
+        }
+        OffsetLongMap offsetMap = (OffsetLongMap)map;
+        LongCodec.encodeStatic(buf, (long)offsetMap.size());
+        for (int slot = 0; slot < offsetMap.capacity(); slot++) {
+            if (!offsetMap.isFull(slot))
+                continue;
+            LongCodec.encodeStatic(buf, offsetMap.keyWord(slot, 0));
+            LongCodec.encodeStatic(buf, offsetMap.keyWord(slot, 1));
+            LongCodec.encodeStatic(buf, offsetMap.keyWord(slot, 2));
+            LongCodec.encodeStatic(buf, offsetMap.valueAt(slot));
+        }
+    }
+}
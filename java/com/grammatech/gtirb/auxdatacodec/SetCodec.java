@@ -17,6 +17,8 @@ package com.grammatech.gtirb.auxdatacodec;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -47,6 +49,32 @@ public class SetCodec<T> implements Codec<Set<T>> {
         return set;
     }
 
+    public Set<T> decode(ByteBuffer buf) throws IOException {
+        Set<T> set = this.sup.get();
+
+        // Size of the set.
+        long len = LongCodec.decodeStatic(buf);
+
+        // All the entries.
+        for (int i = 0; i < len; i++) {
+            T item = this.tCodec.decode(buf);
+            set.add(item);
+        }
+        return set;
+    }
+
+    public void skip(InputStream in) throws IOException {
+        long len = LongCodec.decodeStatic(in);
+        for (int i = 0; i < len; i++)
+            this.tCodec.skip(in);
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        long len = LongCodec.decodeStatic(buf);
+        for (int i = 0; i < len; i++)
+            this.tCodec.skip(buf);
+    }
+
     public void encode(OutputStream out, Set<T> set) throws IOException {
         // Size of the set.
         LongCodec.encodeStatic(out, (long)set.size());
@@ -55,4 +83,18 @@ public class SetCodec<T> implements Codec<Set<T>> {
             this.tCodec.encode(out, item);
         }
     }
+
+    public void encode(ByteBuffer buf, Set<T> set) throws IOException {
+        // Size of the set.
+        LongCodec.encodeStatic(buf, (long)set.size());
+
+        for (T item : set) {
+            this.tCodec.encode(buf, item);
+        }
+    }
+
+    @Override
+    public Set<T> unmodifiable(Set<T> val) {
+        return Collections.unmodifiableSet(val);
+    }
 }
@@ -25,6 +25,27 @@ public class ShortCodec implements Codec<Short> {
         return bb.getShort();
     }
 
+    public Short decode(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 2) {
+            throw new EOFException(
+                "Insufficient bytes to read a Short from.");
+        }
+        return buf.getShort();
+    }
+
+    public void skip(InputStream in) throws IOException {
+        if (in.skip(2) != 2) {
+            throw new EOFException("Insufficient bytes to skip a Short.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 2) {
+            throw new EOFException("Insufficient bytes to skip a Short.");
+        }
+        buf.position(buf.position() + 2);
+    }
+
     public void encode(OutputStream out, Short val) throws IOException {
         byte[] b = new byte[2];
         ByteBuffer bb = ByteBuffer.wrap(b);
@@ -33,6 +54,10 @@ public class ShortCodec implements Codec<Short> {
         out.write(b, 0, 2);
     }
 
+    public void encode(ByteBuffer buf, Short val) throws IOException {
+        buf.putShort(val);
+    }
+
     public final static ShortCodec INT16 = new ShortCodec("int16_t");
     public final static ShortCodec UINT16 = new ShortCodec("uint16_t");
 }
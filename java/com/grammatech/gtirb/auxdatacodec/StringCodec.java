@@ -18,6 +18,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -41,9 +42,51 @@ public class StringCodec implements Codec<String> {
         return new String(strBytes, StandardCharsets.UTF_8);
     }
 
+    public String decode(ByteBuffer buf) throws IOException {
+        int length = (int)LongCodec.decodeStatic(buf);
+        if (length < 0 || length > buf.remaining()) {
+            throw new EOFException(
+                "Insufficient bytes to read expected String length.");
+        }
+        String val;
+        if (buf.hasArray()) {
+            val = new String(buf.array(), buf.arrayOffset() + buf.position(),
+                             length, StandardCharsets.UTF_8);
+        } else {
+            byte[] strBytes = new byte[length];
+            buf.duplicate().get(strBytes);
+            val = new String(strBytes, StandardCharsets.UTF_8);
+        }
+        buf.position(buf.position() + length);
+        return val;
+    }
+
+    public void skip(InputStream in) throws IOException {
+        long length = LongCodec.decodeStatic(in);
+        if (in.skip(length) != length) {
+            throw new EOFException(
+                "Insufficient bytes to skip expected String length.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        long length = LongCodec.decodeStatic(buf);
+        if (length < 0 || length > buf.remaining()) {
+            throw new EOFException(
+                "Insufficient bytes to skip expected String length.");
+        }
+        buf.position(buf.position() + (int)length);
+    }
+
     public void encode(OutputStream out, String val) throws IOException {
         byte[] strBytes = val.getBytes(StandardCharsets.UTF_8);
         LongCodec.encodeStatic(out, (long)strBytes.length);
         out.write(strBytes, 0, strBytes.length);
     }
+
+    public void encode(ByteBuffer buf, String val) throws IOException {
+        byte[] strBytes = val.getBytes(StandardCharsets.UTF_8);
+        LongCodec.encodeStatic(buf, (long)strBytes.length);
+        buf.put(strBytes);
+    }
 }
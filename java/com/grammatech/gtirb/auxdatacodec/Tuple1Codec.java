@@ -4,6 +4,7 @@ import com.grammatech.gtirb.tuple.Tuple1;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class Tuple1Codec<T extends Tuple1<A>, A> implements Codec<T> {
     private Codec<A> aCodec;
@@ -26,7 +27,24 @@ public class Tuple1Codec<T extends Tuple1<A>, A> implements Codec<T> {
         return this.maker.make(a);
     }
 
+    public T decode(ByteBuffer buf) throws IOException {
+        A a = this.aCodec.decode(buf);
+        return this.maker.make(a);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        this.aCodec.skip(in);
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        this.aCodec.skip(buf);
+    }
+
     public void encode(OutputStream out, T val) throws IOException {
         this.aCodec.encode(out, val.get0());
     }
+
+    public void encode(ByteBuffer buf, T val) throws IOException {
+        this.aCodec.encode(buf, val.get0());
+    }
 }
@@ -18,6 +18,7 @@ import com.grammatech.gtirb.tuple.Tuple2;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class Tuple2Codec<T extends Tuple2<A, B>, A, B> implements Codec<T> {
     private Codec<A> aCodec;
@@ -44,8 +45,29 @@ public class Tuple2Codec<T extends Tuple2<A, B>, A, B> implements Codec<T> {
         return this.maker.make(a, b);
     }
 
+    public T decode(ByteBuffer buf) throws IOException {
+        A a = this.aCodec.decode(buf);
+        B b = this.bCodec.decode(buf);
+        return this.maker.make(a, b);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        this.aCodec.skip(in);
+        this.bCodec.skip(in);
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        this.aCodec.skip(buf);
+        this.bCodec.skip(buf);
+    }
+
     public void encode(OutputStream out, T val) throws IOException {
         this.aCodec.encode(out, val.get0());
         this.bCodec.encode(out, val.get1());
     }
+
+    public void encode(ByteBuffer buf, T val) throws IOException {
+        this.aCodec.encode(buf, val.get0());
+        this.bCodec.encode(buf, val.get1());
+    }
 }
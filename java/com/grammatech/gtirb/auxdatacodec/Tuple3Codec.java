@@ -18,6 +18,7 @@ import com.grammatech.gtirb.tuple.Tuple3;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class Tuple3Codec<T extends Tuple3<A, B, C>, A, B, C>
     implements Codec<T> {
@@ -49,9 +50,34 @@ public class Tuple3Codec<T extends Tuple3<A, B, C>, A, B, C>
         return this.maker.make(a, b, c);
     }
 
+    public T decode(ByteBuffer buf) throws IOException {
+        A a = this.aCodec.decode(buf);
+        B b = this.bCodec.decode(buf);
+        C c = this.cCodec.decode(buf);
+        return this.maker.make(a, b, c);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        this.aCodec.skip(in);
+        this.bCodec.skip(in);
+        this.cCodec.skip(in);
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        this.aCodec.skip(buf);
+        this.bCodec.skip(buf);
+        this.cCodec.skip(buf);
+    }
+
     public void encode(OutputStream out, T val) throws IOException {
         this.aCodec.encode(out, val.get0());
         this.bCodec.encode(out, val.get1());
         this.cCodec.encode(out, val.get2());
     }
+
+    public void encode(ByteBuffer buf, T val) throws IOException {
+        this.aCodec.encode(buf, val.get0());
+        this.bCodec.encode(buf, val.get1());
+        this.cCodec.encode(buf, val.get2());
+    }
 }
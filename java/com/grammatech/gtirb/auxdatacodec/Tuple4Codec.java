@@ -18,6 +18,7 @@ import com.grammatech.gtirb.tuple.Tuple4;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class Tuple4Codec<T extends Tuple4<A, B, C, D>, A, B, C, D>
     implements Codec<T> {
@@ -54,10 +55,39 @@ public class Tuple4Codec<T extends Tuple4<A, B, C, D>, A, B, C, D>
         return this.maker.make(a, b, c, d);
     }
 
+    public T decode(ByteBuffer buf) throws IOException {
+        A a = this.aCodec.decode(buf);
+        B b = this.bCodec.decode(buf);
+        C c = this.cCodec.decode(buf);
+        D d = this.dCodec.decode(buf);
+        return this.maker.make(a, b, c, d);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        this.aCodec.skip(in);
+        this.bCodec.skip(in);
+        this.cCodec.skip(in);
+        this.dCodec.skip(in);
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        this.aCodec.skip(buf);
+        this.bCodec.skip(buf);
+        this.cCodec.skip(buf);
+        this.dCodec.skip(buf);
+    }
+
     public void encode(OutputStream out, T val) throws IOException {
         this.aCodec.encode(out, val.get0());
         this.bCodec.encode(out, val.get1());
         this.cCodec.encode(out, val.get2());
         this.dCodec.encode(out, val.get3());
     }
+
+    public void encode(ByteBuffer buf, T val) throws IOException {
+        this.aCodec.encode(buf, val.get0());
+        this.bCodec.encode(buf, val.get1());
+        this.cCodec.encode(buf, val.get2());
+        this.dCodec.encode(buf, val.get3());
+    }
 }
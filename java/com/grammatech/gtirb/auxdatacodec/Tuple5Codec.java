@@ -18,6 +18,7 @@ import com.grammatech.gtirb.tuple.Tuple5;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class Tuple5Codec<T extends Tuple5<A, B, C, D, E>, A, B, C, D, E>
     implements Codec<T> {
@@ -58,6 +59,31 @@ public class Tuple5Codec<T extends Tuple5<A, B, C, D, E>, A, B, C, D, E>
         return this.maker.make(a, b, c, d, e);
     }
 
+    public T decode(ByteBuffer buf) throws IOException {
+        A a = this.aCodec.decode(buf);
+        B b = this.bCodec.decode(buf);
+        C c = this.cCodec.decode(buf);
+        D d = this.dCodec.decode(buf);
+        E e = this.eCodec.decode(buf);
+        return this.maker.make(a, b, c, d, e);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        this.aCodec.skip(in);
+        this.bCodec.skip(in);
+        this.cCodec.skip(in);
+        this.dCodec.skip(in);
+        this.eCodec.skip(in);
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        this.aCodec.skip(buf);
+        this.bCodec.skip(buf);
+        this.cCodec.skip(buf);
+        this.dCodec.skip(buf);
+        this.eCodec.skip(buf);
+    }
+
     public void encode(OutputStream out, T val) throws IOException {
         this.aCodec.encode(out, val.get0());
         this.bCodec.encode(out, val.get1());
@@ -65,4 +91,12 @@ public class Tuple5Codec<T extends Tuple5<A, B, C, D, E>, A, B, C, D, E>
         this.dCodec.encode(out, val.get3());
         this.eCodec.encode(out, val.get4());
     }
+
+    public void encode(ByteBuffer buf, T val) throws IOException {
+        this.aCodec.encode(buf, val.get0());
+        this.bCodec.encode(buf, val.get1());
+        this.cCodec.encode(buf, val.get2());
+        this.dCodec.encode(buf, val.get3());
+        this.eCodec.encode(buf, val.get4());
+    }
 }
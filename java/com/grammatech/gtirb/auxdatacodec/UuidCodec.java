@@ -15,9 +15,11 @@
 package com.grammatech.gtirb.auxdatacodec;
 
 import com.grammatech.gtirb.Util;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 
 public class UuidCodec implements Codec<UUID> {
@@ -28,10 +30,34 @@ public class UuidCodec implements Codec<UUID> {
         return Util.readUUID(in);
     }
 
+    public static UUID decodeStatic(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 16) {
+            throw new EOFException("Insufficient bytes to read a UUID from.");
+        }
+        return new UUID(buf.getLong(), buf.getLong());
+    }
+
     public UUID decode(InputStream in) throws IOException {
         return Util.readUUID(in);
     }
 
+    public UUID decode(ByteBuffer buf) throws IOException {
+        return decodeStatic(buf);
+    }
+
+    public void skip(InputStream in) throws IOException {
+        if (in.skip(16) != 16) {
+            throw new EOFException("Insufficient bytes to skip a UUID.");
+        }
+    }
+
+    public void skip(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 16) {
+            throw new EOFException("Insufficient bytes to skip a UUID.");
+        }
+        buf.position(buf.position() + 16);
+    }
+
     public static void encodeStatic(OutputStream out, UUID val)
         throws IOException {
         Util.writeUUID(out, val);
@@ -40,4 +66,13 @@ public class UuidCodec implements Codec<UUID> {
     public void encode(OutputStream out, UUID val) throws IOException {
         Util.writeUUID(out, val);
     }
+
+    public static void encodeStatic(ByteBuffer buf, UUID val) {
+        buf.putLong(val.getMostSignificantBits());
+        buf.putLong(val.getLeastSignificantBits());
+    }
+
+    public void encode(ByteBuffer buf, UUID val) throws IOException {
+        encodeStatic(buf, val);
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb.auxdatacodec;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A map from UUIDs to longs that keeps its keys and values unboxed.
+ *
+ * Each UUID is kept as its two longs, so a large table, such as the
+ * alignment or profile of every block of a binary, takes a fraction of the
+ * memory of a HashMap. The primitive methods look entries up without
+ * creating UUID or Long objects. Null keys and values are not permitted.
+ */
+public final class UuidLongMap extends LongValuedMap<UUID> {
+
+    /**
+     * Create an empty map.
+     */
+    public UuidLongMap() { this(0); }
+
+    /**
+     * Create an empty map with room for a number of entries.
+     *
+     * @param expectedSize The number of entries to make room for.
+     */
+    public UuidLongMap(int expectedSize) { super(2, expectedSize); }
+
+    /**
+     * Create a map with the entries of another map.
+     *
+     * @param map The map to copy.
+     */
+    public UuidLongMap(Map<UUID, Long> map) {
+        this(map.size());
+        this.putAll(map);
+    }
+
+    @Override
+    int findKey(Object key) {
+        if (!(key instanceof UUID))
+            return -1;
+        UUID uuid = (UUID)key;
+        return this.find(uuid.getMostSignificantBits(),
+                         uuid.getLeastSignificantBits(), 0);
+    }
+
+    @Override
+    int insertKey(UUID key) {
+        return this.insert(key.getMostSignificantBits(),
+                           key.getLeastSignificantBits(), 0);
+    }
+
+    @Override
+    UUID readKey(int slot) {
+        return new UUID(this.keyWord(slot, 0), this.keyWord(slot, 1));
+    }
+
+    /**
+     * Get whether the map contains a UUID.
+     *
+     * @param mostSigBits  The most significant bits of the UUID.
+     * @param leastSigBits The least significant bits of the UUID.
+     * @return Whether the UUID is in the map.
+     */
+    public boolean containsKey(long mostSigBits, long leastSigBits) {
+        return this.find(mostSigBits, leastSigBits, 0) >= 0;
+    }
+
+    /**
+     * Get the value of a UUID without boxing it.
+     *
+     * @param key          The UUID.
+     * @param defaultValue The value to return if the UUID is not in the map.
+     * @return The value of the UUID, or the default value.
+     */
+    public long getLong(UUID key, long defaultValue) {
+        return this.getLong(key.getMostSignificantBits(),
+                            key.getLeastSignificantBits(), defaultValue);
+    }
+
+    /**
+     * Get the value of a UUID, given as its two longs, without boxing it.
+     *
+     * @param mostSigBits  The most significant bits of the UUID.
+     * @param leastSigBits The least significant bits of the UUID.
+     * @param defaultValue The value to return if the UUID is not in the map.
+     * @return The value of the UUID, or the default value.
+     */
+    public long getLong(long mostSigBits, long leastSigBits,
+                        long defaultValue) {
+        int slot = this.find(mostSigBits, leastSigBits, 0);
+        return slot < 0 ? defaultValue : this.valueAt(slot);
+    }
+
+    /**
+     * Set the value of a UUID without boxing it.
+     *
+     * @param key   The UUID.
+     * @param value The value.
+     */
+    public void putLong(UUID key, long value) {
+        this.putLong(key.getMostSignificantBits(),
+                     key.getLeastSignificantBits(), value);
+    }
+
+    /**
+     * Set the value of a UUID, given as its two longs, without boxing it.
+     *
+     * @param mostSigBits  The most significant bits of the UUID.
+     * @param leastSigBits The least significant bits of the UUID.
+     * @param value        The value.
+     */
+    public void putLong(long mostSigBits, long leastSigBits, long value) {
+        int slot = this.insert(mostSigBits, leastSigBits, 0);
+        this.setValueAt(slot < 0 ? -(slot + 1) : slot, value);
+    }
+}
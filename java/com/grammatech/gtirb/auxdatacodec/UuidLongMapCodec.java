@@ -0,0 +1,103 @@
+/*
+ *  Copyright (C) 2023 GrammaTech, Inc.
+ *
+ *  This code is licensed under the MIT license. See the LICENSE file in the
+ *  project root for license terms.
+ *
+ *  This project is sponsored by the Office of Naval Research, One Liberty
+ *  Center, 875 N. Randolph Street, Arlington, VA 22203 under contract #
+ *  N68335-17-C-0700.  The content of the information does not necessarily
+ *  reflect the position or policy of the Government and no official
+ *  endorsement should be inferred.
+ *
+ */
+
+package com.grammatech.gtirb.auxdatacodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A Codec for maps from UUIDs to longs that decodes into a {@link
+ * UuidLongMap}.
+ *
+ * The serialized form is that of a {@link MapCodec} with the same key and
+ * value codecs. Entries are decoded and encoded without creating UUID or
+ * Long objects.
+ */
+public class UuidLongMapCodec extends MapCodec<UUID, Long> {
+
+    // A UUID and a long.
+    private static final int ENTRY_SIZE = 24;
+
+    /**
+     * Create a codec.
+     *
+     * @param vc The codec for the values, which gives their type name.
+     */
+    public UuidLongMapCodec(LongCodec vc) {
+        super(new UuidCodec(), vc, UuidLongMap::new);
+    }
+
+    public UuidLongMap decode(InputStream in) throws IOException {
+        long len = LongCodec.decodeStatic(in);
+        UuidLongMap map = new UuidLongMap(
+            (int)Math.min(len, in.available() / ENTRY_SIZE));
+        for (long i = 0; i < len; i++) {
+            long mostSigBits = LongCodec.decodeStatic(in);
+            long leastSigBits = LongCodec.decodeStatic(in);
+            map.putLong(mostSigBits, leastSigBits, LongCodec.decodeStatic(in));
+        }
+        return map;
+    }
+
+    public UuidLongMap decode(ByteBuffer buf) throws IOException {
+        long len = LongCodec.decodeStatic(buf);
+        UuidLongMap map = new UuidLongMap(
+            (int)Math.min(len, buf.remaining() / ENTRY_SIZE));
+        for (long i = 0; i < len; i++) {
+            long mostSigBits = LongCodec.decodeStatic(buf);
+            long leastSigBits = LongCodec.decodeStatic(buf);
+            map.putLong(mostSigBits, leastSigBits, LongCodec.decodeStatic(buf));
+        }
+        return map;
+    }
+
+    public void encode(OutputStream out, Map<UUID, Long> map)
+        throws IOException {
+        if (!(map instanceof UuidLongMap)) {
+            super.encode(out, map);
+            return;
+        }
+        UuidLongMap uuidMap = (UuidLongMap)map;
+        LongCodec.encodeStatic(out, (long)uuidMap.size());
+        for (int slot = 0; slot < uuidMap.capacity(); slot++) {
+            if (!uuidMap.isFull(slot))
+                continue;
+            LongCodec.encodeStatic(out, uuidMap.keyWord(slot, 0));
+            LongCodec.encodeStatic(out, uuidMap.keyWord(slot, 1));
+            LongCodec.encodeStatic(out, uuidMap.valueAt(slot));
+        }
+    }
+
+    public void encode(ByteBuffer buf, Map<UUID, Long> map)
+        throws IOException {
+        if (!(map instanceof UuidLongMap)) {
+            super.encode(buf, map);
+            return;
+        }
+        UuidLongMap uuidMap = (UuidLongMap)map;
+        LongCodec.encodeStatic(buf, (long)uuidMap.size());
+        for (int slot = 0; slot < uuidMap.capacity(); slot++) {
+            if (!uuidMap.isFull(slot))
+                continue;
+            LongCodec.encodeStatic(buf, uuidMap.keyWord(slot, 0));
+            LongCodec.encodeStatic(buf, uuidMap.keyWord(slot, 1));
+            LongCodec.encodeStatic(buf, uuidMap.valueAt(slot));
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.grammatech.gtirb.variant.Variant11;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A codec for serializing 3-element variants.
@@ -167,6 +168,57 @@ public class Variant11Codec<
         throw new IOException("Unexpected variant index: " + idx);
     }
 
+    public T decode(ByteBuffer buf) throws IOException {
+        int idx = (int)LongCodec.decodeStatic(buf);
+        switch (idx) {
+        case 0: {
+            A a = this.aCodec.decode(buf);
+            return this.aMaker.make(a);
+        }
+        case 1: {
+            B b = this.bCodec.decode(buf);
+            return this.bMaker.make(b);
+        }
+        case 2: {
+            C c = this.cCodec.decode(buf);
+            return this.cMaker.make(c);
+        }
+        case 3: {
+            D d = this.dCodec.decode(buf);
+            return this.dMaker.make(d);
+        }
+        case 4: {
+            E e = this.eCodec.decode(buf);
+            return this.eMaker.make(e);
+        }
+        case 5: {
+            F f = this.fCodec.decode(buf);
+            return this.fMaker.make(f);
+        }
+        case 6: {
+            G g = this.gCodec.decode(buf);
+            return this.gMaker.make(g);
+        }
+        case 7: {
+            H h = this.hCodec.decode(buf);
+            return this.hMaker.make(h);
+        }
+        case 8: {
+            I i = this.iCodec.decode(buf);
+            return this.iMaker.make(i);
+        }
+        case 9: {
+            J j = this.jCodec.decode(buf);
+            return this.jMaker.make(j);
+        }
+        case 10: {
+            K k = this.kCodec.decode(buf);
+            return this.kMaker.make(k);
+        }
+        }
+        throw new IOException("Unexpected variant index: " + idx);
+    }
+
     public void encode(OutputStream out, T val) throws IOException {
         int idx = val.getIndex();
         LongCodec.encodeStatic(out, (long)idx);
@@ -220,4 +272,58 @@ public class Variant11Codec<
         }
         }
     }
+
+    public void encode(ByteBuffer buf, T val) throws IOException {
+        int idx = val.getIndex();
+        LongCodec.encodeStatic(buf, (long)idx);
+        switch (idx) {
+        case 0: {
+            this.aCodec.encode(buf, val.get0().get());
+            break;
+        }
+        case 1: {
+            this.bCodec.encode(buf, val.get1().get());
+            break;
+        }
+        case 2: {
+            this.cCodec.encode(buf, val.get2().get());
+            break;
+        }
+        case 3: {
+            this.dCodec.encode(buf, val.get3().get());
+            break;
+        }
+        case 4: {
+            this.eCodec.encode(buf, val.get4().get());
+            break;
+        }
+        case 5: {
+            this.fCodec.encode(buf, val.get5().get());
+            break;
+        }
+        case 6: {
+            this.gCodec.encode(buf, val.get6().get());
+            break;
+        }
+        case 7: {
+            this.hCodec.encode(buf, val.get7().get());
+            break;
+        }
+        case 8: {
+            this.iCodec.encode(buf, val.get8().get());
+            break;
+        }
+        case 9: {
+            this.jCodec.encode(buf, val.get9().get());
+            break;
+        }
+        case 10: {
+            this.kCodec.encode(buf, val.get10().get());
+            break;
+        }
+        default: {
+            assert false;
+        }
+        }
+    }
 }
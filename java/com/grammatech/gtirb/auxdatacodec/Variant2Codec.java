@@ -4,6 +4,7 @@ import com.grammatech.gtirb.variant.Variant2;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A codec for serializing 2-element variants.
@@ -55,6 +56,21 @@ public class Variant2Codec<T extends Variant2<A, B>, A, B> implements Codec<T> {
         throw new IOException("Unexpected variant index: " + idx);
     }
 
+    public T decode(ByteBuffer buf) throws IOException {
+        int idx = (int)LongCodec.decodeStatic(buf);
+        switch (idx) {
+        case 0: {
+            A a = this.aCodec.decode(buf);
+            return this.aMaker.make(a);
+        }
+        case 1: {
+            B b = this.bCodec.decode(buf);
+            return this.bMaker.make(b);
+        }
+        }
+        throw new IOException("Unexpected variant index: " + idx);
+    }
+
     public void encode(OutputStream out, T val) throws IOException {
         int idx = val.getIndex();
         LongCodec.encodeStatic(out, (long)idx);
@@ -72,4 +88,22 @@ public class Variant2Codec<T extends Variant2<A, B>, A, B> implements Codec<T> {
         }
         }
     }
+
+    public void encode(ByteBuffer buf, T val) throws IOException {
+        int idx = val.getIndex();
+        LongCodec.encodeStatic(buf, (long)idx);
+        switch (idx) {
+        case 0: {
+            this.aCodec.encode(buf, val.get0().get());
+            break;
+        }
+        case 1: {
+            this.bCodec.encode(buf, val.get1().get());
+            break;
+        }
+        default: {
+            assert false;
+        }
+        }
+    }
 }
@@ -4,6 +4,7 @@ import com.grammatech.gtirb.variant.Variant3;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A codec for serializing 3-element variants.
@@ -68,6 +69,25 @@ public class Variant3Codec<T extends Variant3<A, B, C>, A, B, C>
         throw new IOException("Unexpected variant index: " + idx);
     }
 
+    public T decode(ByteBuffer buf) throws IOException {
+        int idx = (int)LongCodec.decodeStatic(buf);
+        switch (idx) {
+        case 0: {
+            A a = this.aCodec.decode(buf);
+            return this.aMaker.make(a);
+        }
+        case 1: {
+            B b = this.bCodec.decode(buf);
+            return this.bMaker.make(b);
+        }
+        case 2: {
+            C c = this.cCodec.decode(buf);
+            return this.cMaker.make(c);
+        }
+        }
+        throw new IOException("Unexpected variant index: " + idx);
+    }
+
     public void encode(OutputStream out, T val) throws IOException {
         int idx = val.getIndex();
         LongCodec.encodeStatic(out, (long)idx);
@@ -89,4 +109,26 @@ public class Variant3Codec<T extends Variant3<A, B, C>, A, B, C>
         }
         }
     }
+
+    public void encode(ByteBuffer buf, T val) throws IOException {
+        int idx = val.getIndex();
+        LongCodec.encodeStatic(buf, (long)idx);
+        switch (idx) {
+        case 0: {
+            this.aCodec.encode(buf, val.get0().get());
+            break;
+        }
+        case 1: {
+            this.bCodec.encode(buf, val.get1().get());
+            break;
+        }
+        case 2: {
+            this.cCodec.encode(buf, val.get2().get());
+            break;
+        }
+        default: {
+            assert false;
+        }
+        }
+    }
 }
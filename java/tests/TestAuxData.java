@@ -5,7 +5,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import com.grammatech.gtirb.AuxDataContainer;
 import com.grammatech.gtirb.AuxDataSchema;
 import com.grammatech.gtirb.AuxDataSchemas;
+import com.grammatech.gtirb.CfiDirective;
 import com.grammatech.gtirb.IR;
+import com.grammatech.gtirb.LoadOptions;
 import com.grammatech.gtirb.Module;
 import com.grammatech.gtirb.Offset;
 import com.grammatech.gtirb.ProxyBlock;
@@ -20,6 +22,8 @@ import com.grammatech.gtirb.auxdatacodec.ListCodec;
 import com.grammatech.gtirb.auxdatacodec.LongCodec;
 import com.grammatech.gtirb.auxdatacodec.MapCodec;
 import com.grammatech.gtirb.auxdatacodec.OffsetCodec;
+import com.grammatech.gtirb.auxdatacodec.OffsetLongMap;
+import com.grammatech.gtirb.auxdatacodec.OffsetLongMapCodec;
 import com.grammatech.gtirb.auxdatacodec.SetCodec;
 import com.grammatech.gtirb.auxdatacodec.ShortCodec;
 import com.grammatech.gtirb.auxdatacodec.StringCodec;
@@ -29,6 +33,8 @@ import com.grammatech.gtirb.auxdatacodec.Tuple3Codec;
 import com.grammatech.gtirb.auxdatacodec.Tuple4Codec;
 import com.grammatech.gtirb.auxdatacodec.Tuple5Codec;
 import com.grammatech.gtirb.auxdatacodec.UuidCodec;
+import com.grammatech.gtirb.auxdatacodec.UuidLongMap;
+import com.grammatech.gtirb.auxdatacodec.UuidLongMapCodec;
 import com.grammatech.gtirb.auxdatacodec.Variant11Codec;
 import com.grammatech.gtirb.auxdatacodec.Variant2Codec;
 import com.grammatech.gtirb.auxdatacodec.Variant3Codec;
@@ -44,15 +50,23 @@ import com.grammatech.gtirb.variant.Variant3;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -175,6 +189,12 @@ public class TestAuxData {
         hs.add("foo");
         hs.add("bar");
 
+        UuidLongMap ulm = new UuidLongMap();
+        ulm.put(new UUID(1, 2), 3L);
+        ulm.put(new UUID(4, 5), -6L);
+        Map<Offset, Long> olm = new HashMap<>();
+        olm.put(new Offset(new UUID(7, 8), 9), 10L);
+
         Variant11Codec<FooVariant11, Long, Float, Boolean, Integer, String,
                        Long, Float, Boolean, Integer, String, Offset>
             fooV11Codec = new Variant11Codec<>(
@@ -224,6 +244,13 @@ public class TestAuxData {
                              new ListCodec<>(new FloatCodec(), ArrayList::new),
                              HashMap::new),
                          hm),
+            Arguments.of("mapping<UUID,int64_t>",
+                         new UuidLongMapCodec(LongCodec.INT64), ulm),
+            Arguments.of("mapping<Offset,uint64_t>",
+                         new OffsetLongMapCodec(LongCodec.UINT64), olm),
+            Arguments.of("mapping<Offset,uint64_t>",
+                         new OffsetLongMapCodec(LongCodec.UINT64),
+                         new OffsetLongMap(olm)),
             Arguments.of("set<string>",
                          new SetCodec<>(new StringCodec(), HashSet::new), hs),
             Arguments.of("tuple<string>",
@@ -297,6 +324,24 @@ public class TestAuxData {
         ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
         T result = codec.decode(is);
         assertEquals(val, result);
+
+        // Buffers encode and decode the same bytes as streams, and are
+        // advanced past them.
+        byte[] bytes = os.toByteArray();
+        ByteBuffer buf =
+            ByteBuffer.allocate(bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        codec.encode(buf, val);
+        assertFalse(buf.hasRemaining());
+        assertArrayEquals(bytes, buf.array());
+        buf.flip();
+        assertEquals(val, codec.decode(buf));
+        assertFalse(buf.hasRemaining());
+        buf.rewind();
+        codec.skip(buf);
+        assertFalse(buf.hasRemaining());
+        buf.rewind();
+        buf.limit(bytes.length - 1);
+        assertThrows(IOException.class, () -> codec.decode(buf));
     }
 
     @Test
@@ -338,6 +383,290 @@ public class TestAuxData {
         assertEquals(func_names, oad2.get());
     }
 
+    @Test
+    public void testLazyAuxData() throws IOException {
+        IR ir1 = new IR();
+        Module m1 = new Module(
+            "test", 0xDEADBEEF, 0, Module.FileFormat.ELF, Module.ISA.IA32,
+            "test", new ArrayList<Section>(), new ArrayList<Symbol>(),
+            new ArrayList<ProxyBlock>(), null);
+        ir1.addModule(m1);
+
+        Map<Offset, String> comments = new HashMap<>();
+        Map<Offset, List<CfiDirective>> cfi = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            Offset offset = new Offset(new UUID(i % 7, i), i);
+            comments.put(offset, "comment " + i);
+            cfi.put(offset,
+                    Arrays.asList(new CfiDirective(".cfi_offset",
+                                                   Arrays.asList((long)i, 8L),
+                                                   new UUID(0, i))));
+        }
+        m1.putAuxData(AuxDataSchemas.comments, comments);
+        m1.putAuxData(AuxDataSchemas.cfiDirectives, cfi);
+
+        // Before it is saved, the decoded map is returned read-only.
+        Map<Offset, String> unsaved =
+            m1.getLazyAuxData(AuxDataSchemas.comments).get();
+        assertEquals(comments, unsaved);
+        assertThrows(UnsupportedOperationException.class,
+                     () -> unsaved.remove(new Offset(new UUID(0, 0), 0)));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ir1.saveFile(os);
+        IR ir2 = IR.loadFile(new ByteArrayInputStream(os.toByteArray()));
+        Module m2 = ir2.getModules().get(0);
+
+        Map<Offset, String> lazyComments =
+            m2.getLazyAuxData(AuxDataSchemas.comments).get();
+        assertEquals(1000, lazyComments.size());
+        assertEquals("comment 500",
+                     lazyComments.get(new Offset(new UUID(500 % 7, 500), 500)));
+        assertNull(lazyComments.get(new Offset(new UUID(1, 500), 500)));
+        assertFalse(lazyComments.containsKey("not an offset"));
+        assertEquals(comments, lazyComments);
+        assertSame(lazyComments,
+                   m2.getLazyAuxData(AuxDataSchemas.comments).get());
+        assertThrows(UnsupportedOperationException.class,
+                     () -> lazyComments.put(new Offset(new UUID(0, 0), 0), ""));
+
+        Map<Offset, List<CfiDirective>> lazyCfi =
+            m2.getLazyAuxData(AuxDataSchemas.cfiDirectives).get();
+        assertEquals(cfi, lazyCfi);
+        assertEquals(Optional.empty(),
+                     m2.getLazyAuxData(AuxDataSchemas.padding));
+
+        // Decoding eagerly afterwards gives the same map.
+        assertEquals(comments, m2.getAuxData(AuxDataSchemas.comments).get());
+    }
+
+    @Test
+    public void testPrimitiveMaps() throws IOException {
+        // Random operations give the same results as on a HashMap, across
+        // growing and removals.
+        Random random = new Random(42);
+        UuidLongMap uuidMap = new UuidLongMap();
+        OffsetLongMap offsetMap = new OffsetLongMap();
+        Map<UUID, Long> uuidModel = new HashMap<>();
+        Map<Offset, Long> offsetModel = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            UUID uuid = new UUID(random.nextInt(50), random.nextInt(100));
+            Offset offset = new Offset(uuid, random.nextInt(3));
+            long value = random.nextLong();
+            if (random.nextInt(3) == 0) {
+                assertEquals(uuidModel.remove(uuid), uuidMap.remove(uuid));
+                assertEquals(offsetModel.remove(offset),
+                             offsetMap.remove(offset));
+            } else {
+                assertEquals(uuidModel.put(uuid, value),
+                             uuidMap.put(uuid, value));
+                assertEquals(offsetModel.put(offset, value),
+                             offsetMap.put(offset, value));
+            }
+            assertEquals(uuidModel.size(), uuidMap.size());
+            assertEquals(offsetModel.size(), offsetMap.size());
+        }
+        assertEquals(uuidModel, uuidMap);
+        assertEquals(uuidMap, uuidModel);
+        assertEquals(uuidModel.hashCode(), uuidMap.hashCode());
+        assertEquals(offsetModel, offsetMap);
+        assertEquals(offsetMap, offsetModel);
+
+        // Primitive accessors agree with the boxed ones.
+        UUID present = uuidModel.keySet().iterator().next();
+        assertEquals((long)uuidModel.get(present),
+                     uuidMap.getLong(present, -1));
+        assertEquals(-1, uuidMap.getLong(new UUID(-1, -1), -1));
+        assertFalse(uuidMap.containsKey("not a UUID"));
+        uuidMap.putLong(present.getMostSignificantBits(),
+                        present.getLeastSignificantBits(), 7);
+        assertEquals(Long.valueOf(7), uuidMap.get(present));
+        offsetMap.putLong(present, 5, 11);
+        assertEquals(Long.valueOf(11), offsetMap.get(new Offset(present, 5)));
+        assertTrue(offsetMap.containsKey(present, 5));
+        assertThrows(NullPointerException.class,
+                     () -> uuidMap.put(present, null));
+
+        // Entries write through and can be removed while iterating.
+        for (Map.Entry<UUID, Long> entry : uuidMap.entrySet())
+            entry.setValue(entry.getValue() + 1);
+        assertEquals(Long.valueOf(8), uuidMap.get(present));
+        uuidMap.values().removeIf(v -> v % 2 == 0);
+        uuidModel.replaceAll((k, v) -> k.equals(present) ? 8 : v + 1);
+        uuidModel.values().removeIf(v -> v % 2 == 0);
+        assertEquals(uuidModel, uuidMap);
+        uuidMap.clear();
+        assertTrue(uuidMap.isEmpty());
+        assertNull(uuidMap.get(present));
+
+        // The schemas decode into the primitive maps, and still have lazy
+        // views.
+        IR ir1 = new IR();
+        Module m1 = new Module(
+            "test", 0xDEADBEEF, 0, Module.FileFormat.ELF, Module.ISA.IA32,
+            "test", new ArrayList<Section>(), new ArrayList<Symbol>(),
+            new ArrayList<ProxyBlock>(), null);
+        ir1.addModule(m1);
+        m1.putAuxData(AuxDataSchemas.alignment, new HashMap<>(uuidModel));
+        m1.putAuxData(AuxDataSchemas.padding, offsetModel);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ir1.saveFile(os);
+        IR ir2 = IR.loadFile(new ByteArrayInputStream(os.toByteArray()));
+        Module m2 = ir2.getModules().get(0);
+        assertEquals(offsetModel,
+                     m2.getLazyAuxData(AuxDataSchemas.padding).get());
+        Map<UUID, Long> alignment =
+            m2.getAuxData(AuxDataSchemas.alignment).get();
+        assertTrue(alignment instanceof UuidLongMap);
+        assertEquals(uuidModel, alignment);
+        Map<Offset, Long> padding = m2.getAuxData(AuxDataSchemas.padding).get();
+        assertTrue(padding instanceof OffsetLongMap);
+        assertEquals(offsetModel, padding);
+    }
+
+    /**
+     * A codec for maps from strings to longs that counts its encodes and
+     * decodes.
+     */
+    static class CountingCodec extends MapCodec<String, Long> {
+        AtomicInteger encodes = new AtomicInteger();
+        AtomicInteger decodes = new AtomicInteger();
+
+        CountingCodec() {
+            super(new StringCodec(), LongCodec.INT64, HashMap::new);
+        }
+
+        @Override
+        public void encode(OutputStream out, Map<String, Long> map)
+            throws IOException {
+            this.encodes.incrementAndGet();
+            super.encode(out, map);
+        }
+
+        @Override
+        public Map<String, Long> decode(ByteBuffer buf) throws IOException {
+            this.decodes.incrementAndGet();
+            return super.decode(buf);
+        }
+    }
+
+    @Test
+    public void testAuxDataDirtyTracking() throws IOException {
+        CountingCodec codec = new CountingCodec();
+        AuxDataSchema<Map<String, Long>> schema =
+            new AuxDataSchema<>("counted", codec);
+        IR ir1 = new IR();
+        Module m1 = new Module(
+            "test", 0xDEADBEEF, 0, Module.FileFormat.ELF, Module.ISA.IA32,
+            "test", new ArrayList<Section>(), new ArrayList<Symbol>(),
+            new ArrayList<ProxyBlock>(), null);
+        ir1.addModule(m1);
+        Map<String, Long> map = new HashMap<>();
+        map.put("a", 1L);
+        m1.putAuxData(schema, map);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ir1.saveFile(os);
+        assertEquals(1, codec.encodes.get());
+        byte[] saved = os.toByteArray();
+
+        // Inspected AuxData is saved from its loaded bytes.
+        IR ir2 = IR.loadFile(new ByteArrayInputStream(saved));
+        Module m2 = ir2.getModules().get(0);
+        Map<String, Long> inspected = m2.inspectAuxData(schema).get();
+        assertEquals(map, inspected);
+        assertThrows(UnsupportedOperationException.class,
+                     () -> inspected.put("b", 2L));
+        os = new ByteArrayOutputStream();
+        ir2.saveFile(os);
+        assertEquals(1, codec.encodes.get());
+        IR reloaded = IR.loadFile(new ByteArrayInputStream(os.toByteArray()));
+        assertEquals(
+            map, reloaded.getModules().get(0).inspectAuxData(schema).get());
+
+        // Marking it dirty encodes it once.
+        assertTrue(m2.markAuxDataDirty(schema));
+        assertFalse(m2.markAuxDataDirty(AuxDataSchemas.comments));
+        ir2.saveFile(new ByteArrayOutputStream());
+        assertEquals(2, codec.encodes.get());
+        ir2.saveFile(new ByteArrayOutputStream());
+        assertEquals(2, codec.encodes.get());
+
+        // Once the modifiable object is handed out, it is encoded on every
+        // save, and inspecting it returns that object.
+        Map<String, Long> modifiable = m2.getAuxData(schema).get();
+        modifiable.put("b", 2L);
+        ir2.saveFile(new ByteArrayOutputStream());
+        assertEquals(3, codec.encodes.get());
+        modifiable.put("c", 3L);
+        os = new ByteArrayOutputStream();
+        ir2.saveFile(os);
+        assertEquals(4, codec.encodes.get());
+        assertSame(modifiable, m2.inspectAuxData(schema).get());
+        IR ir3 = IR.loadFile(new ByteArrayInputStream(os.toByteArray()));
+        assertEquals(modifiable,
+                     ir3.getModules().get(0).inspectAuxData(schema).get());
+    }
+
+    @Test
+    public void testPrefetchAuxData() throws Exception {
+        CountingCodec codec = new CountingCodec();
+        AuxDataSchema<Map<String, Long>> schema =
+            new AuxDataSchema<>("counted", codec);
+        IR ir1 = new IR();
+        for (int i = 0; i < 4; i++) {
+            Module m = new Module("/usr/bin/mod" + i, 0x1000 * i, 0,
+                                  Module.FileFormat.ELF, Module.ISA.X64,
+                                  "mod" + i);
+            Map<String, Long> map = new HashMap<>();
+            map.put("mod", (long)i);
+            m.putAuxData(schema, map);
+            m.putAuxData(AuxDataSchemas.comments, new HashMap<>());
+            ir1.addModule(m);
+        }
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ir1.saveFile(os);
+        IR ir2 = IR.loadFile(new ByteArrayInputStream(os.toByteArray()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // Each module's table is decoded once; absent tables are
+            // skipped.
+            ir2.prefetchAuxData(Arrays.asList(schema, AuxDataSchemas.comments,
+                                              AuxDataSchemas.functionNames),
+                                executor)
+                .get();
+            assertEquals(4, codec.decodes.get());
+            for (int i = 0; i < 4; i++) {
+                Module m = ir2.getModules().get(i);
+                assertEquals(Long.valueOf(i),
+                             m.getAuxData(schema).get().get("mod"));
+                assertEquals(
+                    Optional.empty(),
+                    m.getAuxDataAsync(AuxDataSchemas.functionNames, executor)
+                        .get());
+            }
+            assertEquals(4, codec.decodes.get());
+            assertEquals(4, codec.encodes.get());
+
+            // Lazy modules are loaded on the executor along the way.
+            LoadOptions options = new LoadOptions();
+            options.setLazyModules(true);
+            IR ir3 = IR.loadFile(new ByteArrayInputStream(os.toByteArray()),
+                                 options);
+            ir3.prefetchAuxData(Arrays.asList(schema), executor).get();
+            assertEquals(8, codec.decodes.get());
+            for (int i = 0; i < 4; i++) {
+                Module m = ir3.getModules().get(i);
+                assertSame(ir3, m.getIr().get());
+                assertEquals(Long.valueOf(i),
+                             m.getAuxData(schema).get().get("mod"));
+            }
+            assertEquals(8, codec.decodes.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     AuxDataSchema<Long> aSchema =
         new AuxDataSchema<>("aSchema", LongCodec.UINT64);
     AuxDataSchema<Boolean> anotherSchema =
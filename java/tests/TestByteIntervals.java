@@ -5,7 +5,11 @@ import com.grammatech.gtirb.*;
 import com.grammatech.gtirb.Module;
 import com.grammatech.gtirb.Module.FileFormat;
 import com.grammatech.gtirb.Module.ISA;
+import com.grammatech.gtirb.proto.ByteIntervalOuterClass;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.*;
 import org.junit.jupiter.api.Test;
 
@@ -62,6 +66,102 @@ public class TestByteIntervals {
             Arrays.equals(biReloaded.getBytes(), "SaveAndLoad".getBytes()));
     }
 
+    @Test
+    void testLoadedContentsCopyOnWrite() throws Exception {
+        IR ir = new IR();
+        Module module = new Module("c:/foo.exe", 0, 0, FileFormat.ELF,
+                                   ISA.X64, "myModule");
+        Section section =
+            new Section("mySection", new HashSet<Section.SectionFlag>(),
+                        new ArrayList<ByteInterval>());
+        section.addByteInterval(new ByteInterval("abcdef".getBytes(), 0x10));
+        module.addSection(section);
+        ir.addModule(module);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        IR loaded = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+        ByteInterval bi = loaded.getModules()
+                              .get(0)
+                              .getSections()
+                              .get(0)
+                              .getByteIntervals()
+                              .get(0);
+
+        // Read-only access to loaded contents
+        ByteBuffer view = bi.getByteBuffer();
+        assertTrue(view.isReadOnly());
+        assertEquals(ByteBuffer.wrap("abcdef".getBytes()), view);
+        assertEquals(6, bi.getInitializedSize());
+
+        bi.setSize(4);
+        assertEquals(ByteBuffer.wrap("abcd".getBytes()), bi.getByteBuffer());
+
+        // Modifying the array must be reflected when saving
+        bi.getBytes()[0] = 'z';
+        assertEquals(ByteBuffer.wrap("zbcd".getBytes()), bi.getByteBuffer());
+        out.reset();
+        loaded.saveFile(out);
+        IR reloaded =
+            IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+        ByteInterval biReloaded = reloaded.getModules()
+                                      .get(0)
+                                      .getSections()
+                                      .get(0)
+                                      .getByteIntervals()
+                                      .get(0);
+        assertArrayEquals("zbcd".getBytes(), biReloaded.getBytes());
+    }
+
+    @Test
+    void testSavedContentsCopyOnWrite() throws Exception {
+        ByteInterval bi = new ByteInterval("abcdef".getBytes(), 0x10);
+        ByteIntervalOuterClass.ByteInterval proto = bi.toProtobuf().build();
+
+        // Changes after serializing leave the protobuf unchanged.
+        bi.getBytes()[0] = 'z';
+        assertEquals(ByteBuffer.wrap("zbcdef".getBytes()), bi.getByteBuffer());
+        assertEquals("abcdef", proto.getContents().toStringUtf8());
+        byte[] bytes = bi.getBytes();
+        proto = bi.toProtobuf().build();
+        bi.setBytes("ghijkl".getBytes());
+        assertEquals("zbcdef", proto.getContents().toStringUtf8());
+        assertArrayEquals("zbcdef".getBytes(), bytes);
+    }
+
+    @Test
+    void testSaveLeavesContentsInPlace() throws Exception {
+        IR ir = new IR();
+        Module module = new Module("c:/foo.exe", 0, 0, FileFormat.ELF,
+                                   ISA.X64, "myModule");
+        Section section =
+            new Section("mySection", new HashSet<Section.SectionFlag>(),
+                        new ArrayList<ByteInterval>());
+        ByteInterval bi = new ByteInterval("abcdef".getBytes(), 0x10);
+        section.addByteInterval(bi);
+        module.addSection(section);
+        ir.addModule(module);
+
+        // An array obtained before saving still holds the contents after.
+        byte[] bytes = bi.getBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        ir.saveFile(out, Runnable::run);
+        assertSame(bytes, bi.getBytes());
+        bytes[0] = 'z';
+        assertEquals(ByteBuffer.wrap("zbcdef".getBytes()), bi.getByteBuffer());
+        out.reset();
+        ir.saveFile(out);
+        IR reloaded = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals("zbcdef".getBytes(), reloaded.getModules()
+                                                   .get(0)
+                                                   .getSections()
+                                                   .get(0)
+                                                   .getByteIntervals()
+                                                   .get(0)
+                                                   .getBytes());
+    }
+
     @Test
     void testByteIntervalTruncation() throws Exception {
         int bytesSize = 1000;
@@ -191,4 +291,35 @@ public class TestByteIntervals {
         assertTrue(saw_c3);
         assertTrue(saw_c4);
     }
+
+    // Make sure lookups see blocks that are added, resized or removed after
+    // an earlier lookup.
+    @Test
+    public void testBlockRetrievalAfterUpdate() {
+        ByteInterval bi = new ByteInterval();
+        bi.setAddress(0x1000);
+        bi.setSize(0x100);
+
+        CodeBlock c1 = new CodeBlock(0x10, 0x00, CodeBlock.DecodeMode.Default);
+        CodeBlock c2 = new CodeBlock(0x80, 0x08, CodeBlock.DecodeMode.Default);
+        CodeBlock c3 = new CodeBlock(0x04, 0x20, CodeBlock.DecodeMode.Default);
+        bi.insertByteBlock(c1);
+        bi.insertByteBlock(c2);
+        bi.insertByteBlock(c3);
+
+        assertEquals(List.of(c2, c3), bi.findCodeBlocksOn(0x1022));
+        assertEquals(List.of(c1, c2), bi.findCodeBlocksOn(0x1000, 0x1008));
+        assertNull(bi.findCodeBlocksOn(0x1090));
+
+        c1.setSize(0x30);
+        assertEquals(List.of(c1, c2, c3), bi.findCodeBlocksOn(0x1022));
+
+        CodeBlock c4 = new CodeBlock(0x10, 0x88, CodeBlock.DecodeMode.Default);
+        bi.insertByteBlock(c4);
+        assertEquals(List.of(c4), bi.findCodeBlocksOn(0x1090));
+
+        bi.removeByteBlock(c2);
+        assertEquals(List.of(c1, c3), bi.findCodeBlocksOn(0x1022));
+        assertEquals(List.of(c1, c3, c4), bi.findCodeBlocksOn(0x1020, 0x1090));
+    }
 }
@@ -0,0 +1,156 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.grammatech.gtirb.*;
+import com.grammatech.gtirb.Edge.EdgeType;
+import com.grammatech.gtirb.proto.CFGOuterClass;
+import com.grammatech.gtirb.proto.IROuterClass;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class TestCFG {
+
+    @Test
+    void testCompactCfg() throws Exception {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        UUID external = UUID.randomUUID();
+
+        List<Edge> edges = new ArrayList<Edge>();
+        edges.add(new Edge(a, b, EdgeType.Fallthrough, false, true));
+        edges.add(new Edge(b, c, EdgeType.Branch, true, true));
+        edges.add(new Edge(a, c, EdgeType.Call, false, false));
+        edges.add(new Edge(c, external, EdgeType.Unlabelled, false, false));
+        List<byte[]> vertices = new ArrayList<byte[]>();
+        vertices.add(Util.uuidToByteArray(a));
+        vertices.add(Util.uuidToByteArray(b));
+        vertices.add(Util.uuidToByteArray(c));
+        CFG cfg = new CFG(edges, vertices);
+
+        CompactCFG compact = CompactCFG.fromProtobuf(cfg.toProtobuf().build());
+        assertEquals(4, compact.getVertexCount());
+        assertEquals(4, compact.getEdgeCount());
+        assertEquals(Arrays.asList(b, c), compact.successors(a));
+        assertEquals(Arrays.asList(a, b), compact.predecessors(c));
+        assertEquals(Arrays.asList(c), compact.predecessors(external));
+        assertTrue(compact.successors(external).isEmpty());
+        assertTrue(compact.successors(UUID.randomUUID()).isEmpty());
+
+        int idA = compact.getId(a);
+        int idB = compact.getId(b);
+        assertEquals(a, compact.getUuid(idA));
+        assertArrayEquals(new int[] {idB, compact.getId(c)},
+                          compact.successors(idA));
+        int edge = compact.getOutEdgesBegin(idB);
+        assertEquals(edge + 1, compact.getOutEdgesEnd(idB));
+        assertEquals(EdgeType.Branch, compact.getEdgeType(edge));
+        assertTrue(compact.isConditional(edge));
+        assertTrue(compact.isDirect(edge));
+
+        // Converting back gives the same vertices and edges.
+        CFGOuterClass.CFG protoCfg = compact.toProtobuf().build();
+        assertEquals(3, protoCfg.getVerticesCount());
+        CFG roundTrip = new CFG(protoCfg);
+        assertEquals(4, roundTrip.getEdgeList().size());
+        Edge unlabelled = roundTrip.getEdgeList().get(3);
+        assertEquals(c, unlabelled.getSourceUuid());
+        assertEquals(external, unlabelled.getTargetUuid());
+        assertEquals(EdgeType.Unlabelled, unlabelled.getEdgeType());
+        assertEquals(protoCfg,
+                     CompactCFG.fromCfg(roundTrip).toProtobuf().build());
+    }
+
+    @Test
+    void testReadCompactCfg() throws Exception {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID external = UUID.randomUUID();
+        List<Edge> edges = new ArrayList<Edge>();
+        edges.add(new Edge(b, external, EdgeType.Call, false, true));
+        edges.add(new Edge(a, b, EdgeType.Branch, true, false));
+        List<byte[]> vertices = new ArrayList<byte[]>();
+        vertices.add(Util.uuidToByteArray(a));
+        vertices.add(Util.uuidToByteArray(b));
+        CFG cfg = new CFG(edges, vertices);
+        IR ir = new IR();
+        ir.setCfg(cfg);
+
+        // Save the IR under a UUID that no node has, to tell whether
+        // reading the file loads the IR.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        IROuterClass.IR.Builder protoIr = ir.toProtobuf();
+        int headerLength = out.size() - protoIr.build().getSerializedSize();
+        byte[] saved = out.toByteArray();
+        UUID irUuid = UUID.randomUUID();
+        out.reset();
+        out.write(saved, 0, headerLength);
+        protoIr.setUuid(Util.uuidToByteString(irUuid)).build().writeTo(out);
+
+        CompactCFG compact =
+            CompactCFG.read(new ByteArrayInputStream(out.toByteArray()));
+        // The IR, and so its CFG, was never built.
+        assertNull(Node.getByUuid(irUuid));
+        assertEquals(CompactCFG.fromCfg(cfg).toProtobuf().build(),
+                     compact.toProtobuf().build());
+        assertEquals(3, compact.getVertexCount());
+        assertEquals(a, compact.getUuid(0));
+        assertEquals(Arrays.asList(external), compact.successors(b));
+
+        // Listed vertices get the first ids, even when added after edges.
+        CompactCFG.Builder builder = new CompactCFG.Builder();
+        builder.addEdge(a, b, EdgeType.Fallthrough, false, true);
+        builder.addEdge(external, a, EdgeType.Return, false, false);
+        builder.addVertex(external);
+        builder.addVertex(b);
+        CompactCFG built = builder.build();
+        assertEquals(external, built.getUuid(0));
+        assertEquals(b, built.getUuid(1));
+        assertEquals(a, built.getUuid(2));
+        assertEquals(Arrays.asList(b), built.successors(a));
+        assertEquals(Arrays.asList(a), built.successors(external));
+        assertEquals(2, built.toProtobuf().getVerticesCount());
+        assertThrows(IllegalStateException.class, () -> builder.build());
+    }
+
+    @Test
+    void testRejectUnknownEdgeType() throws Exception {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        List<Edge> edges = new ArrayList<Edge>();
+        edges.add(new Edge(a, b, EdgeType.Sysret, false, true));
+        IR ir = new IR();
+        ir.setCfg(new CFG(edges, new ArrayList<byte[]>()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        IROuterClass.IR.Builder protoIr = ir.toProtobuf();
+        int headerLength = out.size() - protoIr.build().getSerializedSize();
+        byte[] saved = out.toByteArray();
+        assertEquals(EdgeType.Sysret,
+                     CompactCFG.read(new ByteArrayInputStream(saved))
+                         .getEdgeType(0));
+
+        // Unlabelled is not a serialized type, and later types are unknown.
+        for (int typeValue : new int[] {6, 7, 100}) {
+            CFGOuterClass.CFG.Builder protoCfg = protoIr.getCfgBuilder();
+            protoCfg.getEdgesBuilder(0).getLabelBuilder().setTypeValue(
+                typeValue);
+            assertThrows(IOException.class,
+                         () -> CompactCFG.fromProtobuf(protoCfg.build()));
+            assertThrows(IOException.class, () -> new CFG(protoCfg.build()));
+            out.reset();
+            out.write(saved, 0, headerLength);
+            protoIr.build().writeTo(out);
+            byte[] modified = out.toByteArray();
+            assertThrows(IOException.class,
+                         ()
+                             -> CompactCFG.read(
+                                 new ByteArrayInputStream(modified)));
+        }
+    }
+}
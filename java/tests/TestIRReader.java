@@ -0,0 +1,161 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.grammatech.gtirb.*;
+import com.grammatech.gtirb.Edge.EdgeType;
+import com.grammatech.gtirb.Module;
+import com.grammatech.gtirb.Module.FileFormat;
+import com.grammatech.gtirb.Module.ISA;
+import com.grammatech.gtirb.SymbolicExpression.AttributeFlag;
+import java.io.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class TestIRReader {
+
+    /**
+     * Records the elements reported by an IRReader as strings.
+     */
+    static class Recorder implements IRReader.Visitor {
+        List<String> events = new ArrayList<String>();
+        Map<UUID, UUID> functionNames;
+        boolean contents;
+
+        @Override
+        public void onModule(IRReader.ModuleView module) {
+            events.add("module " + module.getName() + " " +
+                       module.getFileFormat() + " " + module.getIsa());
+        }
+
+        @Override
+        public void onSection(IRReader.SectionView section) {
+            events.add("section " + section.getName() + " " +
+                       section.getSectionFlags());
+        }
+
+        @Override
+        public void onByteInterval(IRReader.ByteIntervalView byteInterval) {
+            events.add("interval " + byteInterval.getAddress() + " " +
+                       byteInterval.getSize() + " " +
+                       byteInterval.getContents().size());
+        }
+
+        @Override
+        public void onBlock(IRReader.BlockView block) {
+            events.add((block.isCode() ? "code " : "data ") +
+                       block.getOffset() + " " + block.getSize());
+        }
+
+        @Override
+        public void onSymbol(IRReader.SymbolView symbol) {
+            events.add("symbol " + symbol.getName() + " " + symbol.getValue());
+        }
+
+        @Override
+        public void
+        onSymbolicExpression(IRReader.SymbolicExpressionView expression) {
+            events.add("expr " + expression.getIntervalOffset() + " " +
+                       expression.getOffset() + " " +
+                       expression.getAttributeFlags());
+        }
+
+        @Override
+        public void onEdge(IRReader.EdgeView edge) {
+            events.add("edge " + edge.getEdgeType() + " " +
+                       edge.isConditional());
+        }
+
+        @Override
+        public void onAuxData(IRReader.AuxDataView auxData) {
+            events.add("auxdata " + auxData.getName());
+            if (auxData.getName().equals("functionNames")) {
+                try {
+                    functionNames =
+                        auxData.decode(AuxDataSchemas.functionNames);
+                } catch (IOException ie) {
+                    fail(ie);
+                }
+            }
+        }
+
+        @Override
+        public boolean needsContents() {
+            return contents;
+        }
+    }
+
+    @Test
+    void testRead() throws Exception {
+        IR ir = new IR();
+        Module mod = new Module("/usr/bin/mod0", 0x1000, 0, FileFormat.ELF,
+                                ISA.X64, "mod0");
+        Symbol sym = new Symbol("sym0", 42);
+        mod.addSymbol(sym);
+        Section section = new Section(
+            ".text", new HashSet<Section.SectionFlag>(Arrays.asList(
+                         Section.SectionFlag.Readable,
+                         Section.SectionFlag.Executable)),
+            new ArrayList<ByteInterval>());
+        ByteInterval bi = new ByteInterval(new byte[16], 0x1000);
+        CodeBlock code = new CodeBlock(4, 0, CodeBlock.DecodeMode.Default);
+        bi.insertByteBlock(code);
+        bi.insertByteBlock(new DataBlock(8, 8));
+        SymbolicExpression expr =
+            new SymAddrConst(3, sym.getUuid(), new HashSet<AttributeFlag>());
+        expr.addAttributeFlag(AttributeFlag.PLT);
+        bi.insertSymbolicExpression(1, expr);
+        section.addByteInterval(bi);
+        mod.addSection(section);
+        Map<UUID, UUID> functionNames = new HashMap<UUID, UUID>();
+        functionNames.put(code.getUuid(), sym.getUuid());
+        mod.putAuxData(AuxDataSchemas.functionNames, functionNames);
+        ir.addModule(mod);
+        List<Edge> edges = new ArrayList<Edge>();
+        edges.add(new Edge(code.getUuid(), code.getUuid(), EdgeType.Branch,
+                           true, true));
+        ir.setCfg(new CFG(edges, new ArrayList<byte[]>()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        Recorder recorder = new Recorder();
+        IRReader.read(new ByteArrayInputStream(out.toByteArray()), recorder);
+
+        // Elements are reported after their contents.
+        List<String> expected = Arrays.asList(
+            "auxdata functionNames", "symbol sym0 42", "code 0 4",
+            "data 8 8", "expr 1 3 [PLT]", "interval 4096 16 0",
+            "section .text [Readable, Executable]", "module mod0 ELF X64",
+            "edge Branch true");
+        List<String> events = new ArrayList<String>(recorder.events);
+        assertEquals(expected.size(), events.size());
+        assertTrue(events.containsAll(expected));
+        assertTrue(events.indexOf("expr 1 3 [PLT]") <
+                   events.indexOf("interval 4096 16 0"));
+        assertTrue(events.indexOf("interval 4096 16 0") <
+                   events.indexOf("section .text [Readable, Executable]"));
+        assertTrue(events.indexOf("section .text [Readable, Executable]") <
+                   events.indexOf("module mod0 ELF X64"));
+        assertEquals(functionNames, recorder.functionNames);
+
+        // The same elements are reported when the fields are in field
+        // number order, as other serializers write them.
+        ByteArrayOutputStream ordered = new ByteArrayOutputStream();
+        ordered.write(Arrays.copyOfRange(out.toByteArray(), 0, 8));
+        ir.toProtobuf().build().writeTo(ordered);
+        Recorder orderedRecorder = new Recorder();
+        orderedRecorder.contents = true;
+        IRReader.read(new ByteArrayInputStream(ordered.toByteArray()),
+                      orderedRecorder);
+        events.set(events.indexOf("interval 4096 16 0"),
+                   "interval 4096 16 16");
+        assertEquals(new HashSet<String>(events),
+                     new HashSet<String>(orderedRecorder.events));
+
+        // Anything but a GTIRB file is rejected.
+        assertThrows(IOException.class,
+                     ()
+                         -> IRReader.read(
+                             new ByteArrayInputStream(new byte[8]), recorder));
+    }
+}
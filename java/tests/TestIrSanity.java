@@ -7,9 +7,16 @@ import com.grammatech.gtirb.Edge.EdgeType;
 import com.grammatech.gtirb.Module;
 import com.grammatech.gtirb.Module.FileFormat;
 import com.grammatech.gtirb.Module.ISA;
+import com.grammatech.gtirb.SymbolicExpression.AttributeFlag;
+import com.grammatech.gtirb.proto.IROuterClass;
+import com.grammatech.gtirb.proto.ModuleOuterClass;
+import com.grammatech.gtirb.proto.SectionOuterClass;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 
 public class TestIrSanity {
@@ -194,4 +201,477 @@ public class TestIrSanity {
             assertEquals("mod1", module.getName());
         }
     }
+
+    @Test
+    void testLazyModuleLoad() throws Exception {
+        IR ir = new IR();
+        Module mod0 = new Module("/usr/bin/mod0", 0x0000, 0x0FFF,
+                                 FileFormat.ELF, ISA.X64, "mod0");
+        mod0.addSymbol(new Symbol("sym0"));
+        ir.addModule(mod0);
+        Module mod1 = new Module("/usr/bin/mod1", 0x1000, 0x1FFF,
+                                 FileFormat.ELF, ISA.X64, "mod1");
+        Symbol sym1 = new Symbol("sym1");
+        mod1.addSymbol(sym1);
+        ir.addModule(mod1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        UUID sym1Uuid = sym1.getUuid();
+
+        LoadOptions options = new LoadOptions();
+        options.setLazyModules(true);
+        IR lazyIr = IR.loadFile(new ByteArrayInputStream(out.toByteArray()),
+                                options);
+        assertNotNull(lazyIr);
+        assertEquals(ir.getUuid(), lazyIr.getUuid());
+
+        // Looking up one module by name only loads that module.
+        List<Module> found = lazyIr.findModules("mod1");
+        assertEquals(1, found.size());
+        assertEquals("mod1", found.get(0).getName());
+        assertEquals(lazyIr, found.get(0).getIr().get());
+        assertEquals("sym1", found.get(0).getSymbols().get(0).getName());
+        assertSame(found.get(0), lazyIr.getModules().get(1));
+
+        // Modules that were never loaded are saved unchanged.
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+        lazyIr.saveFile(out2);
+        IR reloaded = IR.loadFile(new ByteArrayInputStream(out2.toByteArray()));
+        assertNotNull(reloaded);
+        List<Module> modules = reloaded.getModules();
+        assertEquals(2, modules.size());
+        assertEquals("mod0", modules.get(0).getName());
+        assertEquals("sym0", modules.get(0).getSymbols().get(0).getName());
+        assertEquals(sym1Uuid, modules.get(1).getSymbols().get(0).getUuid());
+    }
+
+    @Test
+    void testStreamingSave() throws Exception {
+        IR ir = new IR();
+        for (int i = 0; i < 2; i++) {
+            Module mod = new Module("/usr/bin/mod" + i, 0x1000 * i, 0,
+                                    FileFormat.ELF, ISA.X64, "mod" + i);
+            mod.addSymbol(new Symbol("sym" + i));
+            for (int j = 0; j < 3; j++) {
+                Section section = new Section(
+                    ".sec" + j, new HashSet<Section.SectionFlag>(),
+                    new ArrayList<ByteInterval>());
+                for (int k = 0; k < 2; k++) {
+                    ByteInterval bi = new ByteInterval(
+                        new byte[16 * (k + 1)], 0x1000 * j + 0x100 * k);
+                    bi.insertByteBlock(
+                        new CodeBlock(4, k, CodeBlock.DecodeMode.Default));
+                    bi.insertByteBlock(new DataBlock(2, 8));
+                    section.addByteInterval(bi);
+                }
+                mod.addSection(section);
+            }
+            ir.addModule(mod);
+        }
+        ir.setCfg(new CFG(new ArrayList<Edge>(), new ArrayList<byte[]>()));
+
+        // The streamed file holds the same IR message as toProtobuf.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        byte[] bytes = out.toByteArray();
+        IROuterClass.IR protoIr = IROuterClass.IR.parseFrom(
+            Arrays.copyOfRange(bytes, 8, bytes.length));
+        assertEquals(ir.toProtobuf().build(), protoIr);
+
+        // Modules that were never loaded are streamed as they are.
+        LoadOptions options = new LoadOptions();
+        options.setLazyModules(true);
+        IR lazyIr = IR.loadFile(new ByteArrayInputStream(bytes), options);
+        assertEquals(1, lazyIr.findModules("mod1").size());
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+        lazyIr.saveFile(out2);
+        byte[] bytes2 = out2.toByteArray();
+        assertEquals(protoIr, IROuterClass.IR.parseFrom(Arrays.copyOfRange(
+                                  bytes2, 8, bytes2.length)));
+    }
+
+    @Test
+    void testSelectiveLoad() throws Exception {
+        IR ir = new IR();
+        for (int i = 0; i < 2; i++) {
+            Module mod = new Module("/usr/bin/mod" + i, 0x1000 * i, 0,
+                                    FileFormat.ELF, ISA.X64, "mod" + i);
+            Symbol sym = new Symbol("sym" + i);
+            mod.addSymbol(sym);
+            Section text = new Section(
+                ".text", EnumSet.of(Section.SectionFlag.Executable),
+                new ArrayList<ByteInterval>());
+            text.addByteInterval(new ByteInterval(new byte[4], 0x1000));
+            mod.addSection(text);
+            Section data =
+                new Section(".data", EnumSet.of(Section.SectionFlag.Writable),
+                            new ArrayList<ByteInterval>());
+            ByteInterval bi = new ByteInterval(new byte[8], 0x2000);
+            bi.insertByteBlock(new DataBlock(8, 0));
+            bi.insertSymbolicExpression(
+                0, new SymAddrConst(0, sym.getUuid(),
+                                    new HashSet<AttributeFlag>()));
+            data.addByteInterval(bi);
+            mod.addSection(data);
+            mod.putAuxData(AuxDataSchemas.functionNames,
+                           new HashMap<UUID, UUID>());
+            mod.putAuxData(AuxDataSchemas.comments,
+                           new HashMap<Offset, String>());
+            ir.addModule(mod);
+        }
+        List<Edge> edges = new ArrayList<Edge>();
+        edges.add(new Edge(UUID.randomUUID(), UUID.randomUUID(),
+                           EdgeType.Branch, false, true));
+        ir.setCfg(new CFG(edges, new ArrayList<byte[]>()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+
+        LoadOptions options = new LoadOptions();
+        options.setSkippedModules(Collections.singleton("mod0"));
+        options.setSkippedSectionFlags(
+            EnumSet.of(Section.SectionFlag.Executable));
+        options.setSkipContents(true);
+        options.setSkipSymbolicExpressions(true);
+        options.setSkipCfg(true);
+        options.setSkippedAuxData(Collections.singleton("comments"));
+        for (boolean lazy : Arrays.asList(false, true)) {
+            options.setLazyModules(lazy);
+            IR loaded = IR.loadFile(
+                new ByteArrayInputStream(out.toByteArray()), options);
+            assertNotNull(loaded);
+            assertTrue(loaded.getCfg().getEdgeList().isEmpty());
+            assertEquals(1, loaded.getModules().size());
+            Module mod = loaded.getModules().get(0);
+            assertEquals("mod1", mod.getName());
+            assertEquals("sym1", mod.getSymbols().get(0).getName());
+            assertTrue(mod.getAuxData(AuxDataSchemas.functionNames)
+                           .isPresent());
+            assertFalse(mod.getAuxData(AuxDataSchemas.comments).isPresent());
+            assertEquals(1, mod.getSections().size());
+            Section data = mod.getSections().get(0);
+            assertEquals(".data", data.getName());
+            ByteInterval bi = data.getByteIntervals().get(0);
+            assertEquals(8, bi.getSize());
+            assertEquals(0, bi.getInitializedSize());
+            assertEquals(1, bi.getBlockList().size());
+            assertFalse(bi.symbolicExpressionIterator().hasNext());
+        }
+
+        // Sections can also be skipped by name.
+        options = new LoadOptions();
+        options.setSkippedSections(Collections.singleton(".data"));
+        IR loaded =
+            IR.loadFile(new ByteArrayInputStream(out.toByteArray()), options);
+        for (Module mod : loaded.getModules()) {
+            assertEquals(1, mod.getSections().size());
+            assertEquals(".text", mod.getSections().get(0).getName());
+            assertEquals(4, mod.getSections()
+                                .get(0)
+                                .getByteIntervals()
+                                .get(0)
+                                .getInitializedSize());
+        }
+
+        // Flags that this version does not know do not stop a section from
+        // being skipped by its other flags.
+        IROuterClass.IR.Builder protoIr = ir.toProtobuf();
+        int headerLength = out.size() - protoIr.build().getSerializedSize();
+        for (ModuleOuterClass.Module.Builder protoModule :
+             protoIr.getModulesBuilderList()) {
+            for (SectionOuterClass.Section.Builder protoSection :
+                 protoModule.getSectionsBuilderList()) {
+                List<Integer> flags = new ArrayList<Integer>();
+                flags.add(1000);
+                flags.addAll(protoSection.getSectionFlagsValueList());
+                protoSection.clearSectionFlags().addAllSectionFlagsValue(flags);
+            }
+        }
+        byte[] saved = out.toByteArray();
+        out.reset();
+        out.write(saved, 0, headerLength);
+        protoIr.build().writeTo(out);
+        options = new LoadOptions();
+        options.setSkippedSectionFlags(
+            EnumSet.of(Section.SectionFlag.Executable,
+                       Section.SectionFlag.Writable));
+        loaded =
+            IR.loadFile(new ByteArrayInputStream(out.toByteArray()), options);
+        assertNotNull(loaded);
+        for (Module mod : loaded.getModules())
+            assertTrue(mod.getSections().isEmpty());
+    }
+
+    @Test
+    void testMemoryMappedLoad() throws Exception {
+        IR ir = new IR();
+        Module mod = new Module("/usr/bin/mod0", 0x0000, 0x0FFF,
+                                FileFormat.ELF, ISA.X64, "mod0");
+        Section section =
+            new Section(".text", new HashSet<Section.SectionFlag>(),
+                        new ArrayList<ByteInterval>());
+        section.addByteInterval(new ByteInterval("contents".getBytes(), 0));
+        mod.addSection(section);
+        ir.addModule(mod);
+        // Each module is mapped separately from the other fields.
+        ir.addModule(new Module("/usr/bin/mod1", 0, 0, FileFormat.ELF,
+                                ISA.X64, "mod1"));
+
+        File file = File.createTempFile("temp", null);
+        String filename = file.getPath();
+        IR mappedIr;
+        IR lazyMappedIr;
+        try {
+            ir.saveFile(filename);
+            LoadOptions options = new LoadOptions();
+            options.setMemoryMapped(true);
+            mappedIr = IR.loadFile(filename, options);
+            options.setLazyModules(true);
+            lazyMappedIr = IR.loadFile(filename, options);
+        } finally {
+            file.delete();
+        }
+
+        for (IR loaded : Arrays.asList(mappedIr, lazyMappedIr)) {
+            assertNotNull(loaded);
+            assertEquals(ir.getUuid(), loaded.getUuid());
+            assertEquals(2, loaded.getModules().size());
+            Module modLoaded = loaded.getModules().get(0);
+            assertEquals("mod0", modLoaded.getName());
+            assertEquals("mod1", loaded.getModules().get(1).getName());
+            ByteInterval bi =
+                modLoaded.getSections().get(0).getByteIntervals().get(0);
+            // The contents refer to the mapping until they are modified.
+            assertTrue(bi.getByteBuffer().isDirect());
+            assertArrayEquals("contents".getBytes(), bi.getBytes());
+        }
+
+        // A missing file fails to load like any other unreadable file.
+        LoadOptions options = new LoadOptions();
+        options.setMemoryMapped(true);
+        assertNull(IR.loadFile(filename, options));
+    }
+
+    @Test
+    void testParallelSaveAndLoad() throws Exception {
+        IR ir = new IR();
+        for (int i = 0; i < 8; i++) {
+            Module mod = new Module("/usr/bin/mod" + i, 0x1000 * i, 0,
+                                    FileFormat.ELF, ISA.X64, "mod" + i);
+            mod.addSymbol(new Symbol("sym" + i));
+            ir.addModule(mod);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ir.saveFile(out, executor);
+
+            // The result loads the same sequentially and concurrently.
+            LoadOptions options = new LoadOptions();
+            options.setExecutor(executor);
+            IR parallelIr = IR.loadFile(
+                new ByteArrayInputStream(out.toByteArray()), options);
+            IR sequentialIr =
+                IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+            for (IR loaded : Arrays.asList(parallelIr, sequentialIr)) {
+                assertNotNull(loaded);
+                assertEquals(ir.getUuid(), loaded.getUuid());
+                List<Module> modules = loaded.getModules();
+                assertEquals(8, modules.size());
+                for (int i = 0; i < 8; i++) {
+                    Module mod = modules.get(i);
+                    assertEquals("mod" + i, mod.getName());
+                    assertEquals(loaded, mod.getIr().get());
+                    assertEquals("sym" + i, mod.getSymbols().get(0).getName());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testNodeRegistry() throws Exception {
+        IR ir = new IR();
+        Module mod = new Module("/usr/bin/mod0", 0x0000, 0x0FFF,
+                                FileFormat.ELF, ISA.X64, "mod0");
+        Symbol sym = new Symbol("sym0");
+        mod.addSymbol(sym);
+        ir.addModule(mod);
+        UUID symUuid = sym.getUuid();
+        assertSame(sym, ir.findNode(symUuid));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        IR ir1 = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+        IR ir2 = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+
+        // Each loaded IR finds its own copy of the node.
+        Symbol sym1 = ir1.findNode(symUuid, Symbol.class);
+        Symbol sym2 = ir2.findNode(symUuid, Symbol.class);
+        assertNotNull(sym1);
+        assertNotNull(sym2);
+        assertNotSame(sym1, sym2);
+        assertSame(sym1, ir1.getModules().get(0).getSymbols().get(0));
+        assertSame(sym2, ir2.getModules().get(0).getSymbols().get(0));
+        assertNull(ir1.findNode(symUuid, Module.class));
+
+        // Once closed, the nodes of an IR can no longer be found. The
+        // original node belongs to another IR, so it is not found either.
+        ir1.close();
+        assertNull(ir1.findNode(symUuid));
+        assertSame(sym2, ir2.findNode(symUuid));
+        ir2.close();
+        assertSame(sym, Node.getByUuid(symUuid));
+
+        // Nodes that only a loaded IR has are found until it is closed.
+        IROuterClass.IR.Builder protoIr = ir.toProtobuf();
+        int headerLength = out.size() - protoIr.build().getSerializedSize();
+        byte[] saved = out.toByteArray();
+        UUID loadedUuid = UUID.randomUUID();
+        protoIr.getModulesBuilder(0).setUuid(
+            Util.uuidToByteString(loadedUuid));
+        out.reset();
+        out.write(saved, 0, headerLength);
+        protoIr.build().writeTo(out);
+        IR ir3 = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+        Module mod3 = ir3.getModules().get(0);
+        assertSame(mod3, Node.getByUuid(loadedUuid));
+        assertSame(mod3, Node.getByUuid(loadedUuid, Module.class));
+        ir3.close();
+        assertNull(Node.getByUuid(loadedUuid));
+    }
+
+    @Test
+    void testFreeze() throws Exception {
+        IR ir = new IR();
+        Module mod = new Module("/usr/bin/mod0", 0, 0, FileFormat.ELF,
+                                ISA.X64, "mod0");
+        ir.addModule(mod);
+        ByteInterval bi = new ByteInterval(new byte[] {1, 2, 3, 4}, 0x1000);
+        CodeBlock code = new CodeBlock(4, 0, CodeBlock.DecodeMode.Default);
+        bi.insertByteBlock(code);
+        Symbol sym = new Symbol("main", code.getUuid());
+        mod.addSymbol(sym);
+        SymAddrConst expr =
+            new SymAddrConst(0, sym.getUuid(), new HashSet<AttributeFlag>());
+        bi.insertSymbolicExpression(0, expr);
+        Section text = new Section(".text", new HashSet<Section.SectionFlag>(),
+                                   Arrays.asList(bi));
+        mod.addSection(text);
+        Map<UUID, Long> alignment = new HashMap<UUID, Long>();
+        alignment.put(code.getUuid(), 16L);
+        mod.putAuxData(AuxDataSchemas.alignment, alignment);
+        Edge edge = new Edge(code.getUuid(), code.getUuid(), EdgeType.Branch,
+                             false, true);
+        ir.setCfg(new CFG(
+            new ArrayList<Edge>(Arrays.asList(edge)),
+            new ArrayList<byte[]>(Arrays.asList(
+                Util.uuidToByteArray(code.getUuid())))));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        IR loaded = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+        assertFalse(loaded.isFrozen());
+        loaded.freeze();
+        loaded.freeze();
+        assertTrue(loaded.isFrozen());
+        Module frozenMod = loaded.getModules().get(0);
+        Section frozenText = frozenMod.getSections().get(0);
+        ByteInterval frozenBi = frozenText.getByteIntervals().get(0);
+        ByteBlock frozenCode = frozenBi.getBlockList().get(0);
+        Symbol frozenSym = frozenMod.getSymbols().get(0);
+        SymbolicExpression frozenExpr = frozenBi.findSymbolicExpressionAt(0);
+        Edge frozenEdge = loaded.getCfg().getEdgeList().get(0);
+        for (Node node : Arrays.asList(frozenMod, frozenText, frozenBi,
+                                       frozenCode, frozenSym))
+            assertTrue(node.isFrozen());
+        assertTrue(frozenExpr.isFrozen());
+        assertTrue(frozenEdge.isFrozen());
+
+        // Every kind of change is rejected.
+        List<Runnable> changes = Arrays.asList(
+            () -> loaded.addModule(new Module("", 0, 0, FileFormat.ELF,
+                                              ISA.X64, "other")),
+            () -> loaded.setVersion(0),
+            () -> loaded.getCfg().getEdgeList().clear(),
+            () -> loaded.getCfg().getVerticeList().clear(),
+            () -> frozenEdge.setEdgeType(EdgeType.Call),
+            () -> frozenMod.setName("other"),
+            () -> frozenMod.addSymbol(new Symbol("other")),
+            () -> frozenMod.removeSection(frozenText),
+            () -> frozenMod.putAuxData(AuxDataSchemas.alignment, alignment),
+            () -> frozenMod.clearAuxData(),
+            () -> frozenText.addByteInterval(new ByteInterval()),
+            () -> frozenBi.setAddress(0),
+            () -> frozenBi.insertByteBlock(new DataBlock(1, 0)),
+            () -> frozenBi.removeSymbolicExpression(0),
+            () -> frozenCode.setSize(8),
+            () -> frozenSym.setName("other"),
+            () -> frozenSym.setValue(0),
+            () -> ((SymAddrConst)frozenExpr).setOffset(4),
+            () -> frozenExpr.addAttributeFlag(AttributeFlag.PLT),
+            ()
+                -> frozenMod.getAuxData(AuxDataSchemas.alignment)
+                       .get()
+                       .put(code.getUuid(), 8L),
+            () -> frozenMod.markAuxDataDirty(AuxDataSchemas.alignment));
+        for (Runnable change : changes)
+            assertThrows(UnsupportedOperationException.class, change::run);
+        // Including through the AuxData entries themselves.
+        AuxDataContainer.AuxData frozenAlignment =
+            frozenMod.getAuxDataMap().get(AuxDataSchemas.alignment.getName());
+        assertThrows(UnsupportedOperationException.class,
+                     ()
+                         -> frozenAlignment
+                                .getDecodedData(AuxDataSchemas.alignment)
+                                .put(code.getUuid(), 8L));
+        assertThrows(UnsupportedOperationException.class,
+                     () -> frozenAlignment.markDirty());
+
+        // The contents are copied rather than exposed.
+        frozenBi.getBytes()[0] = 42;
+        assertEquals(1, frozenBi.getBytes()[0]);
+        assertEquals(1, frozenBi.getByteBuffer().get(0));
+        loaded.getCfg().getVerticeList().get(0)[0] ^= 1;
+        assertArrayEquals(Util.uuidToByteArray(code.getUuid()),
+                          loaded.getCfg().getVerticeList().get(0));
+
+        // Many threads can query the frozen IR at once.
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results =
+                new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(
+                    ()
+                        -> frozenMod.findBlocksOn(0x1002).equals(
+                               Arrays.asList(frozenCode)) &&
+                               frozenMod.findSymbols("main").equals(
+                                   Arrays.asList(frozenSym)) &&
+                               frozenMod.findSymbols(frozenCode).equals(
+                                   Arrays.asList(frozenSym)) &&
+                               frozenMod.findXrefs(frozenSym).size() == 1 &&
+                               frozenMod.getAuxData(AuxDataSchemas.alignment)
+                                       .get()
+                                       .get(code.getUuid()) == 16L &&
+                               frozenMod.blocks().parallel().count() == 1));
+            }
+            for (Future<Boolean> result : results)
+                assertTrue(result.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        // A frozen IR can still be saved, and loads as mutable.
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+        loaded.saveFile(out2);
+        IR reloaded = IR.loadFile(new ByteArrayInputStream(out2.toByteArray()));
+        assertFalse(reloaded.isFrozen());
+        reloaded.getModules().get(0).setName("other");
+        assertEquals(Optional.of(alignment),
+                     reloaded.getModules().get(0).getAuxData(
+                         AuxDataSchemas.alignment));
+    }
 }
@@ -8,8 +8,13 @@ import com.grammatech.gtirb.Module;
 import com.grammatech.gtirb.Module.FileFormat;
 import com.grammatech.gtirb.Module.ISA;
 import com.grammatech.gtirb.Section.SectionFlag;
+import com.grammatech.gtirb.SymbolicExpression.AttributeFlag;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 public class TestModules {
@@ -256,4 +261,353 @@ public class TestModules {
         assertEquals(sectionsAt2.size(), 1);
         assertEquals(sectionsAt2.get(0), section3);
     }
+
+    @Test
+    void testModuleFindBlocksAndSymbolicExpressions() throws Exception {
+        Module module = new Module("module", 0x0000, 0x0FFF, FileFormat.ELF,
+                                   ISA.X64, "module");
+        Set<SectionFlag> flags = new HashSet<SectionFlag>();
+
+        ByteInterval bi1 = new ByteInterval(null, 0x1000);
+        bi1.setSize(0x100);
+        CodeBlock c1 = new CodeBlock(0x10, 0x0, DecodeMode.Default);
+        CodeBlock c2 = new CodeBlock(0x10, 0x10, DecodeMode.Default);
+        bi1.insertByteBlock(c1);
+        bi1.insertByteBlock(c2);
+        module.addSection(new Section(".text", flags,
+                                      new ArrayList<>(Arrays.asList(bi1))));
+
+        ByteInterval bi2 = new ByteInterval(null, 0x2000);
+        bi2.setSize(0x100);
+        DataBlock d1 = new DataBlock(0x8, 0x4);
+        bi2.insertByteBlock(d1);
+        Section data = new Section(".data", flags,
+                                   new ArrayList<>(Arrays.asList(bi2)));
+        module.addSection(data);
+
+        assertEquals(Arrays.asList(c2), module.findBlocksOn(0x1018));
+        assertEquals(Arrays.asList(c1, c2), module.findBlocksOn(0x1010));
+        assertEquals(Arrays.asList(c2, d1),
+                     module.findBlocksOn(0x1018, 0x2008));
+        assertEquals(Arrays.asList(d1), module.findBlocksAt(0x2004));
+        assertEquals(Arrays.asList(c2, d1),
+                     module.findBlocksAt(0x1008, 0x3000));
+        assertTrue(module.findBlocksAt(0x2008).isEmpty());
+
+        // The index follows blocks and byte intervals as they change.
+        DataBlock d2 = new DataBlock(0x4, 0x20);
+        bi2.insertByteBlock(d2);
+        assertEquals(Arrays.asList(d2), module.findBlocksOn(0x2022));
+        bi2.setAddress(0x3000);
+        assertTrue(module.findBlocksOn(0x2022).isEmpty());
+        assertEquals(Arrays.asList(d2), module.findBlocksOn(0x3022));
+        bi2.setAddress(0x2000);
+        bi1.removeByteBlock(c1);
+        assertTrue(module.findBlocksAt(0x1000).isEmpty());
+        module.removeSection(data);
+        assertTrue(module.findBlocksOn(0x2022).isEmpty());
+        c2.setSize(0x40);
+        assertEquals(Arrays.asList(c2), module.findBlocksOn(0x1048));
+        module.addSection(data);
+        List<ByteBlock> visited = new ArrayList<ByteBlock>();
+        module.forEachBlockOn(0x1018, 0x2008, visited::add);
+        assertEquals(Arrays.asList(c2, d1), visited);
+        visited.clear();
+        module.forEachBlockAt(0x2004, visited::add);
+        assertEquals(Arrays.asList(d1), visited);
+
+        // Symbolic expressions are found by absolute address.
+        SymAddrConst s1 = new SymAddrConst(0, UUID.randomUUID(),
+                                           new HashSet<AttributeFlag>());
+        SymAddrConst s2 = new SymAddrConst(0, UUID.randomUUID(),
+                                           new HashSet<AttributeFlag>());
+        bi1.insertSymbolicExpression(0x14, s1);
+        bi1.insertSymbolicExpression(0x4, s2);
+        Iterator<Map.Entry<Long, SymbolicExpression>> it =
+            module.findSymbolicExpressionsAt(0x1000, 0x1014);
+        Map.Entry<Long, SymbolicExpression> entry = it.next();
+        assertEquals(0x1004L, entry.getKey());
+        assertEquals(s2, entry.getValue());
+        assertFalse(it.hasNext());
+        bi1.removeSymbolicExpression(0x4);
+        it = module.findSymbolicExpressionsAt(0x1000, 0x1100);
+        assertEquals(s1, it.next().getValue());
+        assertFalse(it.hasNext());
+        bi1.setAddress(0x4000);
+        assertFalse(module.findSymbolicExpressionsAt(0x1000, 0x1100).hasNext());
+        entry = module.findSymbolicExpressionsAt(0x4000, 0x4100).next();
+        assertEquals(0x4014L, entry.getKey());
+        assertEquals(s1, entry.getValue());
+    }
+
+    @Test
+    void testFindBlocksOnAfterRandomUpdates() throws Exception {
+        Module module = new Module("module", 0, 0, FileFormat.ELF, ISA.X64,
+                                   "module");
+        ByteInterval bi = new ByteInterval(null, 0x10000);
+        bi.setSize(0x10000);
+        module.addSection(new Section(".data", new HashSet<SectionFlag>(),
+                                      new ArrayList<>(Arrays.asList(bi))));
+        // One large block spans everything, as .bss often does.
+        DataBlock large = new DataBlock(0x10000, 0);
+        bi.insertByteBlock(large);
+        List<DataBlock> blocks = new ArrayList<DataBlock>();
+        blocks.add(large);
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            int action = random.nextInt(4);
+            if (action == 0 && blocks.size() > 1) {
+                DataBlock block =
+                    blocks.remove(1 + random.nextInt(blocks.size() - 1));
+                bi.removeByteBlock(block);
+            } else if (action == 1) {
+                blocks.get(random.nextInt(blocks.size()))
+                    .setSize(random.nextInt(0x100));
+            } else {
+                DataBlock block = new DataBlock(random.nextInt(0x100),
+                                                random.nextInt(0x10000));
+                bi.insertByteBlock(block);
+                blocks.add(block);
+            }
+            long address = 0x10000 + random.nextInt(0x10000);
+            Set<ByteBlock> expected = new HashSet<ByteBlock>();
+            for (DataBlock block : blocks) {
+                long start = block.getAddress().getAsLong();
+                if (start <= address && start + block.getSize() >= address)
+                    expected.add(block);
+            }
+            assertEquals(expected,
+                         new HashSet<ByteBlock>(module.findBlocksOn(address)));
+        }
+    }
+
+    @Test
+    void testLiveViews() throws Exception {
+        Module mod = new Module("/bin/foo", 0, 0, FileFormat.ELF, ISA.X64,
+                                "foo");
+        Section text = new Section(".text", new HashSet<SectionFlag>(),
+                                   new ArrayList<ByteInterval>());
+        Section data = new Section(".data", new HashSet<SectionFlag>(),
+                                   new ArrayList<ByteInterval>());
+        ByteInterval bi0 = new ByteInterval(new byte[16], 0x1000);
+        ByteInterval bi1 = new ByteInterval(new byte[16], 0x2000);
+        CodeBlock cb0 = new CodeBlock(4, 0, DecodeMode.Default);
+        CodeBlock cb1 = new CodeBlock(4, 4, DecodeMode.Default);
+        DataBlock db = new DataBlock(8, 0);
+        bi0.insertByteBlock(cb1);
+        bi0.insertByteBlock(cb0);
+        bi1.insertByteBlock(db);
+        text.addByteInterval(bi0);
+        data.addByteInterval(bi1);
+
+        // The views are empty until the items are added, and then follow the
+        // trees in order.
+        Collection<Section> sections = mod.getSectionView();
+        assertTrue(sections.isEmpty());
+        mod.addSection(data);
+        mod.addSection(text);
+        assertEquals(2, sections.size());
+        assertEquals(Arrays.asList(text, data), new ArrayList<>(sections));
+        assertSame(sections, mod.getSectionView());
+        assertEquals(Arrays.asList(bi0),
+                     new ArrayList<>(text.getByteIntervalView()));
+        assertEquals(Arrays.asList(cb0, cb1),
+                     new ArrayList<>(bi0.getBlockView()));
+        assertTrue(bi0.getBlockView().contains(cb1));
+        assertFalse(bi0.getBlockView().contains(db));
+
+        List<ByteBlock> blocks = new ArrayList<ByteBlock>();
+        mod.forEachBlock(blocks::add);
+        assertEquals(Arrays.asList(cb0, cb1, db), blocks);
+        List<ByteInterval> byteIntervals = new ArrayList<ByteInterval>();
+        mod.forEachByteInterval(byteIntervals::add);
+        assertEquals(Arrays.asList(bi0, bi1), byteIntervals);
+        List<Section> sectionList = new ArrayList<Section>();
+        mod.forEachSection(sectionList::add);
+        assertEquals(mod.getSections(), sectionList);
+
+        // The views are read-only, and reflect later removals.
+        assertThrows(UnsupportedOperationException.class,
+                     () -> sections.remove(text));
+        assertThrows(UnsupportedOperationException.class,
+                     () -> bi0.getBlockView().add(db));
+        Iterator<ByteBlock> it = bi0.byteBlockIterator();
+        it.next();
+        assertThrows(UnsupportedOperationException.class, () -> it.remove());
+        bi0.removeByteBlock(cb0);
+        assertThrows(ConcurrentModificationException.class, () -> it.next());
+        assertEquals(Arrays.asList(cb1), new ArrayList<>(bi0.getBlockView()));
+        mod.removeSection(text);
+        assertEquals(Arrays.asList(data), new ArrayList<>(sections));
+        Iterator<Section> sectionIt = sections.iterator();
+        sectionIt.next();
+        assertFalse(sectionIt.hasNext());
+        assertThrows(NoSuchElementException.class, () -> sectionIt.next());
+    }
+
+    @Test
+    void testStreams() throws Exception {
+        IR ir = new IR();
+        Module mod = new Module("/bin/foo", 0, 0, FileFormat.ELF, ISA.X64,
+                                "foo");
+        ir.addModule(mod);
+        // One byte interval holds most of the blocks.
+        ByteInterval text = new ByteInterval(new byte[4096], 0x1000);
+        for (int i = 0; i < 1000; i++)
+            text.insertByteBlock(new CodeBlock(4, i * 4, DecodeMode.Default));
+        mod.addSection(new Section(".text", new HashSet<SectionFlag>(),
+                                   Arrays.asList(text)));
+        List<ByteInterval> dataIntervals = new ArrayList<ByteInterval>();
+        for (int i = 0; i < 10; i++) {
+            ByteInterval bi = new ByteInterval(new byte[16], 0x10000 + i * 16);
+            bi.insertByteBlock(new DataBlock(8, 0));
+            bi.insertByteBlock(new DataBlock(8, 8));
+            bi.insertSymbolicExpression(
+                0, new SymAddrConst(0, UUID.randomUUID(),
+                                    new HashSet<AttributeFlag>()));
+            dataIntervals.add(bi);
+        }
+        mod.addSection(new Section(".data", new HashSet<SectionFlag>(),
+                                   dataIntervals));
+        for (int i = 0; i < 100; i++)
+            mod.addSymbol(new Symbol("sym" + i, i));
+
+        // Parallel streams see the same elements in the same order as
+        // sequential iteration.
+        List<ByteBlock> blocks = new ArrayList<ByteBlock>();
+        mod.forEachBlock(blocks::add);
+        assertEquals(1020, blocks.size());
+        assertEquals(blocks, mod.blocks().collect(Collectors.toList()));
+        assertEquals(blocks,
+                     mod.blocks().parallel().collect(Collectors.toList()));
+        assertEquals(1000, mod.codeBlocks().parallel().count());
+        assertEquals(20, mod.dataBlocks().parallel().count());
+        assertEquals(mod.getSections(),
+                     mod.sections().collect(Collectors.toList()));
+        List<ByteInterval> byteIntervals = new ArrayList<ByteInterval>();
+        mod.forEachByteInterval(byteIntervals::add);
+        assertEquals(byteIntervals, mod.byteIntervals().parallel().collect(
+                                        Collectors.toList()));
+        assertEquals(mod.getSymbols(),
+                     mod.symbols().parallel().collect(Collectors.toList()));
+        assertEquals(10, dataIntervals.stream()
+                             .flatMap(ByteInterval::symbolicExpressions)
+                             .count());
+        assertEquals(Arrays.asList(mod),
+                     ir.modules().collect(Collectors.toList()));
+
+        // The blocks of a single large byte interval are split as well.
+        Spliterator<ByteBlock> rest = text.blocks().spliterator();
+        Spliterator<ByteBlock> prefix = rest.trySplit();
+        assertNotNull(prefix);
+        List<ByteBlock> split = new ArrayList<ByteBlock>();
+        prefix.forEachRemaining(split::add);
+        assertTrue(split.size() > 0 && split.size() < 1000);
+        rest.forEachRemaining(split::add);
+        assertEquals(text.getBlockList(), split);
+
+        List<Spliterator<ByteBlock>> parts =
+            new ArrayList<Spliterator<ByteBlock>>();
+        parts.add(mod.blocks().spliterator());
+        for (int i = 0; i < 4; i++) {
+            List<Spliterator<ByteBlock>> next =
+                new ArrayList<Spliterator<ByteBlock>>();
+            for (Spliterator<ByteBlock> part : parts) {
+                Spliterator<ByteBlock> first = part.trySplit();
+                if (first != null)
+                    next.add(first);
+                next.add(part);
+            }
+            parts = next;
+        }
+        assertTrue(parts.size() > 8);
+        List<ByteBlock> joined = new ArrayList<ByteBlock>();
+        for (Spliterator<ByteBlock> part : parts)
+            part.forEachRemaining(joined::add);
+        assertEquals(blocks, joined);
+
+        List<Edge> edges = new ArrayList<Edge>();
+        edges.add(new Edge(blocks.get(0).getUuid(), blocks.get(1).getUuid(),
+                           Edge.EdgeType.Fallthrough, false, true));
+        CFG cfg = new CFG(edges, new ArrayList<byte[]>());
+        assertEquals(edges, cfg.edges().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testConcurrentMutation() throws Exception {
+        Module mod = new Module("/usr/bin/mod", 0, 0, FileFormat.ELF,
+                                ISA.X64, "mod");
+        assertFalse(mod.isConcurrent());
+        mod.setConcurrent(true);
+        assertTrue(mod.isConcurrent());
+
+        List<ByteInterval> byteIntervals = new ArrayList<ByteInterval>();
+        for (int i = 0; i < 8; i++) {
+            ByteInterval bi = new ByteInterval(new byte[0x1000], 0x10000 * i);
+            mod.addSection(new Section(".s" + i, new HashSet<SectionFlag>(),
+                                       Arrays.asList(bi)));
+            byteIntervals.add(bi);
+        }
+        // Build the indexes, so that they are updated rather than rebuilt.
+        Symbol unused = new Symbol("unused", 0);
+        assertTrue(mod.findXrefs(unused).isEmpty());
+        assertTrue(mod.findSymbols(unused).isEmpty());
+        assertTrue(mod.findBlocksOn(0).isEmpty());
+
+        // Each task fills one of the byte intervals and adds a section.
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 8; i++) {
+                ByteInterval bi = byteIntervals.get(i);
+                long address = 0x100000 + 0x1000 * i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 256; j++) {
+                        CodeBlock block =
+                            new CodeBlock(16, j * 16, DecodeMode.Default);
+                        bi.insertByteBlock(block);
+                        Symbol sym = new Symbol("f", block.getUuid());
+                        mod.addSymbol(sym);
+                        bi.insertSymbolicExpression(
+                            j * 16 + 1,
+                            new SymAddrConst(0, sym.getUuid(),
+                                             new HashSet<AttributeFlag>()));
+                    }
+                    ByteInterval added =
+                        new ByteInterval(new byte[16], address);
+                    mod.addSection(new Section(".t", new HashSet<SectionFlag>(),
+                                               Arrays.asList(added)));
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(16, mod.getSections().size());
+        for (Section section : mod.getSections())
+            assertEquals(mod, section.getModule().get());
+        assertEquals(8 * 256, mod.getSymbols().size());
+        assertEquals(8 * 256, mod.findSymbols("f").size());
+        assertEquals(8 * 256, mod.blocks().count());
+        for (ByteInterval bi : byteIntervals) {
+            assertEquals(256, bi.getBlockList().size());
+            assertEquals(256, bi.symbolicExpressions().count());
+            for (ByteBlock block : bi.getBlockList()) {
+                assertEquals(bi, block.getByteInterval().get());
+                List<Symbol> symbols = mod.findSymbols(block);
+                assertEquals(1, symbols.size());
+                List<Xref> xrefs = mod.findXrefs(symbols.get(0));
+                assertEquals(1, xrefs.size());
+                assertEquals(bi, xrefs.get(0).getByteInterval());
+                assertEquals(block.getOffset() + 1, xrefs.get(0).getOffset());
+            }
+        }
+        assertEquals(1, mod.findBlocksOn(0x10000 * 7 + 0xff8).size());
+        assertEquals(1, mod.findSectionsOn(0x107008).size());
+
+        mod.setConcurrent(false);
+        assertFalse(mod.isConcurrent());
+    }
 }
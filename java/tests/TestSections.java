@@ -131,6 +131,34 @@ public class TestSections {
         assertEquals(biAt2.get(0), bi2);
     }
 
+    @Test
+    void testSectionLookupAfterResize() throws Exception {
+        ByteInterval bi1 = new ByteInterval(null, 0x1000);
+        bi1.setSize(0x1000);
+        ByteInterval bi2 = new ByteInterval(null, 0x2000);
+        bi2.setSize(0x1000);
+        Section section = new Section("Section",
+                                      new HashSet<Section.SectionFlag>(),
+                                      Arrays.asList(bi1, bi2));
+        Module module = new Module("c:/foo.exe", 0, 0, Module.FileFormat.ELF,
+                                   Module.ISA.X64, "myModule");
+        module.addSection(section);
+
+        assertEquals(List.of(bi2), section.findByteIntervalsOn(0x2800));
+        assertEquals(List.of(), module.findSectionsOn(0x3800));
+
+        // Growing an interval must be visible to both the section and the
+        // module lookups.
+        bi1.setSize(0x2000);
+        assertEquals(List.of(bi1, bi2), section.findByteIntervalsOn(0x2800));
+        bi2.setSize(0x2000);
+        assertEquals(List.of(section), module.findSectionsOn(0x3800));
+
+        section.removeByteInterval(bi2);
+        assertEquals(List.of(bi1), section.findByteIntervalsOn(0x2800));
+        assertEquals(List.of(), module.findSectionsOn(0x3800));
+    }
+
     @Test
     void testSectionNoAddressIntervals() throws Exception {
         Section section =
@@ -83,4 +83,139 @@ class TestSymbolicExpressions {
         expr.removeUnknownFlag(0xF00eee);
         assertEquals(expr.getUnknownAttributeFlags().size(), 0);
     }
+
+    @Test
+    void testXrefIndex() throws Exception {
+        Module mod = new Module("/bin/foo", 0, 0, FileFormat.ELF, ISA.X64,
+                                "foo");
+        Symbol foo = new Symbol("foo", 0x1000);
+        Symbol bar = new Symbol("bar", 0x2000);
+        mod.addSymbol(foo);
+        mod.addSymbol(bar);
+        Set<AttributeFlag> noFlags = new HashSet<AttributeFlag>();
+        List<ByteInterval> byteIntervals = new ArrayList<ByteInterval>();
+        for (int i = 0; i < 8; i++) {
+            ByteInterval bi = new ByteInterval(new byte[16], 0x1000 * i);
+            bi.insertSymbolicExpression(
+                0, new SymAddrConst(0, foo.getUuid(), noFlags));
+            bi.insertSymbolicExpression(8, new SymAddrAddr(0, 1, foo.getUuid(),
+                                                           bar.getUuid(),
+                                                           noFlags));
+            byteIntervals.add(bi);
+        }
+        Section text = new Section(".text", new HashSet<Section.SectionFlag>(),
+                                   byteIntervals.subList(0, 4));
+        Section data = new Section(".data", new HashSet<Section.SectionFlag>(),
+                                   byteIntervals.subList(4, 8));
+        mod.addSection(text);
+        mod.addSection(data);
+
+        // The index is built in section, byte interval and offset order.
+        List<Xref> expected = new ArrayList<Xref>();
+        for (ByteInterval bi : byteIntervals) {
+            expected.add(new Xref(bi, 0));
+            expected.add(new Xref(bi, 8));
+        }
+        assertEquals(expected, mod.findXrefs(foo));
+        assertEquals(8, mod.findXrefs(bar).size());
+        assertSame(byteIntervals.get(0).findSymbolicExpressionAt(0),
+                   mod.findXrefs(foo).get(0).getSymbolicExpression());
+
+        // Inserting and removing symbolic expressions updates the index.
+        ByteInterval first = byteIntervals.get(0);
+        assertTrue(first.removeSymbolicExpression(0));
+        assertFalse(mod.findXrefs(foo).contains(new Xref(first, 0)));
+        assertEquals(15, mod.findXrefs(foo).size());
+        first.insertSymbolicExpression(
+            8, new SymAddrConst(0, bar.getUuid(), noFlags));
+        assertEquals(14, mod.findXrefs(foo).size());
+        assertEquals(8, mod.findXrefs(bar).size());
+        first.insertSymbolicExpression(
+            4, new SymAddrAddr(0, 1, bar.getUuid(), bar.getUuid(), noFlags));
+        assertEquals(9, mod.findXrefsBySymbol(bar.getUuid()).size());
+
+        // So does removing byte intervals and sections.
+        text.removeByteInterval(first);
+        assertEquals(7, mod.findXrefs(bar).size());
+        mod.removeSection(data);
+        assertEquals(3, mod.findXrefs(bar).size());
+        assertEquals(6, mod.findXrefs(foo).size());
+        first.insertSymbolicExpression(
+            12, new SymAddrConst(0, foo.getUuid(), noFlags));
+        assertEquals(6, mod.findXrefs(foo).size());
+        assertTrue(mod.findXrefsBySymbol(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void testRetargetXrefsWhileIterating() throws Exception {
+        Module mod = new Module("/bin/foo", 0, 0, FileFormat.ELF, ISA.X64,
+                                "foo");
+        Symbol foo = new Symbol("foo", 0x1000);
+        Symbol bar = new Symbol("bar", 0x2000);
+        mod.addSymbol(foo);
+        mod.addSymbol(bar);
+        Set<AttributeFlag> noFlags = new HashSet<AttributeFlag>();
+        ByteInterval bi = new ByteInterval(new byte[64], 0x1000);
+        for (int offset = 0; offset < 64; offset += 8)
+            bi.insertSymbolicExpression(
+                offset, new SymAddrConst(0, foo.getUuid(), noFlags));
+        mod.addSection(new Section(".data",
+                                   new HashSet<Section.SectionFlag>(),
+                                   Arrays.asList(bi)));
+
+        // The list is a snapshot, so retargeting the expressions it lists
+        // neither skips any of them nor fails.
+        List<Xref> xrefs = mod.findXrefs(foo);
+        int retargeted = 0;
+        for (Xref xref : xrefs) {
+            bi.insertSymbolicExpression(
+                xref.getOffset(),
+                new SymAddrConst(0, bar.getUuid(), noFlags));
+            retargeted++;
+        }
+        assertEquals(8, retargeted);
+        assertEquals(8, xrefs.size());
+        assertTrue(mod.findXrefs(foo).isEmpty());
+        assertEquals(8, mod.findXrefs(bar).size());
+    }
+
+    @Test
+    void testRetargetInsertedExpression() throws Exception {
+        Module mod = new Module("/bin/foo", 0, 0, FileFormat.ELF, ISA.X64,
+                                "foo");
+        Symbol a = new Symbol("a", 0x1000);
+        Symbol b = new Symbol("b", 0x2000);
+        Symbol c = new Symbol("c", 0x3000);
+        mod.addSymbol(a);
+        mod.addSymbol(b);
+        mod.addSymbol(c);
+        Set<AttributeFlag> noFlags = new HashSet<AttributeFlag>();
+        ByteInterval bi = new ByteInterval(new byte[16], 0x1000);
+        mod.addSection(new Section(".data",
+                                   new HashSet<Section.SectionFlag>(),
+                                   Arrays.asList(bi)));
+        SymAddrConst sac = new SymAddrConst(0, a.getUuid(), noFlags);
+        SymAddrAddr saa =
+            new SymAddrAddr(0, 1, a.getUuid(), b.getUuid(), noFlags);
+        bi.insertSymbolicExpression(4, sac);
+        bi.insertSymbolicExpression(8, saa);
+        assertEquals(2, mod.findXrefs(a).size());
+
+        // Inserting a retargeted expression again moves its entries.
+        sac.setSymbolUuid(b.getUuid());
+        bi.insertSymbolicExpression(4, sac);
+        saa.setSymbol2Uuid(c.getUuid());
+        bi.insertSymbolicExpression(8, saa);
+        assertEquals(Arrays.asList(new Xref(bi, 8)), mod.findXrefs(a));
+        assertEquals(Arrays.asList(new Xref(bi, 4)), mod.findXrefs(b));
+        assertEquals(Arrays.asList(new Xref(bi, 8)), mod.findXrefs(c));
+
+        // Removing it then leaves no entry behind.
+        sac.setSymbolUuid(c.getUuid());
+        assertTrue(bi.removeSymbolicExpression(4));
+        assertTrue(bi.removeSymbolicExpression(8));
+        assertTrue(mod.findXrefs(a).isEmpty());
+        assertTrue(mod.findXrefs(b).isEmpty());
+        assertTrue(mod.findXrefs(c).isEmpty());
+    }
 }
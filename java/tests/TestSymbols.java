@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import com.grammatech.gtirb.*;
 import com.grammatech.gtirb.Module;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.*;
 import org.junit.jupiter.api.Test;
@@ -106,4 +108,155 @@ public class TestSymbols {
         assertEquals(symbol.isAtEnd(), true);
         assertEquals(symbol.getName(), "goodName");
     }
+
+    @Test
+    void testSymbolNameIndex() throws Exception {
+        Module mod = new Module("c:/foo.exe", 0xCAFE, 0xBEEF,
+                                Module.FileFormat.PE, Module.ISA.X64, "mod");
+        Symbol printf = new Symbol("__imp_printf", 1);
+        Symbol puts = new Symbol("__imp_puts", 2);
+        Symbol foo = new Symbol("_ZN3foo3barEv", 3);
+        Symbol foo2 = new Symbol("_ZN3foo3barEv", 4);
+        Symbol main = new Symbol("main", 5);
+        Symbol empty = new Symbol("", 6);
+        for (Symbol symbol :
+             Arrays.asList(main, foo, printf, puts, foo2, empty))
+            mod.addSymbol(symbol);
+
+        // Symbols with the same name are returned in the order they were
+        // added.
+        assertEquals(Arrays.asList(foo, foo2),
+                     mod.findSymbols("_ZN3foo3barEv"));
+        assertEquals(Arrays.asList(main), mod.findSymbols("main"));
+        assertEquals(Arrays.asList(empty), mod.findSymbols(""));
+        assertTrue(mod.findSymbols("mai").isEmpty());
+        assertTrue(mod.findSymbols("main2").isEmpty());
+
+        assertEquals(Arrays.asList(printf, puts),
+                     mod.findSymbolsByPrefix("__imp_"));
+        assertEquals(Arrays.asList(foo, foo2),
+                     mod.findSymbolsByPrefix("_ZN3foo"));
+        assertEquals(6, mod.findSymbolsByPrefix("").size());
+        assertTrue(mod.findSymbolsByPrefix("_ZN4").isEmpty());
+        // '_' sorts after 'Z'.
+        assertEquals(Arrays.asList(foo, foo2, printf),
+                     mod.findSymbolsInRange("_ZN", "__imp_pu"));
+        assertTrue(mod.findSymbolsInRange("main", "a").isEmpty());
+
+        Map<String, List<Symbol>> found = mod.findSymbols(
+            Arrays.asList("main", "missing", "__imp_puts", "main"));
+        assertEquals(2, found.size());
+        assertEquals(Arrays.asList(main), found.get("main"));
+        assertEquals(Arrays.asList(puts), found.get("__imp_puts"));
+
+        // The index follows renames and removals.
+        List<Symbol> before = mod.findSymbols("main");
+        main.setName("__imp_main");
+        assertTrue(mod.findSymbols("main").isEmpty());
+        assertEquals(Arrays.asList(main, printf, puts),
+                     mod.findSymbolsByPrefix("__imp_"));
+        assertEquals(Arrays.asList(main), before);
+        assertTrue(mod.removeSymbol(foo));
+        assertEquals(Arrays.asList(foo2), mod.findSymbols("_ZN3foo3barEv"));
+        foo.setName("main");
+        assertTrue(mod.findSymbols("main").isEmpty());
+        mod.addSymbol(foo);
+        assertEquals(Arrays.asList(foo), mod.findSymbols("main"));
+
+        // Added and renamed symbols go after those with the same name.
+        Symbol foo3 = new Symbol("_ZN3foo3barEv", 7);
+        mod.addSymbol(foo3);
+        puts.setName("_ZN3foo3barEv");
+        assertEquals(Arrays.asList(foo2, foo3, puts),
+                     mod.findSymbols("_ZN3foo3barEv"));
+        assertEquals(Arrays.asList(main, printf),
+                     mod.findSymbolsByPrefix("__imp_"));
+        assertEquals(7, mod.findSymbolsByPrefix("").size());
+    }
+
+    @Test
+    void testSymbolReferentIndex() throws Exception {
+        Module mod = new Module("c:/foo.exe", 0, 0, Module.FileFormat.ELF,
+                                Module.ISA.X64, "myModule");
+        CodeBlock code = new CodeBlock(4, 0, CodeBlock.DecodeMode.Default);
+        DataBlock data = new DataBlock(8, 4);
+        ProxyBlock proxy = new ProxyBlock();
+        Symbol start = new Symbol("_start", code.getUuid());
+        Symbol main = new Symbol("main", code.getUuid());
+        Symbol table = new Symbol("table", data.getUuid());
+        Symbol value = new Symbol("value", 42);
+        mod.addSymbol(start);
+        mod.addSymbol(main);
+        mod.addSymbol(table);
+        mod.addSymbol(value);
+
+        assertEquals(Arrays.asList(start, main), mod.findSymbols(code));
+        assertEquals(Arrays.asList(table), mod.findSymbols(data));
+        assertTrue(mod.findSymbols(proxy).isEmpty());
+
+        // The index follows changes to the symbols.
+        main.setReferentUuid(proxy.getUuid());
+        assertEquals(Arrays.asList(start), mod.findSymbols(code));
+        assertEquals(Arrays.asList(main), mod.findSymbols(proxy));
+        value.setReferentUuid(data.getUuid());
+        assertEquals(Arrays.asList(table, value), mod.findSymbols(data));
+        table.setValue(0);
+        assertEquals(Arrays.asList(value), mod.findSymbols(data));
+        mod.removeSymbol(start);
+        assertTrue(mod.findSymbols(code).isEmpty());
+        Symbol exit = new Symbol("exit", proxy.getUuid());
+        mod.addSymbol(exit);
+        assertEquals(Arrays.asList(main, exit), mod.findSymbols(proxy));
+        assertEquals(Arrays.asList(main, exit),
+                     mod.findSymbolsByReferent(proxy.getUuid()));
+
+        // Symbols outside the module are not indexed.
+        mod.removeSymbol(exit);
+        exit.setReferentUuid(code.getUuid());
+        assertTrue(mod.findSymbols(code).isEmpty());
+        assertThrows(UnsupportedOperationException.class,
+                     () -> mod.findSymbols(proxy).add(start));
+    }
+
+    @Test
+    void testSymbolReferentPerIr() throws Exception {
+        IR ir = new IR();
+        Module mod = new Module("c:/foo.exe", 0, 0, Module.FileFormat.ELF,
+                                Module.ISA.X64, "myModule");
+        Section section =
+            new Section(".text", new HashSet<Section.SectionFlag>(),
+                        new ArrayList<ByteInterval>());
+        ByteInterval bi = new ByteInterval(new byte[4], 0x1000);
+        CodeBlock code = new CodeBlock(4, 0, CodeBlock.DecodeMode.Default);
+        ProxyBlock proxy = new ProxyBlock();
+        bi.insertByteBlock(code);
+        section.addByteInterval(bi);
+        mod.addSection(section);
+        mod.addProxyBlock(proxy);
+        mod.addSymbol(new Symbol("main", code.getUuid()));
+        mod.addSymbol(new Symbol("puts", proxy.getUuid()));
+        ir.addModule(mod);
+
+        // Load the same file twice, so that both IRs have nodes with the
+        // same UUIDs.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ir.saveFile(out);
+        IR ir1 = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+        IR ir2 = IR.loadFile(new ByteArrayInputStream(out.toByteArray()));
+
+        for (IR loaded : Arrays.asList(ir, ir1, ir2)) {
+            Module m = loaded.getModules().get(0);
+            ByteBlock c = m.getSections()
+                              .get(0)
+                              .getByteIntervals()
+                              .get(0)
+                              .getBlockList()
+                              .get(0);
+            ProxyBlock p = m.getProxyBlocks().get(0);
+            assertSame(c, m.findSymbols("main").get(0).getReferent());
+            assertSame(p, m.findSymbols("puts").get(0).getReferent());
+        }
+        ir1.close();
+        ir2.close();
+    }
 }